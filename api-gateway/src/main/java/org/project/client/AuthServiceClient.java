@@ -1,9 +1,9 @@
 package org.project.client;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.project.dto.request.VerifyTokenRequest;
 import org.project.dto.response.ApiResponse;
+import org.project.dto.response.RevocationFeedResponse;
 import org.project.dto.response.VerifyTokenResponse;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.stereotype.Component;
@@ -14,16 +14,20 @@ import java.time.Duration;
 
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class AuthServiceClient {
-    private final WebClient.Builder webClient;
+    // Dựng một lần, không build lại WebClient ở mỗi request
+    private final WebClient webClient;
+
+    public AuthServiceClient(WebClient.Builder webClientBuilder) {
+        this.webClient = webClientBuilder.build();
+    }
 
     public Mono<VerifyTokenResponse> verifyToken(String token) {
         VerifyTokenRequest request = VerifyTokenRequest.builder()
                 .token(token)
                 .build();
 
-        return webClient.build()
+        return webClient
                 .post()
                 .uri("lb://auth-service/api/auth/verify-token")
                 .bodyValue(request)
@@ -36,4 +40,20 @@ public class AuthServiceClient {
                         VerifyTokenResponse.invalid("Không thể xác thực token")
                 ));
     }
+
+    /**
+     * Lỗi được trả nguyên cho RevocationRegistry để giữ nguyên cursor và thử lại ở lần sau.
+     * afterId là cursorId của trang trước khi đọc tiếp các token cùng millisecond, null ở trang đầu.
+     */
+    public Mono<RevocationFeedResponse> fetchRevocations(long since, String afterId) {
+        return webClient
+                .get()
+                .uri(afterId == null
+                        ? "lb://auth-service/api/internal/revocations?since={since}"
+                        : "lb://auth-service/api/internal/revocations?since={since}&afterId={afterId}",
+                        since, afterId)
+                .retrieve()
+                .bodyToMono(RevocationFeedResponse.class)
+                .timeout(Duration.ofSeconds(5));
+    }
 }
@@ -5,6 +5,11 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.project.client.AuthServiceClient;
 import org.project.dto.response.ErrorResponse;
+import org.project.security.InvalidTokenException;
+import org.project.security.LocalTokenVerifier;
+import org.project.security.RevocationRegistry;
+import org.project.security.TokenVerificationCache;
+import org.project.security.VerifiedToken;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
 import org.springframework.core.Ordered;
@@ -26,6 +31,9 @@ import java.util.List;
 public class AuthenticationFilter implements GlobalFilter, Ordered {
 
     private final AuthServiceClient authServiceClient;
+    private final LocalTokenVerifier localTokenVerifier;
+    private final TokenVerificationCache verificationCache;
+    private final RevocationRegistry revocationRegistry;
     private final ObjectMapper objectMapper;
 
     private static final List<String> PUBLIC_PATHS = List.of(
@@ -61,8 +69,39 @@ public class AuthenticationFilter implements GlobalFilter, Ordered {
             return unauthorized(exchange.getResponse(), "Thiếu token xác thực");
         }
 
-        // Verify token
-        // Gọi tới auth-service
+        // Danh sách thu hồi chưa đồng bộ được thì không thể tự quyết, hỏi auth-service như trước
+        if (!revocationRegistry.isFresh()) {
+            return verifyRemotely(exchange, chain, token);
+        }
+
+        String tokenHash = LocalTokenVerifier.hash(token);
+        VerifiedToken verified = verificationCache.get(tokenHash);
+        if (verified == null) {
+            try {
+                verified = localTokenVerifier.verify(token, tokenHash);
+            } catch (InvalidTokenException e) {
+                return unauthorized(exchange.getResponse(), e.getMessage());
+            }
+            verificationCache.put(verified);
+        }
+
+        if (verified.isExpired(System.currentTimeMillis())) {
+            return unauthorized(exchange.getResponse(), "Token đã hết hạn");
+        }
+        if (revocationRegistry.isRevoked(verified)) {
+            return unauthorized(exchange.getResponse(), "Token đã bị vô hiệu hóa");
+        }
+
+        ServerHttpRequest request = exchange.getRequest().mutate()
+                .header("X-User-Id", verified.userId())
+                .header("X-Username", verified.username())
+                .header("X-Email", verified.email())
+                .header("X-Roles", verified.rolesHeader())
+                .build();
+        return chain.filter(exchange.mutate().request(request).build());
+    }
+
+    private Mono<Void> verifyRemotely(ServerWebExchange exchange, GatewayFilterChain chain, String token) {
         return authServiceClient.verifyToken(token)
                 .flatMap(response -> {
                     if (response.isValid()) {
@@ -0,0 +1,7 @@
+package org.project.security;
+
+public class InvalidTokenException extends RuntimeException {
+    public InvalidTokenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,90 @@
+package org.project.security;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Kiểm tra chữ ký HS512 và hạn dùng của access token ngay tại gateway bằng cùng khóa với auth-service,
+ * không cần gọi POST /api/auth/verify-token.
+ */
+@Slf4j
+@Component
+public class LocalTokenVerifier {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm not found", e);
+        }
+    });
+
+    private final JWSVerifier verifier;
+
+    public LocalTokenVerifier(@Value("${jwt.signer-key}") String signerKey) throws JOSEException {
+        this.verifier = new MACVerifier(signerKey.getBytes());
+    }
+
+    /**
+     * Cùng định dạng với TokenValidator.hash của auth-service (SHA-256, hex chữ thường)
+     * để tra trực tiếp trong tập token bị thu hồi
+     */
+    public static String hash(String token) {
+        MessageDigest digest = SHA_256.get();
+        return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public VerifiedToken verify(String token, String tokenHash) {
+        try {
+            SignedJWT signedJWT = SignedJWT.parse(token);
+            if (!JWSAlgorithm.HS512.equals(signedJWT.getHeader().getAlgorithm())) {
+                throw new InvalidTokenException("Token không hợp lệ");
+            }
+            if (!signedJWT.verify(verifier)) {
+                throw new InvalidTokenException("Token không hợp lệ");
+            }
+
+            JWTClaimsSet claims = signedJWT.getJWTClaimsSet();
+            Date expirationTime = claims.getExpirationTime();
+            Date issueTime = claims.getIssueTime();
+            if (expirationTime == null || issueTime == null) {
+                throw new InvalidTokenException("Token không hợp lệ");
+            }
+            if (!expirationTime.after(new Date())) {
+                throw new InvalidTokenException("Token đã hết hạn");
+            }
+            // Refresh token không có subject, không được dùng để gọi API
+            if (claims.getSubject() == null) {
+                throw new InvalidTokenException("Token không phải access token");
+            }
+
+            List<String> roles = claims.getStringListClaim("roles");
+            return new VerifiedToken(
+                    tokenHash,
+                    claims.getStringClaim("userId"),
+                    claims.getSubject(),
+                    claims.getStringClaim("email"),
+                    roles == null ? "" : String.join(",", roles),
+                    issueTime.getTime(),
+                    expirationTime.getTime());
+        } catch (ParseException | JOSEException e) {
+            log.debug("Token verification failed: {}", e.getMessage());
+            throw new InvalidTokenException("Token không hợp lệ");
+        }
+    }
+}
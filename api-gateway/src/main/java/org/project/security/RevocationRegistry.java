@@ -0,0 +1,119 @@
+package org.project.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.project.client.AuthServiceClient;
+import org.project.dto.response.RevocationFeedResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bản sao tại gateway của danh sách token bị thu hồi (invalidated_tokens) và mốc tokensInvalidBefore
+ * của từng user, đồng bộ định kỳ từ auth-service.
+ * Khi chưa đồng bộ lần nào hoặc quá maxStalenessMs chưa đồng bộ được, isFresh() trả về false
+ * và AuthenticationFilter quay lại gọi verify-token của auth-service.
+ */
+@Slf4j
+@Component
+public class RevocationRegistry {
+
+    private final AuthServiceClient authServiceClient;
+    // tokenHash -> thời điểm hết hạn của token, hết hạn rồi thì không cần giữ
+    private final ConcurrentHashMap<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    // userId -> token phát hành trước mốc này không còn hiệu lực
+    private final ConcurrentHashMap<String, Long> userCutoffs = new ConcurrentHashMap<>();
+    private final AtomicBoolean syncing = new AtomicBoolean();
+
+    private final long overlapMillis;
+    private final long maxStalenessMillis;
+    private final long cutoffRetentionMillis;
+
+    private volatile long cursor;
+    private volatile long lastSyncedAt;
+
+    public RevocationRegistry(AuthServiceClient authServiceClient,
+                              @Value("${gateway.auth.revocation.overlap-ms:5000}") long overlapMillis,
+                              @Value("${gateway.auth.revocation.max-staleness-ms:30000}") long maxStalenessMillis,
+                              @Value("${gateway.auth.revocation.cutoff-retention-ms:7200000}") long cutoffRetentionMillis) {
+        this.authServiceClient = authServiceClient;
+        this.overlapMillis = overlapMillis;
+        this.maxStalenessMillis = maxStalenessMillis;
+        this.cutoffRetentionMillis = cutoffRetentionMillis;
+    }
+
+    public boolean isFresh() {
+        long syncedAt = lastSyncedAt;
+        return syncedAt > 0 && System.currentTimeMillis() - syncedAt <= maxStalenessMillis;
+    }
+
+    public boolean isRevoked(VerifiedToken token) {
+        if (revokedTokens.containsKey(token.tokenHash())) {
+            return true;
+        }
+        if (token.userId() == null) {
+            return false;
+        }
+        Long invalidBefore = userCutoffs.get(token.userId());
+        return invalidBefore != null && token.issuedAtMillis() < invalidBefore;
+    }
+
+    @Scheduled(fixedDelayString = "${gateway.auth.revocation.poll-interval-ms:2000}")
+    public void sync() {
+        if (!syncing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // Lùi lại một khoảng để không sót bản ghi commit muộn hơn thời điểm auth-service đọc
+            long since = cursor == 0 ? 0 : Math.max(0, cursor - overlapMillis);
+            String afterId = null;
+            RevocationFeedResponse response;
+            do {
+                response = authServiceClient.fetchRevocations(since, afterId).block();
+                if (response == null) {
+                    return;
+                }
+                apply(response);
+                since = response.getCursor();
+                afterId = response.getCursorId();
+            } while (response.isHasMore());
+
+            cursor = response.getCursor();
+            lastSyncedAt = System.currentTimeMillis();
+            pruneExpired();
+        } catch (Exception e) {
+            log.warn("Không thể đồng bộ danh sách token bị thu hồi từ auth-service: {}", e.getMessage());
+        } finally {
+            syncing.set(false);
+        }
+    }
+
+    void apply(RevocationFeedResponse response) {
+        long now = System.currentTimeMillis();
+        if (response.getRevokedTokens() != null) {
+            for (RevocationFeedResponse.RevokedToken token : response.getRevokedTokens()) {
+                if (token.getExpiresAt() > now) {
+                    revokedTokens.put(token.getTokenHash(), token.getExpiresAt());
+                }
+            }
+        }
+        if (response.getUserCutoffs() != null) {
+            for (RevocationFeedResponse.UserCutoff cutoff : response.getUserCutoffs()) {
+                userCutoffs.merge(cutoff.getUserId(), cutoff.getInvalidBefore(), Math::max);
+            }
+        }
+    }
+
+    private void pruneExpired() {
+        long now = System.currentTimeMillis();
+        revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+        // Mọi token phát hành trước mốc quá cũ đều đã hết hạn
+        userCutoffs.values().removeIf(invalidBefore -> invalidBefore <= now - cutoffRetentionMillis);
+    }
+
+    public int revokedTokenCount() {
+        return revokedTokens.size();
+    }
+}
@@ -0,0 +1,59 @@
+package org.project.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache kết quả kiểm tra chữ ký theo hash của token. Chỉ lưu phần bất biến của token,
+ * trạng thái thu hồi vẫn được kiểm tra lại ở mỗi request qua RevocationRegistry.
+ */
+@Component
+public class TokenVerificationCache {
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final long ttlMillis;
+
+    public TokenVerificationCache(@Value("${gateway.auth.verification-cache.max-size:100000}") int maxSize,
+                                  @Value("${gateway.auth.verification-cache.ttl-ms:60000}") long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public VerifiedToken get(String tokenHash) {
+        Entry entry = entries.get(tokenHash);
+        if (entry == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() >= entry.evictAt()) {
+            entries.remove(tokenHash, entry);
+            return null;
+        }
+        return entry.token();
+    }
+
+    public void put(VerifiedToken token) {
+        // Đầy thì bỏ qua, token vẫn được kiểm tra chữ ký bình thường cho tới lần dọn kế tiếp
+        if (entries.size() >= maxSize) {
+            return;
+        }
+        long evictAt = Math.min(System.currentTimeMillis() + ttlMillis, token.expiresAtMillis());
+        entries.put(token.tokenHash(), new Entry(token, evictAt));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Scheduled(fixedDelayString = "${gateway.auth.verification-cache.ttl-ms:60000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> now >= entry.evictAt());
+    }
+
+    private record Entry(VerifiedToken token, long evictAt) {
+    }
+}
@@ -0,0 +1,19 @@
+package org.project.security;
+
+/**
+ * Thông tin của một access token đã kiểm tra chữ ký và hạn dùng, không gồm trạng thái thu hồi.
+ * Header X-Roles được ghép sẵn một lần thay vì ở mỗi request.
+ */
+public record VerifiedToken(
+        String tokenHash,
+        String userId,
+        String username,
+        String email,
+        String rolesHeader,
+        long issuedAtMillis,
+        long expiresAtMillis
+) {
+    public boolean isExpired(long nowMillis) {
+        return nowMillis >= expiresAtMillis;
+    }
+}
@@ -0,0 +1,261 @@
+package org.project.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.project.client.AuthServiceClient;
+import org.project.security.LocalTokenVerifier;
+import org.project.security.RevocationRegistry;
+import org.project.security.TokenVerificationCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * auth-service được thay bằng ExchangeFunction giả có độ trễ cố định cho mỗi lần verify-token,
+ * để so sánh chi phí xác thực mỗi request giữa gọi sang auth-service và xác thực tại gateway.
+ */
+class AuthenticationFilterTest {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthenticationFilterTest.class);
+
+    private static final String SIGNER_KEY = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+    private static final long AUTH_SERVICE_LATENCY_MS = 2;
+
+    private final AtomicInteger verifyTokenCalls = new AtomicInteger();
+    private final AtomicReference<String> revocationFeed = new AtomicReference<>();
+
+    private RevocationRegistry revocationRegistry;
+    private AuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() throws JOSEException {
+        WebClient.Builder webClientBuilder = WebClient.builder().exchangeFunction(request -> {
+            if (request.url().getPath().endsWith("/verify-token")) {
+                verifyTokenCalls.incrementAndGet();
+                return Mono.delay(Duration.ofMillis(AUTH_SERVICE_LATENCY_MS))
+                        .thenReturn(json("{\"success\":true,\"code\":200,\"data\":{\"valid\":true," +
+                                "\"userId\":\"remote\",\"username\":\"remote\",\"email\":\"remote@mail.com\"," +
+                                "\"roles\":[\"PATIENT\"]}}"));
+            }
+            return Mono.just(json(revocationFeed.get()));
+        });
+        AuthServiceClient authServiceClient = new AuthServiceClient(webClientBuilder);
+        revocationRegistry = new RevocationRegistry(authServiceClient, 5000, 30000, 7200000);
+        filter = new AuthenticationFilter(authServiceClient, new LocalTokenVerifier(SIGNER_KEY),
+                new TokenVerificationCache(100_000, 60_000), revocationRegistry, new ObjectMapper());
+        publishFeed("[]", "[]");
+    }
+
+    @Test
+    void filter_WithValidToken_ShouldForwardUserHeadersWithoutCallingAuthService() throws JOSEException {
+        // Given
+        revocationRegistry.sync();
+        String token = accessToken("user-1", System.currentTimeMillis());
+        AtomicReference<ServerWebExchange> forwarded = new AtomicReference<>();
+
+        // When
+        ServerWebExchange exchange = exchange(token);
+        filter.filter(exchange, capture(forwarded)).block();
+
+        // Then
+        HttpHeaders headers = forwarded.get().getRequest().getHeaders();
+        assertThat(headers.getFirst("X-User-Id")).isEqualTo("user-1");
+        assertThat(headers.getFirst("X-Username")).isEqualTo("user-1-name");
+        assertThat(headers.getFirst("X-Roles")).isEqualTo("PATIENT,DOCTOR");
+        assertThat(verifyTokenCalls.get()).isZero();
+    }
+
+    @Test
+    void filter_WithRevokedToken_ShouldRejectEvenWhenVerificationIsCached() throws JOSEException {
+        // Given: token đã được xác thực và nằm trong cache
+        revocationRegistry.sync();
+        String token = accessToken("user-1", System.currentTimeMillis());
+        assertThat(statusOf(token)).isNull();
+
+        // When: logout, auth-service ghi token vào invalidated_tokens
+        publishFeed("[{\"tokenHash\":\"" + LocalTokenVerifier.hash(token) + "\",\"expiresAt\":"
+                + (System.currentTimeMillis() + 3_600_000) + "}]", "[]");
+        revocationRegistry.sync();
+
+        // Then
+        assertThat(statusOf(token)).isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(statusOf(accessToken("user-2", System.currentTimeMillis()))).isNull();
+    }
+
+    @Test
+    void filter_AfterPasswordReset_ShouldRejectTokensIssuedBeforeCutoff() throws JOSEException {
+        // Given
+        long resetAt = System.currentTimeMillis();
+        String oldToken = accessToken("user-1", resetAt - 60_000);
+        String newToken = accessToken("user-1", resetAt + 1_000);
+
+        // When
+        publishFeed("[]", "[{\"userId\":\"user-1\",\"invalidBefore\":" + resetAt + "}]");
+        revocationRegistry.sync();
+
+        // Then
+        assertThat(statusOf(oldToken)).isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(statusOf(newToken)).isNull();
+    }
+
+    @Test
+    void filter_WithTamperedExpiredOrRefreshToken_ShouldReject() throws JOSEException {
+        revocationRegistry.sync();
+        long now = System.currentTimeMillis();
+        String token = accessToken("user-1", now);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+        String expired = sign(new JWTClaimsSet.Builder().subject("user-1-name").claim("userId", "user-1")
+                .issueTime(new Date(now - 7_200_000)).expirationTime(new Date(now - 3_600_000)).build());
+        String refreshToken = sign(new JWTClaimsSet.Builder().jwtID(UUID.randomUUID().toString())
+                .issueTime(new Date(now)).expirationTime(new Date(now + 3_600_000)).build());
+
+        assertThat(statusOf(tampered)).isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(statusOf(expired)).isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(statusOf(refreshToken)).isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(statusOf("not-a-jwt")).isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
+
+    @Test
+    void filter_BeforeFirstSync_ShouldFallBackToAuthService() throws JOSEException {
+        // Given: chưa có bản sao danh sách thu hồi
+        AtomicReference<ServerWebExchange> forwarded = new AtomicReference<>();
+
+        // When
+        filter.filter(exchange(accessToken("user-1", System.currentTimeMillis())), capture(forwarded)).block();
+
+        // Then
+        assertThat(verifyTokenCalls.get()).isEqualTo(1);
+        assertThat(forwarded.get().getRequest().getHeaders().getFirst("X-User-Id")).isEqualTo("remote");
+    }
+
+    @Test
+    void loadTest_LocalVerification_ShouldRemoveAuthServiceHopFromEveryRequest() throws JOSEException {
+        // Given: 1.000 user đang hoạt động, 64 request đồng thời
+        int users = 1_000;
+        int concurrency = 64;
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            tokens.add(accessToken("user-" + i, System.currentTimeMillis()));
+        }
+
+        // When: trước khi đồng bộ, mỗi request đều gọi verify-token của auth-service
+        long[] remote = run(tokens, 2_000, concurrency);
+        revocationRegistry.sync();
+        run(tokens, 20_000, concurrency);
+        long[] local = run(tokens, 100_000, concurrency);
+
+        // Then
+        log.info("Xác thực qua auth-service ({} ms/lần gọi): p50 {} µs, p99 {} µs, {} lần gọi",
+                AUTH_SERVICE_LATENCY_MS, String.format("%.1f", micros(remote, 0.50)),
+                String.format("%.1f", micros(remote, 0.99)), verifyTokenCalls.get());
+        log.info("Xác thực tại gateway: p50 {} µs, p99 {} µs, trung bình {} µs/request",
+                String.format("%.1f", micros(local, 0.50)), String.format("%.1f", micros(local, 0.99)),
+                String.format("%.1f", Arrays.stream(local).average().orElse(0) / 1_000));
+        assertThat(verifyTokenCalls.get()).isEqualTo(2_000);
+        assertThat(micros(local, 0.50)).isLessThan(micros(remote, 0.50));
+        assertThat(micros(local, 0.50)).isLessThan(AUTH_SERVICE_LATENCY_MS * 1_000);
+    }
+
+    private long[] run(List<String> tokens, int requests, int concurrency) {
+        long[] latencies = new long[requests];
+        AtomicInteger rejected = new AtomicInteger();
+        Flux.range(0, requests)
+                .flatMap(i -> Mono.defer(() -> {
+                    ServerWebExchange exchange = exchange(tokens.get(i % tokens.size()));
+                    long startedAt = System.nanoTime();
+                    return filter.filter(exchange, forwardedExchange -> Mono.empty())
+                            .doOnTerminate(() -> {
+                                latencies[i] = System.nanoTime() - startedAt;
+                                if (exchange.getResponse().getStatusCode() != null) {
+                                    rejected.incrementAndGet();
+                                }
+                            });
+                }), concurrency)
+                .blockLast();
+        assertThat(rejected.get()).isZero();
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static double micros(long[] sortedNanos, double percentile) {
+        int index = (int) Math.min(sortedNanos.length - 1, Math.ceil(percentile * sortedNanos.length) - 1);
+        return sortedNanos[Math.max(0, index)] / 1_000.0;
+    }
+
+    private HttpStatus statusOf(String token) {
+        ServerWebExchange exchange = exchange(token);
+        filter.filter(exchange, forwardedExchange -> Mono.empty()).block();
+        return (HttpStatus) exchange.getResponse().getStatusCode();
+    }
+
+    private static ServerWebExchange exchange(String token) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/appointments/me")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token));
+    }
+
+    private static GatewayFilterChain capture(AtomicReference<ServerWebExchange> forwarded) {
+        return exchange -> {
+            forwarded.set(exchange);
+            return Mono.empty();
+        };
+    }
+
+    private void publishFeed(String revokedTokens, String userCutoffs) {
+        revocationFeed.set("{\"cursor\":" + System.currentTimeMillis() + ",\"hasMore\":false,\"revokedTokens\":"
+                + revokedTokens + ",\"userCutoffs\":" + userCutoffs + "}");
+    }
+
+    private static ClientResponse json(String body) {
+        return ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(body)
+                .build();
+    }
+
+    private static String accessToken(String userId, long issuedAtMillis) throws JOSEException {
+        return sign(new JWTClaimsSet.Builder()
+                .subject(userId + "-name")
+                .issuer("appointment")
+                .issueTime(new Date(issuedAtMillis))
+                .expirationTime(new Date(issuedAtMillis + 3_600_000))
+                .jwtID(UUID.randomUUID().toString())
+                .claim("userId", userId)
+                .claim("email", userId + "@mail.com")
+                .claim("roles", List.of("PATIENT", "DOCTOR"))
+                .build());
+    }
+
+    private static String sign(JWTClaimsSet claims) throws JOSEException {
+        SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS512), claims);
+        jwt.sign(new MACSigner(SIGNER_KEY.getBytes()));
+        return jwt.serialize();
+    }
+}
@@ -0,0 +1,40 @@
+package org.project.config;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.project.events.AppointmentCancellationInitiatedEvent;
+import org.project.events.AppointmentCancelledEvent;
+import org.project.events.AppointmentConfirmedEvent;
+import org.project.events.AppointmentCreatedEvent;
+import org.project.outbox.OutboxEventMapping;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class AppointmentOutboxEventMapping implements OutboxEventMapping {
+    AppointmentKafkaTopics topics;
+
+    @Override
+    public String topicFor(String eventType) {
+        return switch (eventType) {
+            case "APPOINTMENT_CREATED" -> topics.getAppointmentCreated();
+            case "APPOINTMENT_CONFIRMED" -> topics.getAppointmentConfirmed();
+            case "APPOINTMENT_CANCELLED" -> topics.getAppointmentCancelled();
+            case "APPOINTMENT_CANCELLATION_INITIATED" -> topics.getAppointmentCancellationInitiated();
+            default -> throw new IllegalArgumentException("Unknown event type: " + eventType);
+        };
+    }
+
+    @Override
+    public Class<?> eventClassFor(String eventType) {
+        return switch (eventType) {
+            case "APPOINTMENT_CREATED" -> AppointmentCreatedEvent.class;
+            case "APPOINTMENT_CONFIRMED" -> AppointmentConfirmedEvent.class;
+            case "APPOINTMENT_CANCELLED" -> AppointmentCancelledEvent.class;
+            case "APPOINTMENT_CANCELLATION_INITIATED" -> AppointmentCancellationInitiatedEvent.class;
+            default -> throw new IllegalArgumentException("Unknown event type: " + eventType);
+        };
+    }
+}
@@ -39,5 +39,25 @@ public class AsyncConfiguration {
         
         return executor;
     }
-}
 
+    /**
+     * Executor cho bước tạo payment URL sau khi lịch hẹn đã commit
+     */
+    @Bean(name = "paymentExecutor")
+    public Executor paymentExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+        executor.setCorePoolSize(5);
+        executor.setMaxPoolSize(20);
+        executor.setQueueCapacity(500);
+        executor.setKeepAliveSeconds(60);
+
+        executor.setThreadNamePrefix("payment-url-");
+
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+
+        executor.initialize();
+        return executor;
+    }
+}
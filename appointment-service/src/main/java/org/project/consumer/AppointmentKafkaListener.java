@@ -4,105 +4,97 @@ import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.project.events.*;
-import org.project.repository.OutboxEventRepository;
 import org.project.service.AppointmentSagaEventHandler;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
+/**
+ * Các listener nhận cả lô record mỗi lần poll (tối đa appointment.kafka.batch.max-records),
+ * xử lý lô trong một transaction qua {@link SagaEventBatchProcessor} rồi commit offset một lần cho cả lô.
+ */
 @Component
 @Slf4j
 @RequiredArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class AppointmentKafkaListener {
     AppointmentSagaEventHandler eventHandler;
-    KafkaErrorHandler errorHandler;
-    OutboxEventRepository outboxEventRepository;
+    SagaEventBatchProcessor batchProcessor;
 
     @KafkaListener(
             topics = "#{@appointmentKafkaTopics.paymentCompleted}",
             groupId = "appointment-service",
-            concurrency = "3"
+            concurrency = "3",
+            batch = "true",
+            properties = "max.poll.records=${appointment.kafka.batch.max-records:500}"
     )
-    public void onPaymentCompleted(PaymentCompletedEvent event, Acknowledgment ack) {
-
-        if (outboxEventRepository.existsByEventId(event.getEventId())) {
-            log.info("Event already processed via outbox, skipping: eventId={}", event.getEventId());
-            ack.acknowledge();
-            return;
-        }
-
-        processEvent(event,
-                () -> eventHandler.handlePaymentCompleted(event),
-                "PaymentCompleted",
-                ack);
+    public void onPaymentCompleted(List<ConsumerRecord<String, PaymentCompletedEvent>> records, Acknowledgment ack) {
+        processBatch(records, "PaymentCompleted", ack, PaymentCompletedEvent::getEventId,
+                PaymentCompletedEvent::getAppointmentId, eventHandler::handlePaymentCompleted);
     }
 
     @KafkaListener(
             topics = "#{@appointmentKafkaTopics.paymentFailed}",
             groupId = "appointment-service",
-            concurrency = "3"
+            concurrency = "3",
+            batch = "true",
+            properties = "max.poll.records=${appointment.kafka.batch.max-records:500}"
     )
-    public void onPaymentFailed(PaymentFailedEvent event, Acknowledgment ack) {
-        processEvent(event,
-                () -> eventHandler.handlePaymentFailed(event),
-                "PaymentFailed",
-                ack);
+    public void onPaymentFailed(List<ConsumerRecord<String, PaymentFailedEvent>> records, Acknowledgment ack) {
+        processBatch(records, "PaymentFailed", ack, PaymentFailedEvent::getEventId,
+                PaymentFailedEvent::getAppointmentId, eventHandler::handlePaymentFailed);
     }
 
     @KafkaListener(
             topics = "#{@appointmentKafkaTopics.validationFailed}",
             groupId = "appointment-service",
-            concurrency = "3"
+            concurrency = "3",
+            batch = "true",
+            properties = "max.poll.records=${appointment.kafka.batch.max-records:500}"
     )
-    public void onValidationFailed(ValidationFailedEvent event, Acknowledgment ack) {
-        processEvent(event,
-                () -> eventHandler.handleValidationFailed(event),
-                "ValidationFailed",
-                ack);
+    public void onValidationFailed(List<ConsumerRecord<String, ValidationFailedEvent>> records, Acknowledgment ack) {
+        processBatch(records, "ValidationFailed", ack, ValidationFailedEvent::getEventId,
+                ValidationFailedEvent::getAppointmentId, eventHandler::handleValidationFailed);
     }
 
     @KafkaListener(
             topics = "#{@appointmentKafkaTopics.patientValidated}",
             groupId = "appointment-service",
-            concurrency = "3"
+            concurrency = "3",
+            batch = "true",
+            properties = "max.poll.records=${appointment.kafka.batch.max-records:500}"
     )
-    public void onPatientValidated(PatientValidatedEvent event, Acknowledgment ack) {
-        processEvent(event,
-                () -> eventHandler.handlePatientValidated(event),
-                "PatientValidated",
-                ack);
+    public void onPatientValidated(List<ConsumerRecord<String, PatientValidatedEvent>> records, Acknowledgment ack) {
+        processBatch(records, "PatientValidated", ack, PatientValidatedEvent::getEventId,
+                PatientValidatedEvent::getAppointmentId, eventHandler::handlePatientValidated);
     }
 
     @KafkaListener(
             topics = "payment.refund.processed",
             groupId = "appointment-service",
-            concurrency = "3"
+            concurrency = "3",
+            batch = "true",
+            properties = "max.poll.records=${appointment.kafka.batch.max-records:500}"
     )
-    public void onRefundProcessed(PaymentRefundProcessedEvent event, Acknowledgment ack) {
-        processEvent(event,
-                () -> eventHandler.handleRefundProcessed(event),
-                "RefundProcessed",
-                ack);
-    }
-
-    private void processEvent(Object event, Runnable handler, String eventType, Acknowledgment ack) {
-        try {
-            log.info("Received {}: {}", eventType, event);
-            handler.run();
-            ack.acknowledge();
-            log.debug("Successfully processed {}", eventType);
-        } catch (Exception e) {
-            log.error("Error processing {}: {}", eventType, event, e);
-            errorHandler.handleError(event, e, eventType);
-            ack.acknowledge();
-        }
+    public void onRefundProcessed(List<ConsumerRecord<String, PaymentRefundProcessedEvent>> records, Acknowledgment ack) {
+        processBatch(records, "RefundProcessed", ack, PaymentRefundProcessedEvent::getEventId,
+                PaymentRefundProcessedEvent::getAppointmentId, eventHandler::handleRefundProcessed);
     }
 
-    private String generateEventId(Object event) {
-        return UUID.nameUUIDFromBytes(event.toString().getBytes()).toString();
+    private <T> void processBatch(List<ConsumerRecord<String, T>> records, String eventType, Acknowledgment ack,
+                                  Function<T, String> eventIdOf,
+                                  Function<T, UUID> appointmentOf,
+                                  Consumer<T> handler) {
+        log.info("Received {} {} records", records.size(), eventType);
+        // Sự kiện lỗi đã được chuyển cho KafkaErrorHandler bên trong processor, ack cả lô như trước đây ack từng record
+        batchProcessor.process(eventType, records, eventIdOf, appointmentOf, handler);
+        ack.acknowledge();
     }
 }
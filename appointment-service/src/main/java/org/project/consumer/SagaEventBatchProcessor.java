@@ -0,0 +1,128 @@
+package org.project.consumer;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.project.repository.AppointmentRepository;
+import org.project.repository.ProcessedEventRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Xử lý một lô record Kafka của saga trong một transaction:
+ * ghi nhận khóa đã xử lý của cả lô bằng một câu INSERT, nạp trước các lịch hẹn liên quan,
+ * chạy handler cho các sự kiện chưa xử lý rồi commit một lần.
+ * Một sự kiện lỗi làm cả lô rollback, khi đó lô được xử lý lại từng sự kiện trong transaction riêng
+ * để lỗi chỉ ảnh hưởng đến sự kiện gây ra nó.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class SagaEventBatchProcessor {
+    ProcessedEventRepository processedEventRepository;
+    AppointmentRepository appointmentRepository;
+    TransactionTemplate transactionTemplate;
+    KafkaErrorHandler errorHandler;
+
+    /**
+     * @param eventIdOf     định danh sự kiện do producer gán, null thì dùng topic/partition/offset của record
+     * @param appointmentOf lịch hẹn mà sự kiện tác động, dùng để nạp trước cả lô
+     */
+    public <T> void process(String eventType,
+                            List<ConsumerRecord<String, T>> records,
+                            Function<T, String> eventIdOf,
+                            Function<T, UUID> appointmentOf,
+                            Consumer<T> handler) {
+        // Giữ thứ tự record trong partition, bỏ message trùng ngay trong lô
+        Map<UUID, T> events = new LinkedHashMap<>();
+        for (ConsumerRecord<String, T> record : records) {
+            if (record.value() == null) {
+                log.warn("Bỏ qua record {} rỗng: {}-{}@{}", eventType, record.topic(), record.partition(), record.offset());
+                continue;
+            }
+            events.putIfAbsent(eventKey(eventType, record, eventIdOf), record.value());
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+
+        try {
+            Integer handled = transactionTemplate.execute(status -> {
+                Set<UUID> claimed = claim(eventType, events.keySet());
+                prefetchAppointments(events, claimed, appointmentOf);
+                events.forEach((key, event) -> {
+                    if (claimed.contains(key)) {
+                        handler.accept(event);
+                    }
+                });
+                return claimed.size();
+            });
+            log.debug("Đã xử lý lô {}: {} record, {} sự kiện mới", eventType, records.size(), handled);
+        } catch (Exception e) {
+            log.warn("Lô {} gồm {} sự kiện lỗi, xử lý lại từng sự kiện: {}", eventType, events.size(), e.getMessage());
+            events.forEach((key, event) -> processOne(eventType, key, event, handler));
+        }
+    }
+
+    private <T> void processOne(String eventType, UUID key, T event, Consumer<T> handler) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (claim(eventType, Set.of(key)).isEmpty()) {
+                    log.info("Sự kiện {} đã được xử lý, bỏ qua: {}", eventType, event);
+                    return;
+                }
+                handler.accept(event);
+            });
+        } catch (Exception e) {
+            log.error("Error processing {}: {}", eventType, event, e);
+            errorHandler.handleError(event, e, eventType);
+        }
+    }
+
+    private Set<UUID> claim(String eventType, Set<UUID> keys) {
+        List<UUID> claimed = processedEventRepository.claim(
+                keys.toArray(new UUID[0]), eventType, LocalDateTime.now());
+        if (claimed.size() < keys.size()) {
+            log.info("Bỏ qua {} sự kiện {} đã được xử lý trước đó", keys.size() - claimed.size(), eventType);
+        }
+        return new HashSet<>(claimed);
+    }
+
+    /**
+     * Một câu SELECT cho cả lô, các lần findById trong handler sau đó lấy từ persistence context
+     */
+    private <T> void prefetchAppointments(Map<UUID, T> events, Set<UUID> claimed, Function<T, UUID> appointmentOf) {
+        Set<UUID> appointmentIds = new HashSet<>();
+        events.forEach((key, event) -> {
+            if (claimed.contains(key)) {
+                appointmentIds.add(appointmentOf.apply(event));
+            }
+        });
+        appointmentIds.remove(null);
+        if (appointmentIds.size() > 1) {
+            appointmentRepository.findAllById(appointmentIds);
+        }
+    }
+
+    static <T> UUID eventKey(String eventType, ConsumerRecord<String, T> record, Function<T, String> eventIdOf) {
+        String eventId = eventIdOf.apply(record.value());
+        String identity = Objects.requireNonNullElseGet(eventId,
+                () -> record.topic() + "-" + record.partition() + "@" + record.offset());
+        return UUID.nameUUIDFromBytes((eventType + ":" + identity).getBytes(StandardCharsets.UTF_8));
+    }
+}
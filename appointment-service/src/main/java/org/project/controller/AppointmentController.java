@@ -14,6 +14,7 @@ import org.project.dto.request.CreateAppointmentRequest;
 import org.project.dto.request.CancelAppointmentRequest;
 import org.project.dto.response.AppointmentDtoResponse;
 import org.project.dto.response.AppointmentResponse;
+import org.project.dto.response.PaymentUrlResponse;
 import org.project.enums.Status;
 import org.project.service.AppointmentService;
 import org.springframework.data.domain.PageRequest;
@@ -112,6 +113,19 @@ public class AppointmentController {
         return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
     }
 
+    /**
+     * Client poll sau khi tạo lịch hẹn: 202 khi payment URL đang được tạo, 200 khi đã có kết quả
+     */
+    @GetMapping("/{appointmentId}/payment")
+    public ResponseEntity<PaymentUrlResponse> getPaymentUrl(@PathVariable UUID appointmentId) {
+        return appointmentService.getPaymentUrl(appointmentId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.ACCEPTED)
+                        .body(PaymentUrlResponse.builder()
+                                .message("Payment is being created.")
+                                .build()));
+    }
+
     @GetMapping("/{appointmentId}")
     public ResponseEntity<AppointmentDtoResponse> getAppointmentDetails(@PathVariable UUID appointmentId) {
         log.info("Thông tin cho appointment");
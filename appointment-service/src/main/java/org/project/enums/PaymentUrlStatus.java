@@ -0,0 +1,7 @@
+package org.project.enums;
+
+public enum PaymentUrlStatus {
+    PENDING,    // Đã ghi yêu cầu cùng lịch hẹn, chờ payment-service trả URL
+    CREATED,
+    FAILED      // Hết số lần thử
+}
@@ -0,0 +1,24 @@
+package org.project.event;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Sự kiện nội bộ phát ra khi lịch hẹn vừa được tạo, payment URL được tạo sau khi transaction commit.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PaymentUrlRequestedEvent {
+    UUID appointmentId;
+    BigDecimal consultationFee;
+}
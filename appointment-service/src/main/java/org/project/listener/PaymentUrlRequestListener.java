@@ -0,0 +1,84 @@
+package org.project.listener;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import org.project.client.PaymentServiceClient;
+import org.project.dto.response.PaymentUrlResponse;
+import org.project.event.PaymentUrlRequestedEvent;
+import org.project.repository.SagaStateRepository;
+import org.project.service.impl.AppointmentFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bước tạo payment URL của saga đặt lịch, chạy sau khi transaction tạo lịch hẹn commit.
+ * Yêu cầu đã được ghi PENDING vào saga state cùng lịch hẹn, listener chỉ là đường nhanh:
+ * event bị mất do crash hoặc executor từ chối thì {@link org.project.scheduler.PaymentUrlRetryScheduler} gửi lại.
+ * Lời gọi payment-service không giữ connection, các câu UPDATE ghi kết quả chạy trong transaction ngắn.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PaymentUrlRequestListener {
+    PaymentServiceClient paymentServiceClient;
+    AppointmentFactory factory;
+    SagaStateRepository sagaStateRepository;
+    TransactionTemplate transactionTemplate;
+
+    @NonFinal
+    @Value("${appointment.payment-url.max-attempts:5}")
+    int maxAttempts;
+
+    // Lớn hơn timeout của lời gọi payment-service để sweeper không gửi trùng khi lần trước còn đang chạy
+    @NonFinal
+    @Value("${appointment.payment-url.retry-after-seconds:60}")
+    long retryAfterSeconds;
+
+    @Async("paymentExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPaymentUrlRequested(PaymentUrlRequestedEvent event) {
+        requestPaymentUrl(event.getAppointmentId(), event.getConsultationFee());
+    }
+
+    /**
+     * Gọi payment-service nếu giành được yêu cầu PENDING, trả về false khi yêu cầu đã có kết quả hoặc đang được xử lý
+     */
+    public boolean requestPaymentUrl(UUID appointmentId, BigDecimal consultationFee) {
+        LocalDateTime now = LocalDateTime.now();
+        Integer claimed = transactionTemplate.execute(status -> sagaStateRepository.claimPaymentUrlRequest(
+                appointmentId, maxAttempts, now.minusSeconds(retryAfterSeconds), now));
+        if (claimed == null || claimed == 0) {
+            log.debug("Yêu cầu payment URL đã được xử lý hoặc đang chạy: appointmentId={}", appointmentId);
+            return false;
+        }
+
+        PaymentUrlResponse payment;
+        try {
+            payment = paymentServiceClient.createPayment(
+                    factory.createPaymentRequest(appointmentId, consultationFee));
+        } catch (Exception e) {
+            log.error("Tạo payment URL thất bại, sẽ thử lại: appointmentId={}", appointmentId, e);
+            transactionTemplate.executeWithoutResult(status ->
+                    sagaStateRepository.recordPaymentUrlError(appointmentId, e.getMessage()));
+            return true;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> sagaStateRepository.completePaymentUrl(
+                appointmentId, payment.getPaymentId(), payment.getPaymentUrl()));
+        log.info("Đã tạo payment URL: appointmentId={}, paymentId={}", appointmentId, payment.getPaymentId());
+        return true;
+    }
+}
@@ -3,6 +3,8 @@ package org.project.model;
 import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
+import org.hibernate.annotations.DynamicUpdate;
+import org.project.enums.PaymentUrlStatus;
 import org.project.enums.SagaStatus;
 
 import java.time.LocalDateTime;
@@ -14,6 +16,8 @@ import java.util.UUID;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+// Chỉ UPDATE các cột đã đổi, lượt save của handler saga không ghi đè kết quả payment URL ghi song song
+@DynamicUpdate
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class AppointmentSagaState {
     @Id
@@ -32,6 +36,27 @@ public class AppointmentSagaState {
     @Column(name = "failure_reason")
     String failureReason;
 
+    // Kết quả bước tạo payment URL, client poll qua GET /api/appointments/{id}/payment
+    @Column(name = "payment_id")
+    UUID paymentId;
+
+    @Column(name = "payment_url", columnDefinition = "TEXT")
+    String paymentUrl;
+
+    // Trạng thái bước tạo payment URL tách khỏi currentStep, chỉ được ghi bằng các câu UPDATE theo cột
+    @Enumerated(EnumType.STRING)
+    @Column(name = "payment_url_status")
+    PaymentUrlStatus paymentUrlStatus;
+
+    @Column(name = "payment_url_attempts")
+    Integer paymentUrlAttempts;
+
+    @Column(name = "payment_url_requested_at")
+    LocalDateTime paymentUrlRequestedAt;
+
+    @Column(name = "payment_url_error")
+    String paymentUrlError;
+
     @Column(name = "created_at")
     LocalDateTime createdAt;
 
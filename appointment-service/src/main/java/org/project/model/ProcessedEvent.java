@@ -0,0 +1,31 @@
+package org.project.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Sự kiện Kafka đã xử lý, dùng để bỏ qua message bị giao lại.
+ * Khóa là UUID 16 byte băm từ loại sự kiện và định danh của nó, dòng được dọn theo TTL.
+ */
+@Entity
+@Table(name = "processed_events")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ProcessedEvent {
+    @Id
+    @Column(name = "event_key")
+    UUID eventKey;
+
+    @Column(name = "event_type", nullable = false, length = 50)
+    String eventType;
+
+    @Column(name = "processed_at", nullable = false)
+    LocalDateTime processedAt;
+}
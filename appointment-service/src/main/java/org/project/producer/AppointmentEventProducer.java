@@ -10,7 +10,7 @@ import lombok.experimental.FieldDefaults;
 import org.project.config.AppointmentKafkaTopics;
 import org.project.events.*;
 import org.project.model.Appointment;
-import org.project.service.OutboxService;
+import org.project.outbox.OutboxService;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
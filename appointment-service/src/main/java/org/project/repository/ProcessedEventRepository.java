@@ -0,0 +1,37 @@
+package org.project.repository;
+
+import org.project.model.ProcessedEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface ProcessedEventRepository extends JpaRepository<ProcessedEvent, UUID> {
+
+    /**
+     * Ghi nhận cả lô khóa bằng một câu INSERT và trả về các khóa chưa từng được xử lý.
+     * Khóa đang được transaction khác ghi thì câu lệnh chờ transaction đó kết thúc,
+     * nên hai consumer nhận trùng message không thể cùng xử lý một sự kiện.
+     */
+    @Query(value = "INSERT INTO processed_events (event_key, event_type, processed_at) " +
+            "SELECT f.event_key, :eventType, :processedAt FROM unnest(CAST(:keys AS uuid[])) AS f(event_key) " +
+            "ON CONFLICT (event_key) DO NOTHING " +
+            "RETURNING event_key", nativeQuery = true)
+    List<UUID> claim(@Param("keys") UUID[] keys,
+                     @Param("eventType") String eventType,
+                     @Param("processedAt") LocalDateTime processedAt);
+
+    /**
+     * Xóa tối đa limit dòng cũ hơn cutoff, chia nhỏ để không khóa bảng lâu
+     */
+    @Modifying
+    @Query(value = "DELETE FROM processed_events WHERE event_key IN (" +
+            "SELECT event_key FROM processed_events WHERE processed_at < :cutoff LIMIT :limit)", nativeQuery = true)
+    int deleteProcessedBefore(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+}
@@ -1,13 +1,93 @@
 package org.project.repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+import org.project.enums.SagaStatus;
 import org.project.model.AppointmentSagaState;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface SagaStateRepository extends JpaRepository<AppointmentSagaState, String> {
     Optional<AppointmentSagaState> findByAppointmentId(UUID appointmentId);
+
+    /**
+     * Chuyển bước saga bằng một câu UPDATE chỉ chạm các cột của saga, không ghi đè kết quả payment URL.
+     * failureReason null thì giữ lý do cũ.
+     */
+    @Modifying
+    @Query("UPDATE AppointmentSagaState s SET s.status = :status, s.currentStep = :step, " +
+            "s.failureReason = COALESCE(:failureReason, s.failureReason), s.updatedAt = :updatedAt " +
+            "WHERE s.appointmentId = :appointmentId")
+    int updateStep(@Param("appointmentId") UUID appointmentId,
+                   @Param("status") SagaStatus status,
+                   @Param("step") String step,
+                   @Param("failureReason") String failureReason,
+                   @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Giành quyền gọi payment-service cho một yêu cầu đang PENDING: lần đầu ngay sau commit,
+     * các lần sau chỉ khi lần trước đã quá retryCutoff mà chưa có kết quả.
+     */
+    @Modifying
+    @Query("UPDATE AppointmentSagaState s SET s.paymentUrlAttempts = s.paymentUrlAttempts + 1, " +
+            "s.paymentUrlRequestedAt = :now " +
+            "WHERE s.appointmentId = :appointmentId " +
+            "AND s.paymentUrlStatus = org.project.enums.PaymentUrlStatus.PENDING " +
+            "AND s.paymentUrlAttempts < :maxAttempts " +
+            "AND (s.paymentUrlAttempts = 0 OR s.paymentUrlRequestedAt < :retryCutoff)")
+    int claimPaymentUrlRequest(@Param("appointmentId") UUID appointmentId,
+                               @Param("maxAttempts") int maxAttempts,
+                               @Param("retryCutoff") LocalDateTime retryCutoff,
+                               @Param("now") LocalDateTime now);
+
+    /**
+     * Ghi payment URL. Kết quả thành công đến muộn vẫn thay được trạng thái FAILED
+     */
+    @Modifying
+    @Query("UPDATE AppointmentSagaState s SET s.paymentId = :paymentId, s.paymentUrl = :paymentUrl, " +
+            "s.paymentUrlStatus = org.project.enums.PaymentUrlStatus.CREATED, s.paymentUrlError = null " +
+            "WHERE s.appointmentId = :appointmentId " +
+            "AND s.paymentUrlStatus <> org.project.enums.PaymentUrlStatus.CREATED")
+    int completePaymentUrl(@Param("appointmentId") UUID appointmentId,
+                           @Param("paymentId") UUID paymentId,
+                           @Param("paymentUrl") String paymentUrl);
+
+    /**
+     * Ghi lỗi của lần gọi payment-service, yêu cầu giữ PENDING để sweeper thử lại hoặc chuyển FAILED khi hết lượt
+     */
+    @Modifying
+    @Query("UPDATE AppointmentSagaState s SET s.paymentUrlError = :error " +
+            "WHERE s.appointmentId = :appointmentId " +
+            "AND s.paymentUrlStatus = org.project.enums.PaymentUrlStatus.PENDING")
+    int recordPaymentUrlError(@Param("appointmentId") UUID appointmentId,
+                              @Param("error") String error);
+
+    /**
+     * Yêu cầu PENDING quá retryCutoff chưa có kết quả: listener bị mất do crash, executor từ chối hoặc lần gọi trước lỗi
+     */
+    @Query("SELECT s.appointmentId FROM AppointmentSagaState s " +
+            "WHERE s.paymentUrlStatus = org.project.enums.PaymentUrlStatus.PENDING " +
+            "AND s.paymentUrlAttempts < :maxAttempts AND s.paymentUrlRequestedAt < :retryCutoff " +
+            "ORDER BY s.paymentUrlRequestedAt")
+    List<UUID> findStalePaymentUrlRequests(@Param("maxAttempts") int maxAttempts,
+                                           @Param("retryCutoff") LocalDateTime retryCutoff,
+                                           Pageable pageable);
+
+    /**
+     * Chuyển FAILED các yêu cầu đã hết lượt thử mà lần cuối không ghi được kết quả
+     */
+    @Modifying
+    @Query("UPDATE AppointmentSagaState s SET s.paymentUrlStatus = org.project.enums.PaymentUrlStatus.FAILED " +
+            "WHERE s.paymentUrlStatus = org.project.enums.PaymentUrlStatus.PENDING " +
+            "AND s.paymentUrlAttempts >= :maxAttempts AND s.paymentUrlRequestedAt < :retryCutoff")
+    int expireExhaustedPaymentUrlRequests(@Param("maxAttempts") int maxAttempts,
+                                          @Param("retryCutoff") LocalDateTime retryCutoff);
 }
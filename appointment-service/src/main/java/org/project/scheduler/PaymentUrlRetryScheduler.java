@@ -0,0 +1,77 @@
+package org.project.scheduler;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import org.project.listener.PaymentUrlRequestListener;
+import org.project.model.Appointment;
+import org.project.repository.AppointmentRepository;
+import org.project.repository.SagaStateRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Quét các yêu cầu payment URL còn PENDING quá retry-after-seconds và gửi lại,
+ * yêu cầu đã hết lượt thử được chuyển FAILED để GET /{id}/payment trả lỗi thay vì 202 mãi.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PaymentUrlRetryScheduler {
+    SagaStateRepository sagaStateRepository;
+    AppointmentRepository appointmentRepository;
+    PaymentUrlRequestListener paymentUrlRequestListener;
+    TransactionTemplate transactionTemplate;
+
+    @NonFinal
+    @Value("${appointment.payment-url.max-attempts:5}")
+    int maxAttempts;
+
+    @NonFinal
+    @Value("${appointment.payment-url.retry-after-seconds:60}")
+    long retryAfterSeconds;
+
+    @NonFinal
+    @Value("${appointment.payment-url.sweep-batch-size:100}")
+    int batchSize;
+
+    @Scheduled(fixedDelayString = "${appointment.payment-url.sweep-interval-ms:30000}")
+    public void retryStaleRequests() {
+        LocalDateTime retryCutoff = LocalDateTime.now().minusSeconds(retryAfterSeconds);
+
+        Integer expired = transactionTemplate.execute(status ->
+                sagaStateRepository.expireExhaustedPaymentUrlRequests(maxAttempts, retryCutoff));
+        if (expired != null && expired > 0) {
+            log.warn("{} yêu cầu payment URL hết {} lượt thử, chuyển FAILED", expired, maxAttempts);
+        }
+
+        List<UUID> appointmentIds = sagaStateRepository.findStalePaymentUrlRequests(
+                maxAttempts, retryCutoff, PageRequest.of(0, batchSize));
+        if (appointmentIds.isEmpty()) {
+            return;
+        }
+
+        int retried = 0;
+        for (Appointment appointment : appointmentRepository.findAllById(appointmentIds)) {
+            try {
+                if (paymentUrlRequestListener.requestPaymentUrl(appointment.getId(), appointment.getConsultationFee())) {
+                    retried++;
+                }
+            } catch (Exception e) {
+                log.error("Lỗi khi gửi lại yêu cầu payment URL: appointmentId={}", appointment.getId(), e);
+            }
+        }
+        log.info("Đã gửi lại {}/{} yêu cầu payment URL bị treo", retried, appointmentIds.size());
+    }
+}
@@ -0,0 +1,49 @@
+package org.project.scheduler;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.project.repository.ProcessedEventRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+/**
+ * Dọn khóa sự kiện đã xử lý quá TTL. TTL phải dài hơn thời gian Kafka giữ message,
+ * nếu không message bị giao lại sau khi khóa đã bị xóa sẽ được xử lý lần nữa.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ProcessedEventCleanupScheduler {
+    ProcessedEventRepository processedEventRepository;
+    TransactionTemplate transactionTemplate;
+
+    @NonFinal
+    @Value("${appointment.kafka.processed-events.ttl-hours:168}")
+    long ttlHours;
+
+    @NonFinal
+    @Value("${appointment.kafka.processed-events.cleanup-chunk-size:5000}")
+    int chunkSize;
+
+    @Scheduled(cron = "${appointment.kafka.processed-events.cleanup-cron:0 30 2 * * ?}")
+    public void pruneExpiredKeys() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(ttlHours);
+        long total = 0;
+        int deleted;
+        // Mỗi phần một transaction ngắn để không giữ khóa trong lúc consumer đang ghi
+        do {
+            deleted = transactionTemplate.execute(status ->
+                    processedEventRepository.deleteProcessedBefore(cutoff, chunkSize));
+            total += deleted;
+        } while (deleted >= chunkSize);
+        log.info("Đã dọn dẹp {} khóa sự kiện đã xử lý cũ hơn {} giờ", total, ttlHours);
+    }
+}
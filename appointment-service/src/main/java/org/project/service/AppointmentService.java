@@ -4,6 +4,7 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 import org.project.dto.PageResponse;
@@ -11,6 +12,7 @@ import org.project.dto.request.CreateAppointmentRequest;
 import org.project.dto.response.AppointmentDtoResponse;
 import org.project.dto.response.AppointmentInternalResponse;
 import org.project.dto.response.AppointmentResponse;
+import org.project.dto.response.PaymentUrlResponse;
 import org.project.enums.Status;
 import org.springframework.data.domain.Pageable;
 
@@ -32,6 +34,11 @@ public interface AppointmentService {
 
     AppointmentResponse getAppointment(UUID appointmentId);
 
+    /**
+     * Kết quả bước tạo payment URL, rỗng khi bước này chưa chạy xong
+     */
+    Optional<PaymentUrlResponse> getPaymentUrl(UUID appointmentId);
+
     AppointmentDtoResponse getAppointmentDetails(UUID appointmentId);
 
     AppointmentResponse cancelAppointment(UUID appointmentId, String reason);
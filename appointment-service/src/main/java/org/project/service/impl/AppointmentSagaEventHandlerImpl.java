@@ -17,6 +17,8 @@ import org.project.repository.AppointmentRepository;
 import org.project.repository.SagaStateRepository;
 import org.project.service.AppointmentSagaEventHandler;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
@@ -52,7 +54,7 @@ public class AppointmentSagaEventHandlerImpl implements AppointmentSagaEventHand
         updateSagaState(appointment.getId(), SagaStatus.PAYMENT_COMPLETED, "PAYMENT_COMPLETED", null);
 
         // Phát sự kiện xác nhận
-        eventProducer.publishAppointmentConfirmed(appointment, event);
+        publishAfterCommit(() -> eventProducer.publishAppointmentConfirmed(appointment, event));
 
         log.info("Lịch hẹn {} đã được xác nhận thành công", appointment.getId());
     }
@@ -105,7 +107,7 @@ public class AppointmentSagaEventHandlerImpl implements AppointmentSagaEventHand
                 .cancelledAt(LocalDateTime.now())
                 .build();
         
-        eventProducer.publishAppointmentCancelled(cancelEvent);
+        publishAfterCommit(() -> eventProducer.publishAppointmentCancelled(cancelEvent));
 
         // Hoàn tất bù trừ
         updateSagaState(appointment.getId(), SagaStatus.COMPENSATED,
@@ -147,7 +149,7 @@ public class AppointmentSagaEventHandlerImpl implements AppointmentSagaEventHand
                 .cancelledAt(LocalDateTime.now())
                 .build();
         
-        eventProducer.publishAppointmentCancelled(cancelEvent);
+        publishAfterCommit(() -> eventProducer.publishAppointmentCancelled(cancelEvent));
 
         // Hoàn tất bù trừ
         sagaState.setStatus(SagaStatus.COMPENSATED);
@@ -222,7 +224,7 @@ public class AppointmentSagaEventHandlerImpl implements AppointmentSagaEventHand
                 .cancelledAt(LocalDateTime.now())
                 .build();
         
-        eventProducer.publishAppointmentCancelled(cancelEvent);
+        publishAfterCommit(() -> eventProducer.publishAppointmentCancelled(cancelEvent));
 
         // Cập nhật trạng thái saga
         updateSagaState(appointment.getId(), SagaStatus.COMPENSATED,
@@ -251,7 +253,7 @@ public class AppointmentSagaEventHandlerImpl implements AppointmentSagaEventHand
                 .cancelledAt(LocalDateTime.now())
                 .build();
         
-        eventProducer.publishAppointmentCancelled(cancelEvent);
+        publishAfterCommit(() -> eventProducer.publishAppointmentCancelled(cancelEvent));
 
         // Cập nhật trạng thái saga với lỗi
         updateSagaState(appointment.getId(), SagaStatus.FAILED,
@@ -262,25 +264,39 @@ public class AppointmentSagaEventHandlerImpl implements AppointmentSagaEventHand
     }
 
 
+    /**
+     * Handler có thể chạy chung transaction với cả lô record Kafka, lô rollback thì sự kiện không được phát
+     */
+    private void publishAfterCommit(Runnable publish) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        publish.run();
+                    }
+                }
+        );
+    }
+
     private Appointment getAppointment(UUID appointmentId) {
         return appointmentRepository.findById(appointmentId)
                 .orElseThrow(() -> new CustomException(ErrorCode.APPOINTMENT_NOT_FOUND));
     }
 
+    /**
+     * Chỉ ghi các cột của bước saga, không đọc-sửa-ghi cả entity nên không ghi đè payment URL ghi song song
+     */
     private void updateSagaState(UUID appointmentId, SagaStatus status,
                                  String step, String failureReason) {
-        sagaStateRepository.findByAppointmentId(appointmentId)
-                .ifPresent(saga -> {
-                    saga.setStatus(status);
-                    saga.setCurrentStep(step);
-                    saga.setUpdatedAt(LocalDateTime.now());
-                    if (failureReason != null) {
-                        saga.setFailureReason(failureReason);
-                    }
-                    sagaStateRepository.save(saga);
-                    log.debug("Đã cập nhật trạng thái saga: appointmentId={}, trạng thái={}, bước={}",
-                            appointmentId, status, step);
-                });
+        int updated = sagaStateRepository.updateStep(appointmentId, status, step, failureReason, LocalDateTime.now());
+        if (updated > 0) {
+            log.debug("Đã cập nhật trạng thái saga: appointmentId={}, trạng thái={}, bước={}",
+                    appointmentId, status, step);
+        }
     }
 
     private UUID getSagaId(UUID appointmentId) {
@@ -4,15 +4,16 @@ import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
-import org.project.client.PaymentServiceClient;
+import org.project.client.SchedulingServiceClient;
 import org.project.dto.PageResponse;
 import org.project.dto.request.CreateAppointmentRequest;
 import org.project.dto.response.*;
+import org.project.enums.PaymentUrlStatus;
 import org.project.enums.SagaStatus;
 import org.project.enums.Status;
 import org.project.events.AppointmentCancellationInitiatedEvent;
 import org.project.events.AppointmentCreatedEvent;
-import org.project.exception.CodeGenerationException;
+import org.project.event.PaymentUrlRequestedEvent;
 import org.project.exception.CustomException;
 import org.project.exception.ErrorCode;
 import org.project.mapper.AppointmentMapper;
@@ -24,20 +25,23 @@ import org.project.repository.AppointmentRepository;
 import org.project.repository.SagaStateRepository;
 import org.project.service.AppointmentService;
 import org.project.service.AppointmentValidator;
-import org.project.service.OutboxService;
+import org.project.outbox.OutboxService;
 import org.project.utils.AppointmentCodeGenerator;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
@@ -54,7 +58,9 @@ public class AppointmentServiceImpl implements AppointmentService {
 
     AppointmentValidator validator;
     AppointmentFactory factory;
-    PaymentServiceClient paymentServiceClient;
+    SchedulingServiceClient schedulingServiceClient;
+    TransactionTemplate transactionTemplate;
+    ApplicationEventPublisher applicationEventPublisher;
 
     PageMapper pageMapper;
     AppointmentMapper appointmentMapper;
@@ -62,7 +68,6 @@ public class AppointmentServiceImpl implements AppointmentService {
     AppointmentEventProducer eventProducer;
     AppointmentCodeGenerator codeGenerator;
 
-    private static final int MAX_RETRY_ATTEMPTS = 5;
 
     @Override
     public PageResponse<AppointmentDtoResponse> getUserAppointmentsByStatus(
@@ -107,13 +112,18 @@ public class AppointmentServiceImpl implements AppointmentService {
         return appointmentRepository.countPendingAppointmentsByPatient(patientId);
     }
 
+    /**
+     * Tạo lịch hẹn theo từng giai đoạn:
+     * validate và giữ slot qua REST ngoài transaction, ghi lịch hẹn + saga + outbox trong một transaction ngắn,
+     * payment URL được tạo bất đồng bộ sau commit ({@link org.project.listener.PaymentUrlRequestListener})
+     * và client lấy qua {@link #getPaymentUrl(UUID)}.
+     */
     @Override
-    @Transactional
     public AppointmentResponse createAppointment(CreateAppointmentRequest request) {
         UUID sagaId = UUID.randomUUID();
         UUID eventId = UUID.randomUUID();
         log.info("Creating appointment: sagaId={}, eventId={}", sagaId, eventId);
-        String publicCode = generateUniquePublicCode();
+        String publicCode = codeGenerator.generatePublicCode();
         // Validate
         validator.validatePatientInfo(request);
 
@@ -139,6 +149,27 @@ public class AppointmentServiceImpl implements AppointmentService {
                 effectivePatientId
         );
 
+        Appointment appointment;
+        try {
+            appointment = transactionTemplate.execute(status -> persistAppointment(
+                    request, publicCode, sagaId, eventId, effectivePatientId, doctor, slot, isGuestBooking));
+        } catch (RuntimeException e) {
+            // Slot đã được giữ ở scheduling-service, trả lại khi không ghi được lịch hẹn
+            log.warn("Không thể lưu lịch hẹn, giải phóng slot {}: {}", request.getSlotId(), e.getMessage());
+            schedulingServiceClient.releaseSlot(request.getSlotId());
+            throw e;
+        }
+
+        log.info("Appointment created: id={}, type={}",
+                appointment.getId(), isGuestBooking ? "GUEST" : "REGISTERED");
+
+        return factory.toResponse(appointment);
+    }
+
+    private Appointment persistAppointment(CreateAppointmentRequest request, String publicCode,
+                                           UUID sagaId, UUID eventId, UUID effectivePatientId,
+                                           DoctorResponse doctor, SlotDetailsResponse slot,
+                                           boolean isGuestBooking) {
         // Check overlapping (registered users only)
         if (!isGuestBooking) {
             validator.checkOverlappingAppointment(
@@ -157,7 +188,7 @@ public class AppointmentServiceImpl implements AppointmentService {
 
         // Create saga state với sagaId
         createSagaState(sagaId.toString(), appointment.getId());
-        
+
         // Create event với eventId và sagaId
         AppointmentCreatedEvent event = factory.createAppointmentCreatedEvent(
                 eventId, sagaId, appointment, slot
@@ -170,7 +201,7 @@ public class AppointmentServiceImpl implements AppointmentService {
                 "APPOINTMENT_CREATED",
                 event
         );
-        
+
         final AppointmentCreatedEvent finalEvent = event;
         TransactionSynchronizationManager.registerSynchronization(
                 new TransactionSynchronization() {
@@ -180,21 +211,36 @@ public class AppointmentServiceImpl implements AppointmentService {
                     }
                 }
         );
-        // Create payment URL
-        PaymentUrlResponse payment = createPaymentUrl(
-                appointment.getId(),
-                appointment.getConsultationFee()
-        );
 
-        // Build response
-        AppointmentResponse response = factory.toResponse(appointment);
-        response.setPaymentUrl(payment.getPaymentUrl());
-        response.setPaymentId(payment.getPaymentId());
+        // Payment URL được tạo sau commit, không giữ connection trong lúc gọi payment-service
+        applicationEventPublisher.publishEvent(PaymentUrlRequestedEvent.builder()
+                .appointmentId(appointment.getId())
+                .consultationFee(appointment.getConsultationFee())
+                .build());
 
-        log.info("Appointment created: id={}, type={}",
-                appointment.getId(), isGuestBooking ? "GUEST" : "REGISTERED");
+        return appointment;
+    }
 
-        return response;
+    @Override
+    public Optional<PaymentUrlResponse> getPaymentUrl(UUID appointmentId) {
+        AppointmentSagaState saga = sagaStateRepository.findByAppointmentId(appointmentId)
+                .orElseThrow(() -> new CustomException(ErrorCode.APPOINTMENT_NOT_FOUND));
+
+        if (saga.getPaymentUrl() != null) {
+            return Optional.of(PaymentUrlResponse.builder()
+                    .paymentId(saga.getPaymentId())
+                    .paymentUrl(saga.getPaymentUrl())
+                    .build());
+        }
+
+        if (saga.getPaymentUrlStatus() == PaymentUrlStatus.FAILED) {
+            return Optional.of(PaymentUrlResponse.builder()
+                    .message("Cannot create payment. Please try again.")
+                    .build());
+        }
+
+        // Payment URL chưa được tạo xong
+        return Optional.empty();
     }
 
     @Override
@@ -280,29 +326,21 @@ public class AppointmentServiceImpl implements AppointmentService {
     }
 
     private void createSagaState(String sagaId, UUID appointmentId) {
+        LocalDateTime now = LocalDateTime.now();
         AppointmentSagaState saga = AppointmentSagaState.builder()
                 .sagaId(sagaId)
                 .appointmentId(appointmentId)
                 .status(SagaStatus.DOCTOR_VALIDATED)
                 .currentStep("DOCTOR_VALIDATED")
-                .createdAt(LocalDateTime.now())
+                // Ghi yêu cầu payment URL cùng transaction với lịch hẹn, sweeper gửi lại nếu listener bị mất
+                .paymentUrlStatus(PaymentUrlStatus.PENDING)
+                .paymentUrlAttempts(0)
+                .paymentUrlRequestedAt(now)
+                .createdAt(now)
                 .build();
         sagaStateRepository.save(saga);
     }
 
-    private PaymentUrlResponse createPaymentUrl(UUID appointmentId, java.math.BigDecimal fee) {
-        try {
-            var request = factory.createPaymentRequest(appointmentId, fee);
-            return paymentServiceClient.createPayment(request);
-        } catch (Exception e) {
-            log.error("Failed to create payment URL: appointmentId={}", appointmentId, e);
-            return PaymentUrlResponse.builder()
-                    .paymentUrl(null)
-                    .message("Cannot create payment. Please try again.")
-                    .build();
-        }
-    }
-
     private Appointment findAppointment(UUID appointmentId) {
         return appointmentRepository.findById(appointmentId)
                 .orElseThrow(() -> new CustomException(ErrorCode.APPOINTMENT_NOT_FOUND));
@@ -357,21 +395,4 @@ public class AppointmentServiceImpl implements AppointmentService {
                 .map(factory::toInternalResponse)
                 .toList();
     }
-
-    private String generateUniquePublicCode() {
-        int attempts = 0;
-
-        while (attempts < MAX_RETRY_ATTEMPTS) {
-            String publicCode = codeGenerator.generatePublicCode();
-
-            if (!appointmentRepository.existsByPublicCode(publicCode)) {
-                return publicCode;
-            }
-
-            attempts++;
-            log.info("Mã tạo public code: {}", publicCode);
-        }
-
-        throw new CodeGenerationException("Unable to generate unique appointment code. Please try again.");
-    }
 }
@@ -1,47 +1,158 @@
 package org.project.utils;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
 
+/**
+ * Sinh mã lịch hẹn duy nhất theo cấu tạo, không cần kiểm tra trùng trong DB.
+ * Giá trị 60 bit = thời điểm (ms, 41 bit) | node id (10 bit) | số thứ tự trong ms (9 bit),
+ * được xáo trộn bằng một hoán vị Feistel có khóa để mã không lộ thứ tự và không đoán được mã kế tiếp,
+ * rồi mã hóa thành 12 ký tự trong bảng chữ dễ đọc cộng một ký tự kiểm tra: AP + 13 ký tự = 15 ký tự.
+ * Mã cũ (AP + 13 chữ số timestamp + 4 ký tự) vẫn được chấp nhận khi tra cứu.
+ */
 @Slf4j
 @Component
 public class AppointmentCodeGenerator {
     private static final String PREFIX = "AP";
-    private static final int RANDOM_LENGTH = 4;
+    private static final int LEGACY_LENGTH = 19;
 
-    private static final String SAFE_CHARS = "23456789ABCDEFGHJKLMNPQRSTUVWXYZ";
-    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+    // Bỏ 0/O, 1/I/L để đọc qua điện thoại không nhầm
+    static final String SAFE_CHARS = "23456789ABCDEFGHJKLMNPQRSTUVWXYZ";
+    private static final int[] CHAR_VALUES = buildCharValues();
+    private static final int BITS_PER_CHAR = 5;
+    static final int PAYLOAD_LENGTH = 12;
+    static final int CODE_LENGTH = PREFIX.length() + PAYLOAD_LENGTH + 1;
 
-    public String generatePublicCode() {
-        StringBuilder code = new StringBuilder(PREFIX);
+    private static final long EPOCH_MILLIS = 1735689600000L; // 2025-01-01T00:00:00Z
+    private static final int SEQUENCE_BITS = 9;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int NODE_BITS = 10;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final long TIME_MASK = (1L << 41) - 1;
+
+    private static final int HALF_BITS = 30;
+    private static final long HALF_MASK = (1L << HALF_BITS) - 1;
+    private static final int ROUNDS = 4;
+
+    private final IntSupplier nodeId;
+    private final long[] roundKeys;
+
+    // (ms kể từ EPOCH_MILLIS << SEQUENCE_BITS) | số thứ tự; chỉ tăng, kể cả khi đồng hồ lùi
+    private final AtomicLong lastTick = new AtomicLong();
 
-        long timestamp = System.currentTimeMillis();
-        code.append(timestamp);
+    @Autowired
+    public AppointmentCodeGenerator(CodeNodeIdLease nodeIdLease,
+                                    @Value("${appointment.code.secret}") long secret) {
+        this(nodeIdLease::getNodeId, secret);
+    }
+
+    public AppointmentCodeGenerator(int nodeId, long secret) {
+        this(() -> nodeId, secret);
+    }
 
-        for (int i = 0; i < RANDOM_LENGTH; i++) {
-            int randomIndex = SECURE_RANDOM.nextInt(SAFE_CHARS.length());
-            code.append(SAFE_CHARS.charAt(randomIndex));
+    private AppointmentCodeGenerator(IntSupplier nodeId, long secret) {
+        this.nodeId = nodeId;
+        this.roundKeys = deriveRoundKeys(secret);
+    }
+
+    public String generatePublicCode() {
+        int node = nodeId.getAsInt();
+        if (node < 0 || node > MAX_NODE_ID) {
+            throw new IllegalStateException("Node id không hợp lệ: " + node);
         }
 
-        return code.toString();
+        long tick = nextTick();
+        long value = (((tick >>> SEQUENCE_BITS) & TIME_MASK) << (NODE_BITS + SEQUENCE_BITS))
+                | ((long) node << SEQUENCE_BITS)
+                | (tick & SEQUENCE_MASK);
+
+        return encode(scramble(value));
     }
 
     public boolean isValidFormat(String code) {
-        if (code == null || code.isEmpty()) {
+        if (code == null || !code.startsWith(PREFIX)) {
             return false;
         }
+        if (code.length() == CODE_LENGTH) {
+            return isValidCode(code);
+        }
+        return code.length() == LEGACY_LENGTH && isValidLegacyCode(code);
+    }
 
-        // Kiểm tra prefix
-        if (!code.startsWith(PREFIX)) {
-            return false;
+    public String normalizeCode(String code) {
+        if (code == null) {
+            return null;
         }
+        return code.trim()
+                .replaceAll("[\\s-]", "")
+                .toUpperCase();
+    }
 
-        if (code.length() < 19) {
-            return false;
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Hết 512 số thứ tự trong một ms thì mượn ms kế tiếp; đồng hồ lùi thì tiếp tục đếm từ giá trị cũ
+     */
+    private long nextTick() {
+        long now = Math.max(0, currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        while (true) {
+            long previous = lastTick.get();
+            long next = now > previous ? now : previous + 1;
+            if (lastTick.compareAndSet(previous, next)) {
+                return next;
+            }
         }
+    }
 
+    private long scramble(long value) {
+        long left = value >>> HALF_BITS;
+        long right = value & HALF_MASK;
+        for (long roundKey : roundKeys) {
+            long mixed = left ^ (mix(right ^ roundKey) & HALF_MASK);
+            left = right;
+            right = mixed;
+        }
+        return (left << HALF_BITS) | right;
+    }
+
+    private static String encode(long value) {
+        char[] code = new char[CODE_LENGTH];
+        code[0] = PREFIX.charAt(0);
+        code[1] = PREFIX.charAt(1);
+        int checksum = 0;
+        for (int i = 0; i < PAYLOAD_LENGTH; i++) {
+            int digit = (int) (value >>> (BITS_PER_CHAR * (PAYLOAD_LENGTH - 1 - i))) & 0x1F;
+            code[PREFIX.length() + i] = SAFE_CHARS.charAt(digit);
+            checksum += (2 * i + 1) * digit;
+        }
+        code[CODE_LENGTH - 1] = SAFE_CHARS.charAt(checksum & 0x1F);
+        return new String(code);
+    }
+
+    /**
+     * Ký tự kiểm tra có trọng số lẻ nên phát hiện được mọi lỗi gõ sai một ký tự
+     */
+    private static boolean isValidCode(String code) {
+        int checksum = 0;
+        for (int i = 0; i < PAYLOAD_LENGTH; i++) {
+            int digit = valueOf(code.charAt(PREFIX.length() + i));
+            if (digit < 0) {
+                return false;
+            }
+            checksum += (2 * i + 1) * digit;
+        }
+        return valueOf(code.charAt(CODE_LENGTH - 1)) == (checksum & 0x1F);
+    }
+
+    private static boolean isValidLegacyCode(String code) {
         String timestampPart = code.substring(2, 15);
         try {
             Long.parseLong(timestampPart);
@@ -49,23 +160,41 @@ public class AppointmentCodeGenerator {
             return false;
         }
 
-        // Kiểm tra phần random (4 ký tự cuối)
         String randomPart = code.substring(15);
         for (char c : randomPart.toCharArray()) {
             if (SAFE_CHARS.indexOf(c) == -1 && !Character.isDigit(c)) {
                 return false;
             }
         }
-
         return true;
     }
 
-    public String normalizeCode(String code) {
-        if (code == null) {
-            return null;
+    static int valueOf(char c) {
+        return c < CHAR_VALUES.length ? CHAR_VALUES[c] : -1;
+    }
+
+    private static int[] buildCharValues() {
+        int[] values = new int[128];
+        Arrays.fill(values, -1);
+        for (int i = 0; i < SAFE_CHARS.length(); i++) {
+            values[SAFE_CHARS.charAt(i)] = i;
         }
-        return code.trim()
-                .replaceAll("[\\s-]", "")
-                .toUpperCase();
+        return values;
+    }
+
+    private static long[] deriveRoundKeys(long secret) {
+        long[] keys = new long[ROUNDS];
+        long state = secret;
+        for (int i = 0; i < ROUNDS; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            keys[i] = mix(state);
+        }
+        return keys;
+    }
+
+    private static long mix(long x) {
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
     }
 }
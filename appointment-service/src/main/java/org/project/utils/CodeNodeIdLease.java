@@ -0,0 +1,200 @@
+package org.project.utils;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.project.exception.CodeGenerationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cấp node id (0..{@link AppointmentCodeGenerator#MAX_NODE_ID}) cho instance hiện tại để mã lịch hẹn
+ * của các instance không bao giờ trùng nhau.
+ * Node id được giữ bằng advisory lock của Postgres trên một kết nối riêng: instance chết thì kết nối đóng
+ * và lock tự nhả, không cần bảng hay cấu hình theo từng instance.
+ * Mã chỉ được sinh khi lease vừa được xác nhận trong vòng appointment.code.lease-confirm-ms; node id mới xin
+ * phải chờ hết khoảng đó mới dùng, để instance vừa mất kết nối kịp ngừng sinh mã với node id cũ.
+ * Đặt appointment.code.node-id khi muốn gán cố định.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class CodeNodeIdLease {
+    // Khóa cấp một của advisory lock, tránh đụng các lock khác trong cùng database ("AP")
+    static final int LOCK_NAMESPACE = 0x4150;
+
+    DataSourceProperties dataSourceProperties;
+
+    @NonFinal
+    @Value("${appointment.code.node-id:-1}")
+    int configuredNodeId;
+
+    @NonFinal
+    @Value("${appointment.code.lease-confirm-ms:1000}")
+    long leaseConfirmMs;
+
+    @NonFinal
+    volatile int nodeId = -1;
+
+    // Mốc System.nanoTime(): node id mới xin chỉ được dùng từ usableFromNanos, lease hết hạn sau confirmedUntilNanos
+    @NonFinal
+    volatile long usableFromNanos;
+
+    @NonFinal
+    volatile long confirmedUntilNanos;
+
+    @NonFinal
+    Connection leaseConnection;
+
+    @PostConstruct
+    public void acquire() {
+        if (configuredNodeId >= 0) {
+            if (configuredNodeId > AppointmentCodeGenerator.MAX_NODE_ID) {
+                throw new IllegalStateException("appointment.code.node-id phải nằm trong khoảng 0.."
+                        + AppointmentCodeGenerator.MAX_NODE_ID);
+            }
+            nodeId = configuredNodeId;
+            log.info("Dùng node id cấu hình sẵn cho mã lịch hẹn: {}", nodeId);
+            return;
+        }
+        lease();
+    }
+
+    public int getNodeId() {
+        if (configuredNodeId >= 0) {
+            return nodeId;
+        }
+        int current = nodeId;
+        long now = System.nanoTime();
+        if (current < 0 || now - usableFromNanos < 0) {
+            throw leaseUnavailable();
+        }
+        if (now - confirmedUntilNanos >= 0) {
+            return confirmLease();
+        }
+        return current;
+    }
+
+    /**
+     * Xác nhận lại kết nối giữ lock trước khi sinh mã; không xác nhận được thì ngừng sinh mã và xin node id mới
+     */
+    private synchronized int confirmLease() {
+        long now = System.nanoTime();
+        if (nodeId >= 0 && now - usableFromNanos < 0) {
+            throw leaseUnavailable();
+        }
+        if (nodeId >= 0 && now - confirmedUntilNanos < 0) {
+            return nodeId;
+        }
+        if (nodeId >= 0 && isLeaseValid()) {
+            confirmedUntilNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(leaseConfirmMs);
+            return nodeId;
+        }
+        log.warn("Không xác nhận được node id {}, ngừng sinh mã và xin lại node id", nodeId);
+        nodeId = -1;
+        closeQuietly();
+        lease();
+        throw leaseUnavailable();
+    }
+
+    /**
+     * Mất kết nối giữ lock thì node id có thể đã bị instance khác lấy, phải xin lại node id mới
+     */
+    @Scheduled(fixedDelayString = "${appointment.code.lease-check-ms:10000}")
+    public synchronized void verifyLease() {
+        if (configuredNodeId >= 0) {
+            return;
+        }
+        if (isLeaseValid()) {
+            confirmedUntilNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(leaseConfirmMs);
+            return;
+        }
+        log.warn("Mất kết nối giữ node id {}, xin lại node id", nodeId);
+        nodeId = -1;
+        closeQuietly();
+        lease();
+    }
+
+    @PreDestroy
+    public synchronized void release() {
+        closeQuietly();
+    }
+
+    private synchronized void lease() {
+        try {
+            Connection connection = openConnection();
+            int candidates = AppointmentCodeGenerator.MAX_NODE_ID + 1;
+            // Bắt đầu từ vị trí ngẫu nhiên để các instance khởi động cùng lúc ít tranh nhau
+            int start = ThreadLocalRandom.current().nextInt(candidates);
+            try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_lock(?, ?)")) {
+                for (int i = 0; i < candidates; i++) {
+                    int candidate = (start + i) % candidates;
+                    statement.setInt(1, LOCK_NAMESPACE);
+                    statement.setInt(2, candidate);
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        if (resultSet.next() && resultSet.getBoolean(1)) {
+                            long leasedAt = System.nanoTime();
+                            usableFromNanos = leasedAt + TimeUnit.MILLISECONDS.toNanos(leaseConfirmMs);
+                            confirmedUntilNanos = usableFromNanos + TimeUnit.MILLISECONDS.toNanos(leaseConfirmMs);
+                            leaseConnection = connection;
+                            nodeId = candidate;
+                            log.info("Đã giữ node id {} cho mã lịch hẹn", candidate);
+                            return;
+                        }
+                    }
+                }
+            }
+            connection.close();
+            log.error("Tất cả {} node id đều đang được giữ", candidates);
+        } catch (SQLException e) {
+            log.error("Không thể xin node id cho mã lịch hẹn: {}", e.getMessage());
+        }
+    }
+
+    private static CodeGenerationException leaseUnavailable() {
+        return new CodeGenerationException("Chưa giữ được node id để sinh mã lịch hẹn. Vui lòng thử lại sau.");
+    }
+
+    private boolean isLeaseValid() {
+        try {
+            return leaseConnection != null && leaseConnection.isValid(2);
+        } catch (SQLException e) {
+            log.debug("Kiểm tra kết nối giữ node id lỗi: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void closeQuietly() {
+        if (leaseConnection == null) {
+            return;
+        }
+        try {
+            leaseConnection.close();
+        } catch (SQLException e) {
+            log.debug("Lỗi đóng kết nối giữ node id: {}", e.getMessage());
+        }
+        leaseConnection = null;
+    }
+
+    protected Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(
+                dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(),
+                dataSourceProperties.determinePassword());
+    }
+}
@@ -0,0 +1,272 @@
+package org.project.consumer;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.Mock;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.project.events.PaymentCompletedEvent;
+import org.project.events.ValidationFailedEvent;
+import org.project.repository.AppointmentRepository;
+import org.project.repository.ProcessedEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Postgres được thay bằng bảng processed_events trong bộ nhớ, mỗi round-trip tốn một khoảng trễ cố định
+ * để so sánh thời gian xả backlog giữa xử lý từng record và xử lý theo lô.
+ */
+@ExtendWith(MockitoExtension.class)
+class SagaEventBatchProcessorTest {
+
+    private static final Logger log = LoggerFactory.getLogger(SagaEventBatchProcessorTest.class);
+
+    private static final String TOPIC = "payment-completed-topic";
+    private static final long DB_ROUND_TRIP_MICROS = 10;
+    private static final long OFFSET_COMMIT_MICROS = 40;
+
+    @Mock
+    private ProcessedEventRepository processedEventRepository;
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    @Mock
+    private KafkaErrorHandler errorHandler;
+
+    private final Set<UUID> processedKeys = ConcurrentHashMap.newKeySet();
+    private final List<UUID> transactionClaims = new ArrayList<>();
+    private final AtomicInteger commits = new AtomicInteger();
+
+    private SagaEventBatchProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        processor = new SagaEventBatchProcessor(
+                processedEventRepository, appointmentRepository, new FakeTransactionTemplate(), errorHandler);
+
+        // INSERT ... ON CONFLICT DO NOTHING RETURNING: chỉ trả về khóa chưa có
+        lenient().when(processedEventRepository.claim(any(UUID[].class), anyString(), any())).thenAnswer(invocation -> {
+            roundTrip(DB_ROUND_TRIP_MICROS);
+            List<UUID> claimed = new ArrayList<>();
+            for (UUID key : (UUID[]) invocation.getArgument(0)) {
+                if (processedKeys.add(key)) {
+                    claimed.add(key);
+                    transactionClaims.add(key);
+                }
+            }
+            return claimed;
+        });
+        lenient().when(appointmentRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            roundTrip(DB_ROUND_TRIP_MICROS);
+            return List.of();
+        });
+    }
+
+    @Test
+    void process_WithRedeliveredRecords_ShouldHandleEachEventOnce() {
+        // Given: eventId trùng trong cùng lô và cả lô bị giao lại sau rebalance
+        List<ConsumerRecord<String, PaymentCompletedEvent>> records = records(0, 10);
+        records.add(record(10, records.get(3).value()));
+        List<PaymentCompletedEvent> handled = new ArrayList<>();
+
+        // When
+        process(records, handled::add);
+        process(records, handled::add);
+
+        // Then
+        assertThat(handled).hasSize(10);
+        assertThat(handled.stream().map(PaymentCompletedEvent::getEventId).distinct()).hasSize(10);
+        assertThat(commits.get()).isEqualTo(2);
+        verify(processedEventRepository, times(2)).claim(any(UUID[].class), eq("PaymentCompleted"), any());
+    }
+
+    @Test
+    void process_WithValidationFailedResentAtNewOffset_ShouldHandleOnce() {
+        // Given: producer gửi lại cùng sự kiện ValidationFailed, bản sau nằm ở offset khác
+        ValidationFailedEvent event = ValidationFailedEvent.builder()
+                .eventId(UUID.randomUUID().toString())
+                .sagaId(UUID.randomUUID().toString())
+                .appointmentId(UUID.randomUUID())
+                .reason("Bệnh nhân không tồn tại")
+                .build();
+        List<ValidationFailedEvent> handled = new ArrayList<>();
+
+        // When
+        processor.process("ValidationFailed", List.of(new ConsumerRecord<>("validation-failed-topic", 0, 7L,
+                        event.getAppointmentId().toString(), event)), ValidationFailedEvent::getEventId,
+                ValidationFailedEvent::getAppointmentId, handled::add);
+        processor.process("ValidationFailed", List.of(new ConsumerRecord<>("validation-failed-topic", 0, 8L,
+                        event.getAppointmentId().toString(), event)), ValidationFailedEvent::getEventId,
+                ValidationFailedEvent::getAppointmentId, handled::add);
+
+        // Then
+        assertThat(handled).containsExactly(event);
+    }
+
+    @Test
+    void process_WhenOneEventFails_ShouldRetryIndividuallyAndReportOnlyThatEvent() {
+        // Given
+        List<ConsumerRecord<String, PaymentCompletedEvent>> records = records(0, 5);
+        PaymentCompletedEvent poison = records.get(2).value();
+        List<PaymentCompletedEvent> handled = new ArrayList<>();
+        RuntimeException failure = new IllegalStateException("Lịch hẹn không hợp lệ");
+
+        // When
+        process(records, event -> {
+            if (event == poison) {
+                throw failure;
+            }
+            handled.add(event);
+        });
+
+        // Then: lô rollback rồi chạy lại từng sự kiện, chỉ sự kiện lỗi được chuyển cho error handler
+        assertThat(handled).doesNotContain(poison);
+        assertThat(new HashSet<>(handled)).hasSize(4);
+        verify(errorHandler).handleError(poison, failure, "PaymentCompleted");
+        assertThat(processedKeys).hasSize(4);
+
+        // Sự kiện lỗi chưa được ghi nhận nên lần giao lại vẫn được xử lý
+        process(List.of(records.get(2)), handled::add);
+        assertThat(handled).contains(poison);
+    }
+
+    @Test
+    void process_WithEmptyRecords_ShouldNotTouchDatabase() {
+        process(List.of(new ConsumerRecord<>(TOPIC, 0, 0L, "key", null)), event -> {
+        });
+
+        verify(processedEventRepository, never()).claim(any(UUID[].class), anyString(), any());
+        assertThat(commits.get()).isZero();
+    }
+
+    @Test
+    void eventKey_WithoutEventId_ShouldUseRecordCoordinates() {
+        PaymentCompletedEvent event = PaymentCompletedEvent.builder().appointmentId(UUID.randomUUID()).build();
+
+        UUID first = SagaEventBatchProcessor.eventKey("PaymentFailed",
+                new ConsumerRecord<>(TOPIC, 1, 42L, "key", event), PaymentCompletedEvent::getEventId);
+        UUID redelivered = SagaEventBatchProcessor.eventKey("PaymentFailed",
+                new ConsumerRecord<>(TOPIC, 1, 42L, "key", event), PaymentCompletedEvent::getEventId);
+        UUID nextOffset = SagaEventBatchProcessor.eventKey("PaymentFailed",
+                new ConsumerRecord<>(TOPIC, 1, 43L, "key", event), PaymentCompletedEvent::getEventId);
+
+        assertThat(first).isEqualTo(redelivered).isNotEqualTo(nextOffset);
+    }
+
+    @Test
+    void lagRecovery_With100kBacklog_BatchShouldDrainFasterThanPerRecord() {
+        // Given: 100k sự kiện tồn đọng, lô tối đa 500 record như max.poll.records mặc định
+        int backlog = 100_000;
+        int maxPollRecords = 500;
+        List<ConsumerRecord<String, PaymentCompletedEvent>> records = records(0, backlog);
+        AtomicInteger handledCount = new AtomicInteger();
+        // Phần việc còn lại trong handler: đọc saga state và UPDATE lịch hẹn
+        Consumer<PaymentCompletedEvent> handler = event -> {
+            roundTrip(DB_ROUND_TRIP_MICROS);
+            handledCount.incrementAndGet();
+        };
+
+        // When: trước đây mỗi record tốn existsByEventId, findById, transaction riêng và commit offset riêng
+        long startedAt = System.nanoTime();
+        for (ConsumerRecord<String, PaymentCompletedEvent> record : records) {
+            roundTrip(DB_ROUND_TRIP_MICROS);
+            roundTrip(DB_ROUND_TRIP_MICROS);
+            handler.accept(record.value());
+            roundTrip(DB_ROUND_TRIP_MICROS);
+            roundTrip(OFFSET_COMMIT_MICROS);
+        }
+        long perRecordMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+
+        handledCount.set(0);
+        startedAt = System.nanoTime();
+        for (int from = 0; from < backlog; from += maxPollRecords) {
+            process(records.subList(from, Math.min(from + maxPollRecords, backlog)), handler);
+            roundTrip(OFFSET_COMMIT_MICROS);
+        }
+        long batchMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+
+        // Then
+        log.info("Xả backlog {} sự kiện: từng record {} ms, theo lô {} record {} ms (nhanh hơn {} lần), {} transaction",
+                backlog, perRecordMs, maxPollRecords, batchMs,
+                String.format("%.1f", (double) perRecordMs / Math.max(1, batchMs)), commits.get());
+        assertThat(handledCount.get()).isEqualTo(backlog);
+        assertThat(commits.get()).isEqualTo(backlog / maxPollRecords);
+        assertThat(batchMs).isLessThan(perRecordMs);
+    }
+
+    private void process(List<ConsumerRecord<String, PaymentCompletedEvent>> records,
+                         Consumer<PaymentCompletedEvent> handler) {
+        processor.process("PaymentCompleted", records, PaymentCompletedEvent::getEventId,
+                PaymentCompletedEvent::getAppointmentId, handler);
+    }
+
+    private static List<ConsumerRecord<String, PaymentCompletedEvent>> records(int fromOffset, int count) {
+        List<ConsumerRecord<String, PaymentCompletedEvent>> records = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            records.add(record(fromOffset + i, PaymentCompletedEvent.builder()
+                    .eventId(UUID.randomUUID().toString())
+                    .appointmentId(UUID.randomUUID())
+                    .paymentId(UUID.randomUUID())
+                    .build()));
+        }
+        return records;
+    }
+
+    private static ConsumerRecord<String, PaymentCompletedEvent> record(long offset, PaymentCompletedEvent event) {
+        return new ConsumerRecord<>(TOPIC, 0, offset, event.getAppointmentId().toString(), event);
+    }
+
+    private void roundTrip(long micros) {
+        long until = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(micros);
+        while (System.nanoTime() < until) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Transaction giả: commit tốn một round-trip, rollback xóa các khóa đã ghi trong transaction
+     */
+    private final class FakeTransactionTemplate extends TransactionTemplate {
+        @Override
+        public <T> T execute(TransactionCallback<T> action) {
+            TransactionStatus status = new SimpleTransactionStatus();
+            transactionClaims.clear();
+            try {
+                T result = action.doInTransaction(status);
+                roundTrip(DB_ROUND_TRIP_MICROS);
+                commits.incrementAndGet();
+                return result;
+            } catch (RuntimeException e) {
+                new HashSet<>(transactionClaims).forEach(processedKeys::remove);
+                throw e;
+            } finally {
+                transactionClaims.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.project.scheduler;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.Mock;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.project.listener.PaymentUrlRequestListener;
+import org.project.model.Appointment;
+import org.project.repository.AppointmentRepository;
+import org.project.repository.SagaStateRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentUrlRetrySchedulerTest {
+
+    @Mock
+    private SagaStateRepository sagaStateRepository;
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    @Mock
+    private PaymentUrlRequestListener paymentUrlRequestListener;
+
+    private PaymentUrlRetryScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new PaymentUrlRetryScheduler(sagaStateRepository, appointmentRepository,
+                paymentUrlRequestListener, new TransactionTemplate() {
+                    @Override
+                    public <T> T execute(TransactionCallback<T> action) {
+                        return action.doInTransaction(new SimpleTransactionStatus());
+                    }
+                });
+        ReflectionTestUtils.setField(scheduler, "maxAttempts", 5);
+        ReflectionTestUtils.setField(scheduler, "retryAfterSeconds", 60L);
+        ReflectionTestUtils.setField(scheduler, "batchSize", 100);
+        lenient().when(sagaStateRepository.expireExhaustedPaymentUrlRequests(anyInt(), any())).thenReturn(0);
+    }
+
+    @Test
+    void retryStaleRequests_ShouldResendPendingRequestsWithAppointmentFee() {
+        // Given: listener sau commit bị mất, yêu cầu còn PENDING
+        Appointment appointment = Appointment.builder()
+                .id(UUID.randomUUID())
+                .consultationFee(BigDecimal.valueOf(200_000))
+                .build();
+        when(sagaStateRepository.findStalePaymentUrlRequests(eq(5), any(), any()))
+                .thenReturn(List.of(appointment.getId()));
+        when(appointmentRepository.findAllById(List.of(appointment.getId()))).thenReturn(List.of(appointment));
+
+        // When
+        scheduler.retryStaleRequests();
+
+        // Then
+        verify(sagaStateRepository).expireExhaustedPaymentUrlRequests(eq(5), any());
+        verify(paymentUrlRequestListener).requestPaymentUrl(appointment.getId(), BigDecimal.valueOf(200_000));
+    }
+
+    @Test
+    void retryStaleRequests_WhenNothingIsStale_ShouldNotCallPaymentService() {
+        // Given
+        when(sagaStateRepository.findStalePaymentUrlRequests(eq(5), any(), any())).thenReturn(List.of());
+
+        // When
+        scheduler.retryStaleRequests();
+
+        // Then
+        verify(appointmentRepository, never()).findAllById(any());
+        verify(paymentUrlRequestListener, never()).requestPaymentUrl(any(), any());
+    }
+}
@@ -0,0 +1,342 @@
+package org.project.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import org.mockito.Mock;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.project.client.PaymentServiceClient;
+import org.project.client.SchedulingServiceClient;
+import org.project.dto.request.CreateAppointmentRequest;
+import org.project.dto.request.CreatePaymentRequest;
+import org.project.dto.response.AppointmentResponse;
+import org.project.dto.response.DoctorResponse;
+import org.project.dto.response.PaymentUrlResponse;
+import org.project.dto.response.SlotDetailsResponse;
+import org.project.enums.PaymentUrlStatus;
+import org.project.event.PaymentUrlRequestedEvent;
+import org.project.listener.PaymentUrlRequestListener;
+import org.project.mapper.AppointmentMapper;
+import org.project.mapper.PageMapper;
+import org.project.model.Appointment;
+import org.project.model.AppointmentSagaState;
+import org.project.outbox.OutboxService;
+import org.project.producer.AppointmentEventProducer;
+import org.project.repository.AppointmentRepository;
+import org.project.repository.SagaStateRepository;
+import org.project.service.impl.AppointmentFactory;
+import org.project.service.impl.AppointmentServiceImpl;
+import org.project.utils.AppointmentCodeGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Kiểm tra luồng tạo lịch hẹn theo giai đoạn với payment-service giả chậm:
+ * transaction ghi lịch hẹn không chờ payment URL, thời gian giữ connection mỗi booking chỉ vài ms.
+ */
+@ExtendWith(MockitoExtension.class)
+class AppointmentCreationPipelineTest {
+
+    private static final Logger log = LoggerFactory.getLogger(AppointmentCreationPipelineTest.class);
+
+    private static final int BOOKINGS = 16;
+    private static final long RESERVE_LATENCY_MS = 20;
+    private static final long PAYMENT_LATENCY_MS = 300;
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    @Mock
+    private SagaStateRepository sagaStateRepository;
+
+    @Mock
+    private OutboxService outboxService;
+
+    @Mock
+    private AppointmentValidator validator;
+
+    @Mock
+    private SchedulingServiceClient schedulingServiceClient;
+
+    @Mock
+    private PaymentServiceClient paymentServiceClient;
+
+    @Mock
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @Mock
+    private PageMapper pageMapper;
+
+    @Mock
+    private AppointmentMapper appointmentMapper;
+
+    @Mock
+    private AppointmentEventProducer eventProducer;
+
+    @Mock
+    private AppointmentCodeGenerator codeGenerator;
+
+    private final AppointmentFactory factory = new AppointmentFactory();
+    private HoldTimeTransactionTemplate bookingTransactions;
+    private ExecutorService paymentExecutor;
+    private AppointmentServiceImpl appointmentService;
+    private PaymentUrlRequestListener paymentListener;
+    private UUID doctorId;
+
+    @BeforeEach
+    void setUp() {
+        doctorId = UUID.randomUUID();
+        bookingTransactions = new HoldTimeTransactionTemplate();
+        paymentExecutor = Executors.newFixedThreadPool(8);
+
+        appointmentService = new AppointmentServiceImpl(appointmentRepository, sagaStateRepository, outboxService,
+                validator, factory, schedulingServiceClient, bookingTransactions, applicationEventPublisher,
+                pageMapper, appointmentMapper, Runnable::run, eventProducer, codeGenerator);
+        paymentListener = new PaymentUrlRequestListener(
+                paymentServiceClient, factory, sagaStateRepository, new HoldTimeTransactionTemplate());
+        ReflectionTestUtils.setField(paymentListener, "maxAttempts", 5);
+        ReflectionTestUtils.setField(paymentListener, "retryAfterSeconds", 60L);
+
+        lenient().when(codeGenerator.generatePublicCode()).thenAnswer(invocation -> "APT" + System.nanoTime());
+        lenient().when(validator.validateDoctor(doctorId)).thenReturn(DoctorResponse.builder()
+                .userId(doctorId)
+                .fullName("Nguyen Van A")
+                .consultationFee(BigDecimal.valueOf(200_000))
+                .build());
+        lenient().when(validator.validateAndReserveSlot(any(), eq(doctorId), any())).thenAnswer(invocation -> {
+            // Giữ slot qua REST, nằm ngoài transaction
+            Thread.sleep(RESERVE_LATENCY_MS);
+            return SlotDetailsResponse.builder()
+                    .slotId(invocation.getArgument(0))
+                    .doctorId(doctorId)
+                    .slotDate(LocalDate.now().plusDays(1))
+                    .startTime(LocalTime.of(9, 0))
+                    .endTime(LocalTime.of(9, 30))
+                    .available(true)
+                    .build();
+        });
+        lenient().when(appointmentRepository.save(any(Appointment.class))).thenAnswer(invocation -> {
+            Appointment appointment = invocation.getArgument(0);
+            appointment.setId(UUID.randomUUID());
+            return appointment;
+        });
+        lenient().when(sagaStateRepository.claimPaymentUrlRequest(any(UUID.class), eq(5), any(), any())).thenReturn(1);
+        lenient().when(paymentServiceClient.createPayment(any(CreatePaymentRequest.class))).thenAnswer(invocation -> {
+            // payment-service/VNPay chậm
+            Thread.sleep(PAYMENT_LATENCY_MS);
+            CreatePaymentRequest request = invocation.getArgument(0);
+            return PaymentUrlResponse.builder()
+                    .paymentId(UUID.randomUUID())
+                    .paymentUrl("https://sandbox.vnpayment.vn/pay?appointment=" + request.getAppointmentId())
+                    .build();
+        });
+        // Như @TransactionalEventListener(AFTER_COMMIT) + @Async: chạy listener trên executor sau commit
+        lenient().doAnswer(invocation -> {
+            PaymentUrlRequestedEvent event = invocation.getArgument(0);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    paymentExecutor.execute(() -> paymentListener.onPaymentUrlRequested(event));
+                }
+            });
+            return null;
+        }).when(applicationEventPublisher).publishEvent(any(PaymentUrlRequestedEvent.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        paymentExecutor.shutdownNow();
+    }
+
+    @Test
+    void testCreateAppointment_ShouldNotHoldTransactionWhilePaymentUrlIsCreated() throws Exception {
+        // Given
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        List<Future<Long>> responseTimes = new ArrayList<>();
+
+        // When: nhiều booking đồng thời
+        for (int i = 0; i < BOOKINGS; i++) {
+            responseTimes.add(clients.submit(() -> {
+                long startedAt = System.nanoTime();
+                AppointmentResponse response = appointmentService.createAppointment(request());
+                assertThat(response.getPaymentUrl()).isNull();
+                return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+            }));
+        }
+        List<Long> responseMillis = new ArrayList<>();
+        for (Future<Long> responseTime : responseTimes) {
+            responseMillis.add(responseTime.get(10, TimeUnit.SECONDS));
+        }
+        clients.shutdown();
+
+        paymentExecutor.shutdown();
+        assertThat(paymentExecutor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        // Then
+        long maxHoldMicros = bookingTransactions.holdTimesMicros().stream().mapToLong(Long::longValue).max().orElseThrow();
+        long maxResponseMillis = responseMillis.stream().mapToLong(Long::longValue).max().orElseThrow();
+        log.info("Tạo lịch hẹn: giữ connection tối đa {} ms, phản hồi tối đa {} ms (payment {} ms)",
+                String.format("%.2f", maxHoldMicros / 1000.0), maxResponseMillis, PAYMENT_LATENCY_MS);
+
+        assertThat(bookingTransactions.holdTimesMicros()).hasSize(BOOKINGS);
+        assertThat(maxHoldMicros).isLessThan(TimeUnit.MILLISECONDS.toMicros(10));
+        assertThat(maxResponseMillis).isLessThan(PAYMENT_LATENCY_MS);
+        verify(sagaStateRepository, times(BOOKINGS)).completePaymentUrl(any(UUID.class), any(UUID.class),
+                startsWith("https://"));
+        verify(sagaStateRepository, never()).updateStep(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testCreateAppointment_WhenSaveFails_ShouldReleaseReservedSlot() {
+        // Given
+        CreateAppointmentRequest request = request();
+        when(appointmentRepository.save(any(Appointment.class))).thenThrow(new IllegalStateException("db down"));
+
+        // When / Then
+        assertThatThrownBy(() -> appointmentService.createAppointment(request))
+                .isInstanceOf(IllegalStateException.class);
+        verify(schedulingServiceClient).releaseSlot(request.getSlotId());
+        verify(applicationEventPublisher, never()).publishEvent(any(PaymentUrlRequestedEvent.class));
+        verify(outboxService, never()).saveEvent(anyString(), anyString(), any(), anyString(), any());
+    }
+
+    @Test
+    void testGetPaymentUrl_ShouldBeEmptyUntilPaymentStepFinishes() {
+        // Given
+        UUID appointmentId = UUID.randomUUID();
+        AppointmentSagaState saga = AppointmentSagaState.builder()
+                .appointmentId(appointmentId)
+                .currentStep("DOCTOR_VALIDATED")
+                .build();
+        when(sagaStateRepository.findByAppointmentId(appointmentId)).thenReturn(Optional.of(saga));
+
+        // When / Then: chưa có kết quả
+        assertThat(appointmentService.getPaymentUrl(appointmentId)).isEmpty();
+
+        // When / Then: bước tạo payment URL đã xong
+        saga.setPaymentId(UUID.randomUUID());
+        saga.setPaymentUrl("https://sandbox.vnpayment.vn/pay");
+        saga.setPaymentUrlStatus(PaymentUrlStatus.CREATED);
+        assertThat(appointmentService.getPaymentUrl(appointmentId))
+                .get()
+                .extracting(PaymentUrlResponse::getPaymentUrl)
+                .isEqualTo("https://sandbox.vnpayment.vn/pay");
+    }
+
+    @Test
+    void testGetPaymentUrl_WhenRequestFailed_ShouldReturnMessage() {
+        // Given: yêu cầu đã hết lượt thử
+        UUID appointmentId = UUID.randomUUID();
+        AppointmentSagaState saga = AppointmentSagaState.builder()
+                .appointmentId(appointmentId)
+                .currentStep("PATIENT_VALIDATED")
+                .paymentUrlStatus(PaymentUrlStatus.FAILED)
+                .build();
+        when(sagaStateRepository.findByAppointmentId(appointmentId)).thenReturn(Optional.of(saga));
+
+        // When
+        Optional<PaymentUrlResponse> response = appointmentService.getPaymentUrl(appointmentId);
+
+        // Then
+        assertThat(response).get().extracting(PaymentUrlResponse::getMessage).isNotNull();
+    }
+
+    @Test
+    void testRequestPaymentUrl_WhenPaymentServiceFails_ShouldKeepRequestPending() {
+        // Given
+        UUID appointmentId = UUID.randomUUID();
+        when(paymentServiceClient.createPayment(any(CreatePaymentRequest.class)))
+                .thenThrow(new RuntimeException("Failed to create payment URL"));
+
+        // When
+        boolean attempted = paymentListener.requestPaymentUrl(appointmentId, BigDecimal.valueOf(200_000));
+
+        // Then: chỉ ghi lỗi, không chạm bước saga, sweeper thử lại sau
+        assertThat(attempted).isTrue();
+        verify(sagaStateRepository).recordPaymentUrlError(appointmentId, "Failed to create payment URL");
+        verify(sagaStateRepository, never()).completePaymentUrl(any(), any(), any());
+        verify(sagaStateRepository, never()).updateStep(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testRequestPaymentUrl_WhenRequestAlreadyClaimed_ShouldNotCallPaymentService() {
+        // Given: yêu cầu đã có kết quả hoặc đang được instance khác xử lý
+        UUID appointmentId = UUID.randomUUID();
+        when(sagaStateRepository.claimPaymentUrlRequest(eq(appointmentId), eq(5), any(), any())).thenReturn(0);
+
+        // When
+        boolean attempted = paymentListener.requestPaymentUrl(appointmentId, BigDecimal.valueOf(200_000));
+
+        // Then
+        assertThat(attempted).isFalse();
+        verify(paymentServiceClient, never()).createPayment(any());
+    }
+
+    private CreateAppointmentRequest request() {
+        return CreateAppointmentRequest.builder()
+                .doctorId(doctorId)
+                .slotId(UUID.randomUUID())
+                .patientName("Tran Thi B")
+                .patientPhone("0900000000")
+                .patientEmail("guest@example.com")
+                .build();
+    }
+
+    /**
+     * Transaction giả: đo thời gian từ lúc mở tới lúc commit (thời gian giữ connection), rồi chạy afterCommit.
+     */
+    private static final class HoldTimeTransactionTemplate extends TransactionTemplate {
+        private final Queue<Long> holdTimesMicros = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public <T> T execute(TransactionCallback<T> action) {
+            TransactionSynchronizationManager.initSynchronization();
+            long startedAt = System.nanoTime();
+            try {
+                T result = action.doInTransaction(new SimpleTransactionStatus());
+                holdTimesMicros.add(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startedAt));
+                TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+                return result;
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+        }
+
+        Queue<Long> holdTimesMicros() {
+            return holdTimesMicros;
+        }
+    }
+}
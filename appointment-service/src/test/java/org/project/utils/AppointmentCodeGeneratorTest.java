@@ -0,0 +1,237 @@
+package org.project.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+class AppointmentCodeGeneratorTest {
+
+    private static final Logger log = LoggerFactory.getLogger(AppointmentCodeGeneratorTest.class);
+
+    private static final long SECRET = 7305162209118235471L;
+
+    @Test
+    void generatePublicCode_AcrossNodesAndThreads_ShouldNeverCollide() throws Exception {
+        // Given: 8 instance giả lập, mỗi instance 2 luồng dùng chung một generator, tổng 10 triệu mã
+        int nodes = 8;
+        int threadsPerNode = 2;
+        int codesPerThread = 10_000_000 / (nodes * threadsPerNode);
+        ExecutorService pool = Executors.newFixedThreadPool(nodes * threadsPerNode);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int node = 0; node < nodes; node++) {
+            AppointmentCodeGenerator generator = new AppointmentCodeGenerator(node * 97, SECRET);
+            for (int t = 0; t < threadsPerNode; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    long[] values = new long[codesPerThread];
+                    for (int i = 0; i < codesPerThread; i++) {
+                        String code = generator.generatePublicCode();
+                        if (!generator.isValidFormat(code)) {
+                            throw new IllegalStateException("Mã sai định dạng: " + code);
+                        }
+                        values[i] = decode(code);
+                    }
+                    return values;
+                }));
+            }
+        }
+
+        // When
+        long startedAt = System.nanoTime();
+        start.countDown();
+        long[] all = new long[codesPerThread * futures.size()];
+        int offset = 0;
+        for (Future<long[]> future : futures) {
+            long[] values = future.get(2, TimeUnit.MINUTES);
+            System.arraycopy(values, 0, all, offset, values.length);
+            offset += values.length;
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        pool.shutdown();
+
+        // Then
+        Arrays.sort(all);
+        int duplicates = 0;
+        for (int i = 1; i < all.length; i++) {
+            if (all[i] == all[i - 1]) {
+                duplicates++;
+            }
+        }
+        log.info("Sinh {} mã trên {} node x {} luồng trong {} ms ({} triệu mã/s), trùng: {}",
+                all.length, nodes, threadsPerNode, elapsedMs,
+                String.format("%.1f", all.length / (Math.max(1, elapsedMs) * 1000.0)), duplicates);
+        assertThat(duplicates).isZero();
+    }
+
+    @Test
+    void generatePublicCode_SingleThreadThroughput() {
+        // Given
+        AppointmentCodeGenerator generator = new AppointmentCodeGenerator(1, SECRET);
+        int codes = 2_000_000;
+        for (int i = 0; i < 200_000; i++) {
+            generator.generatePublicCode();
+        }
+
+        // When
+        long checksum = 0;
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < codes; i++) {
+            checksum += generator.generatePublicCode().charAt(14);
+        }
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+
+        // Then: trước đây mỗi mã tốn ít nhất một round-trip existsByPublicCode tới DB
+        log.info("Một luồng: {} triệu mã/s ({} ns/mã)",
+                String.format("%.1f", codes / seconds / 1e6), Math.round(seconds * 1e9 / codes));
+        assertThat(checksum).isPositive();
+    }
+
+    @Test
+    void generatePublicCode_WhenSequenceExhaustedWithinOneMillisecond_ShouldStayUnique() {
+        // Given: đồng hồ đứng yên, vượt quá 512 mã trong cùng một ms
+        AppointmentCodeGenerator generator = fixedClock(3, 1760000000000L);
+        Set<String> codes = new HashSet<>();
+
+        // When
+        for (int i = 0; i < 5000; i++) {
+            codes.add(generator.generatePublicCode());
+        }
+
+        // Then
+        assertThat(codes).hasSize(5000);
+    }
+
+    @Test
+    void generatePublicCode_WhenClockMovesBackwards_ShouldStayUnique() {
+        // Given
+        long[] now = {1760000000000L};
+        AppointmentCodeGenerator generator = new AppointmentCodeGenerator(5, SECRET) {
+            @Override
+            protected long currentTimeMillis() {
+                return now[0];
+            }
+        };
+        Set<String> codes = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            codes.add(generator.generatePublicCode());
+        }
+
+        // When: NTP kéo đồng hồ lùi 5 giây
+        now[0] -= 5000;
+        for (int i = 0; i < 1000; i++) {
+            codes.add(generator.generatePublicCode());
+        }
+
+        // Then
+        assertThat(codes).hasSize(2000);
+    }
+
+    @Test
+    void generatePublicCode_ShouldFitColumnAndPassValidation() {
+        // Given
+        AppointmentCodeGenerator generator = new AppointmentCodeGenerator(AppointmentCodeGenerator.MAX_NODE_ID, SECRET);
+
+        // When
+        String code = generator.generatePublicCode();
+
+        // Then
+        assertThat(code).startsWith("AP").hasSize(15);
+        assertThat(code.substring(2).chars()).allMatch(c -> AppointmentCodeGenerator.SAFE_CHARS.indexOf(c) >= 0);
+        assertThat(generator.isValidFormat(code)).isTrue();
+    }
+
+    @Test
+    void generatePublicCode_ConsecutiveCodesShouldNotRevealOrder() {
+        // Given
+        AppointmentCodeGenerator generator = fixedClock(0, 1760000000000L);
+
+        // When
+        String first = generator.generatePublicCode();
+        String second = generator.generatePublicCode();
+
+        // Then: hai mã liên tiếp khác nhau ở nhiều vị trí chứ không chỉ ở ký tự cuối
+        int differences = 0;
+        for (int i = 2; i < AppointmentCodeGenerator.CODE_LENGTH - 1; i++) {
+            if (first.charAt(i) != second.charAt(i)) {
+                differences++;
+            }
+        }
+        assertThat(differences).isGreaterThan(3);
+    }
+
+    @Test
+    void isValidFormat_WithSingleCharacterTypo_ShouldReject() {
+        // Given
+        AppointmentCodeGenerator generator = new AppointmentCodeGenerator(7, SECRET);
+        String code = generator.generatePublicCode();
+
+        // When / Then: mọi cách gõ sai một ký tự trong phần mã đều bị bắt
+        for (int i = 2; i < code.length(); i++) {
+            for (char c : AppointmentCodeGenerator.SAFE_CHARS.toCharArray()) {
+                if (c == code.charAt(i)) {
+                    continue;
+                }
+                String typo = code.substring(0, i) + c + code.substring(i + 1);
+                assertThat(generator.isValidFormat(typo)).as(typo).isFalse();
+            }
+        }
+    }
+
+    @Test
+    void isValidFormat_WithLegacyCode_ShouldStillAccept() {
+        AppointmentCodeGenerator generator = new AppointmentCodeGenerator(7, SECRET);
+
+        assertThat(generator.isValidFormat("AP1735123456789X7K2")).isTrue();
+        assertThat(generator.isValidFormat("AP17351234567A9X7K2")).isFalse();
+        assertThat(generator.isValidFormat("XX1735123456789X7K2")).isFalse();
+        assertThat(generator.isValidFormat(null)).isFalse();
+    }
+
+    @Test
+    void normalizeCode_ShouldStripSeparatorsAndUppercase() {
+        AppointmentCodeGenerator generator = new AppointmentCodeGenerator(7, SECRET);
+        String code = generator.generatePublicCode();
+        String typed = " " + code.substring(0, 6).toLowerCase() + "-" + code.substring(6, 10) + " " + code.substring(10);
+
+        assertThat(generator.normalizeCode(typed)).isEqualTo(code);
+    }
+
+    @Test
+    void generatePublicCode_WithInvalidNodeId_ShouldFail() {
+        AppointmentCodeGenerator generator = new AppointmentCodeGenerator(AppointmentCodeGenerator.MAX_NODE_ID + 1, SECRET);
+
+        assertThatThrownBy(generator::generatePublicCode).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static AppointmentCodeGenerator fixedClock(int nodeId, long millis) {
+        return new AppointmentCodeGenerator(nodeId, SECRET) {
+            @Override
+            protected long currentTimeMillis() {
+                return millis;
+            }
+        };
+    }
+
+    private static long decode(String code) {
+        long value = 0;
+        for (int i = 2; i < 2 + AppointmentCodeGenerator.PAYLOAD_LENGTH; i++) {
+            value = (value << 5) | AppointmentCodeGenerator.valueOf(code.charAt(i));
+        }
+        return value;
+    }
+}
@@ -0,0 +1,95 @@
+package org.project.utils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.project.exception.CodeGenerationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class CodeNodeIdLeaseTest {
+
+    private Deque<Connection> connections;
+    private CodeNodeIdLease lease;
+
+    @BeforeEach
+    void setUp() {
+        connections = new ArrayDeque<>();
+        lease = new CodeNodeIdLease(null) {
+            @Override
+            protected Connection openConnection() {
+                return connections.removeFirst();
+            }
+        };
+        ReflectionTestUtils.setField(lease, "configuredNodeId", -1);
+    }
+
+    @Test
+    void getNodeId_WhenLeaseConnectionDropped_ShouldStopIssuingBeforeNextScheduledCheck() throws Exception {
+        // Given: lease được xác nhận trước mỗi lần lấy node id
+        ReflectionTestUtils.setField(lease, "leaseConfirmMs", 0L);
+        Connection first = lockedConnection();
+        connections.add(first);
+        lease.acquire();
+        assertThat(lease.getNodeId()).isBetween(0, AppointmentCodeGenerator.MAX_NODE_ID);
+
+        // When: kết nối giữ lock rớt, verifyLease chưa chạy tới
+        when(first.isValid(anyInt())).thenReturn(false);
+        connections.add(lockedConnection());
+
+        // Then: không trả node id cũ, kết nối cũ bị đóng và node id mới được xin lại
+        assertThatThrownBy(lease::getNodeId).isInstanceOf(CodeGenerationException.class);
+        verify(first).close();
+        assertThat(connections).isEmpty();
+        assertThat(lease.getNodeId()).isBetween(0, AppointmentCodeGenerator.MAX_NODE_ID);
+    }
+
+    @Test
+    void getNodeId_RightAfterLeasing_ShouldWaitForPreviousHolderToStop() throws Exception {
+        // Given: instance cũ có thể còn sinh mã tới một khoảng xác nhận sau khi mất kết nối
+        ReflectionTestUtils.setField(lease, "leaseConfirmMs", 60_000L);
+        connections.add(lockedConnection());
+
+        // When
+        lease.acquire();
+
+        // Then: node id vừa xin chưa được dùng
+        assertThatThrownBy(lease::getNodeId).isInstanceOf(CodeGenerationException.class);
+    }
+
+    @Test
+    void getNodeId_WithConfiguredNodeId_ShouldNotTouchDatabase() {
+        // Given
+        ReflectionTestUtils.setField(lease, "configuredNodeId", 42);
+
+        // When
+        lease.acquire();
+
+        // Then
+        assertThat(lease.getNodeId()).isEqualTo(42);
+    }
+
+    private static Connection lockedConnection() throws SQLException {
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(connection.isValid(anyInt())).thenReturn(true);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getBoolean(1)).thenReturn(true);
+        return connection;
+    }
+}
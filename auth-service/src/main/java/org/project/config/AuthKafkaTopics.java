@@ -13,6 +13,7 @@ public class AuthKafkaTopics {
     private String patientValidated;
     private String validationFailed;
     private String userRegistered;
+    private String tokenRevoked;
     //consume
     private String appointmentCreated;
 }
@@ -1,41 +1,58 @@
 package org.project.config;
 
+import com.nimbusds.jose.JWSAlgorithm;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.project.model.User;
-import org.project.repository.UserRepository;
+import org.project.security.jwt.validator.ParsedToken;
 import org.project.security.jwt.validator.TokenValidator;
+import org.project.security.revocation.TokenRevocationRegistry;
+import org.project.security.user.UserSecurityState;
+import org.project.security.user.UserSecurityStateCache;
 import org.project.service.TokenStatusChecker;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jwt.BadJwtException;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.JwtValidationException;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.MappedJwtClaimSetConverter;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.Map;
 import java.util.UUID;
 
 @Component
 @Slf4j
 @RequiredArgsConstructor
 public class BlacklistAwareJwtDecoder implements JwtDecoder {
-    private final JwtDecoder jwtDecoder;
+    // Cùng bộ chuyển đổi claim và validator mặc định mà NimbusJwtDecoder dùng
+    private static final Converter<Map<String, Object>, Map<String, Object>> CLAIM_SET_CONVERTER =
+            MappedJwtClaimSetConverter.withDefaults(Collections.emptyMap());
+    private static final OAuth2TokenValidator<Jwt> JWT_VALIDATOR = JwtValidators.createDefault();
+
     private final TokenValidator tokenValidator;
     private final TokenStatusChecker tokenStatusChecker;
-    private final UserRepository userRepository;
+    private final UserSecurityStateCache userSecurityStateCache;
+    private final TokenRevocationRegistry revocationRegistry;
 
     @Override
     public Jwt decode(String token) throws JwtException {
-        Jwt jwt = jwtDecoder.decode(token);
-
-
+        // Parse và kiểm tra chữ ký một lần, token gặp lại lấy từ VerifiedTokenCache
+        ParsedToken parsedToken = parse(token);
+        Jwt jwt = createJwt(parsedToken);
 
         // Kiểm tra token có trong blacklist không
-        String tokenHash = tokenValidator.hash(token);
-        if (tokenStatusChecker.isTokenInvalidated(tokenHash)) {
+        if (tokenStatusChecker.isTokenInvalidated(parsedToken.getHash())) {
             throw new JwtException("Token has been invalidated");
         }
 
-        if (!isTokenValidBySecurityTimestamp(token)) {
+        if (!isTokenValidBySecurityTimestamp(parsedToken)) {
             log.debug("Token rejected: invalidated by user security timestamp");
             throw new JwtException("Token has been invalidated by security policy");
         }
@@ -43,9 +60,39 @@ public class BlacklistAwareJwtDecoder implements JwtDecoder {
         return jwt;
     }
 
-    private boolean isTokenValidBySecurityTimestamp(String token) {
+    private ParsedToken parse(String token) {
+        ParsedToken parsedToken;
+        try {
+            parsedToken = tokenValidator.parse(token);
+        } catch (Exception e) {
+            throw new BadJwtException("An error occurred while attempting to decode the Jwt: " + e.getMessage(), e);
+        }
+        if (!JWSAlgorithm.HS512.getName().equals(parsedToken.getHeaders().get("alg"))
+                || !parsedToken.isSignatureValid()) {
+            throw new BadJwtException("An error occurred while attempting to decode the Jwt: Invalid signature");
+        }
+        return parsedToken;
+    }
+
+    private Jwt createJwt(ParsedToken parsedToken) {
+        Map<String, Object> claims = CLAIM_SET_CONVERTER.convert(parsedToken.getClaimsSet().getClaims());
+        Jwt jwt = Jwt.withTokenValue(parsedToken.getToken())
+                .headers(headers -> headers.putAll(parsedToken.getHeaders()))
+                .claims(jwtClaims -> jwtClaims.putAll(claims))
+                .build();
+
+        OAuth2TokenValidatorResult result = JWT_VALIDATOR.validate(jwt);
+        if (result.hasErrors()) {
+            String description = result.getErrors().iterator().next().getDescription();
+            throw new JwtValidationException("An error occurred while attempting to decode the Jwt: " + description,
+                    result.getErrors());
+        }
+        return jwt;
+    }
+
+    private boolean isTokenValidBySecurityTimestamp(ParsedToken token) {
         try {
-            UUID userId = tokenValidator.getUserId(token);
+            UUID userId = token.getUserId();
             LocalDateTime tokenIssuedAt = getTokenIssuedTime(token);
 
             if (userId == null || tokenIssuedAt == null) {
@@ -53,22 +100,28 @@ public class BlacklistAwareJwtDecoder implements JwtDecoder {
                 return false;
             }
 
-            User user = userRepository.findById(userId).orElse(null);
-            if (user == null) {
+            // Mốc cutoff đã được đồng bộ về bộ nhớ thì từ chối ngay, không cần đọc user
+            long issuedAtMillis = tokenIssuedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            if (revocationRegistry.isReady() && revocationRegistry.isIssuedBeforeCutoff(userId, issuedAtMillis)) {
+                log.debug("Token rejected: issued before replicated security invalidation timestamp");
+                return false;
+            }
+
+            UserSecurityState state = userSecurityStateCache.get(userId);
+            if (state == null) {
                 log.warn("Token validation failed: user not found for ID: {}", userId);
                 return false;
             }
 
-            if (!user.isActive() || user.getDeletedAt() != null) {
+            if (!state.active()) {
                 log.debug("Token rejected: user account is inactive or deleted");
                 return false;
             }
 
-            if (user.getTokensInvalidBefore() != null &&
-                    tokenIssuedAt.isBefore(user.getTokensInvalidBefore())) {
+            if (state.isIssuedBeforeCutoff(tokenIssuedAt)) {
                 log.debug("Token rejected: issued before security invalidation timestamp. " +
                                 "Token issued: {}, Invalid before: {}",
-                        tokenIssuedAt, user.getTokensInvalidBefore());
+                        tokenIssuedAt, state.tokensInvalidBefore());
                 return false;
             }
 
@@ -80,9 +133,9 @@ public class BlacklistAwareJwtDecoder implements JwtDecoder {
         }
     }
 
-    private LocalDateTime getTokenIssuedTime(String token) {
+    private LocalDateTime getTokenIssuedTime(ParsedToken token) {
         try {
-            return tokenValidator.getIssuedTime(token);
+            return token.getIssuedTime();
         } catch (Exception e) {
             log.error("Error getting token issued time", e);
             return null;
@@ -56,5 +56,15 @@ public class KafkaTopicConfig {
                 .config("retention.ms", "2592000000")
                 .build();
     }
-}
 
+    // Giữ lâu hơn thời hạn của refresh token, mốc cutoff cũ hơn không còn token nào để chặn
+    @Bean
+    public NewTopic tokenRevokedTopic() {
+        return TopicBuilder.name(topics.getTokenRevoked())
+                .partitions(NUM_PARTITIONS)
+                .replicas(REPLICATION_FACTOR)
+                .config("min.insync.replicas", "1")
+                .config("retention.ms", "86400000") // 1 day
+                .build();
+    }
+}
@@ -0,0 +1,92 @@
+package org.project.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.project.events.TokenRevocationEvent;
+import org.project.security.revocation.TokenRevocationRegistry;
+import org.project.security.user.UserSecurityStateCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Mỗi instance auth-service cần nhận mọi sự kiện thu hồi nên dùng group id riêng cho từng instance,
+ * đọc từ offset mới nhất rồi bù phần trước đó bằng snapshot từ DB.
+ * Group id cố định theo instance id để khởi động lại tiếp tục từ offset đã commit thay vì bỏ lại group mồ côi.
+ */
+@Slf4j
+@Configuration
+@RequiredArgsConstructor
+public class TokenRevocationKafkaConfig {
+    private final TokenRevocationRegistry revocationRegistry;
+    private final UserSecurityStateCache userSecurityStateCache;
+
+    @Value("${spring.kafka.bootstrap-servers:localhost:9092}")
+    private String bootstrapServers;
+
+    @Value("${spring.application.name}")
+    private String applicationName;
+
+    @Value("${jwt.revocation.consumer-instance-id}")
+    private String instanceId;
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, TokenRevocationEvent> tokenRevocationListenerContainerFactory() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        config.put(ConsumerConfig.GROUP_ID_CONFIG, applicationName + "-revocation-" + instanceId);
+        config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        config.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
+        config.put(JsonDeserializer.VALUE_DEFAULT_TYPE, TokenRevocationEvent.class.getName());
+        config.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, false);
+
+        ConcurrentKafkaListenerContainerFactory<String, TokenRevocationEvent> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(config));
+        // Một consumer nhận tất cả partition để snapshot được nạp sau khi mọi vị trí đã chốt
+        factory.setConcurrency(1);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        factory.getContainerProperties().setConsumerRebalanceListener(new ConsumerAwareRebalanceListener() {
+            @Override
+            public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                revocationRegistry.setConsumerAssigned(false);
+            }
+
+            @Override
+            public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                revocationRegistry.setConsumerAssigned(false);
+            }
+
+            @Override
+            public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                revocationRegistry.setConsumerAssigned(!partitions.isEmpty());
+                if (revocationRegistry.isReady()) {
+                    return;
+                }
+                // position() chốt offset "latest" ngay lúc này; thu hồi commit sau đó đến qua Kafka,
+                // trước đó đã nằm trong DB và được snapshot đọc
+                partitions.forEach(consumer::position);
+                revocationRegistry.loadSnapshot();
+                // Trạng thái user nạp trước khi nhận sự kiện có thể đã lỡ thay đổi từ instance khác
+                userSecurityStateCache.invalidateAll();
+            }
+        });
+        return factory;
+    }
+}
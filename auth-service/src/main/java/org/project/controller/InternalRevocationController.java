@@ -0,0 +1,34 @@
+package org.project.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.project.dto.response.RevocationFeedResponse;
+import org.project.service.RevocationFeedService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.UUID;
+
+/**
+ * Nguồn đồng bộ trạng thái thu hồi token cho api-gateway, gateway tự xác thực chữ ký JWT
+ * và chỉ hỏi auth-service những token/user nào đã bị thu hồi.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/internal/revocations")
+@RequiredArgsConstructor
+public class InternalRevocationController {
+    private final RevocationFeedService revocationFeedService;
+
+    @GetMapping
+    public ResponseEntity<RevocationFeedResponse> getChanges(@RequestParam(defaultValue = "0") long since,
+                                                             @RequestParam(required = false) UUID afterId) {
+        RevocationFeedResponse response = revocationFeedService.getChangesSince(since, afterId);
+        log.debug("Revocation feed since {}: {} token, {} user cutoff",
+                since, response.getRevokedTokens().size(), response.getUserCutoffs().size());
+        return ResponseEntity.ok(response);
+    }
+}
@@ -0,0 +1,47 @@
+package org.project.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+/**
+ * Các thay đổi trạng thái thu hồi token kể từ một mốc thời gian, dùng để đồng bộ sang api-gateway.
+ * Mọi mốc thời gian là epoch millis.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class RevocationFeedResponse {
+    // Truyền lại ở lần gọi sau qua tham số since
+    long cursor;
+    // Id token cuối trang khi hasMore, truyền lại qua tham số afterId cùng cursor
+    String cursorId;
+    // Còn thay đổi chưa trả về, gọi lại ngay với cursor mới
+    boolean hasMore;
+    List<RevokedToken> revokedTokens;
+    List<UserCutoff> userCutoffs;
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class RevokedToken {
+        String tokenHash;
+        long expiresAt;
+    }
+
+    // Token của user phát hành trước invalidBefore đều không còn hiệu lực
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class UserCutoff {
+        String userId;
+        long invalidBefore;
+    }
+}
@@ -1,6 +1,8 @@
 package org.project.listener;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 import org.project.client.UserProfileServiceClient;
 import org.project.config.AuthKafkaTopics;
@@ -57,6 +59,7 @@ public class PatientValidationListener {
 //            }
 //
 //            PatientValidatedEvent validatedEvent = PatientValidatedEvent.builder()
+//                    .eventId(eventId("PATIENT_VALIDATED", event))
 //                    .sagaId(event.getSagaId())
 //                    .appointmentId(event.getAppointmentId())
 //                    .patientUserId(event.getPatientUserId())
@@ -79,6 +82,7 @@ public class PatientValidationListener {
 
     private void publishValidationFailed(AppointmentCreatedEvent event, String reason) {
         ValidationFailedEvent failedEvent = ValidationFailedEvent.builder()
+                .eventId(eventId("VALIDATION_FAILED", event))
                 .sagaId(event.getSagaId().toString())
                 .appointmentId(event.getAppointmentId())
                 .reason(reason)
@@ -89,4 +93,12 @@ public class PatientValidationListener {
         String partitionKey = event.getAppointmentId().toString();
         kafkaTemplate.send(topics.getValidationFailed(), partitionKey, failedEvent);
     }
+
+    /**
+     * Cố định theo sự kiện gốc để appointment-service bỏ qua bản gửi lại khi AppointmentCreated được giao lại
+     */
+    private static String eventId(String eventType, AppointmentCreatedEvent event) {
+        return UUID.nameUUIDFromBytes((eventType + ":" + event.getEventId())
+                .getBytes(StandardCharsets.UTF_8)).toString();
+    }
 }
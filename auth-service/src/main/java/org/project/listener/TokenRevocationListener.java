@@ -0,0 +1,33 @@
+package org.project.listener;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.project.events.TokenRevocationEvent;
+import org.project.security.revocation.TokenRevocationRegistry;
+import org.project.security.user.UserSecurityStateCache;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class TokenRevocationListener {
+    TokenRevocationRegistry revocationRegistry;
+    UserSecurityStateCache userSecurityStateCache;
+
+    @KafkaListener(
+            topics = "#{@authKafkaTopics.tokenRevoked}",
+            containerFactory = "tokenRevocationListenerContainerFactory"
+    )
+    public void handleTokenRevocation(TokenRevocationEvent event) {
+        if (event == null || event.getType() == null) {
+            return;
+        }
+        revocationRegistry.apply(event);
+        userSecurityStateCache.apply(event);
+        log.debug("Đã áp dụng sự kiện thu hồi {} cho user {}", event.getType(), event.getUserId());
+    }
+}
@@ -3,6 +3,7 @@ package org.project.producer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.project.config.AuthKafkaTopics;
+import org.project.events.TokenRevocationEvent;
 import org.project.events.UserRegisteredEvent;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
@@ -28,4 +29,19 @@ public class KafkaProducerService {
             log.error("Error sending user registered event for userId: {}", event.getUserId(), e);
         }
     }
+
+    public void sendTokenRevocationEvent(TokenRevocationEvent event) {
+        try {
+            kafkaTemplate.send(authKafkaTopics.getTokenRevoked(), event.getUserId().toString(), event)
+                    .whenComplete((result, ex) -> {
+                        if (ex == null) {
+                            log.debug("Token revocation event sent successfully for userId: {}", event.getUserId());
+                        } else {
+                            log.error("Failed to send token revocation event for userId: {}", event.getUserId(), ex);
+                        }
+                    });
+        } catch (Exception e) {
+            log.error("Error sending token revocation event for userId: {}", event.getUserId(), e);
+        }
+    }
 }
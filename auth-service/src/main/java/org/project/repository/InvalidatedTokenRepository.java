@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
@@ -20,4 +21,42 @@ public interface InvalidatedTokenRepository extends JpaRepository<InvalidatedTok
 
     @Query("SELECT COUNT(it) > 0 FROM InvalidatedToken it WHERE it.tokenHash = :tokenHash AND it.expiresAt > :now")
     boolean isTokenInvalid(@Param("tokenHash") String tokenHash, @Param("now") LocalDateTime now);
+
+    interface RevokedTokenView {
+        String getTokenHash();
+        LocalDateTime getExpiresAt();
+        LocalDateTime getBlackListedAt();
+    }
+
+    /**
+     * Token bị thu hồi sau since và chưa hết hạn, dùng để đối soát định kỳ bản sao trong bộ nhớ
+     */
+    @Query("SELECT it.tokenHash AS tokenHash, it.expiresAt AS expiresAt, it.blackListedAt AS blackListedAt " +
+            "FROM InvalidatedToken it WHERE it.blackListedAt > :since AND it.expiresAt > :now")
+    List<RevokedTokenView> findRevokedSince(@Param("since") LocalDateTime since, @Param("now") LocalDateTime now);
+
+    interface RevocationFeedRow extends RevokedTokenView {
+        UUID getId();
+    }
+
+    /**
+     * Token bị thu hồi sau cursor (since, afterId) tới until và chưa hết hạn, theo keyset (thời điểm thu hồi, id).
+     * Thời điểm được làm tròn xuống millisecond cho khớp cursor epoch millis của feed,
+     * nên các token cùng millisecond nằm vắt qua hai trang không bị bỏ sót.
+     */
+    @Query(value = "SELECT it.id AS \"id\", it.token_hash AS \"tokenHash\", it.expires_at AS \"expiresAt\", " +
+            "it.black_listed_at AS \"blackListedAt\" " +
+            "FROM invalidated_tokens it " +
+            "WHERE (date_trunc('milliseconds', it.black_listed_at), it.id) > (:since, :afterId) " +
+            "AND it.black_listed_at <= :until AND it.expires_at > :until " +
+            "ORDER BY date_trunc('milliseconds', it.black_listed_at), it.id " +
+            "LIMIT :limit", nativeQuery = true)
+    List<RevocationFeedRow> findRevokedAfter(@Param("since") LocalDateTime since,
+                                             @Param("afterId") UUID afterId,
+                                             @Param("until") LocalDateTime until,
+                                             @Param("limit") int limit);
+
+    @Query("SELECT it.tokenHash AS tokenHash, it.expiresAt AS expiresAt, it.blackListedAt AS blackListedAt " +
+            "FROM InvalidatedToken it WHERE it.expiresAt > :now")
+    List<RevokedTokenView> findUnexpired(@Param("now") LocalDateTime now);
 }
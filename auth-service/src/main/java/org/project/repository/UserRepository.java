@@ -9,6 +9,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -108,4 +109,26 @@ public interface UserRepository extends JpaRepository<User, UUID>, JpaSpecificat
 //                           @Param("isDeleted") Boolean isDeleted,
 //                           Pageable pageable);
 //
+
+    interface TokenCutoffView {
+        UUID getUserId();
+        LocalDateTime getInvalidBefore();
+    }
+
+    @Query("SELECT u.id AS userId, u.tokensInvalidBefore AS invalidBefore FROM User u " +
+            "WHERE u.tokensInvalidBefore > :since AND u.tokensInvalidBefore <= :until")
+    List<TokenCutoffView> findTokenCutoffsBetween(@Param("since") LocalDateTime since,
+                                                  @Param("until") LocalDateTime until);
+
+    interface SecurityStateView {
+        Boolean getActive();
+        LocalDateTime getDeletedAt();
+        LocalDateTime getTokensInvalidBefore();
+        LocalDateTime getUpdatedAt();
+    }
+
+    @Query("SELECT u.isActive AS active, u.deletedAt AS deletedAt, " +
+            "u.tokensInvalidBefore AS tokensInvalidBefore, u.updatedAt AS updatedAt " +
+            "FROM User u WHERE u.id = :userId")
+    Optional<SecurityStateView> findSecurityStateById(@Param("userId") UUID userId);
 }
@@ -2,6 +2,7 @@ package org.project.security.jwt.service;
 
 
 import org.project.dto.response.TokenResponse;
+import org.project.security.jwt.validator.ParsedToken;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -12,6 +13,8 @@ public interface TokenService {
 
     boolean validateToken(String token);
 
+    ParsedToken parseToken(String token);
+
     UUID getUserIdFromToken(String token);
     String getTokenType(String token);
     LocalDateTime getExpirationTimeFromToken(String token);
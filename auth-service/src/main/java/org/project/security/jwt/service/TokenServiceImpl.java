@@ -8,6 +8,7 @@ import org.project.exception.ErrorCode;
 import org.project.security.jwt.generator.AccessTokenGenerator;
 import org.project.security.jwt.generator.PasswordResetTokenGenerator;
 import org.project.security.jwt.generator.RefreshTokenGenerator;
+import org.project.security.jwt.validator.ParsedToken;
 import org.project.security.jwt.validator.TokenValidator;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -51,6 +52,11 @@ public class TokenServiceImpl implements TokenService {
         return tokenValidator.validate(token);
     }
 
+    @Override
+    public ParsedToken parseToken(String token) {
+        return tokenValidator.parse(token);
+    }
+
     @Override
     public UUID getUserIdFromToken(String token) {
         return tokenValidator.getUserId(token);
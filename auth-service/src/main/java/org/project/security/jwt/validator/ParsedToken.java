@@ -0,0 +1,138 @@
+package org.project.security.jwt.validator;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.project.exception.CustomException;
+import org.project.exception.ErrorCode;
+
+import java.text.ParseException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * JWT đã parse và kiểm tra chữ ký đúng một lần, dùng chung cho mọi bước xác thực trong một request.
+ * Hash SHA-256 được tính một lần khi tra VerifiedTokenCache, claims chỉ được tính khi cần lần đầu; object không đổi sau khi tạo
+ * nên có thể nằm trong VerifiedTokenCache và dùng đồng thời từ nhiều luồng.
+ */
+public final class ParsedToken {
+    private final String token;
+    private final SignedJWT signedJWT;
+    private final boolean signatureValid;
+
+    private final String hash;
+
+    private volatile Claims claims;
+
+    ParsedToken(String token, SignedJWT signedJWT, boolean signatureValid, String hash) {
+        this.token = token;
+        this.signedJWT = signedJWT;
+        this.signatureValid = signatureValid;
+        this.hash = hash;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public boolean isSignatureValid() {
+        return signatureValid;
+    }
+
+    /**
+     * Chữ ký đúng và chưa hết hạn, tương đương TokenValidator.validate
+     */
+    public boolean isValid() {
+        return signatureValid && !isExpired();
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public Map<String, Object> getHeaders() {
+        return signedJWT.getHeader().toJSONObject();
+    }
+
+    public JWTClaimsSet getClaimsSet() {
+        return claims().claimsSet();
+    }
+
+    public UUID getUserId() {
+        return claims().userId();
+    }
+
+    public String getUsername() {
+        return claims().claimsSet().getSubject();
+    }
+
+    public String getEmail() {
+        return claims().email();
+    }
+
+    public List<String> getRoles() {
+        return claims().roles();
+    }
+
+    /**
+     * Refresh token không có subject
+     */
+    public String getTokenType() {
+        return getUsername() != null ? "ACCESS" : "REFRESH";
+    }
+
+    public boolean isExpired() {
+        Date expirationTime = claims().claimsSet().getExpirationTime();
+        return expirationTime == null || expirationTime.before(new Date());
+    }
+
+    public LocalDateTime getExpirationTime() {
+        Date expirationTime = claims().claimsSet().getExpirationTime();
+        if (expirationTime == null) {
+            throw new CustomException(ErrorCode.TOKEN_INVALID, "Token lacks expiration time");
+        }
+        return toLocalDateTime(expirationTime);
+    }
+
+    public LocalDateTime getIssuedTime() {
+        Date issueTime = claims().claimsSet().getIssueTime();
+        if (issueTime == null) {
+            throw new CustomException(ErrorCode.TOKEN_INVALID, "Token lacks issued time");
+        }
+        return toLocalDateTime(issueTime);
+    }
+
+    private Claims claims() {
+        Claims value = claims;
+        if (value == null) {
+            value = Claims.of(signedJWT);
+            claims = value;
+        }
+        return value;
+    }
+
+    private static LocalDateTime toLocalDateTime(Date date) {
+        return LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault()).truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    private record Claims(JWTClaimsSet claimsSet, UUID userId, String email, List<String> roles) {
+        static Claims of(SignedJWT signedJWT) {
+            try {
+                JWTClaimsSet claimsSet = signedJWT.getJWTClaimsSet();
+                String userId = claimsSet.getStringClaim("userId");
+                List<String> roles = claimsSet.getStringListClaim("roles");
+                return new Claims(
+                        claimsSet,
+                        userId != null ? UUID.fromString(userId) : null,
+                        claimsSet.getStringClaim("email"),
+                        roles != null ? List.copyOf(roles) : List.of());
+            } catch (ParseException | IllegalArgumentException e) {
+                throw new CustomException(ErrorCode.TOKEN_PARSE_ERROR, e);
+            }
+        }
+    }
+}
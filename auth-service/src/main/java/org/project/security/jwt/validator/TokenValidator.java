@@ -5,9 +5,6 @@ import com.nimbusds.jose.JWSVerifier;
 import com.nimbusds.jose.crypto.MACVerifier;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
-import lombok.AccessLevel;
-import lombok.RequiredArgsConstructor;
-import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
 import org.project.exception.CustomException;
 import org.project.exception.ErrorCode;
@@ -19,95 +16,99 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.text.ParseException;
 import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.time.temporal.ChronoUnit;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
 
 @Component
-@RequiredArgsConstructor
 @Slf4j
-@FieldDefaults(level = AccessLevel.PRIVATE)
 public class TokenValidator {
-    @Value("${jwt.signer-key}")
-    String jwtSecret;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 algorithm not found", e);
+        }
+    });
 
-    @Value("${jwt.refresh.expiration}")
-    Long refreshTokenExpiration;
+    // MACVerifier không giữ trạng thái giữa các lần verify, dùng chung thay vì tạo mới mỗi lần
+    private final JWSVerifier verifier;
+    private final VerifiedTokenCache verifiedTokenCache;
 
-    public boolean validate(String token) {
+    public TokenValidator(@Value("${jwt.signer-key}") String jwtSecret, VerifiedTokenCache verifiedTokenCache) {
+        this.verifiedTokenCache = verifiedTokenCache;
         try {
-            verifyTokenInternal(token, false);
-            return true;
-        } catch (Exception e) {
-            log.debug("Token verification failed: {}", e.getMessage());
-            return false;
+            this.verifier = new MACVerifier(jwtSecret.getBytes());
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Invalid JWT signer key", e);
         }
     }
 
-    public UUID getUserId(String token) {
+    /**
+     * Parse và kiểm tra chữ ký một lần cho cả request, token hợp lệ gặp lại được lấy từ cache
+     */
+    public ParsedToken parse(String token) {
+        String tokenHash = sha256Hex(token);
+        ParsedToken cached = verifiedTokenCache.get(tokenHash);
+        if (cached != null) {
+            return cached;
+        }
         try {
             SignedJWT signedJWT = SignedJWT.parse(token);
-            String userIdStr = signedJWT.getJWTClaimsSet().getStringClaim("userId");
-            return UUID.fromString(userIdStr);
+            boolean signatureValid;
+            try {
+                signatureValid = signedJWT.verify(verifier);
+            } catch (JOSEException e) {
+                log.debug("Token signature verification failed: {}", e.getMessage());
+                signatureValid = false;
+            }
+            ParsedToken parsedToken = new ParsedToken(token, signedJWT, signatureValid, tokenHash);
+            verifiedTokenCache.put(parsedToken);
+            return parsedToken;
         } catch (ParseException e) {
-            log.error("Error parsing token to get user ID", e);
             throw new CustomException(ErrorCode.TOKEN_PARSE_ERROR, e);
         }
     }
 
-    public String getEmail(String token) {
+    public boolean validate(String token) {
         try {
-            SignedJWT signedJWT = SignedJWT.parse(token);
-            return signedJWT.getJWTClaimsSet().getStringClaim("email");
-        } catch (ParseException e) {
-            log.error("Error parsing token to get email", e);
-            throw new CustomException(ErrorCode.TOKEN_PARSE_ERROR, e);
+            return parse(token).isValid();
+        } catch (Exception e) {
+            log.debug("Token verification failed: {}", e.getMessage());
+            return false;
         }
     }
 
+    public UUID getUserId(String token) {
+        return parse(token).getUserId();
+    }
+
+    public String getEmail(String token) {
+        return parse(token).getEmail();
+    }
+
     public String getUsername(String token) {
-        try {
-            SignedJWT signedJWT = SignedJWT.parse(token);
-            return signedJWT.getJWTClaimsSet().getSubject();
-        } catch (ParseException e) {
-            log.error("Error parsing token to get username", e);
-            throw new CustomException(ErrorCode.TOKEN_PARSE_ERROR, e);
-        }
+        return parse(token).getUsername();
     }
 
     public List<String> getRoles(String token) {
         try {
-            SignedJWT signedJWT = SignedJWT.parse(token);
-            return signedJWT.getJWTClaimsSet().getStringListClaim("roles");
-        } catch (ParseException e) {
+            return parse(token).getRoles();
+        } catch (CustomException e) {
             log.error("Error parsing token to get roles", e);
             return List.of();
         }
     }
 
     public LocalDateTime getExpiretionTime(String token) {
-        try {
-            SignedJWT signedJWT = SignedJWT.parse(token);
-            Date exp = signedJWT.getJWTClaimsSet().getExpirationTime();
-            if (exp == null) {
-                log.error("Token does not contain expiration time");
-                throw new CustomException(ErrorCode.TOKEN_INVALID, "Token lacks expiration time");
-            }
-            return LocalDateTime.ofInstant(exp.toInstant(), ZoneId.systemDefault()).truncatedTo(ChronoUnit.SECONDS);
-        } catch (ParseException e) {
-            log.error("Error parsing token to get expiration time", e);
-            throw new CustomException(ErrorCode.TOKEN_PARSE_ERROR, e);
-        }
+        return parse(token).getExpirationTime();
     }
 
     public String getTokenType(String token) {
         try {
-            SignedJWT signedJWT = SignedJWT.parse(token);
-            String subject = signedJWT.getJWTClaimsSet().getSubject();
-            return (subject != null) ? "ACCESS" : "REFRESH";
-        } catch (ParseException e) {
+            return parse(token).getTokenType();
+        } catch (CustomException e) {
             log.error("Error parsing token to get type", e);
             return "UNKNOWN";
         }
@@ -115,38 +116,33 @@ public class TokenValidator {
 
     public boolean isExpired(String token) {
         try {
-            SignedJWT signedJWT = SignedJWT.parse(token);
-            Date expirationTime = signedJWT.getJWTClaimsSet().getExpirationTime();
-            Date currentTime = new Date();
-            return expirationTime.before(currentTime);
-        } catch (ParseException e) {
+            return parse(token).isExpired();
+        } catch (CustomException e) {
             log.error("Error parsing token to check expiration", e);
             return true;
         }
     }
 
     public String hash(String token) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(token.getBytes(StandardCharsets.UTF_8));
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hash) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) {
-                    hexString.append('0');
-                }
-                hexString.append(hex);
-            }
-            return hexString.toString();
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("SHA-256 algorithm not found", e);
+        return sha256Hex(token);
+    }
+
+    /**
+     * SHA-256 dạng hex chữ thường, MessageDigest dùng lại theo luồng
+     */
+    public static String sha256Hex(String token) {
+        byte[] digest = SHA_256.get().digest(token.getBytes(StandardCharsets.UTF_8));
+        char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[i * 2] = HEX[(digest[i] >> 4) & 0x0f];
+            hex[i * 2 + 1] = HEX[digest[i] & 0x0f];
         }
+        return new String(hex);
     }
 
     public boolean validatePasswordResetToken(String token) {
         try {
             SignedJWT signedJWT = SignedJWT.parse(token);
-            JWSVerifier verifier = new MACVerifier(jwtSecret.getBytes());
 
             if (!signedJWT.verify(verifier)) {
                 return false;
@@ -191,37 +187,7 @@ public class TokenValidator {
         }
     }
 
-    private SignedJWT verifyTokenInternal(String token, boolean isRefresh) throws JOSEException, ParseException {
-        JWSVerifier verifier = new MACVerifier(jwtSecret.getBytes());
-        SignedJWT signedJWT = SignedJWT.parse(token);
-
-        Date expiryTime = isRefresh
-                ? new Date(signedJWT.getJWTClaimsSet().getIssueTime().toInstant()
-                .plus(refreshTokenExpiration, ChronoUnit.SECONDS).toEpochMilli())
-                : signedJWT.getJWTClaimsSet().getExpirationTime();
-
-        boolean verified = signedJWT.verify(verifier);
-        if (!(verified && expiryTime.after(new Date()))) {
-            throw new CustomException(ErrorCode.UNAUTHENTICATED);
-        }
-
-
-        return signedJWT;
-    }
-
     public LocalDateTime getIssuedTime(String token) {
-        try {
-            SignedJWT signedJWT = SignedJWT.parse(token);
-            Date issuedAt = signedJWT.getJWTClaimsSet().getIssueTime();
-            if (issuedAt == null) {
-                log.error("Token does not contain issued time");
-                throw new CustomException(ErrorCode.TOKEN_INVALID, "Token lacks issued time");
-            }
-            return LocalDateTime.ofInstant(issuedAt.toInstant(), ZoneId.systemDefault())
-                    .truncatedTo(ChronoUnit.SECONDS);
-        } catch (ParseException e) {
-            log.error("Error parsing token to get issued time", e);
-            throw new CustomException(ErrorCode.TOKEN_PARSE_ERROR, e);
-        }
+        return parse(token).getIssuedTime();
     }
 }
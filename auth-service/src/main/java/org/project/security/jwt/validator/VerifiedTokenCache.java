@@ -0,0 +1,50 @@
+package org.project.security.jwt.validator;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache các token gần đây đã qua kiểm tra chữ ký, để một client gửi lại cùng token không phải parse và tính HMAC lại.
+ * Chỉ lưu token có chữ ký đúng; hạn dùng và trạng thái thu hồi vẫn được nơi gọi kiểm tra ở mỗi request.
+ * Khóa là hash SHA-256 của token (cũng là khóa tra blacklist) nên JWT không nằm trong heap dưới dạng khóa map,
+ * đầy thì bỏ token ít được dùng gần đây nhất.
+ */
+@Component
+public class VerifiedTokenCache {
+    private final LinkedHashMap<String, ParsedToken> entries;
+
+    public VerifiedTokenCache(@Value("${jwt.verified-cache.max-size:10000}") int maxSize) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ParsedToken> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public synchronized ParsedToken get(String tokenHash) {
+        return entries.get(tokenHash);
+    }
+
+    public void put(ParsedToken parsedToken) {
+        if (!parsedToken.isValid()) {
+            return;
+        }
+        synchronized (this) {
+            entries.put(parsedToken.getHash(), parsedToken);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.verified-cache.cleanup-interval-ms:60000}")
+    public synchronized void evictExpired() {
+        entries.values().removeIf(ParsedToken::isExpired);
+    }
+}
@@ -0,0 +1,79 @@
+package org.project.security.revocation;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.project.events.TokenRevocationEvent;
+import org.project.producer.KafkaProducerService;
+import org.project.security.user.UserSecurityStateCache;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.UUID;
+
+/**
+ * Áp dụng thu hồi vào bản sao của instance hiện tại và phát sự kiện cho các instance khác,
+ * chỉ sau khi transaction ghi DB đã commit để không phát ra thay đổi bị rollback.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class TokenRevocationPublisher {
+    TokenRevocationRegistry revocationRegistry;
+    UserSecurityStateCache userSecurityStateCache;
+    KafkaProducerService kafkaProducerService;
+
+    public void tokenRevoked(UUID userId, String tokenHash, LocalDateTime expiresAt) {
+        publish(TokenRevocationEvent.builder()
+                .type(TokenRevocationEvent.Type.TOKEN)
+                .userId(userId)
+                .tokenHash(tokenHash)
+                .expiresAt(toEpochMillis(expiresAt))
+                .build());
+    }
+
+    public void userTokensRevoked(UUID userId, LocalDateTime invalidBefore) {
+        publish(TokenRevocationEvent.builder()
+                .type(TokenRevocationEvent.Type.USER_CUTOFF)
+                .userId(userId)
+                .invalidBefore(toEpochMillis(invalidBefore))
+                .build());
+    }
+
+    /**
+     * Gọi sau khi đổi is_active hoặc deleted_at của user (khóa, xóa, mở lại tài khoản)
+     */
+    public void userStateChanged(UUID userId) {
+        publish(TokenRevocationEvent.builder()
+                .type(TokenRevocationEvent.Type.USER_STATE_CHANGED)
+                .userId(userId)
+                .build());
+    }
+
+    private void publish(TokenRevocationEvent event) {
+        Runnable action = () -> {
+            revocationRegistry.apply(event);
+            userSecurityStateCache.apply(event);
+            kafkaProducerService.sendTokenRevocationEvent(event);
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
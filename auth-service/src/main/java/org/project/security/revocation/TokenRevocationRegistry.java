@@ -0,0 +1,238 @@
+package org.project.security.revocation;
+
+import jakarta.annotation.PostConstruct;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.project.events.TokenRevocationEvent;
+import org.project.repository.InvalidatedTokenRepository;
+import org.project.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bản sao trong bộ nhớ của trạng thái thu hồi token trên mỗi instance auth-service:
+ * Bloom filter trả lời nhanh "chắc chắn chưa bị thu hồi", tập hash chính xác xác nhận các trường hợp dương tính,
+ * và mốc tokensInvalidBefore của từng user.
+ * Nạp snapshot từ DB khi consumer Kafka đã được gán partition, sau đó cập nhật qua sự kiện TokenRevocationEvent.
+ * Sự kiện phát sau commit có thể bị mất nên bản sao được đối soát định kỳ với các thay đổi mới trong DB;
+ * consumer mất partition hoặc đối soát chậm quá max-staleness-ms thì bản sao không còn được tin, nơi gọi phải hỏi DB.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class TokenRevocationRegistry {
+    InvalidatedTokenRepository invalidatedTokenRepository;
+    UserRepository userRepository;
+
+    // tokenHash -> thời điểm hết hạn (epoch millis)
+    ConcurrentHashMap<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    // userId -> token phát hành trước mốc này không còn hiệu lực (epoch millis)
+    ConcurrentHashMap<UUID, Long> userCutoffs = new ConcurrentHashMap<>();
+    Object writeLock = new Object();
+
+    @NonFinal
+    @Value("${jwt.revocation.bloom.expected-insertions:1000000}")
+    long expectedInsertions;
+
+    @NonFinal
+    @Value("${jwt.revocation.bloom.false-positive-rate:0.001}")
+    double falsePositiveRate;
+
+    @NonFinal
+    @Value("${jwt.refresh.expiration}")
+    long refreshTokenExpirationSeconds;
+
+    @NonFinal
+    @Value("${jwt.revocation.reconcile-overlap-ms:5000}")
+    long reconcileOverlapMillis;
+
+    @NonFinal
+    @Value("${jwt.revocation.max-staleness-ms:30000}")
+    long maxStalenessMillis;
+
+    @NonFinal
+    volatile BloomFilter filter;
+
+    @NonFinal
+    volatile boolean ready;
+
+    @NonFinal
+    volatile boolean consumerAssigned;
+
+    // Mốc thời gian DB đã được đọc tới ở lần nạp snapshot hoặc đối soát gần nhất
+    @NonFinal
+    volatile LocalDateTime reconciledUntil;
+
+    @NonFinal
+    volatile long lastReconciledAt;
+
+    @PostConstruct
+    void init() {
+        filter = BloomFilter.create(expectedInsertions, falsePositiveRate);
+    }
+
+    /**
+     * Chưa nạp snapshot thì bản sao chưa đầy đủ, nơi gọi phải hỏi DB
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Bản sao đủ tin cậy để trả lời "chưa bị thu hồi" mà không hỏi DB
+     */
+    public boolean isFresh() {
+        return ready && consumerAssigned && System.currentTimeMillis() - lastReconciledAt <= maxStalenessMillis;
+    }
+
+    public void setConsumerAssigned(boolean consumerAssigned) {
+        this.consumerAssigned = consumerAssigned;
+    }
+
+    public boolean mightBeRevoked(String tokenHash) {
+        return filter.mightContain(tokenHash);
+    }
+
+    public boolean isKnownRevoked(String tokenHash) {
+        Long expiresAt = revokedTokens.get(tokenHash);
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
+    }
+
+    public boolean isIssuedBeforeCutoff(UUID userId, long issuedAtMillis) {
+        Long invalidBefore = userCutoffs.get(userId);
+        return invalidBefore != null && issuedAtMillis < invalidBefore;
+    }
+
+    public void apply(TokenRevocationEvent event) {
+        switch (event.getType()) {
+            case TOKEN -> revokeToken(event.getTokenHash(), event.getExpiresAt());
+            case USER_CUTOFF -> applyUserCutoff(event.getUserId(), event.getInvalidBefore());
+            case USER_STATE_CHANGED -> {
+                // Chỉ ảnh hưởng UserSecurityStateCache
+            }
+        }
+    }
+
+    public void revokeToken(String tokenHash, long expiresAt) {
+        if (tokenHash == null || expiresAt <= System.currentTimeMillis()) {
+            return;
+        }
+        synchronized (writeLock) {
+            revokedTokens.put(tokenHash, expiresAt);
+            filter.put(tokenHash);
+        }
+    }
+
+    public void applyUserCutoff(UUID userId, long invalidBefore) {
+        if (userId != null) {
+            userCutoffs.merge(userId, invalidBefore, Math::max);
+        }
+    }
+
+    /**
+     * Sự kiện đến trước hoặc trong lúc nạp snapshot vẫn được giữ, nạp lại nhiều lần cũng không sao
+     */
+    public void loadSnapshot() {
+        LocalDateTime now = LocalDateTime.now();
+        long startedAt = System.currentTimeMillis();
+
+        Map<String, Long> tokens = new HashMap<>();
+        invalidatedTokenRepository.findUnexpired(now)
+                .forEach(token -> tokens.put(token.getTokenHash(), toEpochMillis(token.getExpiresAt())));
+        userRepository.findTokenCutoffsBetween(now.minusSeconds(refreshTokenExpirationSeconds), now)
+                .forEach(cutoff -> applyUserCutoff(cutoff.getUserId(), toEpochMillis(cutoff.getInvalidBefore())));
+
+        synchronized (writeLock) {
+            tokens.forEach((tokenHash, expiresAt) -> {
+                revokedTokens.put(tokenHash, expiresAt);
+                filter.put(tokenHash);
+            });
+        }
+        reconciledUntil = now;
+        lastReconciledAt = startedAt;
+        ready = true;
+        log.info("Đã nạp snapshot thu hồi token: {} token, {} user cutoff trong {} ms",
+                tokens.size(), userCutoffs.size(), System.currentTimeMillis() - startedAt);
+    }
+
+    /**
+     * Đọc lại các thu hồi từ mốc đối soát trước (lùi một khoảng cho transaction commit muộn)
+     * để bù sự kiện Kafka bị mất khi phát hoặc khi consumer gián đoạn
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.reconcile-interval-ms:10000}",
+            initialDelayString = "${jwt.revocation.reconcile-interval-ms:10000}")
+    public void reconcile() {
+        if (!ready) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        long startedAt = System.currentTimeMillis();
+        LocalDateTime since = reconciledUntil.minus(Duration.ofMillis(reconcileOverlapMillis));
+
+        List<InvalidatedTokenRepository.RevokedTokenView> tokens;
+        List<UserRepository.TokenCutoffView> cutoffs;
+        try {
+            tokens = invalidatedTokenRepository.findRevokedSince(since, now);
+            cutoffs = userRepository.findTokenCutoffsBetween(since, now);
+        } catch (Exception e) {
+            log.warn("Không thể đối soát danh sách thu hồi token với DB: {}", e.getMessage());
+            return;
+        }
+
+        int missed = 0;
+        for (InvalidatedTokenRepository.RevokedTokenView token : tokens) {
+            if (!revokedTokens.containsKey(token.getTokenHash())) {
+                missed++;
+            }
+            revokeToken(token.getTokenHash(), toEpochMillis(token.getExpiresAt()));
+        }
+        cutoffs.forEach(cutoff -> applyUserCutoff(cutoff.getUserId(), toEpochMillis(cutoff.getInvalidBefore())));
+
+        reconciledUntil = now;
+        lastReconciledAt = startedAt;
+        if (missed > 0) {
+            log.warn("Đối soát bổ sung {} token bị thu hồi chưa nhận được qua Kafka", missed);
+        }
+    }
+
+    /**
+     * Bloom filter không xóa được phần tử, dựng lại từ tập chính xác sau khi bỏ các token đã hết hạn
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.rebuild-interval-ms:600000}",
+            initialDelayString = "${jwt.revocation.rebuild-interval-ms:600000}")
+    public void rebuild() {
+        long now = System.currentTimeMillis();
+        long cutoffRetention = now - refreshTokenExpirationSeconds * 1000;
+        userCutoffs.values().removeIf(invalidBefore -> invalidBefore <= cutoffRetention);
+
+        synchronized (writeLock) {
+            revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+            BloomFilter rebuilt = BloomFilter.create(expectedInsertions, falsePositiveRate);
+            revokedTokens.keySet().forEach(rebuilt::put);
+            filter = rebuilt;
+        }
+        log.debug("Đã dựng lại Bloom filter với {} token bị thu hồi", revokedTokens.size());
+    }
+
+    public int revokedTokenCount() {
+        return revokedTokens.size();
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
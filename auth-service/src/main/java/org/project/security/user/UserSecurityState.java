@@ -0,0 +1,14 @@
+package org.project.security.user;
+
+import java.time.LocalDateTime;
+
+/**
+ * Phần trạng thái user mà mỗi request đã xác thực cần: còn hoạt động không và mốc tokensInvalidBefore.
+ * version lấy từ updated_at, dùng để không ghi đè bản mới hơn bằng bản đọc cũ hơn.
+ */
+public record UserSecurityState(boolean active, LocalDateTime tokensInvalidBefore, long version, long loadedAt) {
+
+    public boolean isIssuedBeforeCutoff(LocalDateTime issuedAt) {
+        return tokensInvalidBefore != null && issuedAt.isBefore(tokensInvalidBefore);
+    }
+}
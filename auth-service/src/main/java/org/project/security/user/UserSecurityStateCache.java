@@ -0,0 +1,112 @@
+package org.project.security.user;
+
+import lombok.extern.slf4j.Slf4j;
+import org.project.events.TokenRevocationEvent;
+import org.project.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache userId -> UserSecurityState để BlacklistAwareJwtDecoder không đọc bảng users ở mỗi request.
+ * Nạp khi cần lần đầu, bị xóa sau khi transaction đổi trạng thái user commit (TokenRevocationPublisher)
+ * và khi sự kiện từ instance khác tới qua Kafka; ttl chỉ là lưới an toàn cho thay đổi ngoài auth-service.
+ */
+@Slf4j
+@Component
+public class UserSecurityStateCache {
+    private final ConcurrentHashMap<UUID, UserSecurityState> entries = new ConcurrentHashMap<>();
+    // Tăng ở mỗi lần xóa, lần nạp bắt đầu trước đó sẽ không giữ lại kết quả đã cũ
+    private final AtomicLong invalidations = new AtomicLong();
+    private final UserRepository userRepository;
+    private final int maxSize;
+    private final long ttlMillis;
+
+    public UserSecurityStateCache(UserRepository userRepository,
+                                  @Value("${jwt.user-state-cache.max-size:100000}") int maxSize,
+                                  @Value("${jwt.user-state-cache.ttl-ms:300000}") long ttlMillis) {
+        this.userRepository = userRepository;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Trả về null nếu user không tồn tại
+     */
+    public UserSecurityState get(UUID userId) {
+        long now = System.currentTimeMillis();
+        UserSecurityState state = entries.get(userId);
+        if (state != null && now - state.loadedAt() < ttlMillis) {
+            return state;
+        }
+
+        long generation = invalidations.get();
+        UserSecurityState loaded = userRepository.findSecurityStateById(userId)
+                .map(view -> new UserSecurityState(
+                        Boolean.TRUE.equals(view.getActive()) && view.getDeletedAt() == null,
+                        view.getTokensInvalidBefore(),
+                        toEpochMillis(view.getUpdatedAt()),
+                        now))
+                .orElse(null);
+        if (loaded != null) {
+            store(userId, loaded, generation);
+        }
+        return loaded;
+    }
+
+    public void invalidate(UUID userId) {
+        if (userId == null) {
+            return;
+        }
+        invalidations.incrementAndGet();
+        entries.remove(userId);
+    }
+
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        entries.clear();
+    }
+
+    /**
+     * Mọi sự kiện gắn với user (cutoff, đổi trạng thái) đều làm bản trong cache không còn đúng
+     */
+    public void apply(TokenRevocationEvent event) {
+        if (event.getType() != TokenRevocationEvent.Type.TOKEN) {
+            invalidate(event.getUserId());
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.user-state-cache.cleanup-interval-ms:60000}")
+    public void evictStale() {
+        long staleBefore = System.currentTimeMillis() - ttlMillis;
+        entries.values().removeIf(state -> state.loadedAt() <= staleBefore);
+    }
+
+    private void store(UUID userId, UserSecurityState loaded, long generation) {
+        // Đầy thì bỏ qua, request vẫn dùng kết quả vừa đọc
+        if (entries.size() >= maxSize && !entries.containsKey(userId)) {
+            return;
+        }
+        entries.merge(userId, loaded, (current, candidate) ->
+                candidate.version() >= current.version() ? candidate : current);
+        // Có lần xóa chen vào giữa lúc đọc DB và lúc ghi: bỏ kết quả vừa ghi, lần sau đọc lại
+        if (invalidations.get() != generation) {
+            entries.remove(userId, loaded);
+            log.debug("Bỏ trạng thái bảo mật vừa nạp của user {} vì đã bị xóa trong lúc đọc", userId);
+        }
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time != null ? time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0L;
+    }
+}
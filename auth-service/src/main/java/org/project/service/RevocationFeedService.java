@@ -0,0 +1,9 @@
+package org.project.service;
+
+import org.project.dto.response.RevocationFeedResponse;
+
+import java.util.UUID;
+
+public interface RevocationFeedService {
+    RevocationFeedResponse getChangesSince(long sinceEpochMillis, UUID afterId);
+}
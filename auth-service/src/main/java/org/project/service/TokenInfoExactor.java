@@ -1,8 +1,9 @@
 package org.project.service;
 
 import org.project.dto.response.TokenInfo;
+import org.project.security.jwt.validator.ParsedToken;
 
 // Lay thong tin tu token
 public interface TokenInfoExactor {
-    TokenInfo extractTokenInfo(String token);
+    TokenInfo extractTokenInfo(ParsedToken token);
 }
@@ -0,0 +1,87 @@
+package org.project.service.impl;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import org.project.dto.response.RevocationFeedResponse;
+import org.project.repository.InvalidatedTokenRepository;
+import org.project.repository.UserRepository;
+import org.project.service.RevocationFeedService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class DatabaseRevocationFeedService implements RevocationFeedService {
+    InvalidatedTokenRepository invalidatedTokenRepository;
+    UserRepository userRepository;
+
+    @NonFinal
+    @Value("${jwt.revocation-feed.page-size:5000}")
+    int pageSize;
+
+    // Nhỏ hơn mọi UUID, dùng khi cursor không kèm id
+    private static final UUID NIL_ID = new UUID(0L, 0L);
+
+    /**
+     * Trả về tối đa pageSize token bị thu hồi sau cursor (since, afterId). Trang đầy thì cursor dừng ở
+     * (millisecond, id) của token cuối cùng để lần gọi sau đọc tiếp các token cùng millisecond còn lại,
+     * ngược lại cursor là thời điểm hiện tại và không có cursorId.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public RevocationFeedResponse getChangesSince(long sinceEpochMillis, UUID afterId) {
+        LocalDateTime since = toLocalDateTime(sinceEpochMillis);
+        LocalDateTime until = LocalDateTime.now();
+
+        List<InvalidatedTokenRepository.RevocationFeedRow> tokens = invalidatedTokenRepository.findRevokedAfter(
+                since, afterId != null ? afterId : NIL_ID, until, pageSize);
+        boolean hasMore = tokens.size() >= pageSize;
+        String cursorId = null;
+        if (hasMore) {
+            InvalidatedTokenRepository.RevocationFeedRow last = tokens.get(tokens.size() - 1);
+            until = toLocalDateTime(toEpochMillis(last.getBlackListedAt()));
+            cursorId = last.getId().toString();
+        }
+
+        List<RevocationFeedResponse.RevokedToken> revokedTokens = tokens.stream()
+                .map(token -> RevocationFeedResponse.RevokedToken.builder()
+                        .tokenHash(token.getTokenHash())
+                        .expiresAt(toEpochMillis(token.getExpiresAt()))
+                        .build())
+                .toList();
+
+        List<RevocationFeedResponse.UserCutoff> userCutoffs = userRepository.findTokenCutoffsBetween(since, until)
+                .stream()
+                .map(cutoff -> RevocationFeedResponse.UserCutoff.builder()
+                        .userId(cutoff.getUserId().toString())
+                        .invalidBefore(toEpochMillis(cutoff.getInvalidBefore()))
+                        .build())
+                .toList();
+
+        return RevocationFeedResponse.builder()
+                .cursor(toEpochMillis(until))
+                .cursorId(cursorId)
+                .hasMore(hasMore)
+                .revokedTokens(revokedTokens)
+                .userCutoffs(userCutoffs)
+                .build();
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -9,6 +9,7 @@ import org.project.enums.TokenType;
 import org.project.model.InvalidatedToken;
 import org.project.model.User;
 import org.project.repository.InvalidatedTokenRepository;
+import org.project.security.revocation.TokenRevocationPublisher;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
@@ -19,11 +20,13 @@ import java.time.LocalDateTime;
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class DatabaseTokenInvalidator implements TokenInvalidator {
     InvalidatedTokenRepository invalidatedTokenRepository;
+    TokenRevocationPublisher tokenRevocationPublisher;
 
     @Override
     public void invalidateToken(String tokenHash, LocalDateTime expiration, User user, TokenType type) {
         InvalidatedToken invalidatedToken = createInvalidatedToken(tokenHash, expiration, user, type);
         invalidatedTokenRepository.save(invalidatedToken);
+        tokenRevocationPublisher.tokenRevoked(user.getId(), tokenHash, expiration);
 
         log.info("Successfully invalidated {} token for user: {}", type.name(), user.getId());
     }
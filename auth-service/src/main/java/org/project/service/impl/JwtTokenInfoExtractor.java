@@ -5,7 +5,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
 import org.project.dto.response.TokenInfo;
-import org.project.security.jwt.validator.TokenValidator;
+import org.project.security.jwt.validator.ParsedToken;
 import org.project.service.TokenInfoExactor;
 import org.project.exception.CustomException;
 import org.project.exception.ErrorCode;
@@ -17,19 +17,18 @@ import org.springframework.stereotype.Component;
 @RequiredArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class JwtTokenInfoExtractor implements TokenInfoExactor {
-    TokenValidator tokenValidator;
 
     @Override
-    public TokenInfo extractTokenInfo(String token) {
+    public TokenInfo extractTokenInfo(ParsedToken token) {
         try {
             return TokenInfo.builder()
-                    .userId(tokenValidator.getUserId(token))
-                    .username(tokenValidator.getUsername(token))
-                    .email(tokenValidator.getEmail(token))
-                    .roles(tokenValidator.getRoles(token))
-                    .tokenType(tokenValidator.getTokenType(token))
-                    .expirationTime(tokenValidator.getExpiretionTime(token))
-                    .isExpired(tokenValidator.isExpired(token))
+                    .userId(token.getUserId())
+                    .username(token.getUsername())
+                    .email(token.getEmail())
+                    .roles(token.getRoles())
+                    .tokenType(token.getTokenType())
+                    .expirationTime(token.getExpirationTime())
+                    .isExpired(token.isExpired())
                     .build();
         } catch (CustomException e) {
             log.error("Failed to extract token info", e);
@@ -12,6 +12,7 @@ import org.project.model.User;
 import org.project.repository.InvalidatedTokenRepository;
 import org.project.repository.UserRepository;
 import org.project.security.jwt.service.TokenService;
+import org.project.security.jwt.validator.ParsedToken;
 import org.project.service.TokenValidator;
 import org.springframework.stereotype.Component;
 
@@ -29,16 +30,17 @@ public class JwtTokenValidator implements TokenValidator {
 
     @Override
     public TokenValidationResult validateToken(String token, TokenType type) {
-        validateTokenFormat(token);
-        validateTokenExpiration(token);
-        validateTokenType(token, type);
+        ParsedToken parsedToken = parseToken(token);
+        validateTokenFormat(parsedToken);
+        validateTokenExpiration(parsedToken);
+        validateTokenType(parsedToken, type);
 
-        String tokenHash = tokenService.hashToken(token);
+        String tokenHash = parsedToken.getHash();
         validateTokenNotInvalidated(tokenHash, type);
 
-        UUID userId = tokenService.getUserIdFromToken(token);
+        UUID userId = parsedToken.getUserId();
         User user = getUserFromToken(userId);
-        LocalDateTime expirationTime = tokenService.getExpirationTimeFromToken(token);
+        LocalDateTime expirationTime = parsedToken.getExpirationTime();
 
         return TokenValidationResult.builder()
                 .tokenHash(tokenHash)
@@ -49,20 +51,28 @@ public class JwtTokenValidator implements TokenValidator {
                 .build();
     }
 
-    private void validateTokenFormat(String token) {
-        if (!tokenService.validateToken(token)) {
+    private ParsedToken parseToken(String token) {
+        try {
+            return tokenService.parseToken(token);
+        } catch (CustomException e) {
             throw new CustomException(ErrorCode.TOKEN_INVALID, "Invalid token format");
         }
     }
 
-    private void validateTokenExpiration(String token) {
-        if (tokenService.isTokenExpired(token)) {
+    private void validateTokenFormat(ParsedToken token) {
+        if (!token.isValid()) {
+            throw new CustomException(ErrorCode.TOKEN_INVALID, "Invalid token format");
+        }
+    }
+
+    private void validateTokenExpiration(ParsedToken token) {
+        if (token.isExpired()) {
             throw new CustomException(ErrorCode.TOKEN_EXPIRED, "Token has expired");
         }
     }
 
-    private void validateTokenType(String token, TokenType expectedTokenType) {
-        String tokenType = tokenService.getTokenType(token);
+    private void validateTokenType(ParsedToken token, TokenType expectedTokenType) {
+        String tokenType = token.getTokenType();
         String expectedType = expectedTokenType == TokenType.REFRESH_TOKEN ? "REFRESH" : "ACCESS";
 
         if (!expectedType.equalsIgnoreCase(tokenType)) {
@@ -12,6 +12,7 @@ import org.project.model.User;
 import org.project.repository.PasswordResetTokenRepository;
 import org.project.repository.UserRepository;
 import org.project.security.jwt.service.TokenService;
+import org.project.security.revocation.TokenRevocationPublisher;
 import org.project.service.PasswordResetService;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -32,6 +33,7 @@ public class PasswordResetServiceImpl implements PasswordResetService {
     //private final AsyncEmailService asyncEmailService;
     private final PasswordEncoder passwordEncoder;
     private final TokenService tokenService;
+    private final TokenRevocationPublisher tokenRevocationPublisher;
 
     @Value("${app.password-reset.token-expiry-minutes:30}")
     private int tokenExpiryMinutes;
@@ -206,8 +208,10 @@ public class PasswordResetServiceImpl implements PasswordResetService {
 
             User user = userRepository.findById(userId).orElse(null);
             if (user != null) {
-                user.setTokensInvalidBefore(LocalDateTime.now());
+                LocalDateTime invalidBefore = LocalDateTime.now();
+                user.setTokensInvalidBefore(invalidBefore);
                 userRepository.save(user);
+                tokenRevocationPublisher.userTokensRevoked(userId, invalidBefore);
                 log.info("User security timestamp updated for token invalidation: {}", userId);
             }
 
@@ -0,0 +1,43 @@
+package org.project.service.impl;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.project.security.revocation.TokenRevocationRegistry;
+import org.project.service.TokenStatusChecker;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+/**
+ * Kiểm tra blacklist qua bản sao trong bộ nhớ, chỉ truy vấn invalidated_tokens khi Bloom filter báo dương tính
+ * mà tập chính xác không có (dương tính giả) hoặc khi bản sao chưa nạp xong, mất consumer hay đối soát quá hạn.
+ */
+@Slf4j
+@Primary
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ReplicatedTokenStatusChecker implements TokenStatusChecker {
+    TokenRevocationRegistry revocationRegistry;
+    DatabaseTokenStatusChecker databaseTokenStatusChecker;
+
+    @Override
+    public boolean isTokenInvalidated(String tokenHash) {
+        if (!revocationRegistry.isFresh()) {
+            return databaseTokenStatusChecker.isTokenInvalidated(tokenHash);
+        }
+        if (!revocationRegistry.mightBeRevoked(tokenHash)) {
+            return false;
+        }
+        if (revocationRegistry.isKnownRevoked(tokenHash)) {
+            return true;
+        }
+        return databaseTokenStatusChecker.isTokenInvalidated(tokenHash);
+    }
+
+    @Override
+    public boolean isTokenBlacklisted(String tokenHash) {
+        return databaseTokenStatusChecker.isTokenBlacklisted(tokenHash);
+    }
+}
@@ -9,6 +9,7 @@ import org.project.dto.response.TokenInfo;
 import org.project.dto.response.VerifyTokenResponse;
 import org.project.exception.CustomException;
 import org.project.exception.ErrorCode;
+import org.project.security.jwt.validator.ParsedToken;
 import org.project.security.jwt.validator.TokenValidator;
 import org.project.service.TokenInfoExactor;
 import org.project.service.TokenStatusChecker;
@@ -28,8 +29,9 @@ public class StandardTokenVerificationService implements TokenVerificationServic
     @Override
     public VerifyTokenResponse verifyToken(VerifyTokenRequest request) {
        try {
-            String token = request.getToken();
-            if(!isTokenFormatValid(token)){
+            // Parse và kiểm tra chữ ký một lần, các bước sau dùng lại cùng object
+            ParsedToken token = parseToken(request.getToken());
+            if(!token.isValid()){
                 throw new CustomException(ErrorCode.TOKEN_INVALID);
             }
             TokenInfo tokenInfo = extractTokenInformation(token);
@@ -38,8 +40,7 @@ public class StandardTokenVerificationService implements TokenVerificationServic
                 throw new CustomException(ErrorCode.TOKEN_EXPIRED);
             }
 
-           String tokenHash = tokenValidator.hash(token);
-           if (isTokenBlacklisted(tokenHash)) {
+           if (isTokenBlacklisted(token.getHash())) {
                return VerifyTokenResponse.invalid("Token has been invalidated");
            }
            return VerifyTokenResponse.valid(tokenInfo);
@@ -53,11 +54,15 @@ public class StandardTokenVerificationService implements TokenVerificationServic
 
     }
 
-    private boolean isTokenFormatValid(String token) {
-        return tokenValidator.validate(token);
+    private ParsedToken parseToken(String token) {
+        try {
+            return tokenValidator.parse(token);
+        } catch (CustomException e) {
+            throw new CustomException(ErrorCode.TOKEN_INVALID);
+        }
     }
 
-    private TokenInfo extractTokenInformation(String token) {
+    private TokenInfo extractTokenInformation(ParsedToken token) {
         return tokenInfoExtractor.extractTokenInfo(token);
     }
 
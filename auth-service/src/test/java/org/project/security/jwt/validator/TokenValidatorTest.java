@@ -0,0 +1,127 @@
+package org.project.security.jwt.validator;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenValidatorTest {
+
+    private static final String SIGNER_KEY = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    private VerifiedTokenCache cache;
+    private TokenValidator tokenValidator;
+
+    @BeforeEach
+    void setUp() {
+        cache = new VerifiedTokenCache(2);
+        tokenValidator = new TokenValidator(SIGNER_KEY, cache);
+    }
+
+    @Test
+    void parse_WithValidToken_ShouldReuseVerifiedTokenOnNextRequest() throws JOSEException {
+        // Given
+        UUID userId = UUID.randomUUID();
+        String token = accessToken(userId, System.currentTimeMillis() + 3_600_000);
+
+        // When
+        ParsedToken first = tokenValidator.parse(token);
+        ParsedToken second = tokenValidator.parse(token);
+
+        // Then: lần thứ hai không parse và tính HMAC lại
+        assertThat(second).isSameAs(first);
+        assertThat(first.isValid()).isTrue();
+        assertThat(first.getUserId()).isEqualTo(userId);
+        assertThat(first.getUsername()).isEqualTo("patient01");
+        assertThat(first.getEmail()).isEqualTo("patient01@mail.com");
+        assertThat(first.getRoles()).containsExactly("PATIENT");
+        assertThat(first.getTokenType()).isEqualTo("ACCESS");
+        assertThat(first.getHash()).isSameAs(first.getHash());
+    }
+
+    @Test
+    void parse_WithTamperedOrExpiredToken_ShouldNotBeCached() throws JOSEException {
+        String token = accessToken(UUID.randomUUID(), System.currentTimeMillis() + 3_600_000);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+        String expired = accessToken(UUID.randomUUID(), System.currentTimeMillis() - 1_000);
+
+        assertThat(tokenValidator.parse(tampered).isSignatureValid()).isFalse();
+        assertThat(tokenValidator.parse(expired).isValid()).isFalse();
+        assertThat(tokenValidator.validate(tampered)).isFalse();
+        assertThat(tokenValidator.validate("not-a-jwt")).isFalse();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void put_WhenCacheIsFull_ShouldEvictLeastRecentlyUsedToken() throws JOSEException {
+        // Given: cache đầy với 2 token, token đầu vừa được dùng lại
+        String recent = accessToken(UUID.randomUUID(), System.currentTimeMillis() + 3_600_000);
+        String idle = accessToken(UUID.randomUUID(), System.currentTimeMillis() + 3_600_000);
+        ParsedToken recentParsed = tokenValidator.parse(recent);
+        ParsedToken idleParsed = tokenValidator.parse(idle);
+        tokenValidator.parse(recent);
+
+        // When
+        String newcomer = accessToken(UUID.randomUUID(), System.currentTimeMillis() + 3_600_000);
+        ParsedToken newcomerParsed = tokenValidator.parse(newcomer);
+
+        // Then: token mới vẫn được nhận vào cache, token lâu không dùng bị bỏ
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get(newcomerParsed.getHash())).isSameAs(newcomerParsed);
+        assertThat(cache.get(recentParsed.getHash())).isSameAs(recentParsed);
+        assertThat(cache.get(idleParsed.getHash())).isNull();
+        assertThat(cache.get(recent)).isNull();
+    }
+
+    @Test
+    void hash_ShouldMatchPreviousHexEncoding() throws Exception {
+        String token = accessToken(UUID.randomUUID(), System.currentTimeMillis() + 3_600_000);
+        String expected = HexFormat.of().formatHex(
+                MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(tokenValidator.hash(token)).isEqualTo(expected);
+        assertThat(tokenValidator.parse(token).getHash()).isEqualTo(expected);
+    }
+
+    @Test
+    void legacyGetters_ShouldReadFromParsedToken() throws JOSEException {
+        UUID userId = UUID.randomUUID();
+        String token = accessToken(userId, System.currentTimeMillis() + 3_600_000);
+        ParsedToken parsedToken = tokenValidator.parse(token);
+
+        assertThat(tokenValidator.getUserId(token)).isEqualTo(userId);
+        assertThat(tokenValidator.getExpiretionTime(token)).isEqualTo(parsedToken.getExpirationTime());
+        assertThat(tokenValidator.getIssuedTime(token)).isEqualTo(parsedToken.getIssuedTime());
+        assertThat(tokenValidator.isExpired(token)).isFalse();
+        assertThat(tokenValidator.getTokenType("not-a-jwt")).isEqualTo("UNKNOWN");
+    }
+
+    private static String accessToken(UUID userId, long expiresAtMillis) throws JOSEException {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject("patient01")
+                .issuer("appointment")
+                .issueTime(new Date(expiresAtMillis - 3_600_000))
+                .expirationTime(new Date(expiresAtMillis))
+                .jwtID(UUID.randomUUID().toString())
+                .claim("userId", userId.toString())
+                .claim("email", "patient01@mail.com")
+                .claim("roles", List.of("PATIENT"))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS512), claims);
+        jwt.sign(new MACSigner(SIGNER_KEY.getBytes()));
+        return jwt.serialize();
+    }
+}
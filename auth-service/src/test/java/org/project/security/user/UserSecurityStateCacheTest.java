@@ -0,0 +1,251 @@
+package org.project.security.user;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.project.config.BlacklistAwareJwtDecoder;
+import org.project.dto.request.PasswordResetRequest;
+import org.project.model.PasswordResetToken;
+import org.project.model.User;
+import org.project.producer.KafkaProducerService;
+import org.project.repository.InvalidatedTokenRepository;
+import org.project.repository.PasswordResetTokenRepository;
+import org.project.repository.UserRepository;
+import org.project.security.jwt.service.TokenService;
+import org.project.security.jwt.validator.TokenValidator;
+import org.project.security.jwt.validator.VerifiedTokenCache;
+import org.project.security.revocation.TokenRevocationPublisher;
+import org.project.security.revocation.TokenRevocationRegistry;
+import org.project.service.TokenStatusChecker;
+import org.project.service.impl.PasswordResetServiceImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserSecurityStateCacheTest {
+
+    private static final Logger log = LoggerFactory.getLogger(UserSecurityStateCacheTest.class);
+
+    private static final String SIGNER_KEY = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private InvalidatedTokenRepository invalidatedTokenRepository;
+
+    @Mock
+    private PasswordResetTokenRepository passwordResetTokenRepository;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    @Mock
+    private TokenService tokenService;
+
+    @Mock
+    private TokenStatusChecker tokenStatusChecker;
+
+    @Mock
+    private KafkaProducerService kafkaProducerService;
+
+    private User user;
+    private UserSecurityStateCache cache;
+    private TokenRevocationPublisher publisher;
+    private BlacklistAwareJwtDecoder decoder;
+    private PasswordResetServiceImpl passwordResetService;
+
+    @BeforeEach
+    void setUp() {
+        user = User.builder()
+                .id(UUID.randomUUID())
+                .username("patient01")
+                .email("patient01@mail.com")
+                .isActive(true)
+                .updatedAt(LocalDateTime.now().minusDays(1))
+                .build();
+
+        // Registry chưa nạp snapshot nên decoder không dùng được mốc cutoff trong đó, chỉ còn cache trạng thái user
+        TokenRevocationRegistry registry = new TokenRevocationRegistry(invalidatedTokenRepository, userRepository);
+        ReflectionTestUtils.setField(registry, "expectedInsertions", 1_000L);
+        ReflectionTestUtils.setField(registry, "falsePositiveRate", 0.001);
+        ReflectionTestUtils.invokeMethod(registry, "init");
+
+        cache = new UserSecurityStateCache(userRepository, 1_000, 300_000);
+        publisher = new TokenRevocationPublisher(registry, cache, kafkaProducerService);
+        decoder = new BlacklistAwareJwtDecoder(
+                new TokenValidator(SIGNER_KEY, new VerifiedTokenCache(1_000)), tokenStatusChecker, cache, registry);
+        passwordResetService = new PasswordResetServiceImpl(
+                userRepository, passwordResetTokenRepository, passwordEncoder, tokenService, publisher);
+
+        lenient().when(tokenStatusChecker.isTokenInvalidated(anyString())).thenReturn(false);
+        // Giả lập users table: luôn trả về trạng thái hiện tại của entity
+        lenient().when(userRepository.findSecurityStateById(user.getId()))
+                .thenAnswer(invocation -> Optional.of(view(user)));
+        lenient().when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+    }
+
+    @Test
+    void decode_WithRepeatedRequests_ShouldReadUserStateOnce() throws JOSEException {
+        // Given
+        String token = accessToken(LocalDateTime.now().minusMinutes(1));
+
+        // When
+        int requests = 10_000;
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            decoder.decode(token);
+        }
+        long elapsedNanos = System.nanoTime() - startedAt;
+
+        // Then: chỉ lần đầu đọc users table
+        log.info("Giải mã {} request của cùng user: {} ns/request", requests, elapsedNanos / requests);
+        verify(userRepository, times(1)).findSecurityStateById(user.getId());
+        verify(userRepository, never()).findById(any());
+    }
+
+    @Test
+    void passwordReset_ShouldRejectOldTokenOnNextRequest() throws JOSEException {
+        // Given: token cũ đã được chấp nhận và trạng thái user đã nằm trong cache
+        String oldToken = accessToken(LocalDateTime.now().minusMinutes(1));
+        decoder.decode(oldToken);
+        givenValidResetToken("reset-token");
+
+        // When
+        boolean success = passwordResetService.passwordReset(PasswordResetRequest.builder()
+                .token("reset-token")
+                .newPassword("NewPassword1")
+                .confirmPassword("NewPassword1")
+                .build()).isSuccess();
+
+        // Then: request kế tiếp với token cũ bị từ chối, token phát hành sau khi đổi mật khẩu vẫn dùng được
+        assertThat(success).isTrue();
+        assertThatThrownBy(() -> decoder.decode(oldToken))
+                .isInstanceOf(JwtException.class)
+                .hasMessageContaining("security policy");
+        String newToken = accessToken(LocalDateTime.now().plusSeconds(1));
+        assertThat(decoder.decode(newToken).getSubject()).isEqualTo("patient01");
+        verify(userRepository, times(2)).findSecurityStateById(user.getId());
+    }
+
+    @Test
+    void userStateChanged_ShouldRejectTokenOfDeactivatedUser() throws JOSEException {
+        String token = accessToken(LocalDateTime.now().minusMinutes(1));
+        decoder.decode(token);
+
+        user.setActive(false);
+        publisher.userStateChanged(user.getId());
+
+        assertThatThrownBy(() -> decoder.decode(token)).isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void get_WhenInvalidatedDuringLoad_ShouldNotKeepStaleState() {
+        // Given: lần đọc đầu tiên thấy trạng thái cũ, việc vô hiệu hóa commit trong lúc đang đọc
+        UserRepository.SecurityStateView stale = view(user);
+        when(userRepository.findSecurityStateById(user.getId()))
+                .thenAnswer(invocation -> {
+                    user.setTokensInvalidBefore(LocalDateTime.now());
+                    cache.invalidate(user.getId());
+                    return Optional.of(stale);
+                })
+                .thenAnswer(invocation -> Optional.of(view(user)));
+
+        // When
+        UserSecurityState first = cache.get(user.getId());
+        UserSecurityState second = cache.get(user.getId());
+
+        // Then: bản đọc cũ không được giữ lại, lần sau đọc lại từ DB
+        assertThat(first.tokensInvalidBefore()).isNull();
+        assertThat(second.tokensInvalidBefore()).isEqualTo(user.getTokensInvalidBefore());
+        assertThat(cache.get(user.getId())).isSameAs(second);
+        verify(userRepository, times(2)).findSecurityStateById(user.getId());
+    }
+
+    private void givenValidResetToken(String token) {
+        PasswordResetToken dbToken = PasswordResetToken.builder()
+                .token("hashed-" + token)
+                .expiresAt(LocalDateTime.now().plusMinutes(30))
+                .isUsed(false)
+                .user(user)
+                .build();
+        when(tokenService.validatePasswordResetToken(token)).thenReturn(true);
+        when(tokenService.getUserIdFromPasswordResetToken(token)).thenReturn(user.getId());
+        when(tokenService.hashToken(token)).thenReturn("hashed-" + token);
+        when(passwordResetTokenRepository.findByTokenAndUseFalse("hashed-" + token)).thenReturn(Optional.of(dbToken));
+        when(passwordEncoder.encode(anyString())).thenReturn("encoded");
+    }
+
+    private String accessToken(LocalDateTime issuedAt) throws JOSEException {
+        Date issueTime = Date.from(issuedAt.atZone(ZoneId.systemDefault()).toInstant());
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject(user.getUsername())
+                .issuer("appointment")
+                .issueTime(issueTime)
+                .expirationTime(new Date(System.currentTimeMillis() + 3_600_000))
+                .jwtID(UUID.randomUUID().toString())
+                .claim("userId", user.getId().toString())
+                .claim("email", user.getEmail())
+                .claim("roles", List.of("PATIENT"))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS512), claims);
+        jwt.sign(new MACSigner(SIGNER_KEY.getBytes()));
+        return jwt.serialize();
+    }
+
+    private static UserRepository.SecurityStateView view(User user) {
+        boolean active = user.isActive();
+        LocalDateTime deletedAt = user.getDeletedAt();
+        LocalDateTime tokensInvalidBefore = user.getTokensInvalidBefore();
+        LocalDateTime updatedAt = user.getUpdatedAt();
+        return new UserRepository.SecurityStateView() {
+            @Override
+            public Boolean getActive() {
+                return active;
+            }
+
+            @Override
+            public LocalDateTime getDeletedAt() {
+                return deletedAt;
+            }
+
+            @Override
+            public LocalDateTime getTokensInvalidBefore() {
+                return tokensInvalidBefore;
+            }
+
+            @Override
+            public LocalDateTime getUpdatedAt() {
+                return updatedAt;
+            }
+        };
+    }
+}
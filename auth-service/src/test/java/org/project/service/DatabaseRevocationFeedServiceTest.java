@@ -0,0 +1,108 @@
+package org.project.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.project.dto.response.RevocationFeedResponse;
+import org.project.repository.InvalidatedTokenRepository;
+import org.project.repository.UserRepository;
+import org.project.service.impl.DatabaseRevocationFeedService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DatabaseRevocationFeedServiceTest {
+
+    private static final long SINCE = 1_700_000_000_000L;
+
+    @Mock
+    private InvalidatedTokenRepository invalidatedTokenRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private DatabaseRevocationFeedService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new DatabaseRevocationFeedService(invalidatedTokenRepository, userRepository);
+        ReflectionTestUtils.setField(service, "pageSize", 2);
+        lenient().when(userRepository.findTokenCutoffsBetween(any(), any())).thenReturn(List.of());
+    }
+
+    @Test
+    void getChangesSince_WhenPageIsFull_ShouldReturnCursorOfLastToken() {
+        // Given: trang đầy, token cuối nằm giữa một millisecond còn token khác chưa đọc
+        LocalDateTime revokedAt = toLocalDateTime(SINCE + 10).plusNanos(400_000);
+        UUID lastId = UUID.randomUUID();
+        when(invalidatedTokenRepository.findRevokedAfter(any(), any(), any(), eq(2)))
+                .thenReturn(List.of(row(UUID.randomUUID(), revokedAt), row(lastId, revokedAt)));
+
+        // When
+        RevocationFeedResponse response = service.getChangesSince(SINCE, null);
+
+        // Then: cursor là millisecond của token cuối kèm id để trang sau đọc tiếp cùng millisecond
+        assertThat(response.isHasMore()).isTrue();
+        assertThat(response.getCursor()).isEqualTo(SINCE + 10);
+        assertThat(response.getCursorId()).isEqualTo(lastId.toString());
+        verify(userRepository).findTokenCutoffsBetween(toLocalDateTime(SINCE), toLocalDateTime(SINCE + 10));
+    }
+
+    @Test
+    void getChangesSince_WithAfterId_ShouldContinueKeysetWithinSameMillisecond() {
+        // Given
+        UUID afterId = UUID.randomUUID();
+        when(invalidatedTokenRepository.findRevokedAfter(any(), any(), any(), anyInt())).thenReturn(List.of());
+
+        // When
+        RevocationFeedResponse response = service.getChangesSince(SINCE, afterId);
+
+        // Then: hết thay đổi thì không trả cursorId
+        verify(invalidatedTokenRepository).findRevokedAfter(eq(toLocalDateTime(SINCE)), eq(afterId), any(), eq(2));
+        assertThat(response.isHasMore()).isFalse();
+        assertThat(response.getCursorId()).isNull();
+    }
+
+    private static InvalidatedTokenRepository.RevocationFeedRow row(UUID id, LocalDateTime blackListedAt) {
+        return new InvalidatedTokenRepository.RevocationFeedRow() {
+            @Override
+            public UUID getId() {
+                return id;
+            }
+
+            @Override
+            public String getTokenHash() {
+                return id.toString();
+            }
+
+            @Override
+            public LocalDateTime getExpiresAt() {
+                return blackListedAt.plusHours(1);
+            }
+
+            @Override
+            public LocalDateTime getBlackListedAt() {
+                return blackListedAt;
+            }
+        };
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
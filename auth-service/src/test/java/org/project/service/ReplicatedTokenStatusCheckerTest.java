@@ -0,0 +1,226 @@
+package org.project.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.project.events.TokenRevocationEvent;
+import org.project.repository.InvalidatedTokenRepository;
+import org.project.repository.UserRepository;
+import org.project.security.revocation.TokenRevocationRegistry;
+import org.project.service.impl.DatabaseTokenStatusChecker;
+import org.project.service.impl.ReplicatedTokenStatusChecker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReplicatedTokenStatusCheckerTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicatedTokenStatusCheckerTest.class);
+
+    @Mock
+    private InvalidatedTokenRepository invalidatedTokenRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private DatabaseTokenStatusChecker databaseTokenStatusChecker;
+
+    private final Random random = new Random(42);
+
+    private TokenRevocationRegistry registry;
+    private ReplicatedTokenStatusChecker checker;
+
+    @BeforeEach
+    void setUp() {
+        registry = new TokenRevocationRegistry(invalidatedTokenRepository, userRepository);
+        ReflectionTestUtils.setField(registry, "expectedInsertions", 100_000L);
+        ReflectionTestUtils.setField(registry, "falsePositiveRate", 0.001);
+        ReflectionTestUtils.setField(registry, "refreshTokenExpirationSeconds", 36_000L);
+        ReflectionTestUtils.setField(registry, "reconcileOverlapMillis", 5_000L);
+        ReflectionTestUtils.setField(registry, "maxStalenessMillis", 30_000L);
+        ReflectionTestUtils.invokeMethod(registry, "init");
+        registry.setConsumerAssigned(true);
+        checker = new ReplicatedTokenStatusChecker(registry, databaseTokenStatusChecker);
+
+        lenient().when(databaseTokenStatusChecker.isTokenInvalidated(anyString())).thenReturn(false);
+        lenient().when(userRepository.findTokenCutoffsBetween(any(), any())).thenReturn(List.of());
+    }
+
+    @Test
+    void isTokenInvalidated_BeforeSnapshotLoaded_ShouldAskDatabase() {
+        String tokenHash = randomHash();
+
+        checker.isTokenInvalidated(tokenHash);
+
+        verify(databaseTokenStatusChecker).isTokenInvalidated(tokenHash);
+    }
+
+    @Test
+    void isTokenInvalidated_WithSnapshot_ShouldOnlyAskDatabaseOnFilterPositives() {
+        // Given: 10.000 token đang bị thu hồi trong invalidated_tokens
+        List<String> revoked = new ArrayList<>();
+        List<InvalidatedTokenRepository.RevokedTokenView> rows = new ArrayList<>();
+        LocalDateTime expiresAt = LocalDateTime.now().plusHours(1);
+        for (int i = 0; i < 10_000; i++) {
+            String tokenHash = randomHash();
+            revoked.add(tokenHash);
+            rows.add(row(tokenHash, expiresAt));
+        }
+        when(invalidatedTokenRepository.findUnexpired(any())).thenReturn(rows);
+        registry.loadSnapshot();
+
+        // When: 200.000 request với token hợp lệ
+        int requests = 200_000;
+        List<String> valid = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            valid.add(randomHash());
+        }
+        long startedAt = System.nanoTime();
+        long accepted = valid.stream().filter(tokenHash -> !checker.isTokenInvalidated(tokenHash)).count();
+        long elapsedNanos = System.nanoTime() - startedAt;
+
+        // Then: token bị thu hồi được nhận ra mà không cần DB, token hợp lệ chỉ hỏi DB khi dương tính giả
+        assertThat(accepted).isEqualTo(requests);
+        assertThat(revoked).allMatch(checker::isTokenInvalidated);
+        long databaseLookups = mockingDetails(databaseTokenStatusChecker).getInvocations().size();
+        log.info("Kiểm tra blacklist {} token hợp lệ: {} truy vấn DB ({}%), {} ns/lần kiểm tra",
+                requests, databaseLookups, String.format("%.3f", 100.0 * databaseLookups / requests),
+                elapsedNanos / requests);
+        assertThat(databaseLookups).isLessThan(requests / 200);
+    }
+
+    @Test
+    void isTokenInvalidated_WithEventAfterSnapshot_ShouldRejectWithoutDatabase() {
+        when(invalidatedTokenRepository.findUnexpired(any())).thenReturn(List.of());
+        registry.loadSnapshot();
+        String tokenHash = randomHash();
+
+        registry.apply(TokenRevocationEvent.builder()
+                .type(TokenRevocationEvent.Type.TOKEN)
+                .userId(UUID.randomUUID())
+                .tokenHash(tokenHash)
+                .expiresAt(System.currentTimeMillis() + 3_600_000)
+                .build());
+
+        assertThat(checker.isTokenInvalidated(tokenHash)).isTrue();
+        verify(databaseTokenStatusChecker, never()).isTokenInvalidated(anyString());
+    }
+
+    @Test
+    void reconcile_WhenEventWasLost_ShouldRecoverRevocationFromDatabase() {
+        // Given: sự kiện thu hồi phát sau commit bị mất, token chỉ nằm trong invalidated_tokens
+        when(invalidatedTokenRepository.findUnexpired(any())).thenReturn(List.of());
+        registry.loadSnapshot();
+        String tokenHash = randomHash();
+        when(invalidatedTokenRepository.findRevokedSince(any(), any()))
+                .thenReturn(List.of(row(tokenHash, LocalDateTime.now().plusHours(1))));
+
+        // When
+        registry.reconcile();
+
+        // Then: token bị từ chối mà không cần hỏi DB ở mỗi request
+        assertThat(checker.isTokenInvalidated(tokenHash)).isTrue();
+        verify(databaseTokenStatusChecker, never()).isTokenInvalidated(anyString());
+    }
+
+    @Test
+    void isTokenInvalidated_WhenConsumerLostPartitions_ShouldAskDatabase() {
+        // Given
+        when(invalidatedTokenRepository.findUnexpired(any())).thenReturn(List.of());
+        registry.loadSnapshot();
+        String tokenHash = randomHash();
+
+        // When: consumer bị thu hồi partition, sự kiện mới không còn đến
+        registry.setConsumerAssigned(false);
+        checker.isTokenInvalidated(tokenHash);
+
+        // Then
+        verify(databaseTokenStatusChecker).isTokenInvalidated(tokenHash);
+    }
+
+    @Test
+    void isTokenInvalidated_WhenReconcileIsOverdue_ShouldAskDatabase() {
+        // Given: lần đối soát gần nhất đã quá max-staleness-ms
+        when(invalidatedTokenRepository.findUnexpired(any())).thenReturn(List.of());
+        registry.loadSnapshot();
+        ReflectionTestUtils.setField(registry, "lastReconciledAt", System.currentTimeMillis() - 60_000);
+        String tokenHash = randomHash();
+
+        // When
+        checker.isTokenInvalidated(tokenHash);
+
+        // Then
+        verify(databaseTokenStatusChecker).isTokenInvalidated(tokenHash);
+    }
+
+    @Test
+    void isIssuedBeforeCutoff_ShouldKeepLatestCutoffPerUser() {
+        UUID userId = UUID.randomUUID();
+        long resetAt = System.currentTimeMillis();
+
+        registry.applyUserCutoff(userId, resetAt);
+        registry.applyUserCutoff(userId, resetAt - 60_000);
+
+        assertThat(registry.isIssuedBeforeCutoff(userId, resetAt - 1_000)).isTrue();
+        assertThat(registry.isIssuedBeforeCutoff(userId, resetAt + 1_000)).isFalse();
+        assertThat(registry.isIssuedBeforeCutoff(UUID.randomUUID(), resetAt - 1_000)).isFalse();
+    }
+
+    @Test
+    void rebuild_ShouldDropExpiredTokens() throws InterruptedException {
+        String tokenHash = randomHash();
+        registry.revokeToken(tokenHash, System.currentTimeMillis() + 20);
+        registry.revokeToken(randomHash(), System.currentTimeMillis() + 3_600_000);
+
+        Thread.sleep(30);
+        registry.rebuild();
+
+        assertThat(registry.revokedTokenCount()).isEqualTo(1);
+        assertThat(registry.mightBeRevoked(tokenHash)).isFalse();
+    }
+
+    private String randomHash() {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        return HexFormat.of().formatHex(bytes);
+    }
+
+    private static InvalidatedTokenRepository.RevokedTokenView row(String tokenHash, LocalDateTime expiresAt) {
+        return new InvalidatedTokenRepository.RevokedTokenView() {
+            @Override
+            public String getTokenHash() {
+                return tokenHash;
+            }
+
+            @Override
+            public LocalDateTime getExpiresAt() {
+                return expiresAt;
+            }
+
+            @Override
+            public LocalDateTime getBlackListedAt() {
+                return expiresAt.minusHours(1);
+            }
+        };
+    }
+}
@@ -0,0 +1,56 @@
+package org.project.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.project.utils.AppointmentCodeGenerator;
+
+/**
+ * Số mã lịch hẹn sinh được mỗi giây trên một instance, một luồng và 4 luồng dùng chung generator.
+ * Trước đây mỗi mã còn tốn ít nhất một lần existsByPublicCode tới DB, không có trong phép đo này.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AppointmentCodeGeneratorBenchmark {
+
+    private AppointmentCodeGenerator generator;
+    private String validCode;
+
+    @Setup
+    public void setUp() {
+        generator = new AppointmentCodeGenerator(1, 7305162209118235471L);
+        validCode = generator.generatePublicCode();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String generate() {
+        return generator.generatePublicCode();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String generateContended() {
+        return generator.generatePublicCode();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean validate() {
+        return generator.isValidFormat(validCode);
+    }
+}
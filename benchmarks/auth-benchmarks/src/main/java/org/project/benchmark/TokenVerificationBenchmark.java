@@ -0,0 +1,120 @@
+package org.project.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.project.security.jwt.validator.ParsedToken;
+import org.project.security.jwt.validator.TokenValidator;
+import org.project.security.jwt.validator.VerifiedTokenCache;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+/**
+ * Phần CPU của POST /api/auth/verify-token cho một access token, không tính truy vấn blacklist.
+ * legacy lặp lại luồng cũ: validate tạo MACVerifier mới, mỗi getter parse lại token, hash nối chuỗi hex;
+ * parsedOnce là luồng mới khi cache trượt, cached là khi cùng token được gửi lại.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenVerificationBenchmark {
+
+    private static final String SIGNER_KEY = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    private String token;
+    private TokenValidator uncachedValidator;
+    private TokenValidator cachedValidator;
+
+    @Setup
+    public void setUp() throws Exception {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject("patient01")
+                .issuer("appointment")
+                .issueTime(new Date())
+                .expirationTime(new Date(System.currentTimeMillis() + 3_600_000))
+                .jwtID(UUID.randomUUID().toString())
+                .claim("userId", UUID.randomUUID().toString())
+                .claim("email", "patient01@mail.com")
+                .claim("roles", List.of("PATIENT"))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS512), claims);
+        jwt.sign(new MACSigner(SIGNER_KEY.getBytes()));
+        token = jwt.serialize();
+
+        uncachedValidator = new TokenValidator(SIGNER_KEY, new VerifiedTokenCache(0));
+        cachedValidator = new TokenValidator(SIGNER_KEY, new VerifiedTokenCache(10_000));
+    }
+
+    @Benchmark
+    public void legacy(Blackhole blackhole) throws Exception {
+        SignedJWT verified = SignedJWT.parse(token);
+        blackhole.consume(verified.verify(new MACVerifier(SIGNER_KEY.getBytes()))
+                && verified.getJWTClaimsSet().getExpirationTime().after(new Date()));
+        blackhole.consume(UUID.fromString(SignedJWT.parse(token).getJWTClaimsSet().getStringClaim("userId")));
+        blackhole.consume(SignedJWT.parse(token).getJWTClaimsSet().getSubject());
+        blackhole.consume(SignedJWT.parse(token).getJWTClaimsSet().getStringClaim("email"));
+        blackhole.consume(SignedJWT.parse(token).getJWTClaimsSet().getStringListClaim("roles"));
+        blackhole.consume(SignedJWT.parse(token).getJWTClaimsSet().getSubject() != null);
+        blackhole.consume(SignedJWT.parse(token).getJWTClaimsSet().getExpirationTime());
+        blackhole.consume(SignedJWT.parse(token).getJWTClaimsSet().getExpirationTime().before(new Date()));
+        blackhole.consume(legacyHash(token));
+    }
+
+    @Benchmark
+    public void parsedOnce(Blackhole blackhole) {
+        consume(uncachedValidator.parse(token), blackhole);
+    }
+
+    @Benchmark
+    public void cached(Blackhole blackhole) {
+        consume(cachedValidator.parse(token), blackhole);
+    }
+
+    private static void consume(ParsedToken parsedToken, Blackhole blackhole) {
+        blackhole.consume(parsedToken.isValid());
+        blackhole.consume(parsedToken.getUserId());
+        blackhole.consume(parsedToken.getUsername());
+        blackhole.consume(parsedToken.getEmail());
+        blackhole.consume(parsedToken.getRoles());
+        blackhole.consume(parsedToken.getTokenType());
+        blackhole.consume(parsedToken.getExpirationTime());
+        blackhole.consume(parsedToken.isExpired());
+        blackhole.consume(parsedToken.getHash());
+    }
+
+    private static String legacyHash(String token) throws Exception {
+        byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+        StringBuilder hexString = new StringBuilder();
+        for (byte b : hash) {
+            String hex = Integer.toHexString(0xff & b);
+            if (hex.length() == 1) {
+                hexString.append('0');
+            }
+            hexString.append(hex);
+        }
+        return hexString.toString();
+    }
+}
@@ -0,0 +1,47 @@
+package org.project.benchmark;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point của các jar benchmark (mỗi service một jar), nhận cùng tham số dòng lệnh với JMH.
+ * Nếu không chỉ định -rf/-rff, kết quả được ghi dạng JSON vào target/jmh-results/ để so sánh giữa các lần chạy.
+ *
+ * <pre>
+ * mvn -pl benchmarks/scheduling-benchmarks -am package -DskipTests
+ * java -jar benchmarks/scheduling-benchmarks/target/scheduling-benchmarks.jar RedisPipelineBenchmark -p rttMicros=200
+ * </pre>
+ */
+public final class BenchmarkRunner {
+
+    private static final String RESULT_DIR = "target/jmh-results";
+
+    private BenchmarkRunner() {
+
+    }
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            new File(RESULT_DIR).mkdirs();
+            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+            options.result(RESULT_DIR + "/jmh-" + timestamp + ".json");
+        }
+
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,168 @@
+package org.project.benchmark;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.project.gateway.vnpay.util.VNPayUtil;
+
+/**
+ * Tạo URL thanh toán và kiểm tra chữ ký callback VNPay với bộ tham số giống VNPayGateway.
+ * legacy* lặp lại cách cũ: Mac.getInstance/init mỗi lần ký, hex bằng String.format, mỗi giá trị URL-encode hai lần,
+ * callback chép map hai lần trước khi ký. Chạy kèm -prof gc để xem tốc độ cấp phát:
+ *
+ * <pre>
+ * java -jar benchmarks/payment-benchmarks/target/payment-benchmarks.jar VNPaySigningBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class VNPaySigningBenchmark {
+
+    private static final String HASH_SECRET = "SECRETKEY0123456789ABCDEFGHIJKLMNOPQRSTUV";
+    private static final String PAYMENT_URL = "https://sandbox.vnpayment.vn/paymentv2/vpcpay.html";
+
+    private final VNPayUtil vnPayUtil = new VNPayUtil();
+    private Map<String, String> paymentParams;
+    private Map<String, String> callbackParams;
+
+    @Setup
+    public void setUp() throws Exception {
+        paymentParams = new HashMap<>();
+        paymentParams.put("vnp_Version", "2.1.0");
+        paymentParams.put("vnp_Command", "pay");
+        paymentParams.put("vnp_TmnCode", "DEMOV210");
+        paymentParams.put("vnp_Amount", "50000000");
+        paymentParams.put("vnp_CurrCode", "VND");
+        paymentParams.put("vnp_TxnRef", "PAY1739512345678ABCD");
+        paymentParams.put("vnp_OrderInfo", "Thanh toán tiền cọc cho lịch hẹn: 8f14e45f-ceea-467f-a8f0-1b2c3d4e5f60");
+        paymentParams.put("vnp_OrderType", "billpayment");
+        paymentParams.put("vnp_Locale", "vn");
+        paymentParams.put("vnp_ReturnUrl", "http://localhost:3000/payment/return");
+        paymentParams.put("vnp_IpAddr", "127.0.0.1");
+        paymentParams.put("vnp_CreateDate", "20261017120000");
+        paymentParams.put("vnp_ExpireDate", "20261017121500");
+
+        callbackParams = new HashMap<>();
+        callbackParams.put("vnp_Amount", "50000000");
+        callbackParams.put("vnp_BankCode", "NCB");
+        callbackParams.put("vnp_BankTranNo", "VNP14512345");
+        callbackParams.put("vnp_CardType", "ATM");
+        callbackParams.put("vnp_OrderInfo", "Thanh toan tien coc cho lich hen");
+        callbackParams.put("vnp_PayDate", "20261017120500");
+        callbackParams.put("vnp_ResponseCode", "00");
+        callbackParams.put("vnp_TmnCode", "DEMOV210");
+        callbackParams.put("vnp_TransactionNo", "14512345");
+        callbackParams.put("vnp_TransactionStatus", "00");
+        callbackParams.put("vnp_TxnRef", "PAY1739512345678ABCD");
+        callbackParams.put("vnp_SecureHashType", "SHA512");
+        Map<String, String> encoded = new HashMap<>();
+        for (Map.Entry<String, String> entry : callbackParams.entrySet()) {
+            encoded.put(entry.getKey(), URLEncoder.encode(entry.getValue(), StandardCharsets.US_ASCII));
+        }
+        encoded.remove("vnp_SecureHashType");
+        callbackParams.put("vnp_SecureHash", legacyHashAllFields(encoded, HASH_SECRET));
+    }
+
+    @Benchmark
+    public String buildPaymentUrl() {
+        return vnPayUtil.buildPaymentUrl(PAYMENT_URL, paymentParams, HASH_SECRET);
+    }
+
+    @Benchmark
+    public String legacyBuildPaymentUrl() throws Exception {
+        List<String> fieldNames = new ArrayList<>(paymentParams.keySet());
+        Collections.sort(fieldNames);
+        StringBuilder hashData = new StringBuilder();
+        StringBuilder query = new StringBuilder();
+        Iterator<String> itr = fieldNames.iterator();
+        while (itr.hasNext()) {
+            String fieldName = itr.next();
+            String fieldValue = paymentParams.get(fieldName);
+            if ((fieldValue != null) && (fieldValue.length() > 0)) {
+                hashData.append(fieldName).append('=')
+                        .append(URLEncoder.encode(fieldValue, StandardCharsets.US_ASCII.toString()));
+                query.append(URLEncoder.encode(fieldName, StandardCharsets.US_ASCII.toString())).append('=')
+                        .append(URLEncoder.encode(fieldValue, StandardCharsets.US_ASCII.toString()));
+                if (itr.hasNext()) {
+                    query.append('&');
+                    hashData.append('&');
+                }
+            }
+        }
+        query.append("&vnp_SecureHash=").append(legacyHmacSHA512(HASH_SECRET, hashData.toString()));
+        return PAYMENT_URL + "?" + query;
+    }
+
+    @Benchmark
+    public boolean verifyCallback() {
+        return vnPayUtil.verifyCallback(callbackParams, HASH_SECRET);
+    }
+
+    @Benchmark
+    public boolean legacyVerifyCallback() throws Exception {
+        Map<String, String> fieldsToVerify = new HashMap<>(callbackParams);
+        fieldsToVerify.remove("vnp_SecureHashType");
+        fieldsToVerify.remove("vnp_SecureHash");
+        Map<String, String> encodedFields = new HashMap<>();
+        for (Map.Entry<String, String> entry : fieldsToVerify.entrySet()) {
+            encodedFields.put(entry.getKey(),
+                    URLEncoder.encode(entry.getValue(), StandardCharsets.US_ASCII.toString()));
+        }
+        return legacyHashAllFields(encodedFields, HASH_SECRET).equals(callbackParams.get("vnp_SecureHash"));
+    }
+
+    private static String legacyHashAllFields(Map<String, String> fields, String hashSecret) throws Exception {
+        List<String> fieldNames = new ArrayList<>(fields.keySet());
+        Collections.sort(fieldNames);
+        StringBuilder sb = new StringBuilder();
+        Iterator<String> itr = fieldNames.iterator();
+        while (itr.hasNext()) {
+            String fieldName = itr.next();
+            String fieldValue = fields.get(fieldName);
+            if ((fieldValue != null) && (fieldValue.length() > 0)) {
+                sb.append(fieldName).append('=').append(fieldValue);
+            }
+            if (itr.hasNext()) {
+                sb.append('&');
+            }
+        }
+        return legacyHmacSHA512(hashSecret, sb.toString());
+    }
+
+    private static String legacyHmacSHA512(String key, String data) throws Exception {
+        Mac hmac512 = Mac.getInstance("HmacSHA512");
+        hmac512.init(new SecretKeySpec(key.getBytes(), "HmacSHA512"));
+        byte[] result = hmac512.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        StringBuilder sb = new StringBuilder(2 * result.length);
+        for (byte b : result) {
+            sb.append(String.format("%02x", b & 0xff));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,158 @@
+package org.project.benchmark;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.project.benchmark.support.BenchmarkFakes;
+import org.project.benchmark.support.InMemoryRedis;
+import org.project.benchmark.support.SyntheticSchedule;
+import org.project.config.CacheCodecProperties;
+import org.project.dto.PageResponse;
+import org.project.dto.request.DoctorAvailabilityFilter;
+import org.project.dto.response.DoctorWithSlotsResponse;
+import org.project.repository.DoctorAvailableSlotRepository;
+import org.project.service.RedisCacheService;
+import org.project.service.UserProfileClientService;
+import org.project.service.impl.DoctorAvailabilityIndexImpl;
+import org.project.service.impl.DoctorAvailabilityServiceImpl;
+import org.project.service.impl.DoctorProfileCacheImpl;
+import org.project.service.impl.DoctorSlotRedisCacheImpl;
+import org.springframework.data.redis.core.RedisTemplate;
+
+/**
+ * Lọc, xếp hạng và phân trang bác sĩ có slot trống trong 14 ngày.
+ * legacy: luồng cũ nạp slot của mọi bác sĩ rồi sort/phân trang trong bộ nhớ;
+ * index: luồng trả lời từ DoctorAvailabilityIndex, chỉ hydrate profile cho trang hiện tại.
+ * DB và userprofile-service là fake trong bộ nhớ nên số đo phản ánh chi phí CPU/allocation của service.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class AvailabilitySearchBenchmark {
+
+    private static final int DAYS = 14;
+    private static final int SLOTS_PER_DAY = 6;
+    private static final int PAGE_SIZE = 10;
+
+    @Param({"1000", "10000", "50000"})
+    int doctorCount;
+
+    private InMemoryRedis redis;
+    private DoctorAvailabilityServiceImpl legacyService;
+    private DoctorAvailabilityServiceImpl indexedService;
+    private DoctorAvailabilityFilter firstPage;
+    private DoctorAvailabilityFilter deepPage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LocalDate today = LocalDate.now();
+        SyntheticSchedule schedule = new SyntheticSchedule(doctorCount, today, DAYS, SLOTS_PER_DAY, 42L);
+        DoctorAvailableSlotRepository slotRepository = BenchmarkFakes.slotRepository(schedule);
+        UserProfileClientService userProfileClient = BenchmarkFakes.userProfileClient(0);
+
+        redis = new InMemoryRedis(0);
+        RedisTemplate<String, Object> redisTemplate = redis.redisTemplate();
+        RedisCacheService redisCacheService = new RedisCacheService(redisTemplate);
+        DoctorSlotRedisCacheImpl slotCache = new DoctorSlotRedisCacheImpl(
+                redisTemplate, redisCacheService, new CacheCodecProperties());
+        DoctorProfileCacheImpl profileCache = profileCache(redisCacheService, userProfileClient);
+
+        // Index chưa rebuild nên isReady() = false, service đi luồng in-memory cũ
+        DoctorAvailabilityIndexImpl idleIndex = new DoctorAvailabilityIndexImpl(slotRepository);
+        legacyService = service(profileCache, slotCache, userProfileClient, slotRepository, idleIndex);
+
+        DoctorAvailabilityIndexImpl index = new DoctorAvailabilityIndexImpl(slotRepository);
+        BenchmarkFakes.setField(index, "enabled", true);
+        BenchmarkFakes.setField(index, "daysToIndex", DAYS);
+        BenchmarkFakes.setField(index, "specialtyTtlMs", 600_000L);
+        index.rebuild();
+        indexedService = service(profileCache, slotCache, userProfileClient, slotRepository, index);
+
+        firstPage = filter(schedule, 0);
+        deepPage = filter(schedule, doctorCount / PAGE_SIZE / 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        legacyService.destroy();
+        indexedService.destroy();
+    }
+
+    // Luồng cũ không giữ gì giữa các lần gọi ngoài Redis nên xóa Redis để mỗi lần đo là một lần tìm kiếm nguội
+    @Setup(Level.Invocation)
+    public void clearRedis() {
+        redis.flushAll();
+    }
+
+    @Benchmark
+    public PageResponse<DoctorWithSlotsResponse> legacyFirstPage() {
+        return legacyService.getDoctorsWithAvailableSlots(firstPage);
+    }
+
+    @Benchmark
+    public PageResponse<DoctorWithSlotsResponse> indexFirstPage() {
+        return indexedService.getDoctorsWithAvailableSlots(firstPage);
+    }
+
+    @Benchmark
+    public PageResponse<DoctorWithSlotsResponse> indexDeepPage() {
+        return indexedService.getDoctorsWithAvailableSlots(deepPage);
+    }
+
+    private static DoctorProfileCacheImpl profileCache(RedisCacheService redisCacheService,
+                                                      UserProfileClientService userProfileClient) {
+        DoctorProfileCacheImpl profileCache = new DoctorProfileCacheImpl(redisCacheService, userProfileClient);
+        // Tắt tầng local (giữ 0 entry) để sau khi xóa Redis mỗi lần đo vẫn là một lần tìm kiếm nguội
+        BenchmarkFakes.setField(profileCache, "localMaxSize", 0);
+        BenchmarkFakes.setField(profileCache, "localTtlMs", 60_000L);
+        BenchmarkFakes.setField(profileCache, "redisTtlSeconds", 3600L);
+        BenchmarkFakes.setField(profileCache, "originBatchSize", 100);
+        BenchmarkFakes.setField(profileCache, "waitTimeoutMs", 5000L);
+        profileCache.init();
+        return profileCache;
+    }
+
+    private static DoctorAvailabilityServiceImpl service(DoctorProfileCacheImpl profileCache,
+                                                         DoctorSlotRedisCacheImpl slotCache,
+                                                         UserProfileClientService userProfileClient,
+                                                         DoctorAvailableSlotRepository slotRepository,
+                                                         DoctorAvailabilityIndexImpl index) {
+        DoctorAvailabilityServiceImpl service = new DoctorAvailabilityServiceImpl(
+                profileCache, slotCache, userProfileClient, slotRepository, index);
+        BenchmarkFakes.setField(service, "batchSize", 50);
+        BenchmarkFakes.setField(service, "parallelThreshold", 10);
+        BenchmarkFakes.setField(service, "threadPoolSize", 10);
+        // Truy vấn xếp hạng trong DB cần Postgres thật, không đo ở đây
+        BenchmarkFakes.setField(service, "dbRankingEnabled", false);
+        service.init();
+        return service;
+    }
+
+    private static DoctorAvailabilityFilter filter(SyntheticSchedule schedule, int page) {
+        return DoctorAvailabilityFilter.builder()
+                .startDate(schedule.startDate())
+                .endDate(schedule.endDate())
+                .isAvailable(true)
+                .useCache(true)
+                .useParallelProcessing(false)
+                .page(page)
+                .size(PAGE_SIZE)
+                .build();
+    }
+}
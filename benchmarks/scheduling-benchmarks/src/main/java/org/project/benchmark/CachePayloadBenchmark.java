@@ -0,0 +1,101 @@
+package org.project.benchmark;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.project.benchmark.support.InMemoryRedis;
+import org.project.benchmark.support.SyntheticSchedule;
+import org.project.dto.cache.DoctorAvailabilityCacheData;
+import org.project.dto.cache.TimeSlot;
+import org.project.util.AvailabilityBinaryCodec;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+/**
+ * Serialize/deserialize cache availability một bác sĩ một ngày:
+ * json là các field của hash "doctor:availability:*" qua GenericJackson2JsonRedisSerializer như RedisConfig,
+ * compact là payload của AvailabilityBinaryCodec.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CachePayloadBenchmark {
+
+    @Param({"8", "20", "48"})
+    int slotsPerDay;
+
+    private GenericJackson2JsonRedisSerializer serializer;
+    private UUID doctorId;
+    private LocalDate date;
+    private List<TimeSlot> slots;
+    private Map<String, Object> metadata;
+    private byte[][] jsonFields;
+    private byte[] compactPayload;
+
+    @Setup
+    public void setUp() {
+        serializer = new GenericJackson2JsonRedisSerializer(InMemoryRedis.objectMapper());
+        date = LocalDate.now();
+        SyntheticSchedule schedule = new SyntheticSchedule(1, date, 1, slotsPerDay, 7L);
+        doctorId = schedule.doctorIds().get(0);
+        slots = schedule.timeSlotsOf(doctorId, date);
+
+        metadata = new HashMap<>();
+        metadata.put("doctorId", doctorId.toString());
+        metadata.put("date", date.toString());
+        metadata.put("totalSlots", slots.size());
+        metadata.put("cachedAt", System.currentTimeMillis());
+
+        jsonFields = encodeJson();
+        compactPayload = AvailabilityBinaryCodec.encode(slots, System.currentTimeMillis(), null);
+    }
+
+    @Benchmark
+    public byte[][] jsonEncode() {
+        return encodeJson();
+    }
+
+    @Benchmark
+    public void jsonDecode(Blackhole blackhole) {
+        for (byte[] field : jsonFields) {
+            blackhole.consume(serializer.deserialize(field));
+        }
+    }
+
+    @Benchmark
+    public byte[] compactEncode() {
+        return AvailabilityBinaryCodec.encode(slots, System.currentTimeMillis(), null);
+    }
+
+    @Benchmark
+    public DoctorAvailabilityCacheData compactDecode() {
+        return AvailabilityBinaryCodec.decode(doctorId, date, compactPayload);
+    }
+
+    private byte[][] encodeJson() {
+        byte[][] fields = new byte[slots.size() + 1][];
+        fields[0] = serializer.serialize(metadata);
+        for (int i = 0; i < slots.size(); i++) {
+            fields[i + 1] = serializer.serialize(slots.get(i));
+        }
+        return fields;
+    }
+}
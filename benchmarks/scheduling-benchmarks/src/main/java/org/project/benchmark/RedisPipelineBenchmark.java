@@ -0,0 +1,97 @@
+package org.project.benchmark;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.project.benchmark.support.InMemoryRedis;
+import org.project.benchmark.support.SyntheticSchedule;
+import org.project.config.CacheCodecProperties;
+import org.project.dto.cache.AvailabilityCacheBatch;
+import org.project.enums.CacheFormat;
+import org.project.service.RedisCacheService;
+import org.project.service.impl.DoctorSlotRedisCacheImpl;
+import org.springframework.data.redis.core.RedisTemplate;
+
+/**
+ * Đọc cache availability của một trang bác sĩ x 14 ngày:
+ * sequential gọi getDoctorAvailability cho từng doctor/ngày (một hoặc hai round trip mỗi key),
+ * pipelined gọi getDoctorAvailabilityBatch (một MGET cho cả trang, thêm một pipeline HGETALL với bản JSON).
+ * Redis là fake trong bộ nhớ, rttMicros mô phỏng độ trễ mạng mỗi round trip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class RedisPipelineBenchmark {
+
+    private static final int DAYS = 14;
+    private static final int SLOTS_PER_DAY = 16;
+
+    @Param({"10", "50"})
+    int doctors;
+
+    @Param({"0", "200", "1000"})
+    long rttMicros;
+
+    @Param({"JSON", "COMPACT"})
+    CacheFormat format;
+
+    private DoctorSlotRedisCacheImpl slotCache;
+    private List<UUID> doctorIds;
+    private List<LocalDate> dates;
+
+    @Setup
+    public void setUp() {
+        LocalDate today = LocalDate.now();
+        SyntheticSchedule schedule = new SyntheticSchedule(doctors, today, DAYS, SLOTS_PER_DAY, 3L);
+        doctorIds = schedule.doctorIds();
+        dates = new ArrayList<>(DAYS);
+        for (int day = 0; day < DAYS; day++) {
+            dates.add(today.plusDays(day));
+        }
+
+        InMemoryRedis redis = new InMemoryRedis(rttMicros);
+        RedisTemplate<String, Object> redisTemplate = redis.redisTemplate();
+        CacheCodecProperties codecProperties = new CacheCodecProperties();
+        codecProperties.setFormats(Map.of("doctor:availability:", format));
+        slotCache = new DoctorSlotRedisCacheImpl(redisTemplate, new RedisCacheService(redisTemplate), codecProperties);
+
+        for (UUID doctorId : doctorIds) {
+            for (LocalDate date : dates) {
+                slotCache.cacheDoctorAvailability(doctorId, date, schedule.timeSlotsOf(doctorId, date));
+            }
+        }
+    }
+
+    @Benchmark
+    public void sequentialPerDay(Blackhole blackhole) {
+        for (UUID doctorId : doctorIds) {
+            for (LocalDate date : dates) {
+                blackhole.consume(slotCache.getDoctorAvailability(doctorId, date));
+            }
+        }
+    }
+
+    @Benchmark
+    public AvailabilityCacheBatch pipelinedBatch() {
+        return slotCache.getDoctorAvailabilityBatch(doctorIds, dates);
+    }
+}
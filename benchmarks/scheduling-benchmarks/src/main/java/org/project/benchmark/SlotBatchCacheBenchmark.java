@@ -0,0 +1,120 @@
+package org.project.benchmark;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.project.benchmark.support.InMemoryRedis;
+import org.project.benchmark.support.SyntheticSchedule;
+import org.project.config.CacheCodecProperties;
+import org.project.dto.cache.SlotStatusChange;
+import org.project.dto.cache.TimeSlot;
+import org.project.enums.CacheFormat;
+import org.project.service.RedisCacheService;
+import org.project.service.impl.DoctorSlotRedisCacheImpl;
+import org.springframework.data.redis.core.RedisTemplate;
+
+/**
+ * Áp dụng thay đổi trạng thái của 1.000 slot (20 bác sĩ x 5 ngày x 10 slot) vào cache availability:
+ * perSlot gọi applySlotChange cho từng slot như luồng cập nhật từng slot cũ,
+ * perDoctorDate gọi applySlotChanges một lần cho mỗi bác sĩ/ngày như luồng cập nhật hàng loạt.
+ * Mỗi lần gọi dùng version mới hơn nên mọi thay đổi đều được ghi.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class SlotBatchCacheBenchmark {
+
+    private static final int DOCTORS = 20;
+    private static final int DAYS = 5;
+    private static final int SLOTS_PER_DAY = 10;
+
+    @Param({"0", "200"})
+    long rttMicros;
+
+    @Param({"JSON", "COMPACT"})
+    CacheFormat format;
+
+    private DoctorSlotRedisCacheImpl slotCache;
+    private List<UUID> doctorIds;
+    private List<LocalDate> dates;
+    private Map<UUID, Map<LocalDate, List<UUID>>> slotIds;
+    private long version = 1L;
+
+    @Setup
+    public void setUp() {
+        LocalDate today = LocalDate.now();
+        SyntheticSchedule schedule = new SyntheticSchedule(DOCTORS, today, DAYS, SLOTS_PER_DAY, 5L);
+        doctorIds = schedule.doctorIds();
+        dates = new ArrayList<>(DAYS);
+        for (int day = 0; day < DAYS; day++) {
+            dates.add(today.plusDays(day));
+        }
+
+        InMemoryRedis redis = new InMemoryRedis(rttMicros);
+        RedisTemplate<String, Object> redisTemplate = redis.redisTemplate();
+        CacheCodecProperties codecProperties = new CacheCodecProperties();
+        codecProperties.setFormats(Map.of("doctor:availability:", format));
+        slotCache = new DoctorSlotRedisCacheImpl(redisTemplate, new RedisCacheService(redisTemplate), codecProperties);
+
+        slotIds = new HashMap<>();
+        for (UUID doctorId : doctorIds) {
+            for (LocalDate date : dates) {
+                List<TimeSlot> slots = schedule.timeSlotsOf(doctorId, date);
+                slotCache.cacheDoctorAvailability(doctorId, date, slots);
+                slotIds.computeIfAbsent(doctorId, id -> new HashMap<>())
+                        .put(date, slots.stream().map(TimeSlot::getSlotId).toList());
+            }
+        }
+    }
+
+    @Benchmark
+    public void perSlot(Blackhole blackhole) {
+        long next = ++version;
+        boolean available = next % 2 == 0;
+        for (UUID doctorId : doctorIds) {
+            for (LocalDate date : dates) {
+                for (UUID slotId : slotIds.get(doctorId).get(date)) {
+                    blackhole.consume(slotCache.applySlotChange(doctorId, date, slotId, available, next));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void perDoctorDate(Blackhole blackhole) {
+        long next = ++version;
+        boolean available = next % 2 == 0;
+        for (UUID doctorId : doctorIds) {
+            for (LocalDate date : dates) {
+                List<SlotStatusChange> changes = slotIds.get(doctorId).get(date).stream()
+                        .map(slotId -> SlotStatusChange.builder()
+                                .slotId(slotId)
+                                .available(available)
+                                .version(next)
+                                .build())
+                        .toList();
+                blackhole.consume(slotCache.applySlotChanges(doctorId, date, changes));
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.project.benchmark;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.project.benchmark.support.SyntheticSchedule;
+import org.project.dto.cache.DoctorAvailabilityCacheData;
+import org.project.dto.cache.TimeSlot;
+import org.project.dto.response.AvailableSlotInfo;
+import org.project.mapper.DoctorAvailabilityMapper2;
+import org.project.model.DoctorAvailableSlot;
+
+/**
+ * Chuyển đổi slot giữa entity, DTO response và cache qua DoctorAvailabilityMapper2,
+ * tương ứng 14 ngày của một bác sĩ với số slot mỗi ngày khác nhau.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SlotMappingBenchmark {
+
+    private static final int DAYS = 14;
+
+    @Param({"6", "20", "48"})
+    int slotsPerDay;
+
+    private List<DoctorAvailableSlot> dbSlots;
+    private List<AvailableSlotInfo> slotInfos;
+    private DoctorAvailabilityCacheData cacheData;
+
+    @Setup
+    public void setUp() {
+        LocalDate today = LocalDate.now();
+        SyntheticSchedule schedule = new SyntheticSchedule(1, today, DAYS, slotsPerDay, 11L);
+        UUID doctorId = schedule.doctorIds().get(0);
+
+        dbSlots = schedule.slotsOf(doctorId, today, schedule.endDate());
+        slotInfos = DoctorAvailabilityMapper2.toAvailableSlotInfoList(dbSlots);
+
+        List<TimeSlot> daySlots = schedule.timeSlotsOf(doctorId, today);
+        cacheData = DoctorAvailabilityCacheData.builder()
+                .doctorId(doctorId)
+                .date(today)
+                .slots(daySlots)
+                .totalSlots(daySlots.size())
+                .cachedAt(System.currentTimeMillis())
+                .build();
+    }
+
+    @Benchmark
+    public List<AvailableSlotInfo> entitiesToSlotInfos() {
+        return DoctorAvailabilityMapper2.toAvailableSlotInfoList(dbSlots);
+    }
+
+    @Benchmark
+    public List<TimeSlot> slotInfosToTimeSlots() {
+        return DoctorAvailabilityMapper2.toTimeSlots(slotInfos);
+    }
+
+    @Benchmark
+    public List<AvailableSlotInfo> cacheDayToSlotInfos() {
+        return DoctorAvailabilityMapper2.toAvailableSlotInfoList(cacheData);
+    }
+}
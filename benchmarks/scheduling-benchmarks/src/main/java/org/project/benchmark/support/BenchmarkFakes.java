@@ -0,0 +1,119 @@
+package org.project.benchmark.support;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.project.dto.PageResponse;
+import org.project.dto.response.DoctorResponse;
+import org.project.repository.DoctorAvailableSlotRepository;
+import org.project.service.UserProfileClientService;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Thay thế DB (repository) và userprofile-service (Feign) bằng dữ liệu của SyntheticSchedule.
+ */
+public final class BenchmarkFakes {
+
+    private BenchmarkFakes() {
+
+    }
+
+    /**
+     * Repository giả chỉ cài các truy vấn mà đường tìm kiếm availability gọi tới,
+     * truy vấn khác ném UnsupportedOperationException để benchmark không âm thầm đo nhầm đường.
+     */
+    public static DoctorAvailableSlotRepository slotRepository(SyntheticSchedule schedule) {
+        return (DoctorAvailableSlotRepository) Proxy.newProxyInstance(
+                DoctorAvailableSlotRepository.class.getClassLoader(),
+                new Class<?>[]{DoctorAvailableSlotRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    // Service có thể retainAll trên kết quả nên luôn trả list mới
+                    case "findDistinctDoctorIdsByDateRange", "findAllDistinctDoctorIds" ->
+                            new ArrayList<>(schedule.doctorIds());
+                    case "findSlotsByDoctorAndDateRange" ->
+                            schedule.slotsOf((UUID) args[0], (LocalDate) args[1], (LocalDate) args[2]);
+                    case "findSlotIndexEntries" ->
+                            schedule.indexEntries((LocalDate) args[0], (LocalDate) args[1]);
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "SyntheticSlotRepository";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    /**
+     * Client userprofile-service giả, mỗi lời gọi getDoctorById hoặc getDoctorsByIds bị giữ lại callLatencyMicros
+     */
+    public static UserProfileClientService userProfileClient(long callLatencyMicros) {
+        long latencyNanos = TimeUnit.MICROSECONDS.toNanos(callLatencyMicros);
+        return new UserProfileClientService() {
+            @Override
+            public DoctorResponse getDoctorById(UUID doctorId) {
+                if (latencyNanos > 0) {
+                    LockSupport.parkNanos(latencyNanos);
+                }
+                return doctor(doctorId);
+            }
+
+            @Override
+            public List<DoctorResponse> getDoctorsByIds(Collection<UUID> doctorIds) {
+                if (latencyNanos > 0) {
+                    LockSupport.parkNanos(latencyNanos);
+                }
+                List<DoctorResponse> doctors = new ArrayList<>(doctorIds.size());
+                for (UUID doctorId : doctorIds) {
+                    doctors.add(doctor(doctorId));
+                }
+                return doctors;
+            }
+
+            @Override
+            public PageResponse<DoctorResponse> getDoctors(Pageable pageable) {
+                throw new UnsupportedOperationException("getDoctors");
+            }
+
+            @Override
+            public PageResponse<DoctorResponse> getDoctorsBySpecialty(UUID specialtyId, Pageable pageable) {
+                throw new UnsupportedOperationException("getDoctorsBySpecialty");
+            }
+        };
+    }
+
+    private static DoctorResponse doctor(UUID doctorId) {
+        long index = doctorId.getLeastSignificantBits();
+        return DoctorResponse.builder()
+                .userId(doctorId)
+                .fullName("BS. Bác sĩ " + index)
+                .gender(index % 2 == 0 ? "MALE" : "FEMALE")
+                .qualification("Thạc sĩ")
+                .yearsOfExperience((int) (index % 30))
+                .consultationFee(BigDecimal.valueOf(200_000 + index % 10 * 50_000))
+                .specialtyName("Nội tổng quát")
+                .build();
+    }
+
+    /**
+     * Gán giá trị cho field @Value khi dựng service ngoài Spring context
+     */
+    public static void setField(Object target, String name, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Không gán được field " + name + " của " + target.getClass(), e);
+        }
+    }
+
+    public static List<UUID> firstDoctors(SyntheticSchedule schedule, int count) {
+        return schedule.doctorIds().subList(0, Math.min(count, schedule.doctorIds().size()));
+    }
+}
@@ -0,0 +1,263 @@
+package org.project.benchmark.support;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Redis giả trong bộ nhớ cho benchmark, đủ các lệnh mà RedisCacheService và DoctorSlotRedisCacheImpl dùng.
+ * Mỗi lệnh đơn hoặc mỗi lần đóng pipeline tính là một round trip và bị giữ lại roundTripMicros
+ * để mô phỏng độ trễ mạng tới Redis thật.
+ */
+public final class InMemoryRedis {
+
+    private final Map<String, byte[]> strings = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, byte[]>> hashes = new ConcurrentHashMap<>();
+    private final AtomicLong roundTrips = new AtomicLong();
+    private final long roundTripNanos;
+
+    public InMemoryRedis(long roundTripMicros) {
+        this.roundTripNanos = TimeUnit.MICROSECONDS.toNanos(roundTripMicros);
+    }
+
+    public long roundTrips() {
+        return roundTrips.get();
+    }
+
+    public void flushAll() {
+        strings.clear();
+        hashes.clear();
+    }
+
+    /**
+     * RedisTemplate cấu hình serializer giống RedisConfig của scheduling-service
+     */
+    public RedisTemplate<String, Object> redisTemplate() {
+        RedisTemplate<String, Object> template = new RedisTemplate<>();
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setHashKeySerializer(new StringRedisSerializer());
+
+        GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer(objectMapper());
+        template.setHashValueSerializer(serializer);
+        template.setValueSerializer(serializer);
+        template.setConnectionFactory(connectionFactory());
+        template.afterPropertiesSet();
+        return template;
+    }
+
+    public static ObjectMapper objectMapper() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        objectMapper.activateDefaultTyping(
+                objectMapper.getPolymorphicTypeValidator(),
+                ObjectMapper.DefaultTyping.NON_FINAL,
+                JsonTypeInfo.As.PROPERTY
+        );
+        return objectMapper;
+    }
+
+    private RedisConnectionFactory connectionFactory() {
+        return (RedisConnectionFactory) Proxy.newProxyInstance(
+                RedisConnectionFactory.class.getClassLoader(),
+                new Class<?>[]{RedisConnectionFactory.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getConnection" -> newConnection();
+                    case "getConvertPipelineAndTxResults" -> true;
+                    case "translateExceptionIfPossible" -> null;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "InMemoryRedisConnectionFactory";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private RedisConnection newConnection() {
+        return (RedisConnection) Proxy.newProxyInstance(
+                RedisConnection.class.getClassLoader(),
+                new Class<?>[]{RedisConnection.class},
+                new ConnectionHandler());
+    }
+
+    private void roundTrip() {
+        roundTrips.incrementAndGet();
+        if (roundTripNanos > 0) {
+            LockSupport.parkNanos(roundTripNanos);
+        }
+    }
+
+    private final class ConnectionHandler implements InvocationHandler {
+
+        private List<Object> pipelineResults;
+        // Kết quả các lệnh giữa MULTI và EXEC; fake chỉ dùng trong một thread nên không có ghi xen vào key đang WATCH
+        private List<Object> transactionResults;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            switch (name) {
+                case "stringCommands", "hashCommands", "keyCommands", "zSetCommands", "commands":
+                    return proxy;
+                case "openPipeline":
+                    pipelineResults = new ArrayList<>();
+                    return null;
+                case "closePipeline":
+                    List<Object> results = pipelineResults != null ? pipelineResults : List.of();
+                    pipelineResults = null;
+                    roundTrip();
+                    return results;
+                case "isPipelined":
+                    return pipelineResults != null;
+                case "watch", "unwatch":
+                    roundTrip();
+                    return null;
+                case "multi":
+                    transactionResults = new ArrayList<>();
+                    return null;
+                case "exec":
+                    List<Object> executed = transactionResults != null ? transactionResults : List.of();
+                    transactionResults = null;
+                    roundTrip();
+                    return executed;
+                case "discard":
+                    transactionResults = null;
+                    roundTrip();
+                    return null;
+                case "isQueueing":
+                    return transactionResults != null;
+                case "isClosed":
+                    return false;
+                case "close":
+                case "getNativeConnection":
+                    return null;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "InMemoryRedisConnection";
+                default:
+                    Object result = execute(name, args);
+                    if (transactionResults != null) {
+                        transactionResults.add(result);
+                        return null;
+                    }
+                    if (pipelineResults != null) {
+                        pipelineResults.add(result);
+                        return null;
+                    }
+                    roundTrip();
+                    return result;
+            }
+        }
+    }
+
+    private Object execute(String command, Object[] args) {
+        switch (command) {
+            case "get":
+                return strings.get(key(args[0]));
+            case "mGet":
+                List<byte[]> payloads = new ArrayList<>();
+                for (byte[] rawKey : (byte[][]) args[0]) {
+                    payloads.add(strings.get(key(rawKey)));
+                }
+                return payloads;
+            case "set":
+                strings.put(key(args[0]), (byte[]) args[1]);
+                hashes.remove(key(args[0]));
+                return true;
+            case "setEx", "pSetEx":
+                strings.put(key(args[0]), (byte[]) args[2]);
+                hashes.remove(key(args[0]));
+                return true;
+            case "del", "unlink":
+                long removed = 0;
+                for (byte[] rawKey : (byte[][]) args[0]) {
+                    String key = key(rawKey);
+                    if (strings.remove(key) != null | hashes.remove(key) != null) {
+                        removed++;
+                    }
+                }
+                return removed;
+            case "exists":
+                if (args[0] instanceof byte[][] rawKeys) {
+                    long existing = 0;
+                    for (byte[] rawKey : rawKeys) {
+                        if (contains(key(rawKey))) {
+                            existing++;
+                        }
+                    }
+                    return existing;
+                }
+                return contains(key(args[0]));
+            case "expire", "pExpire", "expireAt", "pExpireAt":
+                return contains(key(args[0]));
+            case "hMSet":
+                Map<String, byte[]> target = hashes.computeIfAbsent(key(args[0]), k -> new ConcurrentHashMap<>());
+                ((Map<?, ?>) args[1]).forEach((field, value) -> target.put(key(field), (byte[]) value));
+                strings.remove(key(args[0]));
+                return null;
+            case "hSet":
+                hashes.computeIfAbsent(key(args[0]), k -> new ConcurrentHashMap<>()).put(key(args[1]), (byte[]) args[2]);
+                return true;
+            case "hGet":
+                Map<String, byte[]> hash = hashes.get(key(args[0]));
+                return hash != null ? hash.get(key(args[1])) : null;
+            case "hMGet":
+                Map<String, byte[]> fields = hashes.get(key(args[0]));
+                List<byte[]> values = new ArrayList<>();
+                for (byte[] field : (byte[][]) args[1]) {
+                    values.add(fields != null ? fields.get(key(field)) : null);
+                }
+                return values;
+            case "hGetAll":
+                Map<byte[], byte[]> entries = new LinkedHashMap<>();
+                Map<String, byte[]> source = hashes.get(key(args[0]));
+                if (source != null) {
+                    source.forEach((field, value) -> entries.put(field.getBytes(StandardCharsets.UTF_8), value));
+                }
+                return entries;
+            case "hLen":
+                Map<String, byte[]> sized = hashes.get(key(args[0]));
+                return sized != null ? (long) sized.size() : 0L;
+            // Index theo ngày không ảnh hưởng tới đường đọc nên không lưu lại
+            case "zAdd":
+                return true;
+            case "zRem":
+                return 0L;
+            case "zRangeByScore":
+                return new LinkedHashSet<byte[]>();
+            default:
+                throw new UnsupportedOperationException("Lệnh Redis chưa được hỗ trợ trong benchmark: " + command);
+        }
+    }
+
+    private boolean contains(String key) {
+        return strings.containsKey(key) || hashes.containsKey(key);
+    }
+
+    private static String key(Object raw) {
+        return new String((byte[]) raw, StandardCharsets.UTF_8);
+    }
+}
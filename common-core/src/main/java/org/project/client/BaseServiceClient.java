@@ -2,19 +2,21 @@ package org.project.client;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.project.client.resilience.ResilientCallExecutor;
 import org.project.exception.CustomException;
 import org.project.exception.ErrorCode;
 import org.project.exception.ExternalServiceException;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.function.Supplier;
+
 import static org.springframework.http.HttpStatus.*;
 
 @Slf4j
@@ -24,190 +26,197 @@ public abstract class BaseServiceClient {
 
     protected final RestTemplate restTemplate;
 
+    private ResilientCallExecutor resilientCallExecutor;
+
     protected abstract String getServiceName();
 
-    @Retryable(
-            value = {ResourceAccessException.class, HttpServerErrorException.class},
-            maxAttempts = 3,
-            backoff = @Backoff(delay = 1000, multiplier = 2)
-    )
+    @Autowired(required = false)
+    public void setResilientCallExecutor(ResilientCallExecutor resilientCallExecutor) {
+        this.resilientCallExecutor = resilientCallExecutor;
+    }
+
+    /**
+     * Tên target dùng để tra cấu hình service-client.targets, mặc định suy ra từ tên service
+     */
+    protected String getTargetName() {
+        return getServiceName().trim().toLowerCase().replace(' ', '-');
+    }
+
+    private <T> T guarded(HttpMethod method, String url, Supplier<T> call) {
+        if (resilientCallExecutor == null) {
+            return call.get();
+        }
+        return resilientCallExecutor.execute(getTargetName(), method, url, call);
+    }
+
     protected <T> T get(String url, Class<T> responseType) {
-        try {
+        return guarded(HttpMethod.GET, url, () -> {
+            try {
 
-            ResponseEntity<T> response = restTemplate.getForEntity(url, responseType);
+                ResponseEntity<T> response = restTemplate.getForEntity(url, responseType);
 
-            if (response.getStatusCode() != HttpStatus.OK) {
+                if (response.getStatusCode() != HttpStatus.OK) {
+                    throw new ExternalServiceException(
+                            String.format("%s trả về status code: %s", getServiceName(), response.getStatusCode())
+                    );
+                }
+
+                return response.getBody();
+
+            } catch (HttpClientErrorException e) {
+                handleHttpClientError(e);
+            } catch (HttpServerErrorException e) {
                 throw new ExternalServiceException(
-                        String.format("%s trả về status code: %s", getServiceName(), response.getStatusCode())
+                        String.format("%s đang gặp sự cố. Vui lòng thử lại sau.", getServiceName())
+                );
+            } catch (ResourceAccessException e) {
+                throw new ExternalServiceException(
+                        String.format("Không thể kết nối đến %s", getServiceName())
+                );
+            } catch (Exception e) {
+                throw new ExternalServiceException(
+                        String.format("Lỗi không xác định khi gọi %s", getServiceName())
                 );
             }
-
-            return response.getBody();
-
-        } catch (HttpClientErrorException e) {
-            handleHttpClientError(e);
-        } catch (HttpServerErrorException e) {
-            throw new ExternalServiceException(
-                    String.format("%s đang gặp sự cố. Vui lòng thử lại sau.", getServiceName())
-            );
-        } catch (ResourceAccessException e) {
-            throw new ExternalServiceException(
-                    String.format("Không thể kết nối đến %s", getServiceName())
-            );
-        } catch (Exception e) {
-            throw new ExternalServiceException(
-                    String.format("Lỗi không xác định khi gọi %s", getServiceName())
-            );
-        }
-        return null;
+            return null;
+        });
     }
 
-    @Retryable(
-            value = {ResourceAccessException.class, HttpServerErrorException.class},
-            maxAttempts = 3,
-            backoff = @Backoff(delay = 1000, multiplier = 2)
-    )
     protected <T> T get(String url, ParameterizedTypeReference<T> responseType) {
-        try {
+        return guarded(HttpMethod.GET, url, () -> {
+            try {
+
+                ResponseEntity<T> response = restTemplate.exchange(
+                        url,
+                        HttpMethod.GET,
+                        null,
+                        responseType
+                );
 
-            ResponseEntity<T> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.GET,
-                    null,
-                    responseType
-            );
+                if (response.getStatusCode() != HttpStatus.OK) {
+                    throw new ExternalServiceException(
+                            String.format("%s trả về status code: %s", getServiceName(), response.getStatusCode())
+                    );
+                }
 
-            if (response.getStatusCode() != HttpStatus.OK) {
+                return response.getBody();
+
+            } catch (HttpClientErrorException e) {
+                handleHttpClientError(e);
+            } catch (HttpServerErrorException e) {
+                throw new ExternalServiceException(
+                        String.format("%s đang gặp sự cố. Vui lòng thử lại sau.", getServiceName())
+                );
+            } catch (ResourceAccessException e) {
+                throw new ExternalServiceException(
+                        String.format("Không thể kết nối đến %s", getServiceName())
+                );
+            } catch (Exception e) {
                 throw new ExternalServiceException(
-                        String.format("%s trả về status code: %s", getServiceName(), response.getStatusCode())
+                        String.format("Lỗi không xác định khi gọi %s", getServiceName())
                 );
             }
-
-            return response.getBody();
-
-        } catch (HttpClientErrorException e) {
-            handleHttpClientError(e);
-        } catch (HttpServerErrorException e) {
-            throw new ExternalServiceException(
-                    String.format("%s đang gặp sự cố. Vui lòng thử lại sau.", getServiceName())
-            );
-        } catch (ResourceAccessException e) {
-            throw new ExternalServiceException(
-                    String.format("Không thể kết nối đến %s", getServiceName())
-            );
-        } catch (Exception e) {
-            throw new ExternalServiceException(
-                    String.format("Lỗi không xác định khi gọi %s", getServiceName())
-            );
-        }
-        return null;
+            return null;
+        });
     }
 
 
-    @Retryable(
-            value = {ResourceAccessException.class, HttpServerErrorException.class},
-            maxAttempts = 3,
-            backoff = @Backoff(delay = 1000, multiplier = 2)
-    )
     protected <T, R> R post(String url, T body, Class<R> responseType) {
-        try {
+        return guarded(HttpMethod.POST, url, () -> {
+            try {
+
+                HttpHeaders headers = new HttpHeaders();
+                headers.setContentType(MediaType.APPLICATION_JSON);
+                HttpEntity<T> entity = new HttpEntity<>(body, headers);
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            HttpEntity<T> entity = new HttpEntity<>(body, headers);
+                ResponseEntity<R> response = restTemplate.postForEntity(url, entity, responseType);
 
-            ResponseEntity<R> response = restTemplate.postForEntity(url, entity, responseType);
+                if (response.getStatusCode() != HttpStatus.OK) {
+                    throw new ExternalServiceException(
+                            String.format("%s trả về status code: %s", getServiceName(), response.getStatusCode())
+                    );
+                }
 
-            if (response.getStatusCode() != HttpStatus.OK) {
+                return response.getBody();
+
+            } catch (HttpClientErrorException e) {
+                handleHttpClientError(e);
+            } catch (HttpServerErrorException e) {
                 throw new ExternalServiceException(
-                        String.format("%s trả về status code: %s", getServiceName(), response.getStatusCode())
+                        String.format("%s đang gặp sự cố. Vui lòng thử lại sau.", getServiceName())
                 );
-            }
+            } catch (ResourceAccessException e) {
+                throw new ExternalServiceException(
+                        String.format("Không thể kết nối đến %s", getServiceName())
+                );
+            } catch (Exception e) {
 
-            return response.getBody();
-
-        } catch (HttpClientErrorException e) {
-            handleHttpClientError(e);
-        } catch (HttpServerErrorException e) {
-            throw new ExternalServiceException(
-                    String.format("%s đang gặp sự cố. Vui lòng thử lại sau.", getServiceName())
-            );
-        } catch (ResourceAccessException e) {
-            throw new ExternalServiceException(
-                    String.format("Không thể kết nối đến %s", getServiceName())
-            );
-        } catch (Exception e) {
-
-            throw new ExternalServiceException(
-                    String.format("Lỗi không xác định khi gọi %s", getServiceName())
-            );
-        }
-        return null;
+                throw new ExternalServiceException(
+                        String.format("Lỗi không xác định khi gọi %s", getServiceName())
+                );
+            }
+            return null;
+        });
     }
 
-    @Retryable(
-            value = {ResourceAccessException.class, HttpServerErrorException.class},
-            maxAttempts = 3,
-            backoff = @Backoff(delay = 1000, multiplier = 2)
-    )
     protected <T, R> R put(String url, T body, Class<R> responseType) {
-        try {
-            log.debug("Calling {} - PUT: {}", getServiceName(), url);
+        return guarded(HttpMethod.PUT, url, () -> {
+            try {
+                log.debug("Calling {} - PUT: {}", getServiceName(), url);
+
+                HttpHeaders headers = new HttpHeaders();
+                headers.setContentType(MediaType.APPLICATION_JSON);
+                HttpEntity<T> entity = new HttpEntity<>(body, headers);
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            HttpEntity<T> entity = new HttpEntity<>(body, headers);
+                ResponseEntity<R> response = restTemplate.exchange(
+                        url, HttpMethod.PUT, entity, responseType);
 
-            ResponseEntity<R> response = restTemplate.exchange(
-                    url, HttpMethod.PUT, entity, responseType);
+                if (response.getStatusCode() != HttpStatus.OK) {
+                    throw new ExternalServiceException(
+                            String.format("%s trả về status code: %s", getServiceName(), response.getStatusCode())
+                    );
+                }
 
-            if (response.getStatusCode() != HttpStatus.OK) {
+                return response.getBody();
+
+            } catch (HttpClientErrorException e) {
+                handleHttpClientError(e);
+            } catch (HttpServerErrorException e) {
+                log.error("Server error from {}: {}", getServiceName(), e.getMessage());
+                throw new ExternalServiceException(
+                        String.format("%s đang gặp sự cố. Vui lòng thử lại sau.", getServiceName())
+                );
+            } catch (Exception e) {
+                log.error("Unexpected error calling {}: {}", getServiceName(), e.getMessage(), e);
                 throw new ExternalServiceException(
-                        String.format("%s trả về status code: %s", getServiceName(), response.getStatusCode())
+                        String.format("Lỗi không xác định khi gọi %s", getServiceName())
                 );
             }
-
-            return response.getBody();
-
-        } catch (HttpClientErrorException e) {
-            handleHttpClientError(e);
-        } catch (HttpServerErrorException e) {
-            log.error("Server error from {}: {}", getServiceName(), e.getMessage());
-            throw new ExternalServiceException(
-                    String.format("%s đang gặp sự cố. Vui lòng thử lại sau.", getServiceName())
-            );
-        } catch (Exception e) {
-            log.error("Unexpected error calling {}: {}", getServiceName(), e.getMessage(), e);
-            throw new ExternalServiceException(
-                    String.format("Lỗi không xác định khi gọi %s", getServiceName())
-            );
-        }
-        return null;
+            return null;
+        });
     }
 
-    @Retryable(
-            value = {ResourceAccessException.class, HttpServerErrorException.class},
-            maxAttempts = 3,
-            backoff = @Backoff(delay = 1000, multiplier = 2)
-    )
     protected void delete(String url) {
-        try {
-            log.debug("Calling {} - DELETE: {}", getServiceName(), url);
-            restTemplate.delete(url);
-
-        } catch (HttpClientErrorException e) {
-            handleHttpClientError(e);
-        } catch (HttpServerErrorException e) {
-            log.error("Server error from {}: {}", getServiceName(), e.getMessage());
-            throw new ExternalServiceException(
-                    String.format("%s đang gặp sự cố. Vui lòng thử lại sau.", getServiceName())
-            );
-        } catch (Exception e) {
-            log.error("Unexpected error calling {}: {}", getServiceName(), e.getMessage(), e);
-            throw new ExternalServiceException(
-                    String.format("Lỗi không xác định khi gọi %s", getServiceName())
-            );
-        }
+        guarded(HttpMethod.DELETE, url, () -> {
+            try {
+                log.debug("Calling {} - DELETE: {}", getServiceName(), url);
+                restTemplate.delete(url);
+
+            } catch (HttpClientErrorException e) {
+                handleHttpClientError(e);
+            } catch (HttpServerErrorException e) {
+                log.error("Server error from {}: {}", getServiceName(), e.getMessage());
+                throw new ExternalServiceException(
+                        String.format("%s đang gặp sự cố. Vui lòng thử lại sau.", getServiceName())
+                );
+            } catch (Exception e) {
+                log.error("Unexpected error calling {}: {}", getServiceName(), e.getMessage(), e);
+                throw new ExternalServiceException(
+                        String.format("Lỗi không xác định khi gọi %s", getServiceName())
+                );
+            }
+            return null;
+        });
     }
 
     private void handleHttpClientError(HttpClientErrorException e) {
@@ -223,8 +232,10 @@ public abstract class BaseServiceClient {
         } else if (statusCode.equals(UNAUTHORIZED)) {
             throw new CustomException(ErrorCode.UNAUTHORIZED);
         }
+        // Giữ status để circuit breaker không coi các 4xx khác (vd. 409) là lỗi của service đích
         throw new ExternalServiceException(
-                String.format("Lỗi từ %s: %s", getServiceName(), e.getMessage())
+                String.format("Lỗi từ %s: %s", getServiceName(), e.getMessage()),
+                statusCode
         );
     }
 }
@@ -0,0 +1,12 @@
+package org.project.client.resilience;
+
+import org.project.exception.ExternalServiceException;
+
+/**
+ * Số lời gọi đồng thời tới target đã đạt giới hạn, lời gọi bị từ chối ngay thay vì xếp hàng.
+ */
+public class BulkheadFullException extends ExternalServiceException {
+    public BulkheadFullException(String serviceName) {
+        super(String.format("%s đang quá tải, vui lòng thử lại sau", serviceName));
+    }
+}
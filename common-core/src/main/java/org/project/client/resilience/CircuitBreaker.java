@@ -0,0 +1,140 @@
+package org.project.client.resilience;
+
+import java.util.concurrent.TimeUnit;
+
+import org.project.config.ServiceClientProperties;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Circuit breaker theo số lần gọi gần nhất của một target.
+ * CLOSED: tỉ lệ lỗi trong cửa sổ vượt ngưỡng thì OPEN, mọi lời gọi bị từ chối ngay trong openDuration.
+ * Hết openDuration chuyển HALF_OPEN, cho phép một số lời gọi thử: tất cả thành công thì CLOSED, một lỗi thì OPEN lại.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final int minimumCalls;
+    private final int failureRatePercent;
+    private final long slowCallNanos;
+    private final long openDurationNanos;
+    private final int halfOpenCalls;
+
+    // true = lỗi, vòng tròn trên slidingWindowSize lời gọi gần nhất
+    private final boolean[] outcomes;
+    private int next;
+    private int recorded;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long openedAtNanos;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    public CircuitBreaker(String name, ServiceClientProperties.Target settings) {
+        this.name = name;
+        this.outcomes = new boolean[settings.getSlidingWindowSize()];
+        this.minimumCalls = settings.getMinimumCalls();
+        this.failureRatePercent = settings.getFailureRatePercent();
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(settings.getSlowCallMs());
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(settings.getOpenDurationMs());
+        this.halfOpenCalls = settings.getHalfOpenCalls();
+    }
+
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAtNanos < openDurationNanos) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            halfOpenPermits = 0;
+            halfOpenSuccesses = 0;
+            log.info("Circuit {} chuyển sang HALF_OPEN", name);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits >= halfOpenCalls) {
+                return false;
+            }
+            halfOpenPermits++;
+        }
+        return true;
+    }
+
+    /**
+     * Trả lại quyền gọi khi lời gọi không được thực hiện (bulkhead đầy, thread bị ngắt)
+     */
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && halfOpenPermits > 0) {
+            halfOpenPermits--;
+        }
+    }
+
+    public synchronized void onSuccess(long durationNanos) {
+        boolean slow = durationNanos > slowCallNanos;
+        if (state == State.HALF_OPEN) {
+            if (slow) {
+                open();
+            } else if (++halfOpenSuccesses >= halfOpenCalls) {
+                close();
+            }
+            return;
+        }
+        if (state == State.CLOSED) {
+            record(slow);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        if (state == State.CLOSED) {
+            record(true);
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == outcomes.length) {
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % outcomes.length;
+
+        if (recorded >= minimumCalls && failures * 100 >= failureRatePercent * recorded) {
+            open();
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAtNanos = System.nanoTime();
+        log.warn("Circuit {} chuyển sang OPEN: {}/{} lời gọi gần nhất lỗi", name, failures, recorded);
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        next = 0;
+        recorded = 0;
+        failures = 0;
+        log.info("Circuit {} đã đóng lại", name);
+    }
+}
@@ -0,0 +1,12 @@
+package org.project.client.resilience;
+
+import org.project.exception.ExternalServiceException;
+
+/**
+ * Circuit breaker của target đang mở, lời gọi bị từ chối mà không gửi request.
+ */
+public class CircuitOpenException extends ExternalServiceException {
+    public CircuitOpenException(String serviceName) {
+        super(String.format("%s tạm thời không khả dụng, vui lòng thử lại sau", serviceName));
+    }
+}
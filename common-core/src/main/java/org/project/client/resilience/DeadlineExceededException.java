@@ -0,0 +1,12 @@
+package org.project.client.resilience;
+
+import org.project.exception.ExternalServiceException;
+
+/**
+ * Lời gọi không hoàn thành trước deadline.
+ */
+public class DeadlineExceededException extends ExternalServiceException {
+    public DeadlineExceededException(String serviceName) {
+        super(String.format("Hết thời gian chờ %s", serviceName));
+    }
+}
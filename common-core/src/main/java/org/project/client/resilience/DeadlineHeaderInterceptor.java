@@ -0,0 +1,25 @@
+package org.project.client.resilience;
+
+import java.io.IOException;
+import java.util.OptionalLong;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Gắn số ms còn lại của deadline vào request đi để service phía sau dừng sớm khi caller đã bỏ cuộc.
+ */
+public class DeadlineHeaderInterceptor implements ClientHttpRequestInterceptor {
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body,
+                                        ClientHttpRequestExecution execution) throws IOException {
+        OptionalLong remaining = RequestDeadline.remainingMillis();
+        if (remaining.isPresent()) {
+            request.getHeaders().set(RequestDeadline.HEADER, String.valueOf(Math.max(1, remaining.getAsLong())));
+        }
+        return execution.execute(request, body);
+    }
+}
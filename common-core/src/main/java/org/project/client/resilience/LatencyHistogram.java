@@ -0,0 +1,73 @@
+package org.project.client.resilience;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram độ trễ không khóa cho một endpoint.
+ * Bucket tăng theo cấp số nhân 1.25 từ 100µs tới khoảng 2 phút, percentile trả về cận trên của bucket (sai số ≤ 25%).
+ */
+public class LatencyHistogram {
+
+    private static final double GROWTH = 1.25;
+    private static final long[] UPPER_BOUNDS_MICROS = buildBounds();
+
+    private final AtomicLongArray counts = new AtomicLongArray(UPPER_BOUNDS_MICROS.length + 1);
+    private final LongAdder total = new LongAdder();
+
+    private static long[] buildBounds() {
+        int size = (int) Math.ceil(Math.log(120_000_000.0 / 100) / Math.log(GROWTH)) + 1;
+        long[] bounds = new long[size];
+        double bound = 100;
+        for (int i = 0; i < size; i++) {
+            bounds[i] = (long) bound;
+            bound *= GROWTH;
+        }
+        return bounds;
+    }
+
+    public void record(long durationNanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(durationNanos);
+        counts.incrementAndGet(bucketOf(micros));
+        total.increment();
+    }
+
+    public long count() {
+        return total.sum();
+    }
+
+    /**
+     * @param quantile giá trị trong khoảng (0, 1], ví dụ 0.95
+     * @return độ trễ tính bằng micro giây, 0 khi chưa có mẫu
+     */
+    public long percentileMicros(double quantile) {
+        long count = total.sum();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * count);
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return i < UPPER_BOUNDS_MICROS.length ? UPPER_BOUNDS_MICROS[i] : Long.MAX_VALUE;
+            }
+        }
+        return UPPER_BOUNDS_MICROS[UPPER_BOUNDS_MICROS.length - 1];
+    }
+
+    private static int bucketOf(long micros) {
+        int low = 0;
+        int high = UPPER_BOUNDS_MICROS.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (UPPER_BOUNDS_MICROS[mid] < micros) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
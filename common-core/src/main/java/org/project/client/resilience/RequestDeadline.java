@@ -0,0 +1,48 @@
+package org.project.client.resilience;
+
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deadline của request hiện tại, gắn với thread đang xử lý.
+ * Deadline được truyền sang service kế tiếp qua header {@link #HEADER} dưới dạng số ms còn lại,
+ * nên không phụ thuộc đồng hồ giữa các máy.
+ */
+public final class RequestDeadline {
+
+    public static final String HEADER = "X-Request-Timeout-Ms";
+
+    private static final ThreadLocal<Long> DEADLINE_NANOS = new ThreadLocal<>();
+
+    private RequestDeadline() {
+    }
+
+    public static void set(long timeoutMs) {
+        DEADLINE_NANOS.set(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+    }
+
+    static void setDeadlineNanos(long deadlineNanos) {
+        DEADLINE_NANOS.set(deadlineNanos);
+    }
+
+    public static void clear() {
+        DEADLINE_NANOS.remove();
+    }
+
+    public static OptionalLong remainingMillis() {
+        Long deadlineNanos = DEADLINE_NANOS.get();
+        if (deadlineNanos == null) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+    }
+
+    /**
+     * Deadline cho một lời gọi đi: timeout của target, nhưng không vượt quá deadline của request đang xử lý
+     */
+    static long effectiveDeadlineNanos(long timeoutMs) {
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        Long inbound = DEADLINE_NANOS.get();
+        return inbound != null && inbound - deadlineNanos < 0 ? inbound : deadlineNanos;
+    }
+}
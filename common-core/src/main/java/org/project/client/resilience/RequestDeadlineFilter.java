@@ -0,0 +1,45 @@
+package org.project.client.resilience;
+
+import java.io.IOException;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Đọc deadline do service gọi tới gửi kèm, các lời gọi đi trong cùng request sẽ không vượt quá deadline này.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestDeadlineFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String header = request.getHeader(RequestDeadline.HEADER);
+        if (header == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        try {
+            RequestDeadline.set(Long.parseLong(header.trim()));
+        } catch (NumberFormatException e) {
+            log.debug("Header {} không hợp lệ: {}", RequestDeadline.HEADER, header);
+        }
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestDeadline.clear();
+        }
+    }
+}
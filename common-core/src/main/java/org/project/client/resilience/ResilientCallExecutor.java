@@ -0,0 +1,268 @@
+package org.project.client.resilience;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import org.project.config.ServiceClientProperties;
+import org.project.exception.CustomException;
+import org.project.exception.ExternalServiceException;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bọc mọi lời gọi giữa service: circuit breaker và bulkhead theo target, deadline thay cho retry cố định,
+ * hedged request cho GET dựa trên histogram độ trễ theo endpoint.
+ * Lời gọi chạy trên virtual thread, thread của caller chỉ chờ tối đa tới deadline rồi trả lỗi.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ResilientCallExecutor {
+
+    private static final Pattern ID_SEGMENT = Pattern.compile(
+            "/([0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}|\\d+)(?=/|$)");
+
+    // Cần đủ mẫu thì p95 mới đáng tin để làm ngưỡng hedge
+    private static final long HEDGE_MIN_SAMPLES = 20;
+
+    private final ServiceClientProperties properties;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, TargetGuard> guards = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    private record TargetGuard(ServiceClientProperties.Target settings, CircuitBreaker breaker, Semaphore bulkhead) {
+    }
+
+    public <T> T execute(String target, HttpMethod method, String url, Supplier<T> call) {
+        TargetGuard guard = guards.computeIfAbsent(target, this::createGuard);
+        LatencyHistogram histogram = histograms.computeIfAbsent(
+                endpointKey(target, method, url), key -> new LatencyHistogram());
+        long deadlineNanos = RequestDeadline.effectiveDeadlineNanos(guard.settings().getTimeoutMs());
+
+        if (!guard.breaker().tryAcquirePermission()) {
+            throw new CircuitOpenException(target);
+        }
+        if (!guard.bulkhead().tryAcquire()) {
+            guard.breaker().releasePermission();
+            log.warn("Bulkhead {} đầy, từ chối {} {}", target, method, url);
+            throw new BulkheadFullException(target);
+        }
+
+        long startNanos = System.nanoTime();
+        InFlightCall<T> inFlight = new InFlightCall<>(call, deadlineNanos, guard.bulkhead(), histogram);
+        try {
+            inFlight.launch(executor);
+
+            if (method == HttpMethod.GET && Boolean.TRUE.equals(guard.settings().getHedgeEnabled())) {
+                long hedgeDelayNanos = Math.min(hedgeDelayNanos(guard.settings(), histogram),
+                        deadlineNanos - System.nanoTime());
+                if (!inFlight.awaitQuietly(hedgeDelayNanos) && guard.breaker().getState() == CircuitBreaker.State.CLOSED
+                        && guard.bulkhead().tryAcquire()) {
+                    log.debug("Gửi hedged request tới {} {}", target, url);
+                    inFlight.launch(executor);
+                }
+            }
+
+            T value = inFlight.await(deadlineNanos - System.nanoTime());
+            guard.breaker().onSuccess(System.nanoTime() - startNanos);
+            return value;
+        } catch (TimeoutException e) {
+            guard.breaker().onFailure();
+            log.warn("{} {} {} vượt deadline", target, method, url);
+            throw new DeadlineExceededException(target);
+        } catch (RuntimeException e) {
+            if (isTargetFailure(e)) {
+                guard.breaker().onFailure();
+            } else {
+                guard.breaker().onSuccess(System.nanoTime() - startNanos);
+            }
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            guard.breaker().releasePermission();
+            throw new ExternalServiceException(String.format("Lời gọi tới %s bị ngắt", target), e);
+        } finally {
+            inFlight.cancelAll();
+        }
+    }
+
+    public CircuitBreaker.State circuitState(String target) {
+        TargetGuard guard = guards.get(target);
+        return guard != null ? guard.breaker().getState() : CircuitBreaker.State.CLOSED;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private TargetGuard createGuard(String target) {
+        ServiceClientProperties.Target settings = properties.targetOrDefaults(target);
+        log.info("Khởi tạo guard cho {}: timeout={}ms, maxConcurrentCalls={}",
+                target, settings.getTimeoutMs(), settings.getMaxConcurrentCalls());
+        return new TargetGuard(settings, new CircuitBreaker(target, settings),
+                new Semaphore(settings.getMaxConcurrentCalls()));
+    }
+
+    private long hedgeDelayNanos(ServiceClientProperties.Target settings, LatencyHistogram histogram) {
+        long delayMicros = TimeUnit.MILLISECONDS.toMicros(settings.getHedgeDelayMs());
+        if (histogram.count() >= HEDGE_MIN_SAMPLES) {
+            delayMicros = Math.max(delayMicros, histogram.percentileMicros(0.95));
+        }
+        return TimeUnit.MICROSECONDS.toNanos(delayMicros);
+    }
+
+    /**
+     * Phân loại theo HTTP status: mọi phản hồi 4xx (kể cả 409 khi tranh slot) nghĩa là service phía sau
+     * vẫn trả lời bình thường nên không tính vào circuit breaker; 5xx, mất kết nối và lỗi không có status thì tính.
+     */
+    static boolean isTargetFailure(RuntimeException e) {
+        HttpStatusCode statusCode = null;
+        if (e instanceof CustomException) {
+            return false;
+        } else if (e instanceof ExternalServiceException external) {
+            statusCode = external.getStatusCode();
+        } else if (e instanceof RestClientResponseException response) {
+            statusCode = response.getStatusCode();
+        } else if (!(e instanceof ResourceAccessException)) {
+            // Lỗi phát sinh trong code của caller, không phải do service đích
+            return false;
+        }
+        return statusCode == null || !statusCode.is4xxClientError();
+    }
+
+    static String endpointKey(String target, HttpMethod method, String url) {
+        String path = url;
+        try {
+            URI uri = URI.create(url);
+            if (uri.getRawPath() != null) {
+                path = uri.getRawPath();
+            }
+        } catch (IllegalArgumentException e) {
+            int query = url.indexOf('?');
+            path = query >= 0 ? url.substring(0, query) : url;
+        }
+        return target + " " + method.name() + " " + ID_SEGMENT.matcher(path).replaceAll("/{id}");
+    }
+
+    /**
+     * Một lời gọi logic gồm lần gửi đầu và có thể thêm một hedged request, kết quả thành công đầu tiên được dùng.
+     * Mỗi lần gửi giữ một permit của bulkhead cho tới khi kết thúc thật sự.
+     */
+    private static final class InFlightCall<T> {
+
+        private final Supplier<T> call;
+        private final long deadlineNanos;
+        private final Semaphore bulkhead;
+        private final LatencyHistogram histogram;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final List<Attempt> attempts = new ArrayList<>(2);
+
+        private InFlightCall(Supplier<T> call, long deadlineNanos, Semaphore bulkhead, LatencyHistogram histogram) {
+            this.call = call;
+            this.deadlineNanos = deadlineNanos;
+            this.bulkhead = bulkhead;
+            this.histogram = histogram;
+        }
+
+        /**
+         * Gọi khi đã giữ sẵn một permit của bulkhead
+         */
+        void launch(ExecutorService executor) {
+            pending.incrementAndGet();
+            Attempt attempt = new Attempt();
+            attempts.add(attempt);
+            attempt.future = executor.submit(attempt);
+        }
+
+        boolean awaitQuietly(long timeoutNanos) throws InterruptedException {
+            if (timeoutNanos <= 0) {
+                return result.isDone();
+            }
+            try {
+                result.get(timeoutNanos, TimeUnit.NANOSECONDS);
+            } catch (ExecutionException | TimeoutException e) {
+                return result.isDone();
+            }
+            return true;
+        }
+
+        T await(long timeoutNanos) throws InterruptedException, TimeoutException {
+            if (timeoutNanos <= 0 && !result.isDone()) {
+                throw new TimeoutException();
+            }
+            try {
+                return result.get(Math.max(0, timeoutNanos), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw new ExternalServiceException(e.getCause().getMessage(), e.getCause());
+            }
+        }
+
+        void cancelAll() {
+            for (Attempt attempt : attempts) {
+                if (attempt.started.compareAndSet(false, true)) {
+                    // Chưa kịp chạy thì không bao giờ chạy nữa, trả permit thay cho nó
+                    bulkhead.release();
+                }
+                attempt.future.cancel(true);
+            }
+        }
+
+        private final class Attempt implements Runnable {
+
+            private final AtomicBoolean started = new AtomicBoolean();
+            private volatile Future<?> future;
+
+            @Override
+            public void run() {
+                if (!started.compareAndSet(false, true)) {
+                    return;
+                }
+                long startNanos = System.nanoTime();
+                RequestDeadline.setDeadlineNanos(deadlineNanos);
+                try {
+                    T value = call.get();
+                    histogram.record(System.nanoTime() - startNanos);
+                    result.complete(value);
+                } catch (RuntimeException e) {
+                    if (!Thread.currentThread().isInterrupted()) {
+                        histogram.record(System.nanoTime() - startNanos);
+                    }
+                    if (pending.decrementAndGet() == 0) {
+                        result.completeExceptionally(e);
+                    }
+                } finally {
+                    RequestDeadline.clear();
+                    bulkhead.release();
+                }
+            }
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package org.project.config;
 
+import org.project.client.resilience.DeadlineHeaderInterceptor;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.retry.annotation.EnableRetry;
 import org.springframework.web.client.RestTemplate;
 
@@ -12,7 +14,13 @@ public class RestTemplateConfig {
 
     @Bean
     @LoadBalanced
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(ServiceClientProperties serviceClientProperties) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(serviceClientProperties.getConnectTimeoutMs());
+        requestFactory.setReadTimeout(serviceClientProperties.getReadTimeoutMs());
+
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        restTemplate.getInterceptors().add(new DeadlineHeaderInterceptor());
+        return restTemplate;
     }
 }
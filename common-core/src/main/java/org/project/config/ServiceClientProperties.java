@@ -0,0 +1,93 @@
+package org.project.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Cấu hình cho các lời gọi giữa service (BaseServiceClient).
+ * Mỗi target (tên service viết thường, nối bằng gạch ngang, ví dụ scheduling-service) có thể ghi đè giá trị mặc định.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "service-client")
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ServiceClientProperties {
+
+    int connectTimeoutMs = 2000;
+
+    // Giới hạn cứng cho socket, deadline của từng lời gọi luôn nhỏ hơn
+    int readTimeoutMs = 30000;
+
+    Target defaults = Target.builtIn();
+
+    Map<String, Target> targets = new HashMap<>();
+
+    public Target targetOrDefaults(String target) {
+        return Target.merge(targets.get(target), defaults);
+    }
+
+    @Data
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Target {
+        // Thời gian tối đa cho một lời gọi khi request đến không mang deadline
+        Long timeoutMs;
+        // Số lời gọi đồng thời tối đa tới target, vượt quá thì từ chối ngay
+        Integer maxConcurrentCalls;
+        Integer slidingWindowSize;
+        Integer minimumCalls;
+        Integer failureRatePercent;
+        // Lời gọi thành công nhưng chậm hơn ngưỡng này cũng tính là lỗi
+        Long slowCallMs;
+        Long openDurationMs;
+        Integer halfOpenCalls;
+        Boolean hedgeEnabled;
+        // Độ trễ tối thiểu trước khi gửi request dự phòng cho GET
+        Long hedgeDelayMs;
+
+        static Target builtIn() {
+            Target target = new Target();
+            target.timeoutMs = 3000L;
+            target.maxConcurrentCalls = 20;
+            target.slidingWindowSize = 20;
+            target.minimumCalls = 10;
+            target.failureRatePercent = 50;
+            target.slowCallMs = 2000L;
+            target.openDurationMs = 10000L;
+            target.halfOpenCalls = 3;
+            target.hedgeEnabled = true;
+            target.hedgeDelayMs = 50L;
+            return target;
+        }
+
+        static Target merge(Target override, Target defaults) {
+            Target builtIn = builtIn();
+            Target base = defaults != null ? defaults : builtIn;
+            Target merged = new Target();
+            merged.timeoutMs = pick(override != null ? override.timeoutMs : null, base.timeoutMs, builtIn.timeoutMs);
+            merged.maxConcurrentCalls = pick(override != null ? override.maxConcurrentCalls : null, base.maxConcurrentCalls, builtIn.maxConcurrentCalls);
+            merged.slidingWindowSize = pick(override != null ? override.slidingWindowSize : null, base.slidingWindowSize, builtIn.slidingWindowSize);
+            merged.minimumCalls = pick(override != null ? override.minimumCalls : null, base.minimumCalls, builtIn.minimumCalls);
+            merged.failureRatePercent = pick(override != null ? override.failureRatePercent : null, base.failureRatePercent, builtIn.failureRatePercent);
+            merged.slowCallMs = pick(override != null ? override.slowCallMs : null, base.slowCallMs, builtIn.slowCallMs);
+            merged.openDurationMs = pick(override != null ? override.openDurationMs : null, base.openDurationMs, builtIn.openDurationMs);
+            merged.halfOpenCalls = pick(override != null ? override.halfOpenCalls : null, base.halfOpenCalls, builtIn.halfOpenCalls);
+            merged.hedgeEnabled = pick(override != null ? override.hedgeEnabled : null, base.hedgeEnabled, builtIn.hedgeEnabled);
+            merged.hedgeDelayMs = pick(override != null ? override.hedgeDelayMs : null, base.hedgeDelayMs, builtIn.hedgeDelayMs);
+            return merged;
+        }
+
+        private static <T> T pick(T override, T base, T builtIn) {
+            if (override != null) {
+                return override;
+            }
+            return base != null ? base : builtIn;
+        }
+    }
+}
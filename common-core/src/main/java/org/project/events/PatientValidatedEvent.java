@@ -12,6 +12,7 @@ import java.util.UUID;
 @AllArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class PatientValidatedEvent {
+    String eventId;
     String sagaId;
     UUID appointmentId;
     UUID patientUserId;
@@ -12,6 +12,7 @@ import java.util.UUID;
 @AllArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class PaymentFailedEvent {
+    String eventId;
     UUID paymentId;
     UUID appointmentId;
     String transactionId;
@@ -14,6 +14,7 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 public class PaymentRefundProcessedEvent {
+    private String eventId;
     private UUID appointmentId;
     private UUID paymentId;
     private UUID userId;
@@ -0,0 +1,31 @@
+package org.project.events;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.UUID;
+
+/**
+ * Phát bởi auth-service khi một token bị đưa vào blacklist (TOKEN)
+ * hoặc toàn bộ token của một user bị vô hiệu hóa từ một mốc thời gian (USER_CUTOFF),
+ * hoặc trạng thái hoạt động của user thay đổi (USER_STATE_CHANGED).
+ * Mọi mốc thời gian là epoch millis.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class TokenRevocationEvent {
+    Type type;
+    UUID userId;
+    String tokenHash;
+    long expiresAt;
+    long invalidBefore;
+
+    public enum Type {
+        TOKEN,
+        USER_CUTOFF,
+        USER_STATE_CHANGED
+    }
+}
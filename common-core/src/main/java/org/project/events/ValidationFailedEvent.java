@@ -12,6 +12,7 @@ import java.util.UUID;
 @AllArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class ValidationFailedEvent {
+    String eventId;
     String sagaId;
     UUID appointmentId;
     String reason;
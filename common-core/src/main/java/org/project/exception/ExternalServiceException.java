@@ -1,11 +1,26 @@
 package org.project.exception;
 
+import org.springframework.http.HttpStatusCode;
+
+import lombok.Getter;
+
+@Getter
 public class ExternalServiceException extends RuntimeException {
+    // Status service đích trả về, null khi không nhận được phản hồi (timeout, mất kết nối)
+    private final HttpStatusCode statusCode;
+
     public ExternalServiceException(String message) {
         super(message);
+        this.statusCode = null;
     }
 
     public ExternalServiceException(String message, Throwable cause) {
         super(message, cause);
+        this.statusCode = null;
+    }
+
+    public ExternalServiceException(String message, HttpStatusCode statusCode) {
+        super(message);
+        this.statusCode = statusCode;
     }
 }
@@ -0,0 +1,50 @@
+package org.project.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Bật outbox cho service có bảng outbox_events bằng outbox.enabled=true,
+ * service chỉ cần khai báo một {@link OutboxEventMapping}.
+ * Entity {@link OutboxEvent} và {@link OutboxEventRepository} cũng chỉ được đăng ký khi bật,
+ * service khác không nhận thêm entity hay repository nào từ common-core.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "outbox", name = "enabled", havingValue = "true")
+public class OutboxConfiguration {
+    static final String MAPPING_FILE = "META-INF/outbox-orm.xml";
+
+    @Bean
+    public EntityManagerFactoryBuilderCustomizer outboxEntityCustomizer() {
+        return builder -> builder.setPersistenceUnitPostProcessors(
+                persistenceUnit -> persistenceUnit.addMappingFileName(MAPPING_FILE));
+    }
+
+    @Bean
+    public OutboxService outboxService(OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper) {
+        return new OutboxServiceImpl(outboxEventRepository, objectMapper);
+    }
+
+    @Bean
+    public OutboxEventPublisher outboxEventPublisher(OutboxEventRepository outboxEventRepository,
+                                                     KafkaTemplate<String, Object> kafkaTemplate,
+                                                     OutboxEventMapping outboxEventMapping,
+                                                     ObjectMapper objectMapper,
+                                                     TransactionTemplate transactionTemplate) {
+        return new OutboxEventPublisher(outboxEventRepository, kafkaTemplate, outboxEventMapping,
+                objectMapper, transactionTemplate);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "outbox.relay", name = "listen-enabled", havingValue = "true", matchIfMissing = true)
+    public OutboxNotificationListener outboxNotificationListener(DataSourceProperties dataSourceProperties,
+                                                                 OutboxEventPublisher outboxEventPublisher) {
+        return new OutboxNotificationListener(dataSourceProperties, outboxEventPublisher);
+    }
+}
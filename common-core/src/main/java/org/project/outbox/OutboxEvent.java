@@ -1,26 +1,28 @@
-package org.project.model;
+package org.project.outbox;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import io.hypersistence.utils.hibernate.type.json.JsonBinaryType;
 import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
-import org.hibernate.annotations.Type;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
 
-@Entity
-@Data
+/**
+ * Dòng của bảng outbox_events. Không đánh dấu @Entity để entity scan mặc định của các service
+ * không nhận class này; {@link OutboxConfiguration} đăng ký nó qua META-INF/outbox-orm.xml khi outbox.enabled=true.
+ */
+@Table(name = "outbox_events")
+@Getter
+@Setter
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "outbox_events")
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class OutboxEvent {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
     UUID id;
 
     @Column(name = "event_id", nullable = false, unique = true)
@@ -35,19 +37,19 @@ public class OutboxEvent {
     @Column(name = "event_type", nullable = false)
     String eventType;
 
-    // JSONB payload
-    @Type(JsonBinaryType.class)
+    // JSONB payload, relay đọc lại thành event theo event_type
+    @JdbcTypeCode(SqlTypes.JSON)
     @Column(columnDefinition = "jsonb", nullable = false)
-    JsonNode payload;
+    String payload;
 
     @Column(nullable = false)
-    Boolean processed = false;
+    Boolean processed;
 
     @Column(name = "processed_at")
     LocalDateTime processedAt;
 
     @Column(name = "retry_count")
-    Integer retryCount = 0;
+    Integer retryCount;
 
     @Column(name = "error_message", columnDefinition = "TEXT")
     String errorMessage;
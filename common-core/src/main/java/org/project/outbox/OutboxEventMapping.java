@@ -0,0 +1,12 @@
+package org.project.outbox;
+
+/**
+ * Phần riêng của mỗi service trong outbox: event_type nào phát lên topic nào và đọc payload thành class nào.
+ * Event_type không xác định thì ném {@link IllegalArgumentException}, relay đánh dấu sự kiện thất bại.
+ */
+public interface OutboxEventMapping {
+
+    String topicFor(String eventType);
+
+    Class<?> eventClassFor(String eventType);
+}
@@ -0,0 +1,263 @@
+package org.project.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Relay phát sự kiện outbox lên Kafka, dùng chung cho mọi service; topic và kiểu event lấy từ {@link OutboxEventMapping}.
+ * Mỗi lô được giành bằng FOR UPDATE SKIP LOCKED trong một transaction, gửi bất đồng bộ với số message
+ * đang chờ ack giới hạn bởi maxInFlight, rồi đánh dấu kết quả bằng một câu UPDATE cho cả lô trước khi commit.
+ * Việc chờ slot in-flight và chờ ack cùng chung hạn sendTimeoutMs nên transaction của một lô không bị giữ quá hạn đó.
+ * Nhiều instance có thể chạy relay cùng lúc, mỗi sự kiện chỉ thuộc về một lô tại một thời điểm.
+ * Sự kiện chỉ được đánh dấu đã xử lý khi có ack, lỗi từ Kafka không làm mất sự kiện (at-least-once).
+ */
+@Slf4j
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class OutboxEventPublisher {
+    OutboxEventRepository outboxEventRepository;
+    KafkaTemplate<String, Object> kafkaTemplate;
+    OutboxEventMapping mapping;
+    ObjectMapper objectMapper;
+    TransactionTemplate transactionTemplate;
+
+    static final int MAX_RETRY_COUNT = 5;
+
+    @NonFinal
+    @Value("${outbox.relay.batch-size:200}")
+    int batchSize;
+
+    @NonFinal
+    @Value("${outbox.relay.max-in-flight:100}")
+    int maxInFlight;
+
+    @NonFinal
+    @Value("${outbox.relay.send-timeout-ms:10000}")
+    long sendTimeoutMs;
+
+    @NonFinal
+    Semaphore inFlight;
+
+    AtomicBoolean draining = new AtomicBoolean(false);
+    AtomicBoolean wakeupRequested = new AtomicBoolean(false);
+
+    @PostConstruct
+    public void init() {
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Được gọi bởi NOTIFY listener khi có sự kiện mới commit, poll định kỳ chỉ là dự phòng.
+     * Lời gọi đến trong lúc đang drain không chạy song song mà khiến lượt drain hiện tại giành thêm một vòng.
+     */
+    @Scheduled(fixedDelayString = "${outbox.relay.poll-interval-ms:5000}", initialDelay = 10000)
+    public void publishPendingEvents() {
+        wakeupRequested.set(true);
+        while (wakeupRequested.get() && draining.compareAndSet(false, true)) {
+            try {
+                while (wakeupRequested.getAndSet(false)) {
+                    drain();
+                }
+            } finally {
+                draining.set(false);
+            }
+        }
+    }
+
+    private void drain() {
+        // Lô đầy và phát thành công hết nghĩa là còn tồn đọng, giành tiếp thay vì chờ lần chạy sau.
+        // Kafka lỗi thì dừng lại, lần poll sau thử lại thay vì giành lại ngay các sự kiện vừa lỗi
+        int published;
+        do {
+            published = relayBatch();
+        } while (published >= batchSize);
+    }
+
+    /**
+     * Giành, gửi và đánh dấu một lô sự kiện trong một transaction, trả về số sự kiện đã phát thành công
+     */
+    public int relayBatch() {
+        Integer published = transactionTemplate.execute(status -> {
+            List<OutboxEvent> batch = outboxEventRepository.claimPendingBatch(MAX_RETRY_COUNT, batchSize);
+            if (batch.isEmpty()) {
+                return 0;
+            }
+
+            List<UUID> succeeded = Collections.synchronizedList(new ArrayList<>());
+            // Sự kiện không thể chuyển thành message, tính vào số lần thử tối đa
+            Map<UUID, String> failed = new ConcurrentHashMap<>();
+            // Kafka từ chối hoặc không phản hồi, gửi lại không giới hạn để không mất sự kiện
+            Map<UUID, String> sendErrors = new ConcurrentHashMap<>();
+            List<CompletableFuture<SendResult<String, Object>>> futures = new ArrayList<>(batch.size());
+            long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+
+            for (OutboxEvent event : batch) {
+                String topic;
+                Object eventPayload;
+                try {
+                    topic = mapping.topicFor(event.getEventType());
+                    eventPayload = objectMapper.readValue(event.getPayload(),
+                            mapping.eventClassFor(event.getEventType()));
+                } catch (Exception e) {
+                    log.error("Sự kiện không hợp lệ: eventId={}", event.getEventId(), e);
+                    failed.put(event.getId(), String.valueOf(e.getMessage()));
+                    continue;
+                }
+
+                // Hết hạn mà chưa có slot in-flight (broker chậm ack) thì dừng lô, các sự kiện chưa gửi
+                // không được đánh dấu và sẽ được giành lại ở lô sau
+                try {
+                    if (!inFlight.tryAcquire(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                        log.warn("Hết {}ms chờ slot in-flight, dừng lô outbox sau {}/{} sự kiện",
+                                sendTimeoutMs, futures.size(), batch.size());
+                        break;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+
+                try {
+                    futures.add(publishEvent(event, topic, eventPayload).whenComplete((result, ex) -> {
+                        inFlight.release();
+                        if (ex == null) {
+                            succeeded.add(event.getId());
+                        } else {
+                            sendErrors.put(event.getId(), String.valueOf(ex.getMessage()));
+                        }
+                    }));
+                } catch (Exception e) {
+                    inFlight.release();
+                    log.error("Lỗi khi phát sự kiện: eventId={}", event.getEventId(), e);
+                    sendErrors.put(event.getId(), String.valueOf(e.getMessage()));
+                }
+            }
+
+            awaitAcks(futures, deadlineNanos);
+
+            // Sự kiện chưa có ack sau sendTimeoutMs không được đánh dấu, lô sau sẽ gửi lại
+            List<UUID> processedIds;
+            synchronized (succeeded) {
+                processedIds = new ArrayList<>(succeeded);
+            }
+            if (!processedIds.isEmpty()) {
+                outboxEventRepository.markProcessed(processedIds, LocalDateTime.now());
+            }
+            if (!failed.isEmpty()) {
+                markFailed(batch, failed);
+            }
+            if (!sendErrors.isEmpty()) {
+                recordSendErrors(sendErrors);
+            }
+
+            log.info("Đã phát {}/{} sự kiện outbox, {} không hợp lệ, {} lỗi gửi",
+                    processedIds.size(), batch.size(), failed.size(), sendErrors.size());
+            return processedIds.size();
+        });
+        return published != null ? published : 0;
+    }
+
+    private void awaitAcks(List<CompletableFuture<SendResult<String, Object>>> futures, long deadlineNanos) {
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                    .get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Hết {}ms chờ Kafka ack cho lô outbox, các sự kiện chưa có ack sẽ được gửi lại", sendTimeoutMs);
+        } catch (ExecutionException e) {
+            // Lỗi của từng sự kiện đã được ghi nhận trong whenComplete
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void markFailed(List<OutboxEvent> batch, Map<UUID, String> failed) {
+        UUID[] ids = new UUID[failed.size()];
+        String[] errors = new String[failed.size()];
+        int i = 0;
+        for (OutboxEvent event : batch) {
+            String error = failed.get(event.getId());
+            if (error == null || i == ids.length) {
+                continue;
+            }
+            ids[i] = event.getId();
+            errors[i] = error;
+            i++;
+
+            int retryCount = event.getRetryCount() != null ? event.getRetryCount() + 1 : 1;
+            if (retryCount >= MAX_RETRY_COUNT) {
+                log.error("Sự kiện vượt quá số lần thử tối đa: eventId={}, số lần thử={}",
+                        event.getEventId(), retryCount);
+            } else {
+                log.warn("Phát sự kiện thất bại: eventId={}, số lần thử={}, lỗi={}",
+                        event.getEventId(), retryCount, error);
+            }
+        }
+        outboxEventRepository.markFailed(Arrays.copyOf(ids, i), Arrays.copyOf(errors, i));
+    }
+
+    private void recordSendErrors(Map<UUID, String> sendErrors) {
+        // Ack đến muộn vẫn có thể ghi vào map, chụp lại trước khi chuyển thành mảng
+        List<Map.Entry<UUID, String>> errors = List.copyOf(sendErrors.entrySet());
+        UUID[] ids = new UUID[errors.size()];
+        String[] messages = new String[errors.size()];
+        for (int i = 0; i < errors.size(); i++) {
+            ids[i] = errors.get(i).getKey();
+            messages[i] = errors.get(i).getValue();
+        }
+        log.warn("Kafka từ chối {} sự kiện outbox, sẽ gửi lại ở lần poll sau: {}", ids.length, messages[0]);
+        outboxEventRepository.recordSendErrors(ids, messages);
+    }
+
+    private CompletableFuture<SendResult<String, Object>> publishEvent(OutboxEvent outboxEvent, String topic,
+                                                                      Object eventPayload) {
+        String key = outboxEvent.getAggregateId().toString();
+
+        return kafkaTemplate.send(topic, key, eventPayload)
+                .whenComplete((result, ex) -> {
+                    if (ex == null && log.isDebugEnabled()) {
+                        log.debug("Đã phát sự kiện: eventId={}, loại={}, partition={}, offset={}",
+                                outboxEvent.getEventId(),
+                                outboxEvent.getEventType(),
+                                result.getRecordMetadata().partition(),
+                                result.getRecordMetadata().offset());
+                    }
+                });
+    }
+
+    /**
+     * Dọn dẹp các sự kiện đã xử lý cũ - chạy hàng ngày lúc 2 giờ sáng
+     */
+    @Scheduled(cron = "0 0 2 * * ?")
+    @Transactional
+    public void cleanupOldEvents() {
+        LocalDateTime cutoffDate = LocalDateTime.now().minusDays(7);
+        int deleted = outboxEventRepository.deleteOldProcessedEvents(cutoffDate);
+        log.info("Đã dọn dẹp {} sự kiện outbox cũ", deleted);
+    }
+}
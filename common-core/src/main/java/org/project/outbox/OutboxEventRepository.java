@@ -0,0 +1,91 @@
+package org.project.outbox;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Chỉ được tạo ở service bật outbox.enabled, các service khác không có bảng outbox_events
+ */
+@Repository
+@ConditionalOnProperty(prefix = "outbox", name = "enabled", havingValue = "true")
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, UUID> {
+
+    // Mỗi service có database riêng nên dùng chung tên kênh không bị lẫn thông báo
+    String NOTIFY_CHANNEL = "outbox_events";
+
+    /**
+     * Ghi cả lô sự kiện cùng loại bằng một câu INSERT. Sự kiện có event_id đã tồn tại được bỏ qua
+     * thay vì làm hỏng transaction, nên callback và job đối soát cùng ghi một sự kiện cũng không lỗi.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO outbox_events (id, event_id, aggregate_type, aggregate_id, event_type, payload, " +
+            "processed, retry_count, version, created_at) " +
+            "SELECT f.id, f.event_id, :aggregateType, f.aggregate_id, :eventType, CAST(f.payload AS jsonb), " +
+            "false, 0, 0, :createdAt " +
+            "FROM unnest(CAST(:ids AS uuid[]), CAST(:eventIds AS text[]), CAST(:aggregateIds AS uuid[]), " +
+            "CAST(:payloads AS text[])) AS f(id, event_id, aggregate_id, payload) " +
+            "ON CONFLICT (event_id) DO NOTHING", nativeQuery = true)
+    int insertAll(@Param("ids") UUID[] ids,
+                  @Param("eventIds") String[] eventIds,
+                  @Param("aggregateType") String aggregateType,
+                  @Param("aggregateIds") UUID[] aggregateIds,
+                  @Param("eventType") String eventType,
+                  @Param("payloads") String[] payloads,
+                  @Param("createdAt") LocalDateTime createdAt);
+
+    /**
+     * Gửi NOTIFY cho relay. Postgres chỉ phát thông báo khi transaction commit
+     * và gộp các thông báo trùng trong cùng transaction thành một.
+     */
+    @Query(value = "SELECT CAST(pg_notify('" + NOTIFY_CHANNEL + "', '') AS text)", nativeQuery = true)
+    String notifyPendingEvents();
+
+    /**
+     * Giành một lô sự kiện chưa phát. Các dòng đang bị instance khác khóa được bỏ qua
+     * nên nhiều relay chạy song song không phát trùng sự kiện.
+     */
+    @Query(value = "SELECT * FROM outbox_events " +
+            "WHERE processed = false AND COALESCE(retry_count, 0) < :maxRetries " +
+            "ORDER BY created_at " +
+            "LIMIT :limit " +
+            "FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboxEvent> claimPendingBatch(@Param("maxRetries") int maxRetries, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "UPDATE outbox_events " +
+            "SET processed = true, processed_at = :processedAt, version = COALESCE(version, 0) + 1 " +
+            "WHERE id IN (:ids)", nativeQuery = true)
+    int markProcessed(@Param("ids") Collection<UUID> ids, @Param("processedAt") LocalDateTime processedAt);
+
+    @Modifying
+    @Query(value = "UPDATE outbox_events e " +
+            "SET retry_count = COALESCE(e.retry_count, 0) + 1, error_message = f.error_message, " +
+            "version = COALESCE(e.version, 0) + 1 " +
+            "FROM unnest(CAST(:ids AS uuid[]), CAST(:errors AS text[])) AS f(id, error_message) " +
+            "WHERE e.id = f.id", nativeQuery = true)
+    int markFailed(@Param("ids") UUID[] ids, @Param("errors") String[] errors);
+
+    // Ghi lại lỗi gửi mà không tăng retry_count, sự kiện vẫn được giành lại ở lần poll sau
+    @Modifying
+    @Query(value = "UPDATE outbox_events e " +
+            "SET error_message = f.error_message, version = COALESCE(e.version, 0) + 1 " +
+            "FROM unnest(CAST(:ids AS uuid[]), CAST(:errors AS text[])) AS f(id, error_message) " +
+            "WHERE e.id = f.id", nativeQuery = true)
+    int recordSendErrors(@Param("ids") UUID[] ids, @Param("errors") String[] errors);
+
+    Optional<OutboxEvent> findByEventId(String eventId);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.processed = true AND e.processedAt < :cutoffDate")
+    int deleteOldProcessedEvents(@Param("cutoffDate") LocalDateTime cutoffDate);
+}
@@ -0,0 +1,120 @@
+package org.project.outbox;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Giữ một kết nối Postgres riêng (ngoài connection pool) để LISTEN kênh outbox
+ * và đánh thức relay ngay khi có sự kiện mới được commit.
+ * Mất kết nối thì tự kết nối lại, trong lúc đó poll định kỳ của relay vẫn đảm bảo sự kiện được phát.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class OutboxNotificationListener {
+    DataSourceProperties dataSourceProperties;
+    OutboxEventPublisher outboxEventPublisher;
+
+    @NonFinal
+    @Value("${outbox.relay.listen-timeout-ms:1000}")
+    int listenTimeoutMs;
+
+    @NonFinal
+    @Value("${outbox.relay.reconnect-delay-ms:5000}")
+    long reconnectDelayMs;
+
+    @NonFinal
+    volatile boolean running;
+
+    @NonFinal
+    Thread listenerThread;
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        listenerThread = Thread.ofPlatform()
+                .name("outbox-listener")
+                .daemon(true)
+                .start(this::listenLoop);
+        log.info("Đã khởi động outbox listener trên kênh {}", OutboxEventRepository.NOTIFY_CHANNEL);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+            try {
+                listenerThread.join(listenTimeoutMs * 2L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void listenLoop() {
+        while (running) {
+            try (Connection connection = openConnection()) {
+                listen(connection);
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Mất kết nối LISTEN outbox, thử lại sau {}ms: {}", reconnectDelayMs, e.getMessage());
+                try {
+                    Thread.sleep(reconnectDelayMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void listen(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("LISTEN " + OutboxEventRepository.NOTIFY_CHANNEL);
+        }
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+
+        // Sự kiện commit trong lúc chưa LISTEN sẽ không có thông báo, quét bù một lần
+        wakeRelay();
+
+        while (running) {
+            PGNotification[] notifications = pgConnection.getNotifications(listenTimeoutMs);
+            if (notifications != null && notifications.length > 0) {
+                log.debug("Nhận {} thông báo outbox", notifications.length);
+                wakeRelay();
+            }
+        }
+    }
+
+    private void wakeRelay() {
+        try {
+            outboxEventPublisher.publishPendingEvents();
+        } catch (RuntimeException e) {
+            log.error("Lỗi khi relay outbox sau thông báo", e);
+        }
+    }
+
+    protected Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(
+                dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(),
+                dataSourceProperties.determinePassword());
+    }
+}
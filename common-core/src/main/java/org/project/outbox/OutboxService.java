@@ -0,0 +1,21 @@
+package org.project.outbox;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+public interface OutboxService {
+
+    void saveEvent(String eventId, String aggregateType, UUID aggregateId,
+                   String eventType, Object eventPayload);
+
+    /**
+     * Ghi nhiều sự kiện cùng loại vào outbox trong transaction hiện tại bằng một câu lệnh
+     */
+    <T> void saveEvents(String aggregateType, String eventType, List<T> eventPayloads,
+                        Function<T, String> eventIdOf, Function<T, UUID> aggregateIdOf);
+
+    void markAsProcessed(String eventId);
+
+    void markAsFailed(String eventId, String errorMessage);
+}
@@ -0,0 +1,91 @@
+package org.project.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+@Slf4j
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class OutboxServiceImpl implements OutboxService {
+    OutboxEventRepository outboxEventRepository;
+    ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Override
+    public void saveEvent(String eventId, String aggregateType, UUID aggregateId,
+                          String eventType, Object eventPayload) {
+        saveEvents(aggregateType, eventType, List.of(eventPayload), payload -> eventId, payload -> aggregateId);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Override
+    public <T> void saveEvents(String aggregateType, String eventType, List<T> eventPayloads,
+                               Function<T, String> eventIdOf, Function<T, UUID> aggregateIdOf) {
+        if (eventPayloads.isEmpty()) {
+            return;
+        }
+
+        int size = eventPayloads.size();
+        UUID[] ids = new UUID[size];
+        String[] eventIds = new String[size];
+        UUID[] aggregateIds = new UUID[size];
+        String[] payloads = new String[size];
+        try {
+            for (int i = 0; i < size; i++) {
+                T eventPayload = eventPayloads.get(i);
+                ids[i] = UUID.randomUUID();
+                eventIds[i] = eventIdOf.apply(eventPayload);
+                aggregateIds[i] = aggregateIdOf.apply(eventPayload);
+                payloads[i] = objectMapper.writeValueAsString(eventPayload);
+            }
+        } catch (JsonProcessingException e) {
+            log.error("Lỗi khi chuyển sự kiện sang JSON: loại={}", eventType, e);
+            throw new RuntimeException("Không thể lưu sự kiện vào outbox", e);
+        }
+
+        int inserted = outboxEventRepository.insertAll(ids, eventIds, aggregateType, aggregateIds,
+                eventType, payloads, LocalDateTime.now());
+        // Đánh thức relay ngay khi transaction commit thay vì chờ lần poll sau
+        outboxEventRepository.notifyPendingEvents();
+
+        if (inserted < size) {
+            log.debug("Bỏ qua {} sự kiện {} đã tồn tại trong outbox", size - inserted, eventType);
+        }
+        log.info("Đã lưu {} sự kiện vào outbox: loại={}", inserted, eventType);
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Override
+    public void markAsProcessed(String eventId) {
+        outboxEventRepository.findByEventId(eventId)
+                .ifPresent(event -> {
+                    event.setProcessed(true);
+                    event.setProcessedAt(LocalDateTime.now());
+                    outboxEventRepository.save(event);
+                    log.debug("Đã đánh dấu đã xử lý: eventId={}", eventId);
+                });
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Override
+    public void markAsFailed(String eventId, String errorMessage) {
+        outboxEventRepository.findByEventId(eventId)
+                .ifPresent(event -> {
+                    event.setRetryCount(event.getRetryCount() + 1);
+                    event.setErrorMessage(errorMessage);
+                    outboxEventRepository.save(event);
+                    log.warn("Đã đánh dấu thất bại: eventId={}, số lần thử={}", eventId, event.getRetryCount());
+                });
+    }
+}
@@ -0,0 +1,280 @@
+package org.project.client;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntUnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.project.client.resilience.CircuitBreaker;
+import org.project.client.resilience.DeadlineHeaderInterceptor;
+import org.project.client.resilience.RequestDeadline;
+import org.project.client.resilience.ResilientCallExecutor;
+import org.project.config.ServiceClientProperties;
+import org.project.exception.CustomException;
+import org.project.exception.ExternalServiceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Fault injection với HTTP stub cục bộ: service phía sau chậm hoặc lỗi,
+ * caller phải nhận lỗi trong khoảng deadline và không bị giữ thread.
+ */
+class ResilientServiceClientTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ResilientServiceClientTest.class);
+
+    private static final String TARGET = "stub-service";
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private String baseUrl;
+    private ServiceClientProperties properties;
+    private ServiceClientProperties.Target settings;
+    private ResilientCallExecutor callExecutor;
+    private StubServiceClient client;
+
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final List<String> deadlineHeaders = new CopyOnWriteArrayList<>();
+    // Nhận số thứ tự request (bắt đầu từ 1), trả về độ trễ ms của stub
+    private volatile IntUnaryOperator latencyMs = request -> 0;
+    private volatile int status = 200;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        serverExecutor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(serverExecutor);
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        settings = new ServiceClientProperties.Target();
+        settings.setTimeoutMs(1000L);
+        settings.setMaxConcurrentCalls(10);
+        settings.setSlidingWindowSize(10);
+        settings.setMinimumCalls(5);
+        settings.setFailureRatePercent(50);
+        settings.setOpenDurationMs(60_000L);
+        settings.setHalfOpenCalls(3);
+        settings.setHedgeEnabled(false);
+
+        properties = new ServiceClientProperties();
+        properties.getTargets().put(TARGET, settings);
+        callExecutor = new ResilientCallExecutor(properties);
+
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(properties.getConnectTimeoutMs());
+        requestFactory.setReadTimeout(properties.getReadTimeoutMs());
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        restTemplate.getInterceptors().add(new DeadlineHeaderInterceptor());
+
+        client = new StubServiceClient(restTemplate);
+        client.setResilientCallExecutor(callExecutor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestDeadline.clear();
+        callExecutor.shutdown();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void brownout_ShouldFailFastWithinDeadlineAndShedLoad() throws Exception {
+        // Given: service phía sau treo 2s mỗi request, deadline 200ms, 40 thread caller như thread pool của Tomcat
+        latencyMs = request -> 2000;
+        settings.setTimeoutMs(200L);
+        int callers = 40;
+        int callsPerCaller = 5;
+        ExecutorService callerPool = Executors.newFixedThreadPool(callers);
+        AtomicLong maxCallMs = new AtomicLong();
+        AtomicInteger failures = new AtomicInteger();
+
+        // When
+        long startNanos = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            futures.add(callerPool.submit(() -> {
+                for (int call = 0; call < callsPerCaller; call++) {
+                    long callStart = System.nanoTime();
+                    try {
+                        client.fetch("/slots/1");
+                    } catch (ExternalServiceException e) {
+                        failures.incrementAndGet();
+                    }
+                    maxCallMs.accumulateAndGet(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - callStart), Math::max);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        callerPool.shutdown();
+
+        log.info("Brownout: {} lời gọi trong {} ms, chậm nhất {} ms, {} request tới stub",
+                callers * callsPerCaller, elapsedMs, maxCallMs.get(), requestCount.get());
+
+        // Then: không lời gọi nào chờ quá deadline đáng kể, thread caller được giải phóng ngay
+        assertThat(failures.get()).isEqualTo(callers * callsPerCaller);
+        assertThat(maxCallMs.get()).isLessThan(500);
+        assertThat(elapsedMs).isLessThan(1500);
+        // Bulkhead và circuit breaker chặn phần lớn tải trước khi tới service đang quá tải
+        assertThat(requestCount.get()).isLessThanOrEqualTo(20);
+        assertThat(callExecutor.circuitState(TARGET)).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void hedgedGet_ShouldReturnFasterResponseWhenFirstRequestStalls() {
+        // Given: request đầu tiên bị treo 1s, request dự phòng trả về ngay
+        latencyMs = request -> request == 1 ? 1000 : 0;
+        settings.setTimeoutMs(2000L);
+        settings.setHedgeEnabled(true);
+        settings.setHedgeDelayMs(50L);
+
+        // When
+        long startNanos = System.nanoTime();
+        String body = client.fetch("/doctors/1");
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        // Then
+        assertThat(body).isEqualTo("ok");
+        assertThat(elapsedMs).isLessThan(500);
+        assertThat(requestCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    void inboundDeadline_ShouldBePropagatedDownstream() {
+        // Given: request đến chỉ còn 150ms dù target cho phép 3s
+        settings.setTimeoutMs(3000L);
+        RequestDeadline.set(150);
+
+        // When
+        client.fetch("/doctors/1");
+
+        // Then
+        assertThat(deadlineHeaders).hasSize(1);
+        long propagated = Long.parseLong(deadlineHeaders.get(0));
+        assertThat(propagated).isPositive().isLessThanOrEqualTo(150);
+    }
+
+    @Test
+    void halfOpen_ShouldCloseAfterSuccessfulProbes() throws InterruptedException {
+        // Given: service lỗi 5xx làm circuit mở
+        settings.setOpenDurationMs(200L);
+        status = 500;
+        for (int i = 0; i < 5; i++) {
+            assertThatThrownBy(() -> client.fetch("/slots/1")).isInstanceOf(ExternalServiceException.class);
+        }
+        assertThat(callExecutor.circuitState(TARGET)).isEqualTo(CircuitBreaker.State.OPEN);
+        int requestsWhileClosed = requestCount.get();
+        assertThatThrownBy(() -> client.fetch("/slots/1")).isInstanceOf(ExternalServiceException.class);
+        assertThat(requestCount.get()).isEqualTo(requestsWhileClosed);
+
+        // When: service hồi phục và hết openDuration
+        status = 200;
+        Thread.sleep(250);
+        for (int i = 0; i < 3; i++) {
+            assertThat(client.fetch("/slots/1")).isEqualTo("ok");
+        }
+
+        // Then
+        assertThat(callExecutor.circuitState(TARGET)).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void clientErrors_ShouldNotOpenCircuit() {
+        // Given
+        status = 404;
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            assertThatThrownBy(() -> client.fetch("/doctors/1")).isInstanceOf(CustomException.class);
+        }
+
+        // Then
+        assertThat(callExecutor.circuitState(TARGET)).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(requestCount.get()).isEqualTo(20);
+    }
+
+    @Test
+    void conflict_ShouldNotOpenCircuit() {
+        // Given: 409 khi slot đã bị người khác giữ, đi qua ExternalServiceException thay vì CustomException
+        status = 409;
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            assertThatThrownBy(() -> client.fetch("/slots/1/reserve"))
+                    .isInstanceOf(ExternalServiceException.class)
+                    .extracting(e -> ((ExternalServiceException) e).getStatusCode().value())
+                    .isEqualTo(409);
+        }
+
+        // Then
+        assertThat(callExecutor.circuitState(TARGET)).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(requestCount.get()).isEqualTo(20);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int request = requestCount.incrementAndGet();
+        String deadline = exchange.getRequestHeaders().getFirst(RequestDeadline.HEADER);
+        if (deadline != null) {
+            deadlineHeaders.add(deadline);
+        }
+        try {
+            long delay = latencyMs.applyAsInt(request);
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+            byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // Caller đã bỏ cuộc và đóng kết nối
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private class StubServiceClient extends BaseServiceClient {
+
+        StubServiceClient(RestTemplate restTemplate) {
+            super(restTemplate);
+        }
+
+        @Override
+        protected String getServiceName() {
+            return "Stub Service";
+        }
+
+        String fetch(String path) {
+            return get(baseUrl + path, String.class);
+        }
+    }
+}
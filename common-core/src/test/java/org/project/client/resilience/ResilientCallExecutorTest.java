@@ -0,0 +1,46 @@
+package org.project.client.resilience;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+import org.project.exception.CustomException;
+import org.project.exception.ErrorCode;
+import org.project.exception.ExternalServiceException;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+class ResilientCallExecutorTest {
+
+    @Test
+    void endpointKey_ShouldGroupRequestsByEndpointTemplate() {
+        // When
+        String withQuery = ResilientCallExecutor.endpointKey("stub-service", HttpMethod.GET,
+                "http://stub/doctors/" + UUID.randomUUID() + "?date=2025-01-01");
+        String nested = ResilientCallExecutor.endpointKey("stub-service", HttpMethod.GET,
+                "http://stub/doctors/" + UUID.randomUUID() + "/slots");
+        String numeric = ResilientCallExecutor.endpointKey("stub-service", HttpMethod.GET, "http://stub/doctors/42");
+
+        // Then
+        assertThat(withQuery).isEqualTo("stub-service GET /doctors/{id}").isEqualTo(numeric);
+        assertThat(nested).isEqualTo("stub-service GET /doctors/{id}/slots");
+    }
+
+    @Test
+    void isTargetFailure_ShouldClassifyByHttpStatus() {
+        // 4xx: service đích vẫn trả lời bình thường
+        assertThat(ResilientCallExecutor.isTargetFailure(new CustomException(ErrorCode.INVALID_REQUEST))).isFalse();
+        assertThat(ResilientCallExecutor.isTargetFailure(
+                new ExternalServiceException("slot đã được giữ", HttpStatus.CONFLICT))).isFalse();
+        assertThat(ResilientCallExecutor.isTargetFailure(
+                new ExternalServiceException("quá nhiều request", HttpStatus.TOO_MANY_REQUESTS))).isFalse();
+
+        // 5xx, mất kết nối hoặc không có status
+        assertThat(ResilientCallExecutor.isTargetFailure(
+                new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE))).isTrue();
+        assertThat(ResilientCallExecutor.isTargetFailure(new ResourceAccessException("connection refused"))).isTrue();
+        assertThat(ResilientCallExecutor.isTargetFailure(new ExternalServiceException("lỗi 5xx"))).isTrue();
+    }
+}
@@ -0,0 +1,183 @@
+package org.project.outbox;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.project.outbox.OutboxRelayFakes.FakeKafkaTemplate;
+import org.project.outbox.OutboxRelayFakes.InMemoryOutbox;
+import org.project.outbox.OutboxRelayFakes.InMemoryTransactionTemplate;
+import org.project.outbox.OutboxRelayFakes.TestEvent;
+import org.project.outbox.OutboxRelayFakes.TestEventMapping;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Relay outbox khi Kafka lỗi hoặc không ack: sự kiện không bị loại khỏi hàng đợi và lượt drain luôn kết thúc.
+ */
+class OutboxEventPublisherTest {
+
+    private static final int BATCH_SIZE = 100;
+    // Bằng OutboxEventPublisher.MAX_RETRY_COUNT
+    private static final int MAX_RETRY_COUNT = 5;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private ScheduledExecutorService broker;
+    private InMemoryOutbox outbox;
+
+    @BeforeEach
+    void setUp() {
+        broker = Executors.newScheduledThreadPool(2);
+        outbox = new InMemoryOutbox(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        broker.shutdownNow();
+    }
+
+    @Test
+    @Timeout(10)
+    void publishPendingEvents_WhenKafkaIsDown_ShouldNotConsumeRetries() {
+        // Given: 3 lô sự kiện, broker ngừng hoạt động lâu hơn số lần thử tối đa
+        List<OutboxEvent> events = insertEvents(3 * BATCH_SIZE, OutboxRelayFakes.EVENT_TYPE);
+        FakeKafkaTemplate kafkaTemplate = new FakeKafkaTemplate(broker, 0);
+        OutboxEventPublisher relay = newRelay(kafkaTemplate, 10_000L);
+        kafkaTemplate.setAvailable(false);
+
+        // When: mỗi lượt poll dừng sau lô lỗi đầu tiên thay vì giành lại ngay
+        for (int i = 0; i < MAX_RETRY_COUNT + 2; i++) {
+            relay.publishPendingEvents();
+        }
+        long pendingWhileDown = outbox.pendingCount();
+        kafkaTemplate.setAvailable(true);
+        relay.publishPendingEvents();
+
+        // Then: lỗi gửi không tăng retry_count, mọi sự kiện được phát khi Kafka hoạt động lại
+        assertThat(pendingWhileDown).isEqualTo(events.size());
+        assertThat(outbox.maxRetryCount()).isZero();
+        assertThat(outbox.pendingCount()).isZero();
+        assertThat(kafkaTemplate.sendCounts()).hasSize(events.size());
+    }
+
+    @Test
+    @Timeout(10)
+    void publishPendingEvents_ShouldSendMappedPayloadKeyedByAggregate() {
+        // Given
+        OutboxEvent event = insertEvents(1, OutboxRelayFakes.EVENT_TYPE).get(0);
+        FakeKafkaTemplate kafkaTemplate = new FakeKafkaTemplate(broker, 0);
+        OutboxEventPublisher relay = newRelay(kafkaTemplate, 10_000L);
+
+        // When
+        relay.publishPendingEvents();
+
+        // Then: topic lấy từ mapping, key là aggregateId, payload đọc lại thành class của event_type
+        ProducerRecord<String, Object> delivered = kafkaTemplate.lastDelivered(event.getAggregateId().toString());
+        assertThat(delivered.topic()).isEqualTo(OutboxRelayFakes.TOPIC);
+        assertThat(delivered.value()).isEqualTo(new TestEvent(event.getEventId(), event.getAggregateId()));
+        assertThat(outbox.find(event.getId()).getProcessed()).isTrue();
+    }
+
+    @Test
+    @Timeout(10)
+    void publishPendingEvents_WhenPayloadIsInvalid_ShouldCountAgainstRetryLimit() {
+        // Given: sự kiện không có topic tương ứng nên không bao giờ gửi được
+        List<OutboxEvent> events = insertEvents(1, "UNKNOWN_EVENT");
+        OutboxEventPublisher relay = newRelay(new FakeKafkaTemplate(broker, 0), 10_000L);
+
+        // When
+        for (int i = 0; i < MAX_RETRY_COUNT + 2; i++) {
+            relay.publishPendingEvents();
+        }
+
+        // Then: dừng thử lại khi chạm số lần tối đa
+        OutboxEvent poisoned = outbox.find(events.get(0).getId());
+        assertThat(poisoned.getRetryCount()).isEqualTo(MAX_RETRY_COUNT);
+        assertThat(poisoned.getProcessed()).isFalse();
+    }
+
+    @Test
+    @Timeout(10)
+    void publishPendingEvents_WhenAcksTimeOut_ShouldEndDrain() {
+        // Given: lô đầy nhưng broker không ack trong sendTimeoutMs
+        insertEvents(BATCH_SIZE, OutboxRelayFakes.EVENT_TYPE);
+        FakeKafkaTemplate kafkaTemplate = new FakeKafkaTemplate(broker, 60_000);
+        OutboxEventPublisher relay = newRelay(kafkaTemplate, 50L);
+
+        // When
+        relay.publishPendingEvents();
+
+        // Then: lượt drain kết thúc sau lô không có tiến triển, sự kiện chờ lần poll sau
+        assertThat(outbox.pendingCount()).isEqualTo(BATCH_SIZE);
+        assertThat(kafkaTemplate.sendCounts()).hasSize(BATCH_SIZE);
+        assertThat(kafkaTemplate.sendCounts().values()).allMatch(count -> count.get() == 1);
+    }
+
+    @Test
+    @Timeout(10)
+    void relayBatch_WhenInFlightLimitStaysFull_ShouldStopWithinSendTimeout() {
+        // Given: broker không ack, chỉ 10 message được chờ ack cùng lúc
+        insertEvents(BATCH_SIZE, OutboxRelayFakes.EVENT_TYPE);
+        FakeKafkaTemplate kafkaTemplate = new FakeKafkaTemplate(broker, 60_000);
+        OutboxEventPublisher relay = newRelay(kafkaTemplate, 100L, 10);
+
+        // When
+        long started = System.nanoTime();
+        int published = relay.relayBatch();
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        // Then: lô dừng khi hết sendTimeoutMs thay vì chờ slot in-flight mãi trong transaction,
+        // các sự kiện chưa gửi không bị đánh dấu và được giải phóng cho lô sau
+        assertThat(published).isZero();
+        assertThat(elapsedMs).isLessThan(5_000);
+        assertThat(kafkaTemplate.sendCounts()).hasSize(10);
+        assertThat(outbox.pendingCount()).isEqualTo(BATCH_SIZE);
+        assertThat(outbox.claim(MAX_RETRY_COUNT, BATCH_SIZE)).hasSize(BATCH_SIZE);
+    }
+
+    private OutboxEventPublisher newRelay(FakeKafkaTemplate kafkaTemplate, long sendTimeoutMs) {
+        return newRelay(kafkaTemplate, sendTimeoutMs, 2 * BATCH_SIZE);
+    }
+
+    private OutboxEventPublisher newRelay(FakeKafkaTemplate kafkaTemplate, long sendTimeoutMs, int maxInFlight) {
+        OutboxEventPublisher relay = new OutboxEventPublisher(
+                outbox.repository(), kafkaTemplate, new TestEventMapping(), objectMapper,
+                new InMemoryTransactionTemplate(outbox));
+        ReflectionTestUtils.setField(relay, "batchSize", BATCH_SIZE);
+        ReflectionTestUtils.setField(relay, "maxInFlight", maxInFlight);
+        ReflectionTestUtils.setField(relay, "sendTimeoutMs", sendTimeoutMs);
+        relay.init();
+        return relay;
+    }
+
+    private List<OutboxEvent> insertEvents(int count, String eventType) {
+        List<OutboxEvent> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            UUID aggregateId = UUID.randomUUID();
+            String eventId = UUID.randomUUID().toString();
+            events.add(outbox.insert(OutboxEvent.builder()
+                    .id(UUID.randomUUID())
+                    .eventId(eventId)
+                    .aggregateType("TEST")
+                    .aggregateId(aggregateId)
+                    .eventType(eventType)
+                    .payload(objectMapper.valueToTree(new TestEvent(eventId, aggregateId)).toString())
+                    .processed(false)
+                    .retryCount(0)
+                    .createdAt(LocalDateTime.now().plusNanos(i))
+                    .build()));
+        }
+        return events;
+    }
+}
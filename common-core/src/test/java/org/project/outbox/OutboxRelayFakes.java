@@ -0,0 +1,326 @@
+package org.project.outbox;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Postgres và Kafka giả trong bộ nhớ cho các test relay outbox, mỗi thao tác có độ trễ cố định
+ * (0 khi test không đo thời gian), cùng một {@link OutboxEventMapping} chỉ có loại sự kiện {@link #EVENT_TYPE}.
+ */
+final class OutboxRelayFakes {
+
+    static final String EVENT_TYPE = "TEST_CREATED";
+    static final String TOPIC = "test-created-topic";
+
+    private OutboxRelayFakes() {
+    }
+
+    static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sự kiện mẫu cho {@link TestEventMapping}, relay đọc payload JSON thành class này
+     */
+    record TestEvent(String eventId, UUID aggregateId) {
+    }
+
+    /**
+     * Mapping của một service giả: {@link #EVENT_TYPE} phát lên {@link #TOPIC}, loại khác không hợp lệ.
+     */
+    static final class TestEventMapping implements OutboxEventMapping {
+
+        @Override
+        public String topicFor(String eventType) {
+            if (!EVENT_TYPE.equals(eventType)) {
+                throw new IllegalArgumentException("Unknown event type: " + eventType);
+            }
+            return TOPIC;
+        }
+
+        @Override
+        public Class<?> eventClassFor(String eventType) {
+            if (!EVENT_TYPE.equals(eventType)) {
+                throw new IllegalArgumentException("Unknown event type: " + eventType);
+            }
+            return TestEvent.class;
+        }
+    }
+
+    /**
+     * Bảng outbox_events trong bộ nhớ. Dòng bị giành thuộc về thread giữ transaction cho tới khi transaction kết thúc
+     * như FOR UPDATE SKIP LOCKED, event_id trùng bị bỏ qua như ON CONFLICT DO NOTHING,
+     * NOTIFY chỉ được phát khi transaction commit như pg_notify.
+     */
+    static final class InMemoryOutbox {
+        private final long dbLatencyMs;
+        private final Map<UUID, OutboxEvent> rows = new LinkedHashMap<>();
+        private final Map<String, UUID> eventIds = new ConcurrentHashMap<>();
+        private final Map<UUID, Thread> locks = new ConcurrentHashMap<>();
+        private final Set<Thread> pendingNotifies = ConcurrentHashMap.newKeySet();
+        private final BlockingQueue<String> notifications = new LinkedBlockingQueue<>();
+        private final AtomicInteger markProcessedCalls = new AtomicInteger();
+        private final AtomicInteger insertCalls = new AtomicInteger();
+        private final AtomicInteger notifyCalls = new AtomicInteger();
+
+        InMemoryOutbox(long dbLatencyMs) {
+            this.dbLatencyMs = dbLatencyMs;
+        }
+
+        synchronized OutboxEvent insert(OutboxEvent event) {
+            if (event.getId() == null) {
+                event.setId(UUID.randomUUID());
+            }
+            rows.put(event.getId(), event);
+            eventIds.put(event.getEventId(), event.getId());
+            return event;
+        }
+
+        synchronized int insertAll(UUID[] ids, String[] eventIds, String aggregateType, UUID[] aggregateIds,
+                                   String eventType, String[] payloads, LocalDateTime createdAt) {
+            insertCalls.incrementAndGet();
+            int inserted = 0;
+            for (int i = 0; i < ids.length; i++) {
+                // ON CONFLICT (event_id) DO NOTHING
+                if (this.eventIds.containsKey(eventIds[i])) {
+                    continue;
+                }
+                insert(OutboxEvent.builder()
+                        .id(ids[i])
+                        .eventId(eventIds[i])
+                        .aggregateType(aggregateType)
+                        .aggregateId(aggregateIds[i])
+                        .eventType(eventType)
+                        .payload(payloads[i])
+                        .processed(false)
+                        .retryCount(0)
+                        .createdAt(createdAt)
+                        .build());
+                inserted++;
+            }
+            return inserted;
+        }
+
+        List<OutboxEvent> claim(int maxRetries, int limit) {
+            List<OutboxEvent> claimed = new ArrayList<>(limit);
+            synchronized (this) {
+                for (OutboxEvent event : rows.values()) {
+                    if (claimed.size() == limit) {
+                        break;
+                    }
+                    if (event.getProcessed() || event.getRetryCount() >= maxRetries
+                            || locks.containsKey(event.getId())) {
+                        continue;
+                    }
+                    locks.put(event.getId(), Thread.currentThread());
+                    claimed.add(event);
+                }
+            }
+            sleep(dbLatencyMs);
+            return claimed;
+        }
+
+        int markProcessed(Collection<UUID> ids, LocalDateTime processedAt) {
+            markProcessedCalls.incrementAndGet();
+            synchronized (this) {
+                for (UUID id : ids) {
+                    OutboxEvent event = rows.get(id);
+                    event.setProcessed(true);
+                    event.setProcessedAt(processedAt);
+                }
+            }
+            sleep(dbLatencyMs);
+            return ids.size();
+        }
+
+        int markFailed(UUID[] ids, String[] errors) {
+            synchronized (this) {
+                for (int i = 0; i < ids.length; i++) {
+                    OutboxEvent event = rows.get(ids[i]);
+                    event.setRetryCount(event.getRetryCount() + 1);
+                    event.setErrorMessage(errors[i]);
+                }
+            }
+            sleep(dbLatencyMs);
+            return ids.length;
+        }
+
+        int recordSendErrors(UUID[] ids, String[] errors) {
+            synchronized (this) {
+                for (int i = 0; i < ids.length; i++) {
+                    rows.get(ids[i]).setErrorMessage(errors[i]);
+                }
+            }
+            sleep(dbLatencyMs);
+            return ids.length;
+        }
+
+        synchronized OutboxEvent find(UUID id) {
+            return rows.get(id);
+        }
+
+        void notifyOnCommit() {
+            notifyCalls.incrementAndGet();
+            pendingNotifies.add(Thread.currentThread());
+        }
+
+        void commit(Thread owner) {
+            locks.values().removeIf(thread -> thread == owner);
+            if (pendingNotifies.remove(owner)) {
+                notifications.offer(OutboxEventRepository.NOTIFY_CHANNEL);
+            }
+        }
+
+        String pollNotification(long timeoutMs) throws InterruptedException {
+            return notifications.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        }
+
+        synchronized long pendingCount() {
+            return rows.values().stream().filter(event -> !event.getProcessed()).count();
+        }
+
+        synchronized int maxRetryCount() {
+            return rows.values().stream().mapToInt(OutboxEvent::getRetryCount).max().orElse(0);
+        }
+
+        int markProcessedCalls() {
+            return markProcessedCalls.get();
+        }
+
+        int insertCalls() {
+            return insertCalls.get();
+        }
+
+        int notifyCalls() {
+            return notifyCalls.get();
+        }
+
+        @SuppressWarnings("unchecked")
+        OutboxEventRepository repository() {
+            return (OutboxEventRepository) Proxy.newProxyInstance(
+                    OutboxEventRepository.class.getClassLoader(),
+                    new Class<?>[]{OutboxEventRepository.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "claimPendingBatch" -> claim((int) args[0], (int) args[1]);
+                        case "markProcessed" -> markProcessed((Collection<UUID>) args[0], (LocalDateTime) args[1]);
+                        case "markFailed" -> markFailed((UUID[]) args[0], (String[]) args[1]);
+                        case "recordSendErrors" -> recordSendErrors((UUID[]) args[0], (String[]) args[1]);
+                        case "insertAll" -> insertAll((UUID[]) args[0], (String[]) args[1], (String) args[2],
+                                (UUID[]) args[3], (String) args[4], (String[]) args[5], (LocalDateTime) args[6]);
+                        case "notifyPendingEvents" -> {
+                            notifyOnCommit();
+                            yield "";
+                        }
+                        case "toString" -> "InMemoryOutboxEventRepository";
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "equals" -> proxy == args[0];
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+    }
+
+    /**
+     * Transaction giả: chạy callback trên thread gọi, kết thúc thì commit (nhả khóa dòng, phát NOTIFY).
+     */
+    static final class InMemoryTransactionTemplate extends TransactionTemplate {
+        private final InMemoryOutbox outbox;
+
+        InMemoryTransactionTemplate(InMemoryOutbox outbox) {
+            this.outbox = outbox;
+        }
+
+        @Override
+        public <T> T execute(TransactionCallback<T> action) {
+            TransactionStatus status = new SimpleTransactionStatus();
+            try {
+                return action.doInTransaction(status);
+            } finally {
+                outbox.commit(Thread.currentThread());
+            }
+        }
+    }
+
+    /**
+     * Broker giả: ack mỗi message sau một khoảng trễ cố định, đếm số lần gửi, ghi thời điểm nhận và message cuối
+     * theo key. Khi ngừng hoạt động thì trả lỗi cho mọi message.
+     */
+    static final class FakeKafkaTemplate extends KafkaTemplate<String, Object> {
+        private final ScheduledExecutorService broker;
+        private final long brokerLatencyMs;
+        private final Map<String, AtomicInteger> sendCounts = new ConcurrentHashMap<>();
+        private final Map<String, Long> receivedAtNanos = new ConcurrentHashMap<>();
+        private final Map<String, ProducerRecord<String, Object>> lastDelivered = new ConcurrentHashMap<>();
+        private final AtomicLong offset = new AtomicLong();
+        private volatile boolean available = true;
+
+        FakeKafkaTemplate(ScheduledExecutorService broker, long brokerLatencyMs) {
+            super(new DefaultKafkaProducerFactory<>(Map.of()));
+            this.broker = broker;
+            this.brokerLatencyMs = brokerLatencyMs;
+        }
+
+        void setAvailable(boolean available) {
+            this.available = available;
+        }
+
+        @Override
+        public CompletableFuture<SendResult<String, Object>> send(String topic, String key, Object data) {
+            if (!available) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Broker không khả dụng"));
+            }
+            sendCounts.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+            CompletableFuture<SendResult<String, Object>> future = new CompletableFuture<>();
+            ProducerRecord<String, Object> record = new ProducerRecord<>(topic, key, data);
+            broker.schedule(() -> {
+                receivedAtNanos.putIfAbsent(key, System.nanoTime());
+                lastDelivered.put(key, record);
+                future.complete(new SendResult<>(record, new RecordMetadata(
+                        new TopicPartition(topic, 0), offset.getAndIncrement(), 0,
+                        System.currentTimeMillis(), key.length(), 0)));
+            }, brokerLatencyMs, TimeUnit.MILLISECONDS);
+            return future;
+        }
+
+        Map<String, AtomicInteger> sendCounts() {
+            return sendCounts;
+        }
+
+        Map<String, Long> receivedAtNanos() {
+            return receivedAtNanos;
+        }
+
+        ProducerRecord<String, Object> lastDelivered(String key) {
+            return lastDelivered.get(key);
+        }
+    }
+}
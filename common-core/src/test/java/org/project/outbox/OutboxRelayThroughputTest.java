@@ -0,0 +1,131 @@
+package org.project.outbox;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.project.outbox.OutboxRelayFakes.FakeKafkaTemplate;
+import org.project.outbox.OutboxRelayFakes.InMemoryOutbox;
+import org.project.outbox.OutboxRelayFakes.InMemoryTransactionTemplate;
+import org.project.outbox.OutboxRelayFakes.TestEvent;
+import org.project.outbox.OutboxRelayFakes.TestEventMapping;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Đo số sự kiện/giây của relay outbox với 1, 2 và 4 instance chạy song song.
+ * Postgres và Kafka được thay bằng bản giả trong bộ nhớ có độ trễ cố định ({@link OutboxRelayFakes}).
+ */
+class OutboxRelayThroughputTest {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelayThroughputTest.class);
+
+    private static final int EVENTS = 5_000;
+    private static final int BATCH_SIZE = 100;
+    private static final int MAX_IN_FLIGHT = 50;
+    private static final long DB_LATENCY_MS = 3;
+    private static final long BROKER_LATENCY_MS = 2;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private ScheduledExecutorService broker;
+    private InMemoryOutbox outbox;
+    private FakeKafkaTemplate kafkaTemplate;
+
+    @BeforeEach
+    void setUp() {
+        broker = Executors.newScheduledThreadPool(4);
+        outbox = new InMemoryOutbox(DB_LATENCY_MS);
+        kafkaTemplate = new FakeKafkaTemplate(broker, BROKER_LATENCY_MS);
+
+        for (int i = 0; i < EVENTS; i++) {
+            UUID aggregateId = UUID.randomUUID();
+            String eventId = UUID.randomUUID().toString();
+            outbox.insert(OutboxEvent.builder()
+                    .id(UUID.randomUUID())
+                    .eventId(eventId)
+                    .aggregateType("TEST")
+                    .aggregateId(aggregateId)
+                    .eventType(OutboxRelayFakes.EVENT_TYPE)
+                    .payload(objectMapper.valueToTree(new TestEvent(eventId, aggregateId)).toString())
+                    .processed(false)
+                    .retryCount(0)
+                    .createdAt(LocalDateTime.now().plusNanos(i))
+                    .build());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        broker.shutdownNow();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 4})
+    void testRelay_ShouldPublishEveryEventExactlyOnce(int instances) throws Exception {
+        // Given: mỗi instance là một publisher riêng dùng chung outbox và broker
+        List<OutboxEventPublisher> publishers = new ArrayList<>();
+        for (int i = 0; i < instances; i++) {
+            publishers.add(newPublisher());
+        }
+
+        // When: mỗi instance giành lô liên tục cho tới khi không còn gì để giành
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (OutboxEventPublisher publisher : publishers) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    while (publisher.relayBatch() > 0) {
+                        // giành lô tiếp theo
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(60));
+        }
+        long elapsedNanos = System.nanoTime() - startedAt;
+
+        log.info("Relay outbox: {} instance, {} sự kiện trong {} ms => {} sự kiện/giây",
+                instances, EVENTS, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                Math.round(EVENTS / (elapsedNanos / 1_000_000_000.0)));
+
+        // Then: mọi instance đã dừng trong thời gian chờ, không sự kiện nào bị phát trùng hay bỏ sót
+        assertThat(threads).noneMatch(Thread::isAlive);
+        assertThat(outbox.pendingCount()).isZero();
+        assertThat(kafkaTemplate.sendCounts()).hasSize(EVENTS);
+        assertThat(kafkaTemplate.sendCounts().values()).allMatch(count -> count.get() == 1);
+        assertThat(outbox.markProcessedCalls()).isLessThanOrEqualTo(EVENTS / BATCH_SIZE + instances);
+    }
+
+    private OutboxEventPublisher newPublisher() {
+        OutboxEventPublisher publisher = new OutboxEventPublisher(
+                outbox.repository(), kafkaTemplate, new TestEventMapping(), objectMapper,
+                new InMemoryTransactionTemplate(outbox));
+        ReflectionTestUtils.setField(publisher, "batchSize", BATCH_SIZE);
+        ReflectionTestUtils.setField(publisher, "maxInFlight", MAX_IN_FLIGHT);
+        ReflectionTestUtils.setField(publisher, "sendTimeoutMs", 10_000L);
+        publisher.init();
+        return publisher;
+    }
+}
@@ -0,0 +1,161 @@
+package org.project.outbox;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.postgresql.core.Notification;
+import org.project.outbox.OutboxRelayFakes.FakeKafkaTemplate;
+import org.project.outbox.OutboxRelayFakes.InMemoryOutbox;
+import org.project.outbox.OutboxRelayFakes.InMemoryTransactionTemplate;
+import org.project.outbox.OutboxRelayFakes.TestEvent;
+import org.project.outbox.OutboxRelayFakes.TestEventMapping;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Kiểm tra relay được đánh thức bằng LISTEN/NOTIFY (không có poll định kỳ) và ghi log độ trễ từ lúc lưu sự kiện
+ * tới lúc broker nhận. Kết nối LISTEN được giả lập trên hàng đợi thông báo của {@link InMemoryOutbox}, độ trễ DB
+ * và broker là giá trị cố định nên con số chỉ để tham khảo, không assert như độ trễ của Postgres/Kafka thật.
+ */
+class OutboxWakeupLatencyTest {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxWakeupLatencyTest.class);
+
+    private static final int EVENTS = 200;
+    private static final long INSERT_INTERVAL_MS = 5;
+    private static final long DB_LATENCY_MS = 3;
+    private static final long BROKER_LATENCY_MS = 2;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private ScheduledExecutorService broker;
+    private InMemoryOutbox outbox;
+    private FakeKafkaTemplate kafkaTemplate;
+    private TransactionTemplate transactionTemplate;
+    private OutboxService outboxService;
+    private OutboxNotificationListener listener;
+
+    @BeforeEach
+    void setUp() {
+        broker = Executors.newScheduledThreadPool(4);
+        outbox = new InMemoryOutbox(DB_LATENCY_MS);
+        kafkaTemplate = new FakeKafkaTemplate(broker, BROKER_LATENCY_MS);
+        transactionTemplate = new InMemoryTransactionTemplate(outbox);
+        outboxService = new OutboxServiceImpl(outbox.repository(), objectMapper);
+
+        OutboxEventPublisher publisher = new OutboxEventPublisher(
+                outbox.repository(), kafkaTemplate, new TestEventMapping(), objectMapper,
+                transactionTemplate);
+        ReflectionTestUtils.setField(publisher, "batchSize", 100);
+        ReflectionTestUtils.setField(publisher, "maxInFlight", 50);
+        ReflectionTestUtils.setField(publisher, "sendTimeoutMs", 10_000L);
+        publisher.init();
+
+        listener = new OutboxNotificationListener(null, publisher) {
+            @Override
+            protected Connection openConnection() {
+                return listenConnection();
+            }
+        };
+        ReflectionTestUtils.setField(listener, "listenTimeoutMs", 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        listener.stop();
+        broker.shutdownNow();
+    }
+
+    @Test
+    void testSaveEvent_ShouldReachBrokerViaNotifyWithoutPolling() throws Exception {
+        // Given: listener đang LISTEN
+        listener.start();
+
+        // When: mỗi sự kiện được lưu trong một transaction riêng, cách nhau vài ms
+        Map<String, Long> insertedAtNanos = new ConcurrentHashMap<>();
+        for (int i = 0; i < EVENTS; i++) {
+            UUID aggregateId = UUID.randomUUID();
+            TestEvent event = new TestEvent(UUID.randomUUID().toString(), aggregateId);
+            insertedAtNanos.put(aggregateId.toString(), System.nanoTime());
+            transactionTemplate.execute(status -> {
+                outboxService.saveEvent(event.eventId(), "TEST", aggregateId, OutboxRelayFakes.EVENT_TYPE, event);
+                return null;
+            });
+            OutboxRelayFakes.sleep(INSERT_INTERVAL_MS);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (outbox.pendingCount() > 0 && System.nanoTime() < deadline) {
+            OutboxRelayFakes.sleep(10);
+        }
+
+        // Then: mọi sự kiện tới broker đúng một lần chỉ nhờ NOTIFY
+        assertThat(outbox.pendingCount()).isZero();
+        assertThat(kafkaTemplate.sendCounts().values()).allMatch(count -> count.get() == 1);
+
+        List<Long> latenciesMicros = new ArrayList<>(EVENTS);
+        insertedAtNanos.forEach((key, insertedAt) -> latenciesMicros.add(
+                TimeUnit.NANOSECONDS.toMicros(kafkaTemplate.receivedAtNanos().get(key) - insertedAt)));
+        latenciesMicros.sort(null);
+        long p50 = latenciesMicros.get(latenciesMicros.size() / 2);
+        long p99 = latenciesMicros.get(latenciesMicros.size() * 99 / 100);
+
+        log.info("Outbox -> Kafka qua NOTIFY (DB giả {} ms, broker giả {} ms): p50={} ms, p99={} ms ({} sự kiện)",
+                DB_LATENCY_MS, BROKER_LATENCY_MS,
+                String.format("%.1f", p50 / 1000.0), String.format("%.1f", p99 / 1000.0), EVENTS);
+    }
+
+    /**
+     * Kết nối LISTEN giả: getNotifications chờ trên hàng đợi thông báo được phát khi transaction commit.
+     */
+    private Connection listenConnection() {
+        Statement statement = (Statement) Proxy.newProxyInstance(
+                Statement.class.getClassLoader(),
+                new Class<?>[]{Statement.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "execute" -> true;
+                    case "close" -> null;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class, PGConnection.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "createStatement" -> statement;
+                    case "unwrap" -> proxy;
+                    case "close" -> null;
+                    case "getNotifications" -> {
+                        long timeoutMs = args != null && args.length == 1 ? (int) args[0] : 0;
+                        try {
+                            String channel = outbox.pollNotification(timeoutMs);
+                            yield channel == null
+                                    ? new PGNotification[0]
+                                    : new PGNotification[]{new Notification(channel, 0, "")};
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            yield new PGNotification[0];
+                        }
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
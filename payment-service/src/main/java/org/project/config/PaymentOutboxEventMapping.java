@@ -0,0 +1,37 @@
+package org.project.config;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.project.events.PaymentCompletedEvent;
+import org.project.events.PaymentFailedEvent;
+import org.project.events.PaymentRefundProcessedEvent;
+import org.project.outbox.OutboxEventMapping;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PaymentOutboxEventMapping implements OutboxEventMapping {
+    PaymentKafkaTopics topics;
+
+    @Override
+    public String topicFor(String eventType) {
+        return switch (eventType) {
+            case "PAYMENT_COMPLETED" -> topics.getPaymentCompleted();
+            case "PAYMENT_FAILED" -> topics.getPaymentFailed();
+            case "PAYMENT_REFUND_PROCESSED" -> topics.getPaymentRefundProcessed();
+            default -> throw new IllegalArgumentException("Unknown event type: " + eventType);
+        };
+    }
+
+    @Override
+    public Class<?> eventClassFor(String eventType) {
+        return switch (eventType) {
+            case "PAYMENT_COMPLETED" -> PaymentCompletedEvent.class;
+            case "PAYMENT_FAILED" -> PaymentFailedEvent.class;
+            case "PAYMENT_REFUND_PROCESSED" -> PaymentRefundProcessedEvent.class;
+            default -> throw new IllegalArgumentException("Unknown event type: " + eventType);
+        };
+    }
+}
@@ -0,0 +1,36 @@
+package org.project.config;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "payment.reconciliation")
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PaymentReconciliationConfig {
+    // Hạn mức gọi API truy vấn của cổng thanh toán cho toàn bộ payment-service
+    double requestsPerSecond = 5;
+
+    int burst = 5;
+
+    // Số replica cùng chạy đối soát, mỗi replica dùng requestsPerSecond / replicaCount
+    int replicaCount = 1;
+
+    int workerThreads = 8;
+
+    // Số lần thử lại một payment bị cổng thanh toán từ chối vì vượt hạn mức trong cùng một lần chạy
+    int maxAttempts = 3;
+
+    long throttleBackoffMs = 2000;
+
+    // Payment đã có kết quả truy vấn trong khoảng này được coi là đã xử lý, lần chạy khởi động lại sẽ bỏ qua
+    int requeryIntervalMinutes = 3;
+
+    int maxPaymentsPerRun = 5000;
+
+    // Nhỏ hơn chu kỳ scheduler để hai lần chạy không chồng lên nhau
+    long maxRunDurationMs = 240000;
+}
@@ -0,0 +1,22 @@
+package org.project.config;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "payment.timeout")
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PaymentTimeoutConfig {
+    // Payment PENDING quá số phút này bị đánh dấu thất bại
+    int pendingMinutes = 15;
+
+    // Số payment hết hạn trong một câu UPDATE (một transaction)
+    int batchSize = 500;
+
+    // Giới hạn số batch mỗi lần chạy, phần còn lại để lần chạy sau
+    int maxBatchesPerRun = 200;
+}
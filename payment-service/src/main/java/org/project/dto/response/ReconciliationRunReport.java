@@ -0,0 +1,47 @@
+package org.project.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ReconciliationRunReport {
+    UUID runId;
+
+    int candidates;
+
+    // Đã truy vấn và áp dụng kết quả
+    int processed;
+
+    int statusChanged;
+
+    // Đã được lần chạy khác nhận (checkpoint) hoặc không còn PROCESSING
+    int skipped;
+
+    // Số lần cổng thanh toán từ chối vì vượt hạn mức
+    int throttled;
+
+    // Để lại cho lần chạy sau: hết lượt thử hoặc hết thời gian chạy
+    int deferred;
+
+    int failed;
+
+    long elapsedMillis;
+
+    public double getThroughputPerSecond() {
+        return elapsedMillis > 0 ? processed * 1000.0 / elapsedMillis : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("run=%s, candidates=%d, processed=%d, changed=%d, skipped=%d, throttled=%d, " +
+                        "deferred=%d, failed=%d, elapsed=%dms, throughput=%.1f/s",
+                runId, candidates, processed, statusChanged, skipped, throttled, deferred, failed,
+                elapsedMillis, getThroughputPerSecond());
+    }
+}
@@ -22,5 +22,6 @@ public class PaymentQueryResult {
     String message;
     LocalDateTime paymentDate;
     String rawResponse;
-
+    // Cổng thanh toán từ chối vì vượt hạn mức gọi API, trạng thái giao dịch chưa biết
+    boolean throttled;
 }
@@ -21,6 +21,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
@@ -101,6 +102,14 @@ public class VNPayGateway implements PaymentGateway {
             log.info("Response from VNPay for transaction {}: {}", transactionId, response.getBody());
             return parseQueryResponse(response.getBody(), transactionId);
 
+        } catch (HttpClientErrorException.TooManyRequests e) {
+            log.warn("VNPay throttled query for transaction: {}", transactionId);
+            return PaymentQueryResult.builder()
+                    .success(false)
+                    .throttled(true)
+                    .transactionId(transactionId)
+                    .message("Query API throttled")
+                    .build();
         } catch (Exception e) {
             log.error("Error querying VNPay payment status for transaction: {}", transactionId, e);
             return PaymentQueryResult.builder()
@@ -0,0 +1,132 @@
+package org.project.gateway.vnpay.util;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * HMAC-SHA512 cho chữ ký VNPay. Một pool nhỏ giữ các Mac đã init sẵn với secret, cùng bộ đệm input/output,
+ * nên ký một chuỗi không còn gọi Mac.getInstance/init và gần như không cấp phát ngoài chuỗi hex kết quả.
+ * Không dùng ThreadLocal: request chạy trên virtual thread thì mỗi lần gọi là một luồng mới, ThreadLocal
+ * không bao giờ được dùng lại, còn gắn theo carrier thread thì không an toàn vì virtual thread có thể đổi carrier
+ * giữa chừng. Pool không phụ thuộc luồng; lúc tải cao vượt kích thước pool thì Mac thừa được tạo rồi bỏ.
+ */
+final class VNPaySigner {
+    private static final String ALGORITHM = "HmacSHA512";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final BlockingQueue<KeyedMac> MACS =
+            new ArrayBlockingQueue<>(Math.max(4, 2 * Runtime.getRuntime().availableProcessors()));
+
+    private VNPaySigner() {
+    }
+
+    /**
+     * Ký data[start, end), trả về hex chữ thường; trả về chuỗi rỗng nếu secret không hợp lệ như trước đây
+     */
+    static String sign(String secret, CharSequence data, int start, int end) {
+        if (secret == null || data == null) {
+            return "";
+        }
+        KeyedMac keyedMac;
+        try {
+            keyedMac = macFor(secret);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            return "";
+        }
+        Mac mac = keyedMac.mac;
+        try {
+            update(keyedMac, data, start, end);
+            mac.doFinal(keyedMac.output, 0);
+        } catch (ShortBufferException e) {
+            mac.reset();
+            MACS.offer(keyedMac);
+            return "";
+        }
+        String signature = toHex(keyedMac.output, mac.getMacLength());
+        // Pool đầy thì bỏ Mac này, lần sau tạo lại
+        MACS.offer(keyedMac);
+        return signature;
+    }
+
+    static String sign(String secret, CharSequence data) {
+        return data == null ? "" : sign(secret, data, 0, data.length());
+    }
+
+    /**
+     * So sánh không phụ thuộc vị trí ký tự khác nhau đầu tiên
+     */
+    static boolean signatureEquals(String expected, String actual) {
+        if (expected == null || actual == null || expected.length() != actual.length()) {
+            return false;
+        }
+        int diff = 0;
+        for (int i = 0; i < expected.length(); i++) {
+            diff |= expected.charAt(i) ^ actual.charAt(i);
+        }
+        return diff == 0;
+    }
+
+    /**
+     * Lấy Mac cùng secret từ pool, không có thì tạo mới; Mac của secret cũ (đổi cấu hình) bị bỏ
+     */
+    private static KeyedMac macFor(String secret) throws GeneralSecurityException {
+        KeyedMac keyedMac;
+        while ((keyedMac = MACS.poll()) != null) {
+            if (keyedMac.secret.equals(secret)) {
+                return keyedMac;
+            }
+        }
+        Mac mac = Mac.getInstance(ALGORITHM);
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+        return new KeyedMac(secret, mac);
+    }
+
+    private static void update(KeyedMac keyedMac, CharSequence data, int start, int end) {
+        // Dữ liệu ký của URL/callback đã URL-encode nên toàn ASCII: chép thẳng vào bộ đệm
+        byte[] buffer = keyedMac.input;
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            char c = data.charAt(i);
+            if (c >= 0x80) {
+                // Chuỗi ký query/refund có thể chứa tiếng Việt: phần còn lại mã hóa UTF-8 như trước
+                keyedMac.mac.update(buffer, 0, length);
+                keyedMac.mac.update(data.subSequence(i, end).toString().getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            if (length == buffer.length) {
+                keyedMac.mac.update(buffer, 0, length);
+                length = 0;
+            }
+            buffer[length++] = (byte) c;
+        }
+        keyedMac.mac.update(buffer, 0, length);
+    }
+
+    private static String toHex(byte[] bytes, int length) {
+        char[] chars = new char[length * 2];
+        for (int i = 0; i < length; i++) {
+            int b = bytes[i] & 0xff;
+            chars[i * 2] = HEX[b >>> 4];
+            chars[i * 2 + 1] = HEX[b & 0x0f];
+        }
+        return new String(chars);
+    }
+
+    private static final class KeyedMac {
+        final String secret;
+        final Mac mac;
+        final byte[] input = new byte[1024];
+        final byte[] output;
+
+        KeyedMac(String secret, Mac mac) {
+            this.secret = secret;
+            this.mac = mac;
+            this.output = new byte[mac.getMacLength()];
+        }
+    }
+}
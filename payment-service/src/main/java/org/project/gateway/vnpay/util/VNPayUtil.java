@@ -2,85 +2,80 @@ package org.project.gateway.vnpay.util;
 
 import org.springframework.stereotype.Component;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.*;
 
 @Component
 public class VNPayUtil {
+    private static final String SECURE_HASH = "vnp_SecureHash";
+    private static final String SECURE_HASH_TYPE = "vnp_SecureHashType";
+    private static final char[] URL_HEX = "0123456789ABCDEF".toCharArray();
+
     public String hmacSHA512(String key, String data) {
-        try {
-            if (key == null || data == null) {
-                throw new NullPointerException();
-            }
-            Mac hmac512 = Mac.getInstance("HmacSHA512");
-            byte[] hmacKeyBytes = key.getBytes();
-            SecretKeySpec secretKey = new SecretKeySpec(hmacKeyBytes, "HmacSHA512");
-            hmac512.init(secretKey);
-            byte[] dataBytes = data.getBytes(StandardCharsets.UTF_8);
-            byte[] result = hmac512.doFinal(dataBytes);
-            StringBuilder sb = new StringBuilder(2 * result.length);
-            for (byte b : result) {
-                sb.append(String.format("%02x", b & 0xff));
-            }
-            return sb.toString();
-        } catch (Exception ex) {
-            return "";
-        }
+        return VNPaySigner.sign(key, data);
     }
 
     public String hashAllFields(Map<String, String> fields, String hashSecret) {
-        List<String> fieldNames = new ArrayList<>(fields.keySet());
-        Collections.sort(fieldNames);
-        StringBuilder sb = new StringBuilder();
-        Iterator<String> itr = fieldNames.iterator();
-        while (itr.hasNext()) {
-            String fieldName = itr.next();
-            String fieldValue = fields.get(fieldName);
+        String[] fieldNames = sortedFieldNames(fields, false);
+        StringBuilder sb = new StringBuilder(estimateLength(fields));
+        for (int i = 0; i < fieldNames.length; i++) {
+            String fieldValue = fields.get(fieldNames[i]);
             if ((fieldValue != null) && (fieldValue.length() > 0)) {
-                sb.append(fieldName);
-                sb.append("=");
-                sb.append(fieldValue);
+                sb.append(fieldNames[i]).append('=').append(fieldValue);
             }
-            if (itr.hasNext()) {
-                sb.append("&");
+            if (i < fieldNames.length - 1) {
+                sb.append('&');
             }
         }
-        return hmacSHA512(hashSecret, sb.toString());
+        return VNPaySigner.sign(hashSecret, sb);
     }
 
+    /**
+     * Dữ liệu ký là chuỗi query theo tên tham số tăng dần với giá trị đã URL-encode.
+     * Mỗi giá trị chỉ được encode một lần; tên tham số vnp_* không cần encode nên dữ liệu ký
+     * chính là phần query vừa dựng và được ký trực tiếp trên cùng bộ đệm.
+     */
     public String buildPaymentUrl(String baseUrl, Map<String, String> params, String hashSecret) {
         try {
-            List<String> fieldNames = new ArrayList<>(params.keySet());
-            Collections.sort(fieldNames);
-            StringBuilder hashData = new StringBuilder();
-            StringBuilder query = new StringBuilder();
-
-            Iterator<String> itr = fieldNames.iterator();
-            while (itr.hasNext()) {
-                String fieldName = itr.next();
+            String[] fieldNames = sortedFieldNames(params, false);
+            boolean namesUnreserved = true;
+            for (String fieldName : fieldNames) {
+                namesUnreserved &= isUnreserved(fieldName);
+            }
+
+            int estimatedLength = estimateLength(params);
+            StringBuilder url = new StringBuilder(baseUrl.length() + estimatedLength + 160);
+            url.append(baseUrl).append('?');
+            int queryStart = url.length();
+            // Chỉ cần bộ đệm riêng khi có tên tham số bị encode khác đi
+            StringBuilder hashData = namesUnreserved ? null : new StringBuilder(estimatedLength);
+
+            for (int i = 0; i < fieldNames.length; i++) {
+                String fieldName = fieldNames[i];
                 String fieldValue = params.get(fieldName);
                 if ((fieldValue != null) && (fieldValue.length() > 0)) {
-                    hashData.append(fieldName);
-                    hashData.append('=');
-                    hashData.append(URLEncoder.encode(fieldValue, StandardCharsets.US_ASCII.toString()));
-                    query.append(URLEncoder.encode(fieldName, StandardCharsets.US_ASCII.toString()));
-                    query.append('=');
-                    query.append(URLEncoder.encode(fieldValue, StandardCharsets.US_ASCII.toString()));
-                    if (itr.hasNext()) {
-                        query.append('&');
-                        hashData.append('&');
+                    appendUrlEncoded(url, fieldName);
+                    url.append('=');
+                    int valueStart = url.length();
+                    appendUrlEncoded(url, fieldValue);
+                    if (hashData != null) {
+                        hashData.append(fieldName).append('=').append(url, valueStart, url.length());
+                    }
+                    if (i < fieldNames.length - 1) {
+                        url.append('&');
+                        if (hashData != null) {
+                            hashData.append('&');
+                        }
                     }
                 }
             }
 
-            String vnp_SecureHash = hmacSHA512(hashSecret, hashData.toString());
-            query.append("&vnp_SecureHash=").append(vnp_SecureHash);
+            String vnp_SecureHash = hashData != null
+                    ? VNPaySigner.sign(hashSecret, hashData)
+                    : VNPaySigner.sign(hashSecret, url, queryStart, url.length());
+            url.append("&vnp_SecureHash=").append(vnp_SecureHash);
 
-            return baseUrl + "?" + query.toString();
+            return url.toString();
         } catch (Exception e) {
             throw new RuntimeException("Error building payment URL", e);
         }
@@ -167,26 +162,84 @@ public class VNPayUtil {
     }
 
     public boolean verifyCallback(Map<String, String> params, String hashSecret) {
-        String receivedHash = params.get("vnp_SecureHash");
+        String receivedHash = params.get(SECURE_HASH);
         if (receivedHash == null || receivedHash.isEmpty()) {
             return false;
         }
 
-        Map<String, String> fieldsToVerify = new HashMap<>(params);
-        fieldsToVerify.remove("vnp_SecureHashType");
-        fieldsToVerify.remove("vnp_SecureHash");
-
-        Map<String, String> encodedFields = new HashMap<>();
-        for (Map.Entry<String, String> entry : fieldsToVerify.entrySet()) {
-            try {
-                String encodedValue = URLEncoder.encode(entry.getValue(), StandardCharsets.US_ASCII.toString());
-                encodedFields.put(entry.getKey(), encodedValue);
-            } catch (Exception e) {
-                encodedFields.put(entry.getKey(), entry.getValue());
+        // Dựng dữ liệu ký trong một lượt: bỏ hai trường chữ ký, sắp xếp tên, URL-encode giá trị
+        String[] fieldNames = sortedFieldNames(params, true);
+        StringBuilder data = new StringBuilder(estimateLength(params));
+        for (int i = 0; i < fieldNames.length; i++) {
+            String fieldValue = params.get(fieldNames[i]);
+            if ((fieldValue != null) && (fieldValue.length() > 0)) {
+                data.append(fieldNames[i]).append('=');
+                appendUrlEncoded(data, fieldValue);
+            }
+            if (i < fieldNames.length - 1) {
+                data.append('&');
             }
         }
 
-        String calculatedHash = hashAllFields(encodedFields, hashSecret);
-        return calculatedHash.equals(receivedHash);
+        String calculatedHash = VNPaySigner.sign(hashSecret, data);
+        return VNPaySigner.signatureEquals(calculatedHash, receivedHash);
+    }
+
+    private static String[] sortedFieldNames(Map<String, String> fields, boolean excludeSecureHash) {
+        String[] fieldNames = new String[fields.size()];
+        int count = 0;
+        for (String fieldName : fields.keySet()) {
+            if (excludeSecureHash && (SECURE_HASH.equals(fieldName) || SECURE_HASH_TYPE.equals(fieldName))) {
+                continue;
+            }
+            fieldNames[count++] = fieldName;
+        }
+        if (count < fieldNames.length) {
+            fieldNames = Arrays.copyOf(fieldNames, count);
+        }
+        Arrays.sort(fieldNames);
+        return fieldNames;
+    }
+
+    private static int estimateLength(Map<String, String> fields) {
+        return fields.size() * 48;
+    }
+
+    private static boolean isUnreserved(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!isUnreserved(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isUnreserved(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '_' || c == '.' || c == '*';
+    }
+
+    /**
+     * Cho kết quả giống URLEncoder.encode(value, US-ASCII): ký tự ngoài ASCII (kể cả cặp surrogate)
+     * không biểu diễn được nên thành '?' rồi được encode thành %3F
+     */
+    private static void appendUrlEncoded(StringBuilder sb, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (isUnreserved(c)) {
+                sb.append(c);
+            } else if (c == ' ') {
+                sb.append('+');
+            } else if (c < 0x80) {
+                sb.append('%').append(URL_HEX[c >>> 4]).append(URL_HEX[c & 0x0f]);
+            } else {
+                if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    i++;
+                }
+                sb.append("%3F");
+            }
+        }
     }
 }
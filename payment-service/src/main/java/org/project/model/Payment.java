@@ -85,6 +85,10 @@ public class Payment {
     @Column(name = "refund_gateway_response", columnDefinition = "TEXT")
     String refundGatewayResponse;
 
+    // Lần cuối job đối soát truy vấn cổng thanh toán cho payment này, dùng làm checkpoint giữa các lần chạy
+    @Column(name = "last_reconciled_at")
+    LocalDateTime lastReconciledAt;
+
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     LocalDateTime createdAt;
@@ -2,26 +2,39 @@ package org.project.publisher;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.project.config.PaymentKafkaTopics;
 import org.project.events.PaymentCompletedEvent;
 import org.project.events.PaymentFailedEvent;
 import org.project.events.PaymentRefundProcessedEvent;
 import org.project.model.Payment;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.project.repository.ExpiredPaymentProjection;
+import org.project.outbox.OutboxService;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
 
+/**
+ * Ghi sự kiện thanh toán vào outbox trong cùng transaction với thay đổi trạng thái payment,
+ * OutboxEventPublisher phát lên Kafka sau khi commit.
+ * Sự kiện completed/failed có eventId suy ra từ paymentId nên mỗi payment chỉ có một sự kiện mỗi loại
+ * dù được ghi từ callback, job đối soát hay job hết hạn.
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
+@Transactional
 public class PaymentEventPublisher {
-    private final KafkaTemplate<String, Object> kafkaTemplate;
-    private final PaymentKafkaTopics topics;
+    static final String AGGREGATE_TYPE = "PAYMENT";
+
+    private final OutboxService outboxService;
 
     // Publish sự kiện thanh toán hoàn thành
     public void publishPaymentCompleted(Payment payment) {
         PaymentCompletedEvent event = PaymentCompletedEvent.builder()
+                .eventId(eventId("PAYMENT_COMPLETED", payment.getId()))
                 .paymentId(payment.getId())
                 .appointmentId(payment.getAppointmentId())
                 .amount(payment.getAmount())
@@ -33,8 +46,8 @@ public class PaymentEventPublisher {
                 .timestamp(LocalDateTime.now())
                 .build();
 
-        kafkaTemplate.send(topics.getPaymentCompleted(),
-                payment.getAppointmentId().toString(), event);
+        outboxService.saveEvent(event.getEventId(), AGGREGATE_TYPE,
+                payment.getAppointmentId(), "PAYMENT_COMPLETED", event);
 
         log.info("Published PaymentCompletedEvent for appointment: {}",
                 payment.getAppointmentId());
@@ -43,6 +56,7 @@ public class PaymentEventPublisher {
     // Publish sự kiện thanh toán thất bại
     public void publishPaymentFailed(Payment payment, String reason, boolean confirmedFailure) {
         PaymentFailedEvent event = PaymentFailedEvent.builder()
+                .eventId(eventId("PAYMENT_FAILED", payment.getId()))
                 .paymentId(payment.getId())
                 .appointmentId(payment.getAppointmentId())
                 .transactionId(payment.getTransactionId())
@@ -52,17 +66,39 @@ public class PaymentEventPublisher {
                 .confirmedFailure(confirmedFailure)
                 .build();
 
-        kafkaTemplate.send(topics.getPaymentFailed(),
-                payment.getAppointmentId().toString(), event);
+        outboxService.saveEvent(event.getEventId(), AGGREGATE_TYPE,
+                payment.getAppointmentId(), "PAYMENT_FAILED", event);
 
         log.info("Published PaymentFailedEvent for appointment: {}, confirmedFailure: {}",
                 payment.getAppointmentId(), confirmedFailure);
     }
 
+    // Publish sự kiện thất bại cho cả lô bằng một lần ghi outbox
+    public void publishPaymentsFailed(List<ExpiredPaymentProjection> payments, String reason,
+                                      boolean confirmedFailure) {
+        LocalDateTime now = LocalDateTime.now();
+        List<PaymentFailedEvent> events = payments.stream()
+                .map(payment -> PaymentFailedEvent.builder()
+                        .eventId(eventId("PAYMENT_FAILED", payment.getId()))
+                        .paymentId(payment.getId())
+                        .appointmentId(payment.getAppointmentId())
+                        .transactionId(payment.getTransactionId())
+                        .reason(reason)
+                        .failedService("payment-service")
+                        .timestamp(now)
+                        .confirmedFailure(confirmedFailure)
+                        .build())
+                .toList();
+
+        outboxService.saveEvents(AGGREGATE_TYPE, "PAYMENT_FAILED", events,
+                PaymentFailedEvent::getEventId, PaymentFailedEvent::getAppointmentId);
+
+        log.info("Published {} PaymentFailedEvent, confirmedFailure: {}", events.size(), confirmedFailure);
+    }
+
     // Publish sự kiện hoàn tiền thành công
     public void publishRefundProcessedSuccess(PaymentRefundProcessedEvent event) {
-        kafkaTemplate.send(topics.getPaymentRefundProcessed(),
-                event.getAppointmentId().toString(), event);
+        saveRefundProcessed(event);
 
         log.info("Published successful PaymentRefundProcessedEvent for appointment: {}",
                 event.getAppointmentId());
@@ -70,10 +106,21 @@ public class PaymentEventPublisher {
 
     // Publish sự kiện hoàn tiền thất bại
     public void publishRefundProcessedFailure(PaymentRefundProcessedEvent event) {
-        kafkaTemplate.send(topics.getPaymentRefundProcessed(),
-                event.getAppointmentId().toString(), event);
+        saveRefundProcessed(event);
 
         log.error("Published failed PaymentRefundProcessedEvent for appointment: {}",
                 event.getAppointmentId());
     }
+
+    private void saveRefundProcessed(PaymentRefundProcessedEvent event) {
+        if (event.getEventId() == null) {
+            event.setEventId(UUID.randomUUID().toString());
+        }
+        outboxService.saveEvent(event.getEventId(), AGGREGATE_TYPE,
+                event.getAppointmentId(), "PAYMENT_REFUND_PROCESSED", event);
+    }
+
+    private static String eventId(String eventType, UUID paymentId) {
+        return UUID.nameUUIDFromBytes((eventType + ":" + paymentId).getBytes(StandardCharsets.UTF_8)).toString();
+    }
 }
@@ -0,0 +1,9 @@
+package org.project.repository;
+
+import java.util.UUID;
+
+public interface ExpiredPaymentProjection {
+    UUID getId();
+    UUID getAppointmentId();
+    String getTransactionId();
+}
@@ -8,10 +8,13 @@ import java.util.UUID;
 import org.project.enums.PaymentStatus;
 import org.project.enums.PaymentType;
 import org.project.model.Payment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface PaymentRepository extends JpaRepository<Payment, UUID> {
@@ -31,6 +34,17 @@ public interface PaymentRepository extends JpaRepository<Payment, UUID> {
     boolean existsByAppointmentIdAndPaymentTypeAndPaymentStatusIn(
             UUID appointmentId, PaymentType paymentType, List<PaymentStatus> statuses);
 
+    Optional<Payment> findFirstByAppointmentIdAndPaymentTypeAndPaymentStatusInOrderByCreatedAtDesc(
+            UUID appointmentId, PaymentType paymentType, List<PaymentStatus> statuses);
+
+    /**
+     * Khóa advisory theo lịch hẹn, giữ tới khi transaction hiện tại kết thúc: các yêu cầu tạo payment
+     * cho cùng một lịch hẹn chạy tuần tự nên không tạo trùng payment.
+     */
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(hashtextextended(CAST(:appointmentId AS text), 0))",
+            nativeQuery = true)
+    Integer lockAppointment(@Param("appointmentId") UUID appointmentId);
+
     @Query("SELECT p FROM Payment p WHERE p.appointmentId = :appointmentId " +
             "AND p.paymentStatus IN :statuses " +
             "AND p.paymentType IS NOT NULL")
@@ -56,4 +70,54 @@ public interface PaymentRepository extends JpaRepository<Payment, UUID> {
 
     // Tìm các payment theo status và createdAt trước một thời điểm
     List<Payment> findByPaymentStatusAndCreatedAtBefore(PaymentStatus status, LocalDateTime createdBefore);
+
+    // Payment cần đối soát, cũ nhất trước; bỏ qua payment vừa được truy vấn ở lần chạy gần đây
+    @Query("SELECT p FROM Payment p WHERE p.paymentStatus = :status " +
+            "AND p.createdAt < :createdBefore " +
+            "AND p.createdAt >= :createdAfter " +
+            "AND (p.lastReconciledAt IS NULL OR p.lastReconciledAt < :reconciledBefore) " +
+            "ORDER BY p.createdAt ASC")
+    List<Payment> findReconciliationCandidates(@Param("status") PaymentStatus status,
+                                               @Param("createdBefore") LocalDateTime createdBefore,
+                                               @Param("createdAfter") LocalDateTime createdAfter,
+                                               @Param("reconciledBefore") LocalDateTime reconciledBefore,
+                                               Pageable pageable);
+
+    // Ghi checkpoint trước khi truy vấn; trả về 0 nếu lần chạy khác (hoặc replica khác) đã nhận payment này
+    @Modifying
+    @Transactional
+    @Query("UPDATE Payment p SET p.lastReconciledAt = :now " +
+            "WHERE p.id = :paymentId AND p.paymentStatus = :status " +
+            "AND (p.lastReconciledAt IS NULL OR p.lastReconciledAt < :reconciledBefore)")
+    int claimForReconciliation(@Param("paymentId") UUID paymentId,
+                               @Param("status") PaymentStatus status,
+                               @Param("now") LocalDateTime now,
+                               @Param("reconciledBefore") LocalDateTime reconciledBefore);
+
+    // Trả checkpoint về giá trị trước khi nhận khi chưa có kết quả (lỗi, bị từ chối vì hạn mức, hết thời gian chạy)
+    @Modifying
+    @Transactional
+    @Query("UPDATE Payment p SET p.lastReconciledAt = :previous " +
+            "WHERE p.id = :paymentId AND p.lastReconciledAt = :claimedAt")
+    int releaseReconciliationClaim(@Param("paymentId") UUID paymentId,
+                                   @Param("claimedAt") LocalDateTime claimedAt,
+                                   @Param("previous") LocalDateTime previous);
+
+    /**
+     * Đánh dấu FAILED tối đa batchSize payment PENDING tạo trước threshold trong một câu lệnh và trả về
+     * các payment đã đổi trạng thái. Dòng đang bị transaction khác khóa (replica khác, callback) được bỏ qua
+     * nên các replica chạy đồng thời nhận các lô rời nhau và không payment nào hết hạn hai lần.
+     */
+    @Transactional
+    @Query(value = "UPDATE payments p " +
+            "SET payment_status = 'FAILED', updated_at = :now " +
+            "WHERE p.id IN (SELECT e.id FROM payments e " +
+            "WHERE e.payment_status = 'PENDING' AND e.created_at < :threshold " +
+            "ORDER BY e.created_at LIMIT :batchSize FOR UPDATE SKIP LOCKED) " +
+            "AND p.payment_status = 'PENDING' " +
+            "RETURNING p.id AS id, p.appointment_id AS appointmentId, p.transaction_id AS transactionId",
+            nativeQuery = true)
+    List<ExpiredPaymentProjection> expirePendingBatch(@Param("threshold") LocalDateTime threshold,
+                                                      @Param("now") LocalDateTime now,
+                                                      @Param("batchSize") int batchSize);
 }
@@ -1,6 +1,7 @@
 package org.project.service;
 
 import org.project.dto.response.PaymentResponse;
+import org.project.gateway.dto.PaymentQueryResult;
 
 import java.util.UUID;
 
@@ -10,5 +11,8 @@ public interface PaymentQueryService {
 
     PaymentResponse queryPaymentStatus(String transactionId);
 
-    void processProcessingPayments();
+    /**
+     * Áp dụng kết quả truy vấn cho payment nếu nó vẫn đang PROCESSING, trả về true nếu trạng thái đổi
+     */
+    boolean applyReconciliationResult(UUID paymentId, PaymentQueryResult queryResult);
 }
@@ -0,0 +1,12 @@
+package org.project.service;
+
+import org.project.dto.response.ReconciliationRunReport;
+
+public interface PaymentReconciliationService {
+
+    /**
+     * Truy vấn cổng thanh toán cho các payment PROCESSING và cập nhật trạng thái.
+     * Trả về null nếu bị bỏ qua (tính năng tắt hoặc một lần chạy khác đang diễn ra).
+     */
+    ReconciliationRunReport reconcileProcessingPayments();
+}
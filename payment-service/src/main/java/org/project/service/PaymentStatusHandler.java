@@ -2,9 +2,16 @@ package org.project.service;
 
 import java.util.UUID;
 
+import org.project.model.Payment;
+
 public interface PaymentStatusHandler {
 
     void handlePaymentSuccess(UUID paymentId);
 
     void handlePaymentFailure(UUID paymentId);
+
+    // Dùng khi payment vừa được cập nhật trong transaction hiện tại, không đọc lại từ DB
+    void handlePaymentSuccess(Payment payment);
+
+    void handlePaymentFailure(Payment payment);
 }
@@ -3,8 +3,10 @@ package org.project.service;
 public interface PaymentTimeoutService {
     
     /**
-     * Xử lý các payment PENDING đã quá hạn (> 15 phút)
+     * Đánh dấu thất bại các payment PENDING đã quá hạn theo từng lô
      * Publish PaymentFailedEvent để hủy appointment
+     *
+     * @return số payment đã hết hạn trong lần chạy
      */
-    void processExpiredPendingPayments();
+    int processExpiredPendingPayments();
 }
@@ -2,7 +2,6 @@ package org.project.service.impl;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
 import java.util.UUID;
 
 import org.project.config.PaymentQueryConfig;
@@ -76,58 +75,15 @@ public class PaymentQueryServiceImpl implements PaymentQueryService {
     }
 
     @Override
-    public void processProcessingPayments() {
-        if (!paymentQueryConfig.isQueryEnabled()) {
-            log.info("Truy vấn giao dịch đã bị vô hiệu hóa, bỏ qua xử lý các giao dịch đang chờ");
-            return;
-        }
-
-        List<Payment> processingPayments = getProcessingPayments();
-        processPayments(processingPayments);
-    }
-
-    private List<Payment> getProcessingPayments() {
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime cutoffTime = now.minusMinutes(paymentQueryConfig.getMinMinutesBeforeQuery());
-        LocalDateTime safetyDate = now.minusDays(paymentQueryConfig.getSafetyDaysBefore());
-
-        if (paymentQueryConfig.isAllowOldPaymentQuery()) {
-            return paymentRepository.findByStatusAndCreatedAtBeforeWithSafety(
-                    PaymentStatus.PROCESSING, cutoffTime, LocalDateTime.of(2020, 1, 1, 0, 0));
-        } else {
-            return paymentRepository.findByStatusAndCreatedAtBeforeWithSafety(
-                    PaymentStatus.PROCESSING, cutoffTime, safetyDate);
-        }
-    }
-
-    private void processPayments(List<Payment> payments) {
-        int processedCount = 0;
-        int errorCount = 0;
-
-        for (Payment payment : payments) {
-            try {
-                if (!isPaymentSafeToQuery(payment)) {
-                    continue;
-                }
-
-                PaymentGateway gateway = paymentGatewayFactory.getGateway(payment.getPaymentMethod());
-                PaymentQueryResult queryResult = gateway.queryPaymentStatus(
-                        payment.getTransactionId(),
-                        formatTransactionDate(payment.getCreatedAt())
-                );
-
-                processQueryResult(payment, queryResult);
-                processedCount++;
-                Thread.sleep(1000);
-
-            } catch (Exception e) {
-                log.error("Lỗi khi xử lý giao dịch đang chờ: {}", payment.getTransactionId(), e);
-                errorCount++;
-            }
+    public boolean applyReconciliationResult(UUID paymentId, PaymentQueryResult queryResult) {
+        Payment payment = paymentRepository.findById(paymentId).orElse(null);
+        // Callback từ cổng thanh toán có thể đã cập nhật payment trong lúc đang truy vấn
+        if (payment == null || !PaymentStatus.PROCESSING.equals(payment.getPaymentStatus())) {
+            return false;
         }
 
-        log.info("Đã hoàn thành xử lý các giao dịch đang chờ. Đã xử lý: {}, Lỗi: {}, Tổng số: {}",
-                processedCount, errorCount, payments.size());
+        processQueryResult(payment, queryResult);
+        return !PaymentStatus.PROCESSING.equals(payment.getPaymentStatus());
     }
 
     private boolean isPaymentSafeToQuery(Payment payment) {
@@ -211,10 +167,10 @@ public class PaymentQueryServiceImpl implements PaymentQueryService {
     private void handleStatusChange(Payment payment, PaymentStatus newStatus) {
         switch (newStatus) {
             case COMPLETED:
-                paymentStatusHandler.handlePaymentSuccess(payment.getId());
+                paymentStatusHandler.handlePaymentSuccess(payment);
                 break;
             case FAILED:
-                paymentStatusHandler.handlePaymentFailure(payment.getId());
+                paymentStatusHandler.handlePaymentFailure(payment);
                 break;
             case PENDING:
                 break;
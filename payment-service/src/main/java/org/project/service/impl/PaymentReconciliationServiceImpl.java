@@ -0,0 +1,270 @@
+package org.project.service.impl;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.project.config.PaymentQueryConfig;
+import org.project.config.PaymentReconciliationConfig;
+import org.project.dto.response.ReconciliationRunReport;
+import org.project.enums.PaymentStatus;
+import org.project.gateway.PaymentGatewayFactory;
+import org.project.gateway.dto.PaymentQueryResult;
+import org.project.model.Payment;
+import org.project.repository.PaymentRepository;
+import org.project.service.PaymentQueryService;
+import org.project.service.PaymentReconciliationService;
+import org.project.util.TokenBucketRateLimiter;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Đối soát các payment PROCESSING với cổng thanh toán.
+ * Payment cũ nhất được truy vấn trước, một nhóm worker cố định chia nhau hàng đợi và mọi lời gọi
+ * đi qua cùng một token bucket theo phần hạn mức của cổng chia cho replica này. Trước khi truy vấn, payment
+ * được đánh dấu last_reconciled_at để lần chạy khởi động lại hoặc replica khác bỏ qua; payment chưa có kết quả
+ * (lỗi, bị từ chối vì hạn mức hay hết thời gian chạy) được trả lại checkpoint cũ để lần chạy sau truy vấn tiếp.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PaymentReconciliationServiceImpl implements PaymentReconciliationService {
+
+    static final DateTimeFormatter TRANSACTION_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+    static final Comparator<ReconciliationTask> OLDEST_FIRST =
+            Comparator.comparing((ReconciliationTask task) -> task.payment().getCreatedAt())
+                    .thenComparing(task -> task.payment().getId());
+
+    PaymentRepository paymentRepository;
+    PaymentGatewayFactory paymentGatewayFactory;
+    PaymentQueryService paymentQueryService;
+    PaymentQueryConfig paymentQueryConfig;
+    PaymentReconciliationConfig reconciliationConfig;
+
+    AtomicBoolean running = new AtomicBoolean();
+
+    @NonFinal
+    TokenBucketRateLimiter rateLimiter;
+
+    @NonFinal
+    ExecutorService workerPool;
+
+    @PostConstruct
+    void init() {
+        // Hạn mức của cổng tính cho cả hệ thống: mỗi replica dùng một phần đều nhau,
+        // bucket và pool dùng chung giữa các lần chạy
+        int replicas = Math.max(1, reconciliationConfig.getReplicaCount());
+        rateLimiter = new TokenBucketRateLimiter(
+                reconciliationConfig.getRequestsPerSecond() / replicas,
+                Math.max(1, reconciliationConfig.getBurst() / replicas));
+        AtomicInteger threadIndex = new AtomicInteger();
+        workerPool = Executors.newFixedThreadPool(reconciliationConfig.getWorkerThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "payment-reconciliation-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workerPool.shutdownNow();
+    }
+
+    @Override
+    public ReconciliationRunReport reconcileProcessingPayments() {
+        if (!paymentQueryConfig.isQueryEnabled()) {
+            log.info("Truy vấn giao dịch đã bị vô hiệu hóa, bỏ qua xử lý các giao dịch đang chờ");
+            return null;
+        }
+        if (!running.compareAndSet(false, true)) {
+            log.info("Lần đối soát trước chưa kết thúc, bỏ qua lần chạy này");
+            return null;
+        }
+        try {
+            return run();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private ReconciliationRunReport run() {
+        UUID runId = UUID.randomUUID();
+        long startedAt = System.currentTimeMillis();
+        long deadline = startedAt + reconciliationConfig.getMaxRunDurationMs();
+
+        List<Payment> candidates = findCandidates();
+        RunState state = new RunState(candidates.size());
+        candidates.forEach(payment -> state.queue.add(new ReconciliationTask(payment, 0, null)));
+        log.info("Bắt đầu đối soát {}: {} giao dịch PROCESSING", runId, candidates.size());
+
+        int workers = Math.min(reconciliationConfig.getWorkerThreads(), candidates.size());
+        List<CompletableFuture<Void>> futures = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            futures.add(CompletableFuture.runAsync(() -> work(state, deadline), workerPool));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+        // Hết thời gian chạy: phần còn lại trong hàng đợi để lần chạy sau lấy lại
+        List<ReconciliationTask> leftover = new ArrayList<>();
+        state.queue.drainTo(leftover);
+        leftover.forEach(this::release);
+        state.deferred.addAndGet(leftover.size());
+
+        ReconciliationRunReport report = ReconciliationRunReport.builder()
+                .runId(runId)
+                .candidates(candidates.size())
+                .processed(state.processed.get())
+                .statusChanged(state.statusChanged.get())
+                .skipped(state.skipped.get())
+                .throttled(state.throttled.get())
+                .deferred(state.deferred.get())
+                .failed(state.failed.get())
+                .elapsedMillis(System.currentTimeMillis() - startedAt)
+                .build();
+        log.info("Đã hoàn thành đối soát: {}", report);
+        return report;
+    }
+
+    private List<Payment> findCandidates() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime createdBefore = now.minusMinutes(paymentQueryConfig.getMinMinutesBeforeQuery());
+        LocalDateTime createdAfter = now.minusHours(paymentQueryConfig.getMaxHoursForQuery());
+        if (!paymentQueryConfig.isAllowOldPaymentQuery()) {
+            LocalDateTime safetyDate = now.minusDays(paymentQueryConfig.getSafetyDaysBefore());
+            if (safetyDate.isAfter(createdAfter)) {
+                createdAfter = safetyDate;
+            }
+        }
+        return paymentRepository.findReconciliationCandidates(
+                PaymentStatus.PROCESSING, createdBefore, createdAfter, requeryThreshold(now),
+                PageRequest.of(0, reconciliationConfig.getMaxPaymentsPerRun()));
+    }
+
+    private void work(RunState state, long deadline) {
+        try {
+            while (state.remaining.get() > 0 && System.currentTimeMillis() < deadline) {
+                ReconciliationTask task = state.queue.poll(50, TimeUnit.MILLISECONDS);
+                if (task != null) {
+                    process(task, state);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void process(ReconciliationTask task, RunState state) throws InterruptedException {
+        Payment payment = task.payment();
+        try {
+            if (task.claimedAt() == null) {
+                LocalDateTime claimedAt = claim(payment);
+                if (claimedAt == null) {
+                    state.skipped.incrementAndGet();
+                    state.remaining.decrementAndGet();
+                    return;
+                }
+                task = new ReconciliationTask(payment, task.attempt(), claimedAt);
+            }
+
+            rateLimiter.acquire();
+            PaymentQueryResult queryResult = paymentGatewayFactory.getGateway(payment.getPaymentMethod())
+                    .queryPaymentStatus(payment.getTransactionId(),
+                            payment.getCreatedAt().format(TRANSACTION_DATE_FORMAT));
+
+            if (queryResult.isThrottled()) {
+                state.throttled.incrementAndGet();
+                rateLimiter.penalize(reconciliationConfig.getThrottleBackoffMs());
+                if (task.attempt() + 1 < reconciliationConfig.getMaxAttempts()) {
+                    state.queue.add(new ReconciliationTask(payment, task.attempt() + 1, task.claimedAt()));
+                } else {
+                    log.warn("Giao dịch {} bị từ chối vì vượt hạn mức {} lần, để lại cho lần chạy sau",
+                            payment.getTransactionId(), reconciliationConfig.getMaxAttempts());
+                    release(task);
+                    state.deferred.incrementAndGet();
+                    state.remaining.decrementAndGet();
+                }
+                return;
+            }
+
+            if (paymentQueryService.applyReconciliationResult(payment.getId(), queryResult)) {
+                state.statusChanged.incrementAndGet();
+            }
+            state.processed.incrementAndGet();
+            state.remaining.decrementAndGet();
+
+        } catch (InterruptedException e) {
+            release(task);
+            throw e;
+        } catch (Exception e) {
+            log.error("Lỗi khi xử lý giao dịch đang chờ: {}", payment.getTransactionId(), e);
+            release(task);
+            state.failed.incrementAndGet();
+            state.remaining.decrementAndGet();
+        }
+    }
+
+    /**
+     * Trả về mốc đã ghi vào last_reconciled_at, null nếu lần chạy khác (hoặc replica khác) đã nhận payment này
+     */
+    private LocalDateTime claim(Payment payment) {
+        LocalDateTime now = LocalDateTime.now();
+        return paymentRepository.claimForReconciliation(
+                payment.getId(), PaymentStatus.PROCESSING, now, requeryThreshold(now)) > 0 ? now : null;
+    }
+
+    private void release(ReconciliationTask task) {
+        if (task.claimedAt() == null) {
+            return;
+        }
+        try {
+            paymentRepository.releaseReconciliationClaim(
+                    task.payment().getId(), task.claimedAt(), task.payment().getLastReconciledAt());
+        } catch (Exception e) {
+            log.warn("Không thể trả checkpoint đối soát của giao dịch {}: {}",
+                    task.payment().getTransactionId(), e.getMessage());
+        }
+    }
+
+    private LocalDateTime requeryThreshold(LocalDateTime now) {
+        return now.minusMinutes(reconciliationConfig.getRequeryIntervalMinutes());
+    }
+
+    // claimedAt là mốc last_reconciled_at đã ghi khi nhận payment, null khi chưa nhận
+    record ReconciliationTask(Payment payment, int attempt, LocalDateTime claimedAt) {
+    }
+
+    static final class RunState {
+        final PriorityBlockingQueue<ReconciliationTask> queue = new PriorityBlockingQueue<>(64, OLDEST_FIRST);
+        // Số payment chưa có kết quả cuối cùng trong lần chạy, kể cả payment đang chờ thử lại
+        final AtomicInteger remaining;
+        final AtomicInteger processed = new AtomicInteger();
+        final AtomicInteger statusChanged = new AtomicInteger();
+        final AtomicInteger skipped = new AtomicInteger();
+        final AtomicInteger throttled = new AtomicInteger();
+        final AtomicInteger deferred = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+
+        RunState(int candidates) {
+            remaining = new AtomicInteger(candidates);
+        }
+    }
+}
@@ -4,7 +4,7 @@ import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
-import org.project.service.PaymentQueryService;
+import org.project.service.PaymentReconciliationService;
 import org.project.service.PaymentTimeoutService;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -18,7 +18,7 @@ public class PaymentSchedulerService {
 
     static final long PAYMENT_CHECK_INTERVAL = 300000; // 5 phút
 
-    PaymentQueryService paymentQueryService;
+    PaymentReconciliationService paymentReconciliationService;
     PaymentTimeoutService paymentTimeoutService;
 
     /**
@@ -48,7 +48,7 @@ public class PaymentSchedulerService {
         log.info("Bắt đầu scheduled task: {}", taskName);
 
         try {
-            paymentQueryService.processProcessingPayments();
+            paymentReconciliationService.reconcileProcessingPayments();
             log.info("Hoàn thành scheduled task: {}", taskName);
         } catch (Exception e) {
             log.error("Lỗi trong scheduled task {}: {}", taskName, e.getMessage(), e);
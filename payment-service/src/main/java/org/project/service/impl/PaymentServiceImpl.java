@@ -5,6 +5,7 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 import org.project.client.AppointmentServiceClient;
@@ -37,6 +38,7 @@ import org.project.repository.PaymentRepository;
 import org.project.service.OrderInfoBuilder;
 import org.project.service.PaymentAmountCalculator;
 import org.project.service.PaymentQueryService;
+import org.project.service.PaymentReconciliationService;
 import org.project.service.PaymentResolutionService;
 import org.project.service.PaymentService;
 import org.project.service.PaymentStatusHandler;
@@ -46,6 +48,7 @@ import org.project.service.TransactionIdGenerator;
 import org.project.util.PaymentRefundUtil;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import lombok.AccessLevel;
@@ -69,6 +72,7 @@ public class PaymentServiceImpl implements PaymentService {
     PaymentAmountCalculator paymentAmountCalculator;
     PaymentStatusHandler paymentStatusHandler;
     PaymentQueryService paymentQueryService;
+    PaymentReconciliationService paymentReconciliationService;
     OrderInfoBuilder orderInfoBuilder;
     PaymentRefundValidationService paymentRefundValidationService;
     PaymentRefundUtil paymentRefundUtil;
@@ -76,7 +80,10 @@ public class PaymentServiceImpl implements PaymentService {
     RefundPolicyService refundPolicyService;
     TransactionIdGenerator transactionIdGenerator;
 
-    // Tạo url thanh toán cho appointment
+    /**
+     * Tạo url thanh toán cho appointment. Idempotent theo lịch hẹn: payment PENDING/PROCESSING đã có
+     * (request trước đã commit nhưng response bị mất) được trả lại thay vì báo PAYMENT_ALREADY_EXISTS.
+     */
     @Override
     public PaymentUrlResponse createPayment(CreatePaymentRequest request, String customerIp) {
         validationService.validateCreatePaymentRequest(request);
@@ -87,6 +94,12 @@ public class PaymentServiceImpl implements PaymentService {
         BigDecimal paymentAmount = paymentAmountCalculator
                 .calculatePaymentAmount(request.getConsultationFee(), request.getPaymentType());
 
+        paymentRepository.lockAppointment(request.getAppointmentId());
+        Optional<Payment> inProgress = findInProgressPayment(request.getAppointmentId(), request.getPaymentType());
+        if (inProgress.isPresent()) {
+            return resumePayment(inProgress.get(), request, customerIp);
+        }
+
         validateNoExistingPayment(request.getAppointmentId(), request.getPaymentType());
 
         Payment payment = createPaymentRecord(request.getAppointmentId(), request, paymentAmount);
@@ -119,12 +132,13 @@ public class PaymentServiceImpl implements PaymentService {
         if(PaymentStatus.COMPLETED.equals(updatedPayment.getPaymentStatus())) {
             log.info("Thanh toán thành công, ID thanh toán: {}", updatedPayment.getId());
             
-            // Publish PaymentCompletedEvent
-            handlePaymentSuccess(payment.getId());
+            // Ghi PaymentCompletedEvent vào outbox, commit cùng trạng thái payment
+            paymentStatusHandler.handlePaymentSuccess(updatedPayment);
         } else if (PaymentStatus.FAILED.equals(updatedPayment.getPaymentStatus())) {
             log.info("Thanh toán thất bại (xác nhận bởi VNPay), ID thanh toán: {}", updatedPayment.getId());
 
-            handlePaymentFailure(payment.getId());        }
+            paymentStatusHandler.handlePaymentFailure(updatedPayment);
+        }
 
         log.info("Đã xử lý phản hồi thanh toán cho ID: {}, Trạng thái: {}",
                 payment.getId(), payment.getPaymentStatus());
@@ -195,8 +209,9 @@ public class PaymentServiceImpl implements PaymentService {
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void processProcessingPayments() {
-        paymentQueryService.processProcessingPayments();
+        paymentReconciliationService.reconcileProcessingPayments();
     }
 
     @Override
@@ -235,17 +250,31 @@ public class PaymentServiceImpl implements PaymentService {
         return confirmPaymentProcessing(payment.getId());
     }
 
-    // Kiểm tra payment nào đã tồn tại với cùng cuộc hẹn và loại thanh toán
-    private void validateNoExistingPayment(UUID appointmentId, PaymentType paymentType) {
-        List<PaymentStatus> activeStatuses = Arrays.asList(
-                PaymentStatus.PENDING,
-                PaymentStatus.PROCESSING,
-                PaymentStatus.COMPLETED
-        );
+    // Payment đang chờ thanh toán của cùng cuộc hẹn và loại thanh toán
+    private Optional<Payment> findInProgressPayment(UUID appointmentId, PaymentType paymentType) {
+        return paymentRepository.findFirstByAppointmentIdAndPaymentTypeAndPaymentStatusInOrderByCreatedAtDesc(
+                appointmentId, paymentType, Arrays.asList(PaymentStatus.PENDING, PaymentStatus.PROCESSING));
+    }
+
+    // Trả lại payment đang chờ cho yêu cầu lặp lại, chỉ tạo URL mới nếu payment chưa có URL
+    private PaymentUrlResponse resumePayment(Payment payment, CreatePaymentRequest request, String customerIp) {
+        log.info("Payment {} của appointment {} đã tồn tại ({}), trả lại payment hiện có",
+                payment.getId(), request.getAppointmentId(), payment.getPaymentStatus());
 
+        String paymentUrl = payment.getPaymentUrl();
+        if (paymentUrl == null) {
+            paymentUrl = generatePaymentUrl(payment, request, customerIp);
+            payment.setPaymentUrl(paymentUrl);
+            paymentRepository.save(payment);
+        }
+        return buildPaymentUrlResponse(payment, paymentUrl);
+    }
+
+    // Kiểm tra cuộc hẹn đã được thanh toán xong với cùng loại thanh toán
+    private void validateNoExistingPayment(UUID appointmentId, PaymentType paymentType) {
         boolean hasExistingPayment = paymentRepository
                 .existsByAppointmentIdAndPaymentTypeAndPaymentStatusIn(
-                        appointmentId, paymentType, activeStatuses);
+                        appointmentId, paymentType, List.of(PaymentStatus.COMPLETED));
 
         if (hasExistingPayment) {
             throw new CustomException(ErrorCode.PAYMENT_ALREADY_EXISTS);
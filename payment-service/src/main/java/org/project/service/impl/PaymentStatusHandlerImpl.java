@@ -1,17 +1,13 @@
 package org.project.service.impl;
 
-import java.time.LocalDateTime;
 import java.util.UUID;
 
-import org.project.config.PaymentKafkaTopics;
-import org.project.events.PaymentCompletedEvent;
-import org.project.events.PaymentFailedEvent;
 import org.project.exception.CustomException;
 import org.project.exception.ErrorCode;
 import org.project.model.Payment;
+import org.project.publisher.PaymentEventPublisher;
 import org.project.repository.PaymentRepository;
 import org.project.service.PaymentStatusHandler;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -28,60 +24,37 @@ import lombok.extern.slf4j.Slf4j;
 public class PaymentStatusHandlerImpl implements PaymentStatusHandler {
 
     PaymentRepository paymentRepository;
-    KafkaTemplate<String, Object> kafkaTemplate;
-    PaymentKafkaTopics topics;
+    PaymentEventPublisher paymentEventPublisher;
 
     @Override
     public void handlePaymentSuccess(UUID paymentId) {
-        Payment payment = paymentRepository.findById(paymentId)
-                .orElseThrow(() -> new CustomException(ErrorCode.PAYMENT_NOT_FOUND));
-
-        log.info("Thanh toán thành công xác nhận từ query: paymentId={}, appointmentId={}", 
-                paymentId, payment.getAppointmentId());
-        publishPaymentCompletedEvent(payment);
+        handlePaymentSuccess(findPayment(paymentId));
     }
 
     @Override
     public void handlePaymentFailure(UUID paymentId) {
-        Payment payment = paymentRepository.findById(paymentId)
-                .orElseThrow(() -> new CustomException(ErrorCode.PAYMENT_NOT_FOUND));
+        handlePaymentFailure(findPayment(paymentId));
+    }
+
+    @Override
+    public void handlePaymentSuccess(Payment payment) {
+        log.info("Thanh toán thành công: paymentId={}, appointmentId={}",
+                payment.getId(), payment.getAppointmentId());
 
-        log.info("Thanh toán thất bại xác nhận từ query: paymentId={}, appointmentId={}", 
-                paymentId, payment.getAppointmentId());
-        
-        publishPaymentFailedEvent(payment, "Thanh toán thất bại (xác nhận từ query)", true);
+        // Sự kiện được ghi vào outbox cùng transaction với trạng thái payment
+        paymentEventPublisher.publishPaymentCompleted(payment);
     }
-    
-    private void publishPaymentCompletedEvent(Payment payment) {
-        PaymentCompletedEvent event = PaymentCompletedEvent.builder()
-                .paymentId(payment.getId())
-                .appointmentId(payment.getAppointmentId())
-                .amount(payment.getAmount())
-                .paymentType(payment.getPaymentType().name())
-                .paymentMethod(payment.getPaymentMethod().name())
-                .transactionId(payment.getTransactionId())
-                .gatewayTransactionId(payment.getGatewayTransactionId())
-                .paymentDate(payment.getPaymentDate())
-                .timestamp(LocalDateTime.now())
-                .build();
-                
-        kafkaTemplate.send(topics.getPaymentCompleted(), payment.getAppointmentId().toString(), event);
-        log.info("Đã gửi PaymentCompletedEvent (từ query) cho appointment: {}", payment.getAppointmentId());
+
+    @Override
+    public void handlePaymentFailure(Payment payment) {
+        log.info("Thanh toán thất bại: paymentId={}, appointmentId={}",
+                payment.getId(), payment.getAppointmentId());
+
+        paymentEventPublisher.publishPaymentFailed(payment, "Thanh toán thất bại (xác nhận từ query)", true);
     }
-    
-    private void publishPaymentFailedEvent(Payment payment, String reason, boolean confirmedFailure) {
-        PaymentFailedEvent event = PaymentFailedEvent.builder()
-                .paymentId(payment.getId())
-                .appointmentId(payment.getAppointmentId())
-                .transactionId(payment.getTransactionId())
-                .reason(reason)
-                .failedService("payment-service")
-                .timestamp(LocalDateTime.now())
-                .confirmedFailure(confirmedFailure)
-                .build();
-                
-        kafkaTemplate.send(topics.getPaymentFailed(), payment.getAppointmentId().toString(), event);
-        log.info("Đã gửi PaymentFailedEvent (từ query) cho appointment: {}, confirmedFailure: {}", 
-                payment.getAppointmentId(), confirmedFailure);
+
+    private Payment findPayment(UUID paymentId) {
+        return paymentRepository.findById(paymentId)
+                .orElseThrow(() -> new CustomException(ErrorCode.PAYMENT_NOT_FOUND));
     }
 }
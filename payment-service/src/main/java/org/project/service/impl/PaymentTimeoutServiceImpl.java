@@ -4,79 +4,82 @@ import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
-import org.project.enums.PaymentStatus;
-import org.project.model.Payment;
+import org.project.config.PaymentTimeoutConfig;
+import org.project.publisher.PaymentEventPublisher;
+import org.project.repository.ExpiredPaymentProjection;
 import org.project.repository.PaymentRepository;
-import org.project.service.PaymentStatusHandler;
 import org.project.service.PaymentTimeoutService;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
+/**
+ * Hết hạn payment PENDING theo lô: mỗi lô là một câu UPDATE ... RETURNING có điều kiện, sự kiện của lô
+ * được ghi vào outbox trong cùng transaction. Câu lệnh bỏ qua dòng đang bị khóa nên nhiều replica có thể
+ * chạy cùng lúc mà không xử lý trùng payment.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
-@FieldDefaults(level = AccessLevel.PRIVATE)
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class PaymentTimeoutServiceImpl implements PaymentTimeoutService {
 
-    private final PaymentRepository paymentRepository;
-    private final PaymentStatusHandler paymentStatusHandler;
-
-    @Value("${payment.pending-timeout-minutes:15}")
-    private static int pendingTimeoutMinutes;
+    PaymentRepository paymentRepository;
+    PaymentEventPublisher paymentEventPublisher;
+    PaymentTimeoutConfig timeoutConfig;
+    TransactionTemplate transactionTemplate;
 
     @Override
-    @Transactional
-    public void processExpiredPendingPayments() {
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime timeoutThreshold = now.minusMinutes(pendingTimeoutMinutes);
-
-        log.info("Đang tìm các payment PENDING quá hạn (trước {})", timeoutThreshold);
-
-        // Tìm các payment PENDING đã quá 15 phút
-        List<Payment> expiredPayments = paymentRepository
-                .findByPaymentStatusAndCreatedAtBefore(PaymentStatus.PENDING, timeoutThreshold);
-
-        if (expiredPayments.isEmpty()) {
-            log.info("Không có payment PENDING nào quá hạn");
-            return;
-        }
+    public int processExpiredPendingPayments() {
+        long startedAt = System.currentTimeMillis();
+        LocalDateTime timeoutThreshold = LocalDateTime.now().minusMinutes(timeoutConfig.getPendingMinutes());
+        String reason = "Thanh toán quá hạn (PENDING quá " + timeoutConfig.getPendingMinutes() + " phút)";
 
-        log.info("Tìm thấy {} payment PENDING quá hạn, bắt đầu xử lý", expiredPayments.size());
+        log.info("Đang xử lý các payment PENDING quá hạn (trước {})", timeoutThreshold);
 
-        int processedCount = 0;
-        int errorCount = 0;
-
-        for (Payment payment : expiredPayments) {
+        int expiredCount = 0;
+        int batches = 0;
+        while (batches < timeoutConfig.getMaxBatchesPerRun()) {
+            int expired;
             try {
-                processExpiredPayment(payment);
-                processedCount++;
+                expired = expireBatch(timeoutThreshold, reason);
             } catch (Exception e) {
-                log.error("Lỗi khi xử lý payment quá hạn: paymentId={}, transactionId={}",
-                        payment.getId(), payment.getTransactionId(), e);
-                errorCount++;
+                // Lô đã rollback, các payment vẫn PENDING cho lần chạy sau
+                log.error("Lỗi khi hết hạn lô payment PENDING, dừng lần chạy", e);
+                break;
+            }
+            if (expired == 0) {
+                break;
+            }
+            batches++;
+            expiredCount += expired;
+
+            if (expired < timeoutConfig.getBatchSize()) {
+                break;
             }
         }
 
-        log.info("Hoàn thành xử lý payment PENDING quá hạn. Đã xử lý: {}, Lỗi: {}, Tổng: {}",
-                processedCount, errorCount, expiredPayments.size());
+        if (expiredCount == 0) {
+            log.info("Không có payment PENDING nào quá hạn");
+        } else {
+            log.info("Hoàn thành xử lý payment PENDING quá hạn. Đã đánh dấu thất bại: {}, Số lô: {}, Thời gian: {} ms",
+                    expiredCount, batches, System.currentTimeMillis() - startedAt);
+        }
+        return expiredCount;
     }
 
-    private void processExpiredPayment(Payment payment) {
-        log.warn("Payment {} đã quá hạn PENDING (tạo lúc: {}), đánh dấu thất bại",
-                payment.getId(), payment.getCreatedAt());
-
-        // Cập nhật trạng thái payment
-        payment.setPaymentStatus(PaymentStatus.FAILED);
-        payment.setUpdatedAt(LocalDateTime.now());
-        paymentRepository.save(payment);
-
-        // Publish PaymentFailedEvent để hủy appointment
-        paymentStatusHandler.handlePaymentFailure(payment.getId());
-
-        log.info("Đã đánh dấu payment {} thất bại và publish event", payment.getId());
+    // Đổi trạng thái và ghi PaymentFailedEvent vào outbox trong cùng một transaction
+    private int expireBatch(LocalDateTime timeoutThreshold, String reason) {
+        Integer expired = transactionTemplate.execute(status -> {
+            List<ExpiredPaymentProjection> payments = paymentRepository.expirePendingBatch(
+                    timeoutThreshold, LocalDateTime.now(), timeoutConfig.getBatchSize());
+            if (!payments.isEmpty()) {
+                paymentEventPublisher.publishPaymentsFailed(payments, reason, true);
+            }
+            return payments.size();
+        });
+        return expired != null ? expired : 0;
     }
 }
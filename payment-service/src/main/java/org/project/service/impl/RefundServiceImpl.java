@@ -13,6 +13,7 @@ import org.project.publisher.PaymentEventPublisher;
 import org.project.service.PaymentService;
 import org.project.service.RefundService;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -24,6 +25,7 @@ import java.time.LocalDateTime;
 public class RefundServiceImpl implements RefundService {
     PaymentService paymentService;
     PaymentEventPublisher eventPublisher;
+    TransactionTemplate transactionTemplate;
 
     @Override
     public void processRefundForCancellation(AppointmentCancellationInitiatedEvent event) {
@@ -32,9 +34,12 @@ public class RefundServiceImpl implements RefundService {
         try {
             PaymentRefundRequest refundRequest = buildRefundRequest(event);
 
-            PaymentRefundResponse refundResponse = paymentService.refundPayment(refundRequest);
-
-            publishSuccessEvent(event, refundResponse);
+            // Cập nhật hoàn tiền và sự kiện thành công commit cùng nhau
+            PaymentRefundResponse refundResponse = transactionTemplate.execute(status -> {
+                PaymentRefundResponse response = paymentService.refundPayment(refundRequest);
+                publishSuccessEvent(event, response);
+                return response;
+            });
 
             log.info("Successfully processed refund for appointment: {}, amount: {}",
                     event.getAppointmentId(), refundResponse.getRefundAmount());
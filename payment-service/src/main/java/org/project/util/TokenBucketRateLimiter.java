@@ -0,0 +1,54 @@
+package org.project.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket dùng chung giữa các worker: nạp lại đều requestsPerSecond token mỗi giây, tối đa burst token.
+ * Mỗi lần acquire đặt trước một token rồi ngủ ngoài khóa cho tới lượt của mình, nên các luồng được phục vụ
+ * theo thứ tự đến và khóa chỉ giữ trong vài phép tính.
+ */
+public class TokenBucketRateLimiter {
+    private final double permitsPerNano;
+    private final double capacity;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucketRateLimiter(double requestsPerSecond, int burst) {
+        if (requestsPerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("requestsPerSecond và burst phải lớn hơn 0");
+        }
+        this.permitsPerNano = requestsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = burst;
+        this.tokens = burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    public void acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Cổng thanh toán báo vượt hạn mức: bỏ số token còn lại để lượt kế tiếp chờ ít nhất pauseMillis.
+     * Nhiều worker cùng bị từ chối không cộng dồn thời gian chờ.
+     */
+    public synchronized void penalize(long pauseMillis) {
+        refill(System.nanoTime());
+        tokens = Math.min(tokens, -TimeUnit.MILLISECONDS.toNanos(pauseMillis) * permitsPerNano);
+    }
+
+    private synchronized long reserve() {
+        refill(System.nanoTime());
+        tokens -= 1;
+        // Số token âm là phần đã được đặt trước bởi các luồng đang chờ
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / permitsPerNano);
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * permitsPerNano);
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,194 @@
+package org.project.gateway.vnpay.util;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VNPayUtilTest {
+
+    private static final String HASH_SECRET = "SECRETKEY0123456789ABCDEFGHIJKLMNOPQRSTUV";
+    private static final String PAYMENT_URL = "https://sandbox.vnpayment.vn/paymentv2/vpcpay.html";
+    // Có ký tự cần encode, tiếng Việt, emoji (cặp surrogate) và surrogate lẻ
+    private static final String ALPHABET = "abcXYZ019 -_.*~!@#$%^&()+=/?:;,'\"<>[]{}|\\áạđÂ😀\uD800";
+
+    private final VNPayUtil vnPayUtil = new VNPayUtil();
+    private final Random random = new Random(42);
+
+    @Test
+    void buildPaymentUrl_ShouldMatchPreviousEncodingAndSignature() {
+        for (int i = 0; i < 2_000; i++) {
+            Map<String, String> params = randomParams();
+
+            String url = vnPayUtil.buildPaymentUrl(PAYMENT_URL, params, HASH_SECRET);
+
+            assertThat(url).isEqualTo(referencePaymentUrl(params));
+        }
+    }
+
+    @Test
+    void buildPaymentUrl_WithVietnameseOrderInfo_ShouldEncodeLikeUrlEncoder() {
+        Map<String, String> params = new HashMap<>();
+        params.put("vnp_OrderInfo", "Thanh toán tiền cọc cho lịch hẹn: 42");
+        params.put("vnp_Amount", "50000000");
+
+        String url = vnPayUtil.buildPaymentUrl(PAYMENT_URL, params, HASH_SECRET);
+
+        assertThat(url).startsWith(PAYMENT_URL + "?vnp_Amount=50000000&vnp_OrderInfo=Thanh+to%3Fn+ti%3Fn+c%3Fc")
+                .isEqualTo(referencePaymentUrl(params));
+    }
+
+    @Test
+    void verifyCallback_ShouldAcceptPreviousSignaturesAndRejectTampering() {
+        for (int i = 0; i < 2_000; i++) {
+            Map<String, String> params = randomParams();
+            params.put("vnp_SecureHashType", "SHA512");
+            params.put("vnp_SecureHash", referenceCallbackHash(params));
+
+            assertThat(vnPayUtil.verifyCallback(params, HASH_SECRET)).isTrue();
+
+            params.put("vnp_Amount", "1");
+            assertThat(vnPayUtil.verifyCallback(params, HASH_SECRET))
+                    .isEqualTo(referenceCallbackHash(params).equals(params.get("vnp_SecureHash")));
+        }
+    }
+
+    @Test
+    void hmacSHA512_ShouldMatchPreviousOutputForAllSigningPaths() throws Exception {
+        String longData = "x".repeat(5_000) + "Thanh toán" + "y".repeat(3_000);
+
+        assertThat(vnPayUtil.hmacSHA512(HASH_SECRET, longData)).isEqualTo(referenceHmac(HASH_SECRET, longData));
+        assertThat(vnPayUtil.createQuerySecureHash("1", "2.1.0", "querydr", "DEMOV210", "PAY1", "20261017",
+                "20261017120000", "127.0.0.1", "Truy vấn giao dịch", HASH_SECRET))
+                .isEqualTo(referenceHmac(HASH_SECRET,
+                        "1|2.1.0|querydr|DEMOV210|PAY1|20261017|20261017120000|127.0.0.1|Truy vấn giao dịch"));
+        // Secret khác không được dùng lại Mac đã init với secret cũ trong pool
+        assertThat(vnPayUtil.hmacSHA512("OTHER", "data")).isEqualTo(referenceHmac("OTHER", "data"));
+        assertThat(vnPayUtil.hmacSHA512("", "data")).isEmpty();
+        assertThat(vnPayUtil.hmacSHA512(null, "data")).isEmpty();
+    }
+
+    @Test
+    void hmacSHA512_FromManyThreads_ShouldNotShareMacState() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CompletableFuture<?>[] futures = IntStream.range(0, 8)
+                    .mapToObj(thread -> CompletableFuture.runAsync(() -> {
+                        for (int i = 0; i < 500; i++) {
+                            String data = "thread-" + thread + "-" + i;
+                            try {
+                                assertThat(vnPayUtil.hmacSHA512(HASH_SECRET, data))
+                                        .isEqualTo(referenceHmac(HASH_SECRET, data));
+                            } catch (Exception e) {
+                                throw new IllegalStateException(e);
+                            }
+                        }
+                    }, executor))
+                    .toArray(CompletableFuture[]::new);
+            CompletableFuture.allOf(futures).join();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void hmacSHA512_FromVirtualThreadsWithTwoSecrets_ShouldNotMixKeys() {
+        // Mỗi virtual thread chỉ ký một lần: Mac phải được dùng lại qua pool chứ không theo luồng
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            CompletableFuture<?>[] futures = IntStream.range(0, 2_000)
+                    .mapToObj(task -> CompletableFuture.runAsync(() -> {
+                        String secret = task % 2 == 0 ? HASH_SECRET : "OTHER";
+                        String data = "task-" + task;
+                        try {
+                            assertThat(vnPayUtil.hmacSHA512(secret, data)).isEqualTo(referenceHmac(secret, data));
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }, executor))
+                    .toArray(CompletableFuture[]::new);
+            CompletableFuture.allOf(futures).join();
+        }
+    }
+
+    private Map<String, String> randomParams() {
+        Map<String, String> params = new HashMap<>();
+        int fields = random.nextInt(12);
+        for (int i = 0; i < fields; i++) {
+            String name = random.nextInt(20) == 0 ? "vnp x" + i : "vnp_F" + random.nextInt(30);
+            StringBuilder value = new StringBuilder();
+            int length = random.nextInt(4) == 0 ? 0 : random.nextInt(30);
+            for (int j = 0; j < length; j++) {
+                value.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            params.put(name, value.toString());
+        }
+        return params;
+    }
+
+    // Cách ký trước đây, giữ lại làm chuẩn so sánh
+
+    private static String referencePaymentUrl(Map<String, String> params) {
+        TreeMap<String, String> sorted = new TreeMap<>(params);
+        StringBuilder hashData = new StringBuilder();
+        StringBuilder query = new StringBuilder();
+        int index = 0;
+        for (Map.Entry<String, String> entry : sorted.entrySet()) {
+            boolean hasNext = ++index < sorted.size();
+            if (!entry.getValue().isEmpty()) {
+                String value = URLEncoder.encode(entry.getValue(), StandardCharsets.US_ASCII);
+                hashData.append(entry.getKey()).append('=').append(value);
+                query.append(URLEncoder.encode(entry.getKey(), StandardCharsets.US_ASCII)).append('=').append(value);
+                if (hasNext) {
+                    query.append('&');
+                    hashData.append('&');
+                }
+            }
+        }
+        try {
+            return PAYMENT_URL + "?" + query + "&vnp_SecureHash=" + referenceHmac(HASH_SECRET, hashData.toString());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String referenceCallbackHash(Map<String, String> params) {
+        TreeMap<String, String> sorted = new TreeMap<>(params);
+        sorted.remove("vnp_SecureHashType");
+        sorted.remove("vnp_SecureHash");
+        StringBuilder data = new StringBuilder();
+        int index = 0;
+        for (Map.Entry<String, String> entry : sorted.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                data.append(entry.getKey()).append('=')
+                        .append(URLEncoder.encode(entry.getValue(), StandardCharsets.US_ASCII));
+            }
+            if (++index < sorted.size()) {
+                data.append('&');
+            }
+        }
+        try {
+            return referenceHmac(HASH_SECRET, data.toString());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String referenceHmac(String key, String data) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA512");
+        mac.init(new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "HmacSHA512"));
+        return HexFormat.of().formatHex(mac.doFinal(data.getBytes(StandardCharsets.UTF_8)));
+    }
+}
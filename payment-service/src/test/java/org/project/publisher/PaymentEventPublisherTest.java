@@ -0,0 +1,146 @@
+package org.project.publisher;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.project.enums.PaymentMethod;
+import org.project.enums.PaymentStatus;
+import org.project.enums.PaymentType;
+import org.project.events.PaymentCompletedEvent;
+import org.project.events.PaymentFailedEvent;
+import org.project.model.Payment;
+import org.project.outbox.OutboxService;
+import org.project.repository.ExpiredPaymentProjection;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Phần riêng của payment-service trong outbox: eventId và aggregate của sự kiện thanh toán.
+ * Relay và bảng outbox được kiểm tra trong common-core.
+ */
+@ExtendWith(MockitoExtension.class)
+class PaymentEventPublisherTest {
+
+    @Mock
+    private OutboxService outboxService;
+
+    @InjectMocks
+    private PaymentEventPublisher paymentEventPublisher;
+
+    @Test
+    void publishPaymentCompleted_Twice_ShouldReuseEventIdOfPayment() {
+        // Given: callback và job đối soát cùng xác nhận một payment
+        Payment payment = payment();
+
+        // When
+        paymentEventPublisher.publishPaymentCompleted(payment);
+        paymentEventPublisher.publishPaymentCompleted(payment);
+
+        // Then: cùng eventId nên outbox chỉ giữ một sự kiện, key là appointmentId
+        ArgumentCaptor<String> eventIds = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object> events = ArgumentCaptor.forClass(Object.class);
+        verify(outboxService, times(2)).saveEvent(eventIds.capture(), eq("PAYMENT"),
+                eq(payment.getAppointmentId()), eq("PAYMENT_COMPLETED"), events.capture());
+        assertThat(eventIds.getAllValues()).containsOnly(eventIds.getAllValues().get(0));
+        PaymentCompletedEvent event = (PaymentCompletedEvent) events.getValue();
+        assertThat(event.getEventId()).isEqualTo(eventIds.getValue());
+        assertThat(event.getPaymentId()).isEqualTo(payment.getId());
+    }
+
+    @Test
+    void publishPaymentFailed_ShouldUseSameEventIdAsBatchExpiry() {
+        // Given: payment hết hạn theo lô và bị callback báo thất bại cùng lúc
+        Payment payment = payment();
+        ExpiredPaymentProjection expired = expired(payment.getId(), payment.getAppointmentId());
+
+        // When
+        paymentEventPublisher.publishPaymentFailed(payment, "Callback báo thất bại", true);
+        paymentEventPublisher.publishPaymentsFailed(List.of(expired), "Thanh toán quá hạn", true);
+
+        // Then
+        ArgumentCaptor<String> eventId = ArgumentCaptor.forClass(String.class);
+        verify(outboxService).saveEvent(eventId.capture(), eq("PAYMENT"), eq(payment.getAppointmentId()),
+                eq("PAYMENT_FAILED"), any(PaymentFailedEvent.class));
+        ArgumentCaptor<List<PaymentFailedEvent>> batch = listCaptor();
+        ArgumentCaptor<Function<PaymentFailedEvent, String>> eventIdOf = functionCaptor();
+        verify(outboxService).saveEvents(eq("PAYMENT"), eq("PAYMENT_FAILED"), batch.capture(),
+                eventIdOf.capture(), any());
+        assertThat(batch.getValue()).singleElement()
+                .satisfies(event -> assertThat(eventIdOf.getValue().apply(event)).isEqualTo(eventId.getValue()));
+    }
+
+    @Test
+    void publishPaymentsFailed_ShouldWriteWholeBatchInOneCall() {
+        // Given
+        List<ExpiredPaymentProjection> expired = List.of(expired(), expired(), expired());
+
+        // When
+        paymentEventPublisher.publishPaymentsFailed(expired, "Thanh toán quá hạn", true);
+
+        // Then
+        verify(outboxService, times(1)).saveEvents(eq("PAYMENT"), eq("PAYMENT_FAILED"), anyList(), any(), any());
+        verify(outboxService, never()).saveEvent(anyString(), anyString(), any(), anyString(), any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<PaymentFailedEvent>> listCaptor() {
+        return ArgumentCaptor.forClass(List.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<Function<PaymentFailedEvent, String>> functionCaptor() {
+        return ArgumentCaptor.forClass(Function.class);
+    }
+
+    private static ExpiredPaymentProjection expired() {
+        return expired(UUID.randomUUID(), UUID.randomUUID());
+    }
+
+    private static ExpiredPaymentProjection expired(UUID id, UUID appointmentId) {
+        return new ExpiredPaymentProjection() {
+            @Override
+            public UUID getId() {
+                return id;
+            }
+
+            @Override
+            public UUID getAppointmentId() {
+                return appointmentId;
+            }
+
+            @Override
+            public String getTransactionId() {
+                return "TXN-" + id;
+            }
+        };
+    }
+
+    private static Payment payment() {
+        return Payment.builder()
+                .id(UUID.randomUUID())
+                .appointmentId(UUID.randomUUID())
+                .amount(BigDecimal.valueOf(150_000))
+                .paymentType(PaymentType.FULL)
+                .paymentMethod(PaymentMethod.VNPAY)
+                .paymentStatus(PaymentStatus.COMPLETED)
+                .transactionId("TXN1")
+                .paymentDate(LocalDateTime.now())
+                .build();
+    }
+}
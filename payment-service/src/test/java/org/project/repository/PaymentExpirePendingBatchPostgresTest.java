@@ -0,0 +1,214 @@
+package org.project.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.project.config.PaymentTimeoutConfig;
+import org.project.publisher.PaymentEventPublisher;
+import org.project.service.impl.PaymentTimeoutServiceImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Chạy câu UPDATE ... FOR UPDATE SKIP LOCKED của {@link PaymentRepository#expirePendingBatch} trên Postgres thật
+ * (Testcontainers) với nhiều replica PaymentTimeoutServiceImpl chạy đồng thời, mỗi replica một kết nối và
+ * transaction riêng. Bỏ qua khi máy không có Docker.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class PaymentExpirePendingBatchPostgresTest {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentExpirePendingBatchPostgresTest.class);
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES =
+            new PostgreSQLContainer<>(DockerImageName.parse("postgres:16-alpine"));
+
+    private static DriverManagerDataSource dataSource;
+    private static NamedParameterJdbcTemplate jdbcTemplate;
+    private static String expireSql;
+
+    private PaymentTimeoutConfig timeoutConfig;
+    private Map<UUID, AtomicInteger> expiredCounts;
+    private Map<UUID, AtomicInteger> publishedEvents;
+
+    @BeforeAll
+    static void createTable() throws Exception {
+        dataSource = new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        expireSql = PaymentRepository.class
+                .getMethod("expirePendingBatch", LocalDateTime.class, LocalDateTime.class, int.class)
+                .getAnnotation(Query.class)
+                .value();
+
+        // Các cột mà câu UPDATE ... RETURNING dùng tới
+        jdbcTemplate.getJdbcTemplate().execute("CREATE TABLE payments (" +
+                "id uuid PRIMARY KEY, appointment_id uuid NOT NULL, transaction_id varchar(255), " +
+                "payment_status varchar(255), created_at timestamp, updated_at timestamp)");
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.getJdbcTemplate().execute("TRUNCATE payments");
+        timeoutConfig = new PaymentTimeoutConfig();
+        timeoutConfig.setPendingMinutes(15);
+        timeoutConfig.setBatchSize(500);
+        timeoutConfig.setMaxBatchesPerRun(1_000);
+        expiredCounts = new ConcurrentHashMap<>();
+        publishedEvents = new ConcurrentHashMap<>();
+    }
+
+    @AfterEach
+    void clear() {
+        jdbcTemplate.getJdbcTemplate().execute("TRUNCATE payments");
+    }
+
+    @Test
+    void processExpired_WithSeveralReplicas_ShouldExpireEachPaymentExactlyOnce() {
+        // Given: 20.000 payment PENDING quá hạn, 3 replica chạy sweeper cùng lúc
+        int paymentCount = 20_000;
+        int replicas = 3;
+        insertPending(paymentCount, LocalDateTime.now().minusHours(2));
+        List<PaymentTimeoutServiceImpl> services = new ArrayList<>();
+        for (int i = 0; i < replicas; i++) {
+            services.add(newService());
+        }
+
+        // When
+        ExecutorService executor = Executors.newFixedThreadPool(replicas);
+        long startedAt = System.nanoTime();
+        List<CompletableFuture<Integer>> runs = services.stream()
+                .map(service -> CompletableFuture.supplyAsync(service::processExpiredPendingPayments, executor))
+                .toList();
+        int totalExpired = runs.stream().mapToInt(CompletableFuture::join).sum();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        executor.shutdown();
+
+        // Then: mỗi payment được đúng một câu UPDATE trả về và publish đúng một lần
+        log.info("Hết hạn {} payment bằng {} replica trên Postgres: {} ms", totalExpired, replicas, elapsedMillis);
+        assertThat(totalExpired).isEqualTo(paymentCount);
+        assertThat(expiredCounts).hasSize(paymentCount)
+                .allSatisfy((id, count) -> assertThat(count.get()).isEqualTo(1));
+        assertThat(publishedEvents).hasSize(paymentCount)
+                .allSatisfy((id, count) -> assertThat(count.get()).isEqualTo(1));
+        assertThat(countByStatus("FAILED")).isEqualTo(paymentCount);
+        assertThat(countByStatus("PENDING")).isZero();
+    }
+
+    @Test
+    void processExpired_WhenOutboxWriteFails_ShouldLeavePaymentsPending() {
+        // Given
+        timeoutConfig.setBatchSize(100);
+        insertPending(1_000, LocalDateTime.now().minusHours(2));
+        PaymentEventPublisher failingPublisher = mock(PaymentEventPublisher.class);
+        doAnswer(invocation -> {
+            throw new RuntimeException("Không ghi được outbox");
+        }).when(failingPublisher).publishPaymentsFailed(anyList(), anyString(), eq(true));
+        PaymentTimeoutServiceImpl service = new PaymentTimeoutServiceImpl(repository(), failingPublisher,
+                timeoutConfig, new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+
+        // When
+        int expired = service.processExpiredPendingPayments();
+
+        // Then: lô đầu rollback thật trên DB
+        assertThat(expired).isZero();
+        assertThat(countByStatus("PENDING")).isEqualTo(1_000);
+    }
+
+    private PaymentTimeoutServiceImpl newService() {
+        PaymentEventPublisher publisher = mock(PaymentEventPublisher.class);
+        doAnswer(invocation -> {
+            List<ExpiredPaymentProjection> payments = invocation.getArgument(0);
+            payments.forEach(payment ->
+                    publishedEvents.computeIfAbsent(payment.getId(), id -> new AtomicInteger()).incrementAndGet());
+            return null;
+        }).when(publisher).publishPaymentsFailed(anyList(), anyString(), eq(true));
+        return new PaymentTimeoutServiceImpl(repository(), publisher, timeoutConfig,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+    }
+
+    /**
+     * Repository giả chỉ chạy câu SQL thật của expirePendingBatch, trên kết nối của transaction đang mở
+     */
+    private PaymentRepository repository() {
+        PaymentRepository repository = mock(PaymentRepository.class);
+        when(repository.expirePendingBatch(any(), any(), anyInt())).thenAnswer(invocation -> {
+            MapSqlParameterSource parameters = new MapSqlParameterSource()
+                    .addValue("threshold", invocation.getArgument(0))
+                    .addValue("now", invocation.getArgument(1))
+                    .addValue("batchSize", invocation.<Integer>getArgument(2));
+            List<ExpiredPaymentProjection> expired = jdbcTemplate.query(expireSql, parameters, (rs, rowNum) ->
+                    new ExpiredRow(rs.getObject("id", UUID.class), rs.getObject("appointmentId", UUID.class),
+                            rs.getString("transactionId")));
+            expired.forEach(payment ->
+                    expiredCounts.computeIfAbsent(payment.getId(), id -> new AtomicInteger()).incrementAndGet());
+            return expired;
+        });
+        return repository;
+    }
+
+    private static void insertPending(int count, LocalDateTime createdAt) {
+        List<Object[]> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[]{UUID.randomUUID(), UUID.randomUUID(), "TXN" + i, createdAt.plusNanos(i * 1_000L)});
+        }
+        jdbcTemplate.getJdbcTemplate().batchUpdate("INSERT INTO payments " +
+                "(id, appointment_id, transaction_id, payment_status, created_at) VALUES (?, ?, ?, 'PENDING', ?)", rows);
+    }
+
+    private static long countByStatus(String status) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM payments WHERE payment_status = :status",
+                new MapSqlParameterSource("status", status), Long.class);
+        return count != null ? count : 0;
+    }
+
+    private record ExpiredRow(UUID id, UUID appointmentId, String transactionId) implements ExpiredPaymentProjection {
+
+        @Override
+        public UUID getId() {
+            return id;
+        }
+
+        @Override
+        public UUID getAppointmentId() {
+            return appointmentId;
+        }
+
+        @Override
+        public String getTransactionId() {
+            return transactionId;
+        }
+    }
+}
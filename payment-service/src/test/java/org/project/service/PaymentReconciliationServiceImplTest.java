@@ -0,0 +1,363 @@
+package org.project.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.project.config.PaymentQueryConfig;
+import org.project.config.PaymentReconciliationConfig;
+import org.project.dto.request.PaymentCallbackRequest;
+import org.project.dto.response.ReconciliationRunReport;
+import org.project.enums.PaymentMethod;
+import org.project.enums.PaymentStatus;
+import org.project.gateway.PaymentGateway;
+import org.project.gateway.PaymentGatewayFactory;
+import org.project.gateway.dto.PaymentGatewayRequest;
+import org.project.gateway.dto.PaymentGatewayResponse;
+import org.project.gateway.dto.PaymentQueryResult;
+import org.project.gateway.dto.PaymentRefundResult;
+import org.project.gateway.dto.PaymentVerificationResult;
+import org.project.gateway.dto.RefundRequest;
+import org.project.model.Payment;
+import org.project.repository.PaymentRepository;
+import org.project.service.impl.PaymentReconciliationServiceImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentReconciliationServiceImplTest {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentReconciliationServiceImplTest.class);
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private PaymentQueryService paymentQueryService;
+
+    private PaymentQueryConfig queryConfig;
+    private PaymentReconciliationConfig reconciliationConfig;
+    private PaymentReconciliationServiceImpl reconciliationService;
+
+    @BeforeEach
+    void setUp() {
+        queryConfig = new PaymentQueryConfig();
+        queryConfig.setQueryEnabled(true);
+        queryConfig.setSafetyDaysBefore(7);
+        queryConfig.setMinMinutesBeforeQuery(5);
+        queryConfig.setMaxHoursForQuery(24);
+
+        reconciliationConfig = new PaymentReconciliationConfig();
+        reconciliationConfig.setRequestsPerSecond(200);
+        reconciliationConfig.setBurst(10);
+        reconciliationConfig.setWorkerThreads(8);
+        reconciliationConfig.setThrottleBackoffMs(20);
+
+        lenient().when(paymentRepository.claimForReconciliation(any(), eq(PaymentStatus.PROCESSING), any(), any()))
+                .thenReturn(1);
+        lenient().when(paymentQueryService.applyReconciliationResult(any(), any())).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (reconciliationService != null) {
+            ReflectionTestUtils.invokeMethod(reconciliationService, "shutdown");
+        }
+    }
+
+    @Test
+    void reconcile_ShouldStayWithinGatewayQuotaAndFinishConcurrently() {
+        // Given: 300 giao dịch kẹt, VNPay giả lập 20ms mỗi truy vấn và hạn mức 250 request/giây
+        List<Payment> payments = processingPayments(300);
+        SimulatedVNPayGateway gateway = new SimulatedVNPayGateway(20, 250, 10);
+        givenCandidates(payments);
+        createService(gateway);
+
+        // When
+        ReconciliationRunReport report = reconciliationService.reconcileProcessingPayments();
+
+        // Then: mọi giao dịch có kết quả, tốc độ bị giới hạn bởi token bucket chứ không phải độ trễ
+        log.info("Đối soát {} giao dịch: {} ms, {} giao dịch/giây, {} lần bị từ chối vì hạn mức " +
+                        "(tuần tự với sleep 1s cũ: ~{} s)",
+                payments.size(), report.getElapsedMillis(), String.format("%.1f", report.getThroughputPerSecond()),
+                report.getThrottled(), payments.size() * 1020 / 1000);
+        assertThat(report.getProcessed()).isEqualTo(payments.size());
+        assertThat(report.getStatusChanged()).isEqualTo(payments.size());
+        assertThat(report.getFailed()).isZero();
+        assertThat(report.getDeferred()).isZero();
+        assertThat(gateway.queriedTransactions()).hasSize(payments.size());
+        assertThat(report.getThrottled()).isLessThan(payments.size() / 20);
+        // 300 request ở 200/giây với burst 10: khoảng 1,45 giây; tuần tự không sleep cũng đã mất 6 giây
+        assertThat(report.getElapsedMillis()).isBetween(1_000L, 4_000L);
+        assertThat(gateway.maxConcurrency()).isGreaterThan(1).isLessThanOrEqualTo(8);
+    }
+
+    @Test
+    void reconcile_ShouldQueryOldestPaymentsFirst() {
+        // Given: một worker để thứ tự gọi cổng thanh toán là thứ tự lấy khỏi hàng đợi
+        reconciliationConfig.setWorkerThreads(1);
+        List<Payment> payments = processingPayments(50);
+        List<Payment> shuffled = new ArrayList<>(payments);
+        Collections.shuffle(shuffled);
+        SimulatedVNPayGateway gateway = new SimulatedVNPayGateway(0, 10_000, 100);
+        givenCandidates(shuffled);
+        createService(gateway);
+
+        // When
+        reconciliationService.reconcileProcessingPayments();
+
+        // Then
+        assertThat(gateway.queriedTransactions())
+                .containsExactlyElementsOf(payments.stream().map(Payment::getTransactionId).toList());
+    }
+
+    @Test
+    void reconcile_WhenGatewayThrottles_ShouldBackOffAndRetry() {
+        // Given: cổng chỉ cho 50 request/giây trong khi bucket được cấu hình 200/giây
+        List<Payment> payments = processingPayments(100);
+        SimulatedVNPayGateway gateway = new SimulatedVNPayGateway(5, 50, 5);
+        reconciliationConfig.setMaxAttempts(20);
+        reconciliationConfig.setThrottleBackoffMs(100);
+        givenCandidates(payments);
+        createService(gateway);
+
+        // When
+        ReconciliationRunReport report = reconciliationService.reconcileProcessingPayments();
+
+        // Then: giao dịch bị từ chối được thử lại, không giao dịch nào bị đánh FAILED vì 429
+        log.info("Cổng giới hạn 50/giây: {} giao dịch trong {} ms, {} lần bị từ chối",
+                report.getProcessed(), report.getElapsedMillis(), report.getThrottled());
+        assertThat(report.getThrottled()).isPositive();
+        assertThat(report.getProcessed()).isEqualTo(payments.size());
+        assertThat(report.getDeferred()).isZero();
+        verify(paymentQueryService, never()).applyReconciliationResult(any(), argThat(PaymentQueryResult::isThrottled));
+    }
+
+    @Test
+    void reconcile_WhenThrottledUntilDeferred_ShouldRestoreCheckpoint() {
+        // Given: cổng từ chối mọi truy vấn vì vượt hạn mức
+        List<Payment> payments = processingPayments(5);
+        SimulatedVNPayGateway gateway = new SimulatedVNPayGateway(0, 0, 0);
+        reconciliationConfig.setMaxAttempts(2);
+        reconciliationConfig.setThrottleBackoffMs(1);
+        givenCandidates(payments);
+        createService(gateway);
+
+        // When
+        ReconciliationRunReport report = reconciliationService.reconcileProcessingPayments();
+
+        // Then: chưa có kết quả nên checkpoint được trả lại, lần chạy sau truy vấn tiếp thay vì chờ requery interval
+        assertThat(report.getDeferred()).isEqualTo(payments.size());
+        payments.forEach(payment -> verify(paymentRepository)
+                .releaseReconciliationClaim(eq(payment.getId()), any(), isNull()));
+    }
+
+    @Test
+    void reconcile_WhenApplyingResultFails_ShouldRestoreCheckpoint() {
+        // Given
+        List<Payment> payments = processingPayments(3);
+        when(paymentQueryService.applyReconciliationResult(any(), any()))
+                .thenThrow(new IllegalStateException("DB unavailable"));
+        givenCandidates(payments);
+        createService(new SimulatedVNPayGateway(0, 10_000, 100));
+
+        // When
+        ReconciliationRunReport report = reconciliationService.reconcileProcessingPayments();
+
+        // Then
+        assertThat(report.getFailed()).isEqualTo(payments.size());
+        payments.forEach(payment -> verify(paymentRepository)
+                .releaseReconciliationClaim(eq(payment.getId()), any(), isNull()));
+    }
+
+    @Test
+    void reconcile_ShouldNotRestoreCheckpointAfterDefinitiveResult() {
+        // Given
+        List<Payment> payments = processingPayments(3);
+        givenCandidates(payments);
+        createService(new SimulatedVNPayGateway(0, 10_000, 100));
+
+        // When
+        reconciliationService.reconcileProcessingPayments();
+
+        // Then
+        verify(paymentRepository, never()).releaseReconciliationClaim(any(), any(), any());
+    }
+
+    @Test
+    void reconcile_ShouldSkipPaymentsAlreadyCheckpointed() {
+        // Given: một nửa đã được lần chạy trước (hoặc replica khác) đánh dấu
+        List<Payment> payments = processingPayments(20);
+        Set<UUID> checkpointed = ConcurrentHashMap.newKeySet();
+        payments.subList(0, 10).forEach(payment -> checkpointed.add(payment.getId()));
+        when(paymentRepository.claimForReconciliation(any(), eq(PaymentStatus.PROCESSING), any(), any()))
+                .thenAnswer(invocation -> checkpointed.contains(invocation.<UUID>getArgument(0)) ? 0 : 1);
+        SimulatedVNPayGateway gateway = new SimulatedVNPayGateway(0, 10_000, 100);
+        givenCandidates(payments);
+        createService(gateway);
+
+        // When
+        ReconciliationRunReport report = reconciliationService.reconcileProcessingPayments();
+
+        // Then
+        assertThat(report.getSkipped()).isEqualTo(10);
+        assertThat(report.getProcessed()).isEqualTo(10);
+        assertThat(gateway.queriedTransactions()).containsExactlyInAnyOrderElementsOf(
+                payments.subList(10, 20).stream().map(Payment::getTransactionId).toList());
+    }
+
+    @Test
+    void reconcile_WhenPreviousRunStillActive_ShouldSkip() throws Exception {
+        List<Payment> payments = processingPayments(20);
+        SimulatedVNPayGateway gateway = new SimulatedVNPayGateway(50, 10_000, 100);
+        reconciliationConfig.setWorkerThreads(1);
+        givenCandidates(payments);
+        createService(gateway);
+
+        Thread firstRun = new Thread(reconciliationService::reconcileProcessingPayments);
+        firstRun.start();
+        TimeUnit.MILLISECONDS.sleep(100);
+        ReconciliationRunReport overlapping = reconciliationService.reconcileProcessingPayments();
+        firstRun.join();
+
+        assertThat(overlapping).isNull();
+        assertThat(gateway.queriedTransactions()).hasSize(payments.size());
+    }
+
+    private void createService(PaymentGateway gateway) {
+        reconciliationService = new PaymentReconciliationServiceImpl(paymentRepository,
+                new PaymentGatewayFactory(List.of(gateway)), paymentQueryService, queryConfig, reconciliationConfig);
+        ReflectionTestUtils.invokeMethod(reconciliationService, "init");
+    }
+
+    private void givenCandidates(List<Payment> payments) {
+        when(paymentRepository.findReconciliationCandidates(eq(PaymentStatus.PROCESSING), any(), any(), any(), any()))
+                .thenReturn(payments);
+    }
+
+    private static List<Payment> processingPayments(int count) {
+        LocalDateTime oldest = LocalDateTime.now().minusHours(20);
+        return IntStream.range(0, count)
+                .mapToObj(i -> Payment.builder()
+                        .id(UUID.randomUUID())
+                        .transactionId("TXN" + i)
+                        .paymentMethod(PaymentMethod.VNPAY)
+                        .paymentStatus(PaymentStatus.PROCESSING)
+                        .createdAt(oldest.plusMinutes(i))
+                        .build())
+                .toList();
+    }
+
+    /**
+     * Thay cho VNPayGateway: mỗi truy vấn mất latencyMillis, vượt hạn mức (token bucket phía cổng) thì trả về 429
+     */
+    private static final class SimulatedVNPayGateway implements PaymentGateway {
+        private final long latencyMillis;
+        private final double quotaPerNano;
+        private final double quotaBurst;
+        private final List<String> queried = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+
+        private double quotaTokens;
+        private long lastRefillNanos = System.nanoTime();
+
+        SimulatedVNPayGateway(long latencyMillis, double quotaPerSecond, int quotaBurst) {
+            this.latencyMillis = latencyMillis;
+            this.quotaPerNano = quotaPerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.quotaBurst = quotaBurst;
+            this.quotaTokens = quotaBurst;
+        }
+
+        @Override
+        public PaymentQueryResult queryPaymentStatus(String transactionId, String transactionDate) {
+            if (!tryConsumeQuota()) {
+                return PaymentQueryResult.builder()
+                        .success(false)
+                        .throttled(true)
+                        .transactionId(transactionId)
+                        .build();
+            }
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                if (latencyMillis > 0) {
+                    TimeUnit.MILLISECONDS.sleep(latencyMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            queried.add(transactionId);
+            return PaymentQueryResult.builder()
+                    .success(true)
+                    .status(PaymentStatus.COMPLETED)
+                    .transactionId(transactionId)
+                    .responseCode("00")
+                    .build();
+        }
+
+        private synchronized boolean tryConsumeQuota() {
+            long now = System.nanoTime();
+            quotaTokens = Math.min(quotaBurst, quotaTokens + (now - lastRefillNanos) * quotaPerNano);
+            lastRefillNanos = now;
+            if (quotaTokens < 1) {
+                return false;
+            }
+            quotaTokens -= 1;
+            return true;
+        }
+
+        List<String> queriedTransactions() {
+            return queried;
+        }
+
+        int maxConcurrency() {
+            return maxInFlight.get();
+        }
+
+        @Override
+        public PaymentGatewayResponse createPaymentUrl(Payment payment, PaymentGatewayRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public PaymentVerificationResult verifyPayment(PaymentCallbackRequest callbackRequest) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public PaymentRefundResult refundPayment(RefundRequest refundRequest) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean supports(PaymentMethod paymentMethod) {
+            return PaymentMethod.VNPAY.equals(paymentMethod);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package org.project.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.project.dto.request.CreatePaymentRequest;
+import org.project.dto.response.PaymentUrlResponse;
+import org.project.enums.PaymentMethod;
+import org.project.enums.PaymentStatus;
+import org.project.enums.PaymentType;
+import org.project.exception.CustomException;
+import org.project.exception.ErrorCode;
+import org.project.gateway.PaymentGateway;
+import org.project.gateway.PaymentGatewayFactory;
+import org.project.gateway.dto.PaymentGatewayResponse;
+import org.project.gateway.vnpay.config.VNPayConfig;
+import org.project.model.Payment;
+import org.project.repository.PaymentRepository;
+import org.project.service.impl.PaymentServiceImpl;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentServiceImplTest {
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private PaymentValidationService validationService;
+
+    @Mock
+    private PaymentGatewayFactory paymentGatewayFactory;
+
+    @Mock
+    private PaymentGateway paymentGateway;
+
+    @Mock
+    private VNPayConfig vnPayConfig;
+
+    @Mock
+    private PaymentAmountCalculator paymentAmountCalculator;
+
+    @Mock
+    private OrderInfoBuilder orderInfoBuilder;
+
+    @Mock
+    private TransactionIdGenerator transactionIdGenerator;
+
+    @InjectMocks
+    private PaymentServiceImpl paymentService;
+
+    private UUID appointmentId;
+    private CreatePaymentRequest request;
+
+    @BeforeEach
+    void setUp() {
+        appointmentId = UUID.randomUUID();
+        request = CreatePaymentRequest.builder()
+                .appointmentId(appointmentId)
+                .paymentType(PaymentType.DEPOSIT)
+                .paymentMethod(PaymentMethod.VNPAY)
+                .consultationFee(BigDecimal.valueOf(300_000))
+                .build();
+
+        lenient().when(paymentAmountCalculator.calculatePaymentAmount(any(), any()))
+                .thenReturn(BigDecimal.valueOf(90_000));
+        lenient().when(paymentGatewayFactory.getGateway(PaymentMethod.VNPAY)).thenReturn(paymentGateway);
+        lenient().when(transactionIdGenerator.generateTransactionId()).thenReturn("TXN-1");
+    }
+
+    @Test
+    void createPayment_WhenRetriedAfterLostResponse_ShouldReturnExistingPayment() {
+        // Given: lần gọi trước đã commit payment PENDING kèm URL nhưng response bị mất
+        Payment existing = Payment.builder()
+                .id(UUID.randomUUID())
+                .appointmentId(appointmentId)
+                .paymentType(PaymentType.DEPOSIT)
+                .paymentStatus(PaymentStatus.PENDING)
+                .paymentUrl("https://vnpay/pay?txn=TXN-0")
+                .build();
+        when(paymentRepository.findFirstByAppointmentIdAndPaymentTypeAndPaymentStatusInOrderByCreatedAtDesc(
+                eq(appointmentId), eq(PaymentType.DEPOSIT), anyList())).thenReturn(Optional.of(existing));
+
+        // When
+        PaymentUrlResponse response = paymentService.createPayment(request, "127.0.0.1");
+
+        // Then: cùng payment và URL, không tạo payment hay URL mới
+        assertThat(response.getPaymentId()).isEqualTo(existing.getId());
+        assertThat(response.getPaymentUrl()).isEqualTo(existing.getPaymentUrl());
+        verify(paymentRepository).lockAppointment(appointmentId);
+        verify(paymentRepository, never()).save(any(Payment.class));
+        verify(paymentGateway, never()).createPaymentUrl(any(), any());
+    }
+
+    @Test
+    void createPayment_WhenNoPaymentYet_ShouldCreatePaymentAndUrl() {
+        // Given
+        when(paymentRepository.findFirstByAppointmentIdAndPaymentTypeAndPaymentStatusInOrderByCreatedAtDesc(
+                eq(appointmentId), eq(PaymentType.DEPOSIT), anyList())).thenReturn(Optional.empty());
+        when(paymentRepository.save(any(Payment.class))).thenAnswer(invocation -> {
+            Payment payment = invocation.getArgument(0);
+            if (payment.getId() == null) {
+                payment.setId(UUID.randomUUID());
+            }
+            return payment;
+        });
+        when(paymentGateway.createPaymentUrl(any(), any())).thenReturn(PaymentGatewayResponse.builder()
+                .success(true)
+                .paymentUrl("https://vnpay/pay?txn=TXN-1")
+                .build());
+
+        // When
+        PaymentUrlResponse response = paymentService.createPayment(request, "127.0.0.1");
+
+        // Then
+        assertThat(response.getPaymentId()).isNotNull();
+        assertThat(response.getPaymentUrl()).isEqualTo("https://vnpay/pay?txn=TXN-1");
+        verify(paymentRepository).existsByAppointmentIdAndPaymentTypeAndPaymentStatusIn(
+                appointmentId, PaymentType.DEPOSIT, List.of(PaymentStatus.COMPLETED));
+    }
+
+    @Test
+    void createPayment_WhenAlreadyPaid_ShouldReject() {
+        // Given
+        when(paymentRepository.findFirstByAppointmentIdAndPaymentTypeAndPaymentStatusInOrderByCreatedAtDesc(
+                eq(appointmentId), eq(PaymentType.DEPOSIT), anyList())).thenReturn(Optional.empty());
+        when(paymentRepository.existsByAppointmentIdAndPaymentTypeAndPaymentStatusIn(
+                appointmentId, PaymentType.DEPOSIT, List.of(PaymentStatus.COMPLETED))).thenReturn(true);
+
+        // When & Then
+        assertThatThrownBy(() -> paymentService.createPayment(request, "127.0.0.1"))
+                .isInstanceOf(CustomException.class)
+                .extracting("errorCode")
+                .isEqualTo(ErrorCode.PAYMENT_ALREADY_EXISTS);
+        verify(paymentRepository, never()).save(any(Payment.class));
+    }
+}
@@ -0,0 +1,277 @@
+package org.project.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.project.config.PaymentTimeoutConfig;
+import org.project.publisher.PaymentEventPublisher;
+import org.project.repository.ExpiredPaymentProjection;
+import org.project.repository.PaymentRepository;
+import org.project.service.impl.PaymentTimeoutServiceImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentTimeoutServiceImplTest {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentTimeoutServiceImplTest.class);
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private PaymentEventPublisher paymentEventPublisher;
+
+    private PaymentTimeoutConfig timeoutConfig;
+    private InMemoryPendingPayments pendingPayments;
+    private Map<UUID, AtomicInteger> publishedEvents;
+
+    @BeforeEach
+    void setUp() {
+        timeoutConfig = new PaymentTimeoutConfig();
+        timeoutConfig.setPendingMinutes(15);
+        timeoutConfig.setBatchSize(500);
+        timeoutConfig.setMaxBatchesPerRun(1_000);
+
+        pendingPayments = new InMemoryPendingPayments(1);
+        publishedEvents = new ConcurrentHashMap<>();
+
+        lenient().when(paymentRepository.expirePendingBatch(any(), any(), anyInt()))
+                .thenAnswer(invocation -> pendingPayments.expireBatch(
+                        invocation.getArgument(0), invocation.getArgument(2)));
+        lenient().doAnswer(invocation -> {
+            List<ExpiredPaymentProjection> payments = invocation.getArgument(0);
+            payments.forEach(payment ->
+                    publishedEvents.computeIfAbsent(payment.getId(), id -> new AtomicInteger()).incrementAndGet());
+            return null;
+        }).when(paymentEventPublisher).publishPaymentsFailed(anyList(), anyString(), eq(true));
+    }
+
+    @Test
+    void processExpired_WithSeveralReplicas_ShouldDrainBacklogInFewStatements() throws Exception {
+        // Given: 50.000 payment PENDING quá hạn, 3 replica chạy sweeper cùng lúc
+        int paymentCount = 50_000;
+        int replicas = 3;
+        pendingPayments.addExpired(paymentCount);
+        List<PaymentTimeoutServiceImpl> services = new ArrayList<>();
+        for (int i = 0; i < replicas; i++) {
+            services.add(new PaymentTimeoutServiceImpl(paymentRepository, paymentEventPublisher, timeoutConfig,
+                    new InMemoryTransactionTemplate(pendingPayments)));
+        }
+
+        // When
+        ExecutorService executor = Executors.newFixedThreadPool(replicas);
+        long startedAt = System.nanoTime();
+        List<CompletableFuture<Integer>> runs = services.stream()
+                .map(service -> CompletableFuture.supplyAsync(service::processExpiredPendingPayments, executor))
+                .toList();
+        int totalExpired = runs.stream().mapToInt(CompletableFuture::join).sum();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        executor.shutdown();
+
+        // Then: hết backlog với số câu UPDATE tối thiểu, mỗi lô trả về được publish một lần.
+        // Việc các replica không nhận trùng dòng trên DB thật do PaymentExpirePendingBatchPostgresTest kiểm tra
+        log.info("Hết hạn {} payment bằng {} replica: {} ms, {} câu UPDATE " +
+                        "(cách cũ: {} lần save + {} lần findById)",
+                totalExpired, replicas, elapsedMillis, pendingPayments.statements(), paymentCount, paymentCount);
+        assertThat(totalExpired).isEqualTo(paymentCount);
+        assertThat(publishedEvents).hasSize(paymentCount)
+                .allSatisfy((id, count) -> assertThat(count.get()).isEqualTo(1));
+        assertThat(pendingPayments.statements()).isLessThanOrEqualTo(paymentCount / 500 + replicas);
+    }
+
+    @Test
+    void processExpired_ShouldUseConfiguredTimeout() {
+        // Given: timeout cấu hình 30 phút, payment tạo 20 phút trước chưa quá hạn
+        timeoutConfig.setPendingMinutes(30);
+        pendingPayments.addCreatedAt(LocalDateTime.now().minusMinutes(20), 10);
+        pendingPayments.addCreatedAt(LocalDateTime.now().minusMinutes(40), 5);
+        PaymentTimeoutServiceImpl service = new PaymentTimeoutServiceImpl(paymentRepository,
+                paymentEventPublisher, timeoutConfig, new InMemoryTransactionTemplate(pendingPayments));
+
+        // When
+        int expired = service.processExpiredPendingPayments();
+
+        // Then
+        assertThat(expired).isEqualTo(5);
+        assertThat(pendingPayments.remaining()).isEqualTo(10);
+    }
+
+    @Test
+    void processExpired_ShouldStopAfterMaxBatchesPerRun() {
+        // Given
+        timeoutConfig.setBatchSize(100);
+        timeoutConfig.setMaxBatchesPerRun(3);
+        pendingPayments.addExpired(1_000);
+        PaymentTimeoutServiceImpl service = new PaymentTimeoutServiceImpl(paymentRepository,
+                paymentEventPublisher, timeoutConfig, new InMemoryTransactionTemplate(pendingPayments));
+
+        // When
+        int expired = service.processExpiredPendingPayments();
+
+        // Then: phần còn lại để lần chạy sau
+        assertThat(expired).isEqualTo(300);
+        assertThat(pendingPayments.remaining()).isEqualTo(700);
+        verify(paymentEventPublisher, times(3)).publishPaymentsFailed(anyList(), anyString(), eq(true));
+    }
+
+    @Test
+    void processExpired_WhenOutboxWriteFails_ShouldRollBackBatchAndStopRun() {
+        // Given
+        timeoutConfig.setBatchSize(100);
+        pendingPayments.addExpired(1_000);
+        doThrow(new RuntimeException("Không ghi được outbox"))
+                .when(paymentEventPublisher).publishPaymentsFailed(anyList(), anyString(), eq(true));
+        PaymentTimeoutServiceImpl service = new PaymentTimeoutServiceImpl(paymentRepository,
+                paymentEventPublisher, timeoutConfig, new InMemoryTransactionTemplate(pendingPayments));
+
+        // When
+        int expired = service.processExpiredPendingPayments();
+
+        // Then: lô đầu rollback cùng sự kiện, không payment nào bị đánh dấu thất bại mà thiếu sự kiện
+        assertThat(expired).isZero();
+        assertThat(pendingPayments.remaining()).isEqualTo(1_000);
+        assertThat(pendingPayments.statements()).isEqualTo(1);
+    }
+
+    /**
+     * Thay cho bảng payments: các payment PENDING xếp theo created_at, mỗi câu UPDATE lấy ra tối đa
+     * batchSize dòng và mất roundTripMillis như một lần gọi DB. Dòng đã cập nhật thuộc về transaction của
+     * thread gọi cho tới khi commit, rollback thì trở lại PENDING. Chỉ mô phỏng kết quả của
+     * FOR UPDATE SKIP LOCKED, không chứng minh được hành vi khóa của Postgres.
+     */
+    private static final class InMemoryPendingPayments {
+        private final long roundTripMillis;
+        private final ConcurrentSkipListMap<PendingRow, Boolean> pending = new ConcurrentSkipListMap<>(
+                Comparator.comparing(PendingRow::createdAt).thenComparing(PendingRow::id));
+        private final AtomicInteger statements = new AtomicInteger();
+        private final Map<Thread, List<PendingRow>> uncommitted = new ConcurrentHashMap<>();
+
+        InMemoryPendingPayments(long roundTripMillis) {
+            this.roundTripMillis = roundTripMillis;
+        }
+
+        void addExpired(int count) {
+            addCreatedAt(LocalDateTime.now().minusHours(2), count);
+        }
+
+        void addCreatedAt(LocalDateTime createdAt, int count) {
+            for (int i = 0; i < count; i++) {
+                pending.put(new PendingRow(UUID.randomUUID(), UUID.randomUUID(), "TXN" + i,
+                        createdAt.plusNanos(i * 1_000L)), Boolean.TRUE);
+            }
+        }
+
+        List<ExpiredPaymentProjection> expireBatch(LocalDateTime threshold, int batchSize)
+                throws InterruptedException {
+            statements.incrementAndGet();
+            TimeUnit.MILLISECONDS.sleep(roundTripMillis);
+            List<ExpiredPaymentProjection> expired = new ArrayList<>(batchSize);
+            while (expired.size() < batchSize) {
+                Map.Entry<PendingRow, Boolean> oldest = pending.firstEntry();
+                if (oldest == null || !oldest.getKey().createdAt().isBefore(threshold)) {
+                    break;
+                }
+                // remove thành công nghĩa là câu lệnh này đã khóa và cập nhật dòng
+                if (pending.remove(oldest.getKey()) != null) {
+                    PendingRow row = oldest.getKey();
+                    uncommitted.computeIfAbsent(Thread.currentThread(), thread -> new ArrayList<>()).add(row);
+                    expired.add(row);
+                }
+            }
+            return expired;
+        }
+
+        void commit(Thread owner) {
+            uncommitted.remove(owner);
+        }
+
+        void rollback(Thread owner) {
+            List<PendingRow> rows = uncommitted.remove(owner);
+            if (rows != null) {
+                rows.forEach(row -> pending.put(row, Boolean.TRUE));
+            }
+        }
+
+        int statements() {
+            return statements.get();
+        }
+
+        int remaining() {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Transaction giả: chạy callback trên thread gọi, callback ném lỗi thì rollback các dòng đã cập nhật.
+     */
+    private static final class InMemoryTransactionTemplate extends TransactionTemplate {
+        private final InMemoryPendingPayments pendingPayments;
+
+        InMemoryTransactionTemplate(InMemoryPendingPayments pendingPayments) {
+            this.pendingPayments = pendingPayments;
+        }
+
+        @Override
+        public <T> T execute(TransactionCallback<T> action) {
+            try {
+                T result = action.doInTransaction(new SimpleTransactionStatus());
+                pendingPayments.commit(Thread.currentThread());
+                return result;
+            } catch (RuntimeException e) {
+                pendingPayments.rollback(Thread.currentThread());
+                throw e;
+            }
+        }
+    }
+
+    private record PendingRow(UUID id, UUID appointmentId, String transactionId, LocalDateTime createdAt)
+            implements ExpiredPaymentProjection {
+
+        @Override
+        public UUID getId() {
+            return id;
+        }
+
+        @Override
+        public UUID getAppointmentId() {
+            return appointmentId;
+        }
+
+        @Override
+        public String getTransactionId() {
+            return transactionId;
+        }
+    }
+}
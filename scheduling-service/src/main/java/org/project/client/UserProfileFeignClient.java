@@ -1,5 +1,6 @@
 package org.project.client;
 
+import java.util.List;
 import java.util.UUID;
 
 import org.project.dto.PageResponse;
@@ -7,6 +8,8 @@ import org.project.dto.response.DoctorResponse;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 
 @FeignClient(
@@ -20,6 +23,12 @@ public interface UserProfileFeignClient {
     @GetMapping("/api/internal/medical-profile/validate-doctor/{doctorId}")
     DoctorResponse getDoctorById(@PathVariable("doctorId") UUID doctorId);
 
+    /**
+     * Lấy thông tin nhiều bác sĩ trong một request
+     */
+    @PostMapping("/api/internal/medical-profile/doctors/batch")
+    List<DoctorResponse> getDoctorsByIds(@RequestBody List<UUID> doctorIds);
+
     /**
      * Lấy danh sách bác sĩ với phân trang
      */
@@ -1,5 +1,6 @@
 package org.project.client;
 
+import java.util.List;
 import java.util.UUID;
 
 import org.project.dto.PageResponse;
@@ -18,6 +19,12 @@ public class UserProfileFeignClientFallback implements UserProfileFeignClient {
         return null;
     }
 
+    @Override
+    public List<DoctorResponse> getDoctorsByIds(List<UUID> doctorIds) {
+        log.error("FeignClient fallback: Không thể lấy thông tin {} bác sĩ", doctorIds.size());
+        return List.of();
+    }
+
     @Override
     public PageResponse<DoctorResponse> getDoctors(int page, int size, String sortBy, String sortDir) {
         log.error("FeignClient fallback: Không thể lấy danh sách bác sĩ");
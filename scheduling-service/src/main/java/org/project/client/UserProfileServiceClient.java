@@ -9,6 +9,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
@@ -41,6 +42,18 @@ public class UserProfileServiceClient extends BaseServiceClient {
         }
     }
 
+    public List<DoctorResponse> getDoctorsByIds(List<UUID> doctorIds) {
+        String url = userProfileServiceUrl + "/api/internal/medical-profile/doctors/batch";
+
+        try {
+            DoctorResponse[] response = post(url, doctorIds, DoctorResponse[].class);
+            return response != null ? Arrays.asList(response) : List.of();
+        } catch (Exception e) {
+            log.error("Lỗi khi lấy thông tin {} bác sĩ: {}", doctorIds.size(), e.getMessage());
+            return List.of();
+        }
+    }
+
 
     public PageResponse<DoctorResponse> getDoctors(int page, int size, String sortBy, String sortDir) {
         String url = UriComponentsBuilder
@@ -0,0 +1,34 @@
+package org.project.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.project.enums.CacheFormat;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Data;
+
+/**
+ * Định dạng lưu cache theo tiền tố key, ví dụ cache.codec.formats[doctor:availability:]=compact.
+ * Key không khớp tiền tố nào dùng JSON.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "cache.codec")
+@Data
+public class CacheCodecProperties {
+
+    private Map<String, CacheFormat> formats = new HashMap<>();
+
+    public CacheFormat formatFor(String key) {
+        CacheFormat format = CacheFormat.JSON;
+        int matchedLength = -1;
+        for (Map.Entry<String, CacheFormat> entry : formats.entrySet()) {
+            if (key.startsWith(entry.getKey()) && entry.getKey().length() > matchedLength) {
+                format = entry.getValue();
+                matchedLength = entry.getKey().length();
+            }
+        }
+        return format;
+    }
+}
@@ -37,6 +37,16 @@ public class KafkaTopicConfig {
                 .build();
     }
 
+    @Bean
+    public NewTopic slotChangedTopic() {
+        return TopicBuilder.name(topics.getSlotChanged())
+                .partitions(NUM_PARTITIONS)
+                .replicas(REPLICATION_FACTOR)
+                .config("min.insync.replicas", "1")
+                .config("retention.ms", "86400000") // 1 day
+                .build();
+    }
+
 //    @Bean
 //    public NewTopic appointmentCreatedTopic() {
 //        return TopicBuilder.name(topics.getAppointmentCreated())
@@ -11,6 +11,7 @@ public class SchedulingKafkaTopics {
     //publish
     private String slotReserved;
     private String validationFailed;
+    private String slotChanged;
 
     //consume
     private String appointmentCreated;
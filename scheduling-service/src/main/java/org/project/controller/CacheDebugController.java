@@ -2,9 +2,11 @@ package org.project.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.project.dto.cache.DoctorProfileCacheStats;
 import org.project.dto.cache.TimeSlot;
 import org.project.model.DoctorAvailableSlot;
 import org.project.repository.DoctorAvailableSlotRepository;
+import org.project.service.DoctorProfileCache;
 import org.project.service.DoctorSlotRedisCache;
 import org.project.service.RedisCacheService;
 import org.springframework.data.redis.core.RedisTemplate;
@@ -28,6 +30,12 @@ public class CacheDebugController {
     private final DoctorAvailableSlotRepository slotRepository;
     private final RedisCacheService redisCacheService;
     private final RedisTemplate<String, Object> redisTemplate;
+    private final DoctorProfileCache doctorProfileCache;
+
+    @GetMapping("/doctor-profile/stats")
+    public ResponseEntity<DoctorProfileCacheStats> doctorProfileStats() {
+        return ResponseEntity.ok(doctorProfileCache.getStats());
+    }
 
     @PostMapping("/test-cache/{doctorId}")
     public ResponseEntity<Map<String, Object>> testCache(@PathVariable UUID doctorId) {
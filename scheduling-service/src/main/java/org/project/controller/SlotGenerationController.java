@@ -8,6 +8,8 @@ import org.project.service.SlotGenerationService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -43,6 +45,12 @@ public class SlotGenerationController {
 
         BulkSlotGenerationResponse response = slotGenerationService.generateSlotsForMultipleDoctors(request);
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
+    @GetMapping("/generate/bulk/{jobId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BulkSlotGenerationResponse> getBulkGenerationProgress(@PathVariable String jobId) {
+        return ResponseEntity.ok(slotGenerationService.getBulkGenerationProgress(jobId));
     }
 }
@@ -0,0 +1,43 @@
+package org.project.dto.cache;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Kết quả đọc cache availability theo lô: các ngày HIT theo từng bác sĩ và các ngày MISS cần đọc từ DB
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class AvailabilityCacheBatch {
+    @Builder.Default
+    Map<UUID, Map<LocalDate, DoctorAvailabilityCacheData>> hits = new HashMap<>();
+
+    @Builder.Default
+    Map<UUID, List<LocalDate>> misses = new HashMap<>();
+
+    public Map<LocalDate, DoctorAvailabilityCacheData> getHits(UUID doctorId) {
+        return hits.getOrDefault(doctorId, Collections.emptyMap());
+    }
+
+    public List<LocalDate> getMissingDates(UUID doctorId) {
+        return misses.getOrDefault(doctorId, Collections.emptyList());
+    }
+
+    public boolean contains(UUID doctorId) {
+        return hits.containsKey(doctorId) || misses.containsKey(doctorId);
+    }
+}
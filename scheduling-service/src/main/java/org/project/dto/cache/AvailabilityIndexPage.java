@@ -0,0 +1,36 @@
+package org.project.dto.cache;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.project.dto.response.AvailableSlotInfo;
+import org.project.dto.response.DoctorResponse;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class AvailabilityIndexPage {
+    List<DoctorMatch> matches;
+    long totalElements;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class DoctorMatch {
+        UUID doctorId;
+        DoctorResponse profile;
+        int availableSlotCount;
+        List<AvailableSlotInfo> slots;
+    }
+}
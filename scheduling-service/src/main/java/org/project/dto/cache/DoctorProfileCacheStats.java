@@ -0,0 +1,22 @@
+package org.project.dto.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DoctorProfileCacheStats {
+    private long localHits;
+    private long redisHits;
+    private long misses;
+    private double localHitRatio;
+    private double hitRatio;     // Tỉ lệ trả lời được từ một trong hai tầng cache
+    private long originCalls;    // Số request bulk tới userprofile-service
+    private long originDoctors;  // Tổng số bác sĩ đã lấy từ userprofile-service
+    private long coalescedWaits; // Số lần miss chờ request đang chạy thay vì gọi thêm
+    private int localSize;
+}
@@ -0,0 +1,21 @@
+package org.project.dto.cache;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.project.dto.response.BulkSlotGenerationResponse;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlotGenerationChunkResult {
+    private int chunkIndex;
+    private List<BulkSlotGenerationResponse.DoctorSlotResult> results;
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,33 @@
+package org.project.dto.cache;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import org.project.enums.SlotGenerationJobStatus;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Job sinh slot hàng loạt lưu trong Redis. Danh sách bác sĩ được chia thành các chunk cố định
+ * theo chunkSize nên chỉ số chunk luôn trỏ tới cùng một nhóm bác sĩ khi job được tiếp tục.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlotGenerationJob {
+    private String jobId;
+    private List<UUID> doctorIds;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private int chunkSize;
+    private int totalChunks;
+    private SlotGenerationJobStatus status;
+    private LocalDateTime createdAt;
+    private LocalDateTime completedAt;
+}
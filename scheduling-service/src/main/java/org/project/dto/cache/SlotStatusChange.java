@@ -0,0 +1,18 @@
+package org.project.dto.cache;
+
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlotStatusChange {
+    private UUID slotId;
+    private boolean available;
+    private Long version; // Version sau khi cập nhật trong DB
+}
@@ -19,5 +19,6 @@ public class TimeSlot {
     private LocalTime endTime;
     private boolean isAvailable;
     private LocalDateTime lastUpdate; // Timestamp from database updatedAt field
+    private Long version; // @Version của slot trong DB, dùng để bỏ qua slot-change event cũ
 }
 
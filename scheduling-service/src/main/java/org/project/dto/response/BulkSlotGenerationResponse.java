@@ -3,6 +3,7 @@ package org.project.dto.response;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
+import org.project.enums.SlotGenerationJobStatus;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -14,6 +15,10 @@ import java.util.List;
 @FieldDefaults(level = AccessLevel.PRIVATE)
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class BulkSlotGenerationResponse {
+    String jobId;
+    SlotGenerationJobStatus status;
+    Integer totalChunks;
+    Integer completedChunks;
     LocalDate startDate;
     LocalDate endDate;
     int totalDoctors;
@@ -0,0 +1,5 @@
+package org.project.enums;
+
+public enum CacheFormat {
+    JSON, COMPACT
+}
@@ -0,0 +1,5 @@
+package org.project.enums;
+
+public enum SlotChangeType {
+    SLOT_STATUS, SLOT_BATCH, SLOT_RANGE
+}
@@ -0,0 +1,6 @@
+package org.project.enums;
+
+public enum SlotGenerationJobStatus {
+    RUNNING,    // Còn chunk chưa xong, có thể được tiếp tục sau khi instance chạy job bị dừng
+    COMPLETED   // Mọi chunk đã xử lý xong
+}
@@ -0,0 +1,8 @@
+package org.project.enums;
+
+public enum SlotHoldResult {
+    ACQUIRED,          // Giữ chỗ thành công, được vào DB để đặt
+    HELD_BY_OTHER,     // Người khác đang giữ chỗ
+    ALREADY_RESERVED,  // Slot đã được đặt và commit
+    BYPASSED           // Redis lỗi hoặc tắt tính năng, đi thẳng vào DB
+}
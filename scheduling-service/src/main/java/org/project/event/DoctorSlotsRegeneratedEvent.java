@@ -0,0 +1,27 @@
+package org.project.event;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Sự kiện nội bộ phát ra khi slots của bác sĩ được sinh lại hoặc thay đổi hàng loạt trong một khoảng ngày.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class DoctorSlotsRegeneratedEvent {
+    UUID doctorId;
+    LocalDate startDate;
+    LocalDate endDate;
+    // Cache availability đã được nạp trực tiếp, không cần gửi slot-change để nạp lại
+    boolean cacheWarmed;
+}
@@ -0,0 +1,28 @@
+package org.project.event;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Sự kiện nội bộ (Spring application event) phát ra khi trạng thái một slot thay đổi.
+ * Được xử lý sau khi transaction commit để cập nhật availability index và phát sang Kafka.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class SlotAvailabilityChangedEvent {
+    UUID slotId;
+    UUID doctorId;
+    LocalDate slotDate;
+    boolean available;
+    Long version;
+}
@@ -0,0 +1,42 @@
+package org.project.event;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import org.project.dto.cache.SlotStatusChange;
+import org.project.enums.SlotChangeType;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Message Kafka gọn nhẹ mô tả thay đổi slot, key là doctorId để các thay đổi
+ * của cùng một bác sĩ được xử lý đúng thứ tự.
+ * SLOT_STATUS: đổi trạng thái một slot, kèm version của entity để bỏ qua message cũ.
+ * SLOT_BATCH: đổi trạng thái nhiều slot của bác sĩ trong ngày slotDate (danh sách slots).
+ * SLOT_RANGE: slots của bác sĩ trong [slotDate, endDate] thay đổi hàng loạt, cần nạp lại từ DB;
+ * cacheWarmed=true nghĩa là cache Redis đã được nạp sẵn, chỉ index trong bộ nhớ cần nạp lại.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class SlotChangeEvent {
+    SlotChangeType type;
+    UUID doctorId;
+    LocalDate slotDate;
+    LocalDate endDate;
+    UUID slotId;
+    boolean available;
+    Long version;
+    List<SlotStatusChange> slots;
+    boolean cacheWarmed;
+    LocalDateTime occurredAt;
+}
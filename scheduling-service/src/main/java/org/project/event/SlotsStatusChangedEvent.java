@@ -0,0 +1,29 @@
+package org.project.event;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import org.project.dto.cache.SlotStatusChange;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Sự kiện nội bộ phát ra sau một lần cập nhật trạng thái hàng loạt, gom theo bác sĩ và ngày
+ * để cache của mỗi ngày chỉ cần một lần ghi.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class SlotsStatusChangedEvent {
+    UUID doctorId;
+    LocalDate slotDate;
+    List<SlotStatusChange> changes;
+}
@@ -1,7 +0,0 @@
-package org.project.exception;
-
-public class ExternalServiceException extends RuntimeException {
-    public ExternalServiceException(String message) {
-        super(message);
-    }
-}
@@ -0,0 +1,55 @@
+package org.project.listener;
+
+import org.project.dto.cache.SlotStatusChange;
+import org.project.enums.SlotChangeType;
+import org.project.event.SlotChangeEvent;
+import org.project.service.DoctorAvailabilityIndex;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cập nhật availability index của node này từ topic slot-changed.
+ * Mỗi instance có consumer group riêng nên mọi node đều nhận đủ thay đổi, kể cả thay đổi do node khác ghi.
+ * Group mới bắt đầu từ offset mới nhất vì rebuild lúc khởi động đã đọc trạng thái hiện tại từ DB.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class AvailabilityIndexListener {
+
+    DoctorAvailabilityIndex availabilityIndex;
+
+    @KafkaListener(
+            topics = "#{@schedulingKafkaTopics.slotChanged}",
+            groupId = "${app.availability.index.consumer-group}",
+            concurrency = "1",
+            properties = {"auto.offset.reset=latest"}
+    )
+    public void onSlotChanged(SlotChangeEvent event, Acknowledgment acknowledgment) {
+        try {
+            if (event.getType() == SlotChangeType.SLOT_RANGE) {
+                availabilityIndex.reloadDoctor(event.getDoctorId(), event.getSlotDate(), event.getEndDate());
+            } else if (event.getType() == SlotChangeType.SLOT_BATCH) {
+                for (SlotStatusChange change : event.getSlots()) {
+                    availabilityIndex.applySlotChange(event.getDoctorId(), event.getSlotDate(),
+                            change.getSlotId(), change.isAvailable());
+                }
+            } else {
+                availabilityIndex.applySlotChange(event.getDoctorId(), event.getSlotDate(),
+                        event.getSlotId(), event.isAvailable());
+            }
+        } catch (Exception e) {
+            // Không chặn partition: lần rebuild định kỳ sẽ sửa lại index
+            log.error("Lỗi khi cập nhật availability index cho bác sĩ {} ngày {}: {}",
+                    event.getDoctorId(), event.getSlotDate(), e.getMessage());
+        }
+        acknowledgment.acknowledge();
+    }
+}
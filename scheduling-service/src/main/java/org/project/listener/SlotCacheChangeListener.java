@@ -0,0 +1,107 @@
+package org.project.listener;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.project.dto.cache.TimeSlot;
+import org.project.enums.SlotChangeType;
+import org.project.event.SlotChangeEvent;
+import org.project.model.DoctorAvailableSlot;
+import org.project.repository.DoctorAvailableSlotRepository;
+import org.project.service.DoctorSlotRedisCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Áp dụng slot-change event vào hash doctor:availability:*.
+ * Message được partition theo doctorId nên thay đổi của một bác sĩ luôn đến đúng thứ tự;
+ * version của slot giúp việc xử lý lại (redelivery) không ghi đè trạng thái mới hơn.
+ * Redis là cache dùng chung của mọi node nên cả cluster dùng một consumer group cố định
+ * (cache.availability.consumer-group): mỗi thay đổi chỉ được một node ghi thay vì mọi node cùng ghi và tranh WATCH.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SlotCacheChangeListener {
+
+    private final DoctorSlotRedisCache doctorSlotRedisCache;
+    private final DoctorAvailableSlotRepository slotRepository;
+
+    @Value("${cache.availability.days-to-cache:14}")
+    private int daysToCache;
+
+    @KafkaListener(
+            topics = "#{@schedulingKafkaTopics.slotChanged}",
+            groupId = "${cache.availability.consumer-group}",
+            concurrency = "3"
+    )
+    public void handleSlotChange(SlotChangeEvent event, Acknowledgment acknowledgment) {
+        try {
+            if (event.getType() == SlotChangeType.SLOT_RANGE) {
+                if (!event.isCacheWarmed()) {
+                    reloadRange(event);
+                }
+            } else if (event.getType() == SlotChangeType.SLOT_BATCH) {
+                int applied = doctorSlotRedisCache.applySlotChanges(event.getDoctorId(), event.getSlotDate(),
+                        event.getSlots());
+                log.debug("Slot-change batch bác sĩ {} ngày {}: áp dụng {}/{} slot", event.getDoctorId(),
+                        event.getSlotDate(), applied, event.getSlots() != null ? event.getSlots().size() : 0);
+            } else {
+                boolean applied = doctorSlotRedisCache.applySlotChange(event.getDoctorId(), event.getSlotDate(),
+                        event.getSlotId(), event.isAvailable(), event.getVersion());
+                log.debug("Slot-change slot {} version {}: {}", event.getSlotId(), event.getVersion(),
+                        applied ? "đã áp dụng" : "bỏ qua");
+            }
+        } catch (Exception e) {
+            // Không chặn partition: evict để lần đọc sau nạp lại từ DB
+            log.error("Lỗi áp dụng slot-change cho bác sĩ {} ngày {}: {}",
+                    event.getDoctorId(), event.getSlotDate(), e.getMessage());
+            doctorSlotRedisCache.evictDoctorAvailabilityCache(event.getDoctorId(), event.getSlotDate());
+        }
+        acknowledgment.acknowledge();
+    }
+
+    private void reloadRange(SlotChangeEvent event) {
+        LocalDate startDate = event.getSlotDate().isBefore(LocalDate.now()) ? LocalDate.now() : event.getSlotDate();
+        LocalDate windowEnd = LocalDate.now().plusDays(daysToCache);
+        LocalDate endDate = event.getEndDate().isAfter(windowEnd) ? windowEnd : event.getEndDate();
+        if (startDate.isAfter(endDate)) {
+            return;
+        }
+
+        Map<LocalDate, List<TimeSlot>> slotsByDate = slotRepository
+                .findSlotsByDoctorAndDateRange(event.getDoctorId(), startDate, endDate)
+                .stream()
+                .collect(Collectors.groupingBy(DoctorAvailableSlot::getSlotDate,
+                        Collectors.mapping(this::convertToTimeSlot, Collectors.toList())));
+
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            // Evict trước vì putAll không xóa các slot đã bị xóa khỏi DB
+            doctorSlotRedisCache.evictDoctorAvailabilityCache(event.getDoctorId(), date);
+            List<TimeSlot> slots = slotsByDate.get(date);
+            if (slots != null) {
+                doctorSlotRedisCache.cacheDoctorAvailability(event.getDoctorId(), date, slots);
+            }
+        }
+
+        log.info("Đã nạp lại cache của bác sĩ {} từ {} đến {}", event.getDoctorId(), startDate, endDate);
+    }
+
+    private TimeSlot convertToTimeSlot(DoctorAvailableSlot slot) {
+        return TimeSlot.builder()
+                .slotId(slot.getId())
+                .startTime(slot.getStartTime())
+                .endTime(slot.getEndTime())
+                .isAvailable(slot.isAvailable())
+                .lastUpdate(slot.getUpdatedAt())
+                .version(slot.getVersion())
+                .build();
+    }
+}
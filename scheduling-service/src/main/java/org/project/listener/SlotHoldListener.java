@@ -0,0 +1,37 @@
+package org.project.listener;
+
+import org.project.dto.cache.SlotStatusChange;
+import org.project.event.SlotAvailabilityChangedEvent;
+import org.project.event.SlotsStatusChangedEvent;
+import org.project.service.SlotHoldService;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Xóa hold/reservation trong Redis khi slot được mở lại (hủy lịch, release, mark available)
+ */
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class SlotHoldListener {
+
+    SlotHoldService slotHoldService;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSlotAvailabilityChanged(SlotAvailabilityChangedEvent event) {
+        if (event.isAvailable()) {
+            slotHoldService.clear(event.getSlotId());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSlotsStatusChanged(SlotsStatusChangedEvent event) {
+        event.getChanges().stream()
+                .filter(SlotStatusChange::isAvailable)
+                .forEach(change -> slotHoldService.clear(change.getSlotId()));
+    }
+}
@@ -1,8 +1,9 @@
 package org.project.listener;
 
+import org.project.event.SlotAvailabilityChangedEvent;
 import org.project.events.AppointmentCancelledEvent;
 import org.project.repository.DoctorAvailableSlotRepository;
-import org.project.service.DoctorSlotRedisCache;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
@@ -18,7 +19,7 @@ import lombok.extern.slf4j.Slf4j;
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class SlotReservationListener {
     DoctorAvailableSlotRepository doctorAvailableSlotRepository;
-    DoctorSlotRedisCache doctorSlotRedisCache;
+    ApplicationEventPublisher eventPublisher;
 
     // release slot khi appointment bị cancel
     @KafkaListener(
@@ -34,21 +35,16 @@ public class SlotReservationListener {
         doctorAvailableSlotRepository.findById(event.getSlotId()).ifPresentOrElse(
                 slot -> {
                     slot.setAvailable(true);
-                    doctorAvailableSlotRepository.save(slot);
+                    doctorAvailableSlotRepository.saveAndFlush(slot);
                     log.info("Đã mở khóa slot: id={}", slot.getId());
-                    try {
-                        doctorSlotRedisCache.updateSlotAvailability(
-                                slot.getDoctorId(),
-                                slot.getSlotDate(),
-                                slot.getId(),
-                                true  // available = true
-                        );
-                        log.info("Đã cập nhật cache Redis cho slot: id={}", slot.getId());
-                    } catch (Exception e) {
-                        log.error("Lỗi khi cập nhật Redis cache cho slot {}: {}",
-                                slot.getId(), e.getMessage());
-                        // Cache sẽ tự động bị evict trong updateSlotAvailability nếu có lỗi
-                    }
+                    // Cache Redis được cập nhật qua slot-change event sau khi commit
+                    eventPublisher.publishEvent(SlotAvailabilityChangedEvent.builder()
+                            .slotId(slot.getId())
+                            .doctorId(slot.getDoctorId())
+                            .slotDate(slot.getSlotDate())
+                            .available(true)
+                            .version(slot.getVersion())
+                            .build());
                 },
                 () -> log.warn("Slot {} not found for release", event.getSlotId())
         );
@@ -135,6 +135,7 @@ public class DoctorAvailabilityCacheProcess implements Runnable {
                 .endTime(slot.getEndTime())
                 .isAvailable(slot.isAvailable())
                 .lastUpdate(slot.getUpdatedAt())
+                .version(slot.getVersion())
                 .build();
     }
 
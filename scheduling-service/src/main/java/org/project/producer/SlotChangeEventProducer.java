@@ -0,0 +1,99 @@
+package org.project.producer;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import org.project.config.SchedulingKafkaTopics;
+import org.project.enums.SlotChangeType;
+import org.project.event.DoctorSlotsRegeneratedEvent;
+import org.project.event.SlotAvailabilityChangedEvent;
+import org.project.event.SlotChangeEvent;
+import org.project.event.SlotsStatusChangedEvent;
+import org.project.service.DoctorSlotRedisCache;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Phát thay đổi slot đã commit sang Kafka để SlotCacheChangeListener cập nhật cache Redis.
+ * Nếu không gửi được thì evict cache của ngày bị ảnh hưởng, lần đọc sau sẽ nạp lại từ DB.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class SlotChangeEventProducer {
+
+    KafkaTemplate<String, Object> kafkaTemplate;
+    SchedulingKafkaTopics topics;
+    DoctorSlotRedisCache doctorSlotRedisCache;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSlotAvailabilityChanged(SlotAvailabilityChangedEvent event) {
+        SlotChangeEvent message = SlotChangeEvent.builder()
+                .type(SlotChangeType.SLOT_STATUS)
+                .doctorId(event.getDoctorId())
+                .slotDate(event.getSlotDate())
+                .endDate(event.getSlotDate())
+                .slotId(event.getSlotId())
+                .available(event.isAvailable())
+                .version(event.getVersion())
+                .occurredAt(LocalDateTime.now())
+                .build();
+        send(message);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSlotsStatusChanged(SlotsStatusChangedEvent event) {
+        SlotChangeEvent message = SlotChangeEvent.builder()
+                .type(SlotChangeType.SLOT_BATCH)
+                .doctorId(event.getDoctorId())
+                .slotDate(event.getSlotDate())
+                .endDate(event.getSlotDate())
+                .slots(event.getChanges())
+                .occurredAt(LocalDateTime.now())
+                .build();
+        send(message);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDoctorSlotsRegenerated(DoctorSlotsRegeneratedEvent event) {
+        // Vẫn gửi khi cache đã được nạp sẵn: availability index của các node khác cần nạp lại bác sĩ này
+        SlotChangeEvent message = SlotChangeEvent.builder()
+                .type(SlotChangeType.SLOT_RANGE)
+                .doctorId(event.getDoctorId())
+                .slotDate(event.getStartDate())
+                .endDate(event.getEndDate())
+                .cacheWarmed(event.isCacheWarmed())
+                .occurredAt(LocalDateTime.now())
+                .build();
+        send(message);
+    }
+
+    private void send(SlotChangeEvent message) {
+        try {
+            kafkaTemplate.send(topics.getSlotChanged(), message.getDoctorId().toString(), message)
+                    .whenComplete((result, ex) -> {
+                        if (ex != null) {
+                            log.error("Gửi slot-change thất bại cho bác sĩ {} ngày {}: {}",
+                                    message.getDoctorId(), message.getSlotDate(), ex.getMessage());
+                            evictAffectedDates(message);
+                        }
+                    });
+        } catch (Exception e) {
+            log.error("Lỗi khi gửi slot-change cho bác sĩ {}: {}", message.getDoctorId(), e.getMessage());
+            evictAffectedDates(message);
+        }
+    }
+
+    private void evictAffectedDates(SlotChangeEvent message) {
+        for (LocalDate date = message.getSlotDate(); !date.isAfter(message.getEndDate()); date = date.plusDays(1)) {
+            doctorSlotRedisCache.evictDoctorAvailabilityCache(message.getDoctorId(), date);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package org.project.repository;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -13,6 +14,7 @@ import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import jakarta.persistence.LockModeType;
 
@@ -57,6 +59,101 @@ public interface DoctorAvailableSlotRepository extends JpaRepository <DoctorAvai
             @Param("minSlots") long minSlots
     );
 
+    /**
+     * Xếp hạng bác sĩ ngay trong DB: đếm slot trống, slot trống sớm nhất và trả về đúng một trang.
+     * Thứ tự: số slot trống giảm dần, slot trống sớm nhất tăng dần, doctorId
+     * (phải giữ giống {@link org.project.util.DoctorRankingOrder} mà availability index dùng).
+     * openEndTime = true bỏ điều kiện giờ kết thúc (endTime khi đó không được dùng).
+     */
+    @Query(value = "SELECT s.doctor_user_id AS doctorId, " +
+            "COUNT(*) FILTER (WHERE s.is_available) AS availableSlotCount, " +
+            "MIN(s.slot_date + s.start_time) FILTER (WHERE s.is_available) AS earliestAvailableAt " +
+            "FROM doctor_available_slots s " +
+            "WHERE s.slot_date BETWEEN :startDate AND :endDate " +
+            "AND s.start_time >= :startTime " +
+            "AND (:openEndTime = true OR s.end_time <= :endTime) " +
+            "AND (:anyAvailability = true OR s.is_available = :isAvailable) " +
+            "GROUP BY s.doctor_user_id " +
+            "ORDER BY availableSlotCount DESC, earliestAvailableAt ASC NULLS LAST, s.doctor_user_id " +
+            "LIMIT :limit OFFSET :offset",
+            nativeQuery = true)
+    List<DoctorSlotRankingProjection> findDoctorRankingPage(
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            @Param("startTime") LocalTime startTime,
+            @Param("endTime") LocalTime endTime,
+            @Param("openEndTime") boolean openEndTime,
+            @Param("anyAvailability") boolean anyAvailability,
+            @Param("isAvailable") boolean isAvailable,
+            @Param("limit") int limit,
+            @Param("offset") long offset
+    );
+
+    /**
+     * Như findDoctorRankingPage nhưng chỉ trong tập doctorIds (không được rỗng)
+     */
+    @Query(value = "SELECT s.doctor_user_id AS doctorId, " +
+            "COUNT(*) FILTER (WHERE s.is_available) AS availableSlotCount, " +
+            "MIN(s.slot_date + s.start_time) FILTER (WHERE s.is_available) AS earliestAvailableAt " +
+            "FROM doctor_available_slots s " +
+            "WHERE s.doctor_user_id IN (:doctorIds) " +
+            "AND s.slot_date BETWEEN :startDate AND :endDate " +
+            "AND s.start_time >= :startTime " +
+            "AND (:openEndTime = true OR s.end_time <= :endTime) " +
+            "AND (:anyAvailability = true OR s.is_available = :isAvailable) " +
+            "GROUP BY s.doctor_user_id " +
+            "ORDER BY availableSlotCount DESC, earliestAvailableAt ASC NULLS LAST, s.doctor_user_id " +
+            "LIMIT :limit OFFSET :offset",
+            nativeQuery = true)
+    List<DoctorSlotRankingProjection> findDoctorRankingPageForDoctors(
+            @Param("doctorIds") Collection<UUID> doctorIds,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            @Param("startTime") LocalTime startTime,
+            @Param("endTime") LocalTime endTime,
+            @Param("openEndTime") boolean openEndTime,
+            @Param("anyAvailability") boolean anyAvailability,
+            @Param("isAvailable") boolean isAvailable,
+            @Param("limit") int limit,
+            @Param("offset") long offset
+    );
+
+    @Query(value = "SELECT COUNT(DISTINCT s.doctor_user_id) " +
+            "FROM doctor_available_slots s " +
+            "WHERE s.slot_date BETWEEN :startDate AND :endDate " +
+            "AND s.start_time >= :startTime " +
+            "AND (:openEndTime = true OR s.end_time <= :endTime) " +
+            "AND (:anyAvailability = true OR s.is_available = :isAvailable)",
+            nativeQuery = true)
+    long countRankedDoctors(
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            @Param("startTime") LocalTime startTime,
+            @Param("endTime") LocalTime endTime,
+            @Param("openEndTime") boolean openEndTime,
+            @Param("anyAvailability") boolean anyAvailability,
+            @Param("isAvailable") boolean isAvailable
+    );
+
+    @Query(value = "SELECT COUNT(DISTINCT s.doctor_user_id) " +
+            "FROM doctor_available_slots s " +
+            "WHERE s.doctor_user_id IN (:doctorIds) " +
+            "AND s.slot_date BETWEEN :startDate AND :endDate " +
+            "AND s.start_time >= :startTime " +
+            "AND (:openEndTime = true OR s.end_time <= :endTime) " +
+            "AND (:anyAvailability = true OR s.is_available = :isAvailable)",
+            nativeQuery = true)
+    long countRankedDoctorsForDoctors(
+            @Param("doctorIds") Collection<UUID> doctorIds,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            @Param("startTime") LocalTime startTime,
+            @Param("endTime") LocalTime endTime,
+            @Param("openEndTime") boolean openEndTime,
+            @Param("anyAvailability") boolean anyAvailability,
+            @Param("isAvailable") boolean isAvailable
+    );
+
     /**
      * Tìm tất cả slots của bác sĩ trong một ngày cụ thể
      */
@@ -126,6 +223,16 @@ public interface DoctorAvailableSlotRepository extends JpaRepository <DoctorAvai
             @Param("endDate") LocalDate endDate
     );
 
+    @Query("SELECT s FROM DoctorAvailableSlot s " +
+            "WHERE s.doctorId IN :doctorIds " +
+            "AND s.slotDate BETWEEN :startDate AND :endDate " +
+            "ORDER BY s.doctorId, s.slotDate, s.startTime")
+    List<DoctorAvailableSlot> findSlotsByDoctorsAndDateRange(
+            @Param("doctorIds") Collection<UUID> doctorIds,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate
+    );
+
     @Query("SELECT s FROM DoctorAvailableSlot s " +
             "WHERE s.updatedAt >= :updatedAfter " +
             "AND s.slotDate BETWEEN :startDate AND :endDate " +
@@ -136,4 +243,55 @@ public interface DoctorAvailableSlotRepository extends JpaRepository <DoctorAvai
             @Param("endDate") LocalDate endDate
     );
 
+    /**
+     * Đọc slots trong cửa sổ ngày để dựng availability index (chỉ các cột cần thiết)
+     */
+    @Query("SELECT s.id AS id, s.doctorId AS doctorId, s.slotDate AS slotDate, " +
+            "s.startTime AS startTime, s.endTime AS endTime, s.isAvailable AS isAvailable " +
+            "FROM DoctorAvailableSlot s " +
+            "WHERE s.slotDate BETWEEN :startDate AND :endDate " +
+            "ORDER BY s.doctorId, s.slotDate, s.startTime")
+    List<SlotIndexProjection> findSlotIndexEntries(
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate
+    );
+
+    @Query("SELECT s.id AS id, s.doctorId AS doctorId, s.slotDate AS slotDate, " +
+            "s.startTime AS startTime, s.endTime AS endTime, s.isAvailable AS isAvailable " +
+            "FROM DoctorAvailableSlot s " +
+            "WHERE s.doctorId = :doctorId " +
+            "AND s.slotDate BETWEEN :startDate AND :endDate " +
+            "ORDER BY s.slotDate, s.startTime")
+    List<SlotIndexProjection> findSlotIndexEntriesByDoctor(
+            @Param("doctorId") UUID doctorId,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate
+    );
+
+    /**
+     * Đổi trạng thái nhiều slot trong một câu lệnh. Slot chỉ được cập nhật khi version còn khớp
+     * (không bị thay đổi đồng thời) và trạng thái thực sự thay đổi; trả về các slot đã được cập nhật.
+     * Câu lệnh đi vòng qua persistence context nên người gọi phải clear EntityManager sau khi chạy.
+     */
+    @Transactional
+    @Query(value = "UPDATE doctor_available_slots s " +
+            "SET is_available = req.is_available, " +
+            "version = COALESCE(s.version, 0) + 1, " +
+            "updated_at = :updatedAt " +
+            "FROM unnest(CAST(:slotIds AS uuid[]), CAST(:versions AS bigint[]), CAST(:statuses AS boolean[])) " +
+            "AS req(id, version, is_available) " +
+            "WHERE s.id = req.id " +
+            "AND COALESCE(s.version, 0) = COALESCE(req.version, 0) " +
+            "AND s.is_available <> req.is_available " +
+            "RETURNING s.id AS id, s.doctor_user_id AS doctorId, s.slot_date AS slotDate, " +
+            "s.start_time AS startTime, s.end_time AS endTime, " +
+            "s.is_available AS isAvailable, s.version AS version",
+            nativeQuery = true)
+    List<SlotStatusProjection> bulkUpdateSlotStatus(
+            @Param("slotIds") UUID[] slotIds,
+            @Param("versions") Long[] versions,
+            @Param("statuses") Boolean[] statuses,
+            @Param("updatedAt") LocalDateTime updatedAt
+    );
+
 }
@@ -0,0 +1,10 @@
+package org.project.repository;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public interface DoctorSlotRankingProjection {
+    UUID getDoctorId();
+    Long getAvailableSlotCount();
+    LocalDateTime getEarliestAvailableAt();
+}
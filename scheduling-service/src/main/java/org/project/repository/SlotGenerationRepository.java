@@ -1,6 +1,8 @@
 package org.project.repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
 import java.util.UUID;
 
 public interface SlotGenerationRepository {
@@ -8,4 +10,7 @@ public interface SlotGenerationRepository {
     void generateSlotsForRange(UUID doctorId, LocalDate startDate, LocalDate endDate);
 
     long countAvailableSlots(UUID doctorId, LocalDate startDate, LocalDate endDate);
+
+    // Đếm slot trống của nhiều bác sĩ bằng một truy vấn, bác sĩ không có slot không xuất hiện trong kết quả
+    Map<UUID, Long> countAvailableSlots(Collection<UUID> doctorIds, LocalDate startDate, LocalDate endDate);
 }
@@ -0,0 +1,14 @@
+package org.project.repository;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.UUID;
+
+public interface SlotIndexProjection {
+    UUID getId();
+    UUID getDoctorId();
+    LocalDate getSlotDate();
+    LocalTime getStartTime();
+    LocalTime getEndTime();
+    Boolean getIsAvailable();
+}
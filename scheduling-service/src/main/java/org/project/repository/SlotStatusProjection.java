@@ -0,0 +1,15 @@
+package org.project.repository;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.UUID;
+
+public interface SlotStatusProjection {
+    UUID getId();
+    UUID getDoctorId();
+    LocalDate getSlotDate();
+    LocalTime getStartTime();
+    LocalTime getEndTime();
+    Boolean getIsAvailable();
+    Long getVersion();
+}
@@ -7,6 +7,12 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Repository
@@ -20,6 +26,10 @@ public class SlotGenerationRepositoryImpl implements SlotGenerationRepository {
     private static final String COUNT_SLOTS_QUERY =
             "SELECT COUNT(*) FROM doctor_available_slots " +
                     "WHERE doctor_user_id = ? AND slot_date BETWEEN ? AND ? AND is_available = true";
+    private static final String COUNT_SLOTS_BY_DOCTOR_QUERY =
+            "SELECT doctor_user_id, COUNT(*) FROM doctor_available_slots " +
+                    "WHERE doctor_user_id IN (%s) AND slot_date BETWEEN ? AND ? AND is_available = true " +
+                    "GROUP BY doctor_user_id";
 
     @Override
     public void generateSlotsForRange(UUID doctorId, LocalDate startDate, LocalDate endDate) {
@@ -42,4 +52,22 @@ public class SlotGenerationRepositoryImpl implements SlotGenerationRepository {
             return 0;
         }
     }
+
+    @Override
+    public Map<UUID, Long> countAvailableSlots(Collection<UUID> doctorIds, LocalDate startDate, LocalDate endDate) {
+        if (doctorIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        String sql = String.format(COUNT_SLOTS_BY_DOCTOR_QUERY, String.join(",", Collections.nCopies(doctorIds.size(), "?")));
+        List<Object> params = new ArrayList<>(doctorIds);
+        params.add(startDate);
+        params.add(endDate);
+
+        Map<UUID, Long> counts = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            counts.put(rs.getObject(1, UUID.class), rs.getLong(2));
+        }, params.toArray());
+        return counts;
+    }
 }
@@ -0,0 +1,35 @@
+package org.project.scheduler;
+
+import org.project.service.DoctorAvailabilityIndex;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class AvailabilityIndexScheduler {
+
+    DoctorAvailabilityIndex availabilityIndex;
+
+    @Async("taskExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        availabilityIndex.rebuild();
+    }
+
+    // Dựng lại định kỳ để trượt cửa sổ ngày và đồng bộ thay đổi từ các node khác
+    @Scheduled(fixedDelayString = "${app.availability.index.rebuild-interval-ms:900000}",
+               initialDelayString = "${app.availability.index.rebuild-interval-ms:900000}")
+    public void rebuild() {
+        availabilityIndex.rebuild();
+    }
+}
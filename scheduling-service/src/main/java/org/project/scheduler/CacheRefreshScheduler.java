@@ -1,10 +1,12 @@
 package org.project.scheduler;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.project.dto.cache.DoctorAvailabilityCacheData;
@@ -19,6 +21,11 @@ import org.springframework.stereotype.Component;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Đối soát định kỳ cache availability với DB.
+ * Cache được cập nhật theo slot-change event (SlotCacheChangeListener), job này chỉ là lưới an toàn:
+ * phát hiện và báo cáo các ngày bị lệch (event bị mất, Redis lỗi...) rồi nạp lại các ngày đó.
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
@@ -28,128 +35,103 @@ public class CacheRefreshScheduler {
     private final DoctorAvailableSlotRepository slotRepository;
 
     private static final int DAYS_TO_CHECK = 14;
-    private static final int RECENT_UPDATE_MINUTES = 10;
+    // Cửa sổ quét dài hơn chu kỳ chạy để không bỏ sót thay đổi giữa hai lần đối soát
+    private static final long LOOKBACK_MARGIN_MS = 5 * 60 * 1000L;
 
-    @Value("${cache.availability.refresh-rate-ms:300000}")
-    private long refreshRateMs;
+    @Value("${cache.availability.reconcile-rate-ms:1800000}")
+    private long reconcileRateMs;
 
-    @Value("${cache.availability.initial-delay-ms:60000}")
-    private long initialDelayMs;
-
-    @Scheduled(fixedRateString = "${cache.availability.refresh-rate-ms:300000}",
+    @Scheduled(fixedRateString = "${cache.availability.reconcile-rate-ms:1800000}",
                initialDelayString = "${cache.availability.initial-delay-ms:60000}")
-    public void checkAndRefreshStaleCache() {
+    public void reconcileCacheWithDatabase() {
         try {
             LocalDate startDate = LocalDate.now();
             LocalDate endDate = startDate.plusDays(DAYS_TO_CHECK);
 
-            // Lấy tất cả slots đã được cập nhật gần đây
-            LocalDateTime recentUpdateThreshold = LocalDateTime.now().minusMinutes(RECENT_UPDATE_MINUTES);
+            LocalDateTime threshold = LocalDateTime.now()
+                    .minus(Duration.ofMillis(reconcileRateMs + LOOKBACK_MARGIN_MS));
             List<DoctorAvailableSlot> recentlyUpdatedSlots = slotRepository
-                    .findRecentlyUpdatedSlots(recentUpdateThreshold, startDate, endDate);
+                    .findRecentlyUpdatedSlots(threshold, startDate, endDate);
 
             if (recentlyUpdatedSlots.isEmpty()) {
-                log.debug("Không có slot nào được cập nhật trong {} phút qua", RECENT_UPDATE_MINUTES);
+                log.debug("Không có slot nào được cập nhật từ {}", threshold);
                 return;
             }
 
-            log.info("Phát hiện {} slot được cập nhật gần đây, bắt đầu refresh cache",
-                    recentlyUpdatedSlots.size());
-
-            // Nhóm theo doctorId và date để xử lý
-            Map<String, List<DoctorAvailableSlot>> groupedSlots = recentlyUpdatedSlots.stream()
-                    .collect(Collectors.groupingBy(slot -> 
-                        slot.getDoctorId() + ":" + slot.getSlotDate()));
-
-            int refreshedCount = 0;
-            int skippedCount = 0;
-
-            for (Map.Entry<String, List<DoctorAvailableSlot>> entry : groupedSlots.entrySet()) {
-                String[] keys = entry.getKey().split(":");
-                UUID doctorId = UUID.fromString(keys[0]);
-                LocalDate date = LocalDate.parse(keys[1]);
-                List<DoctorAvailableSlot> slots = entry.getValue();
-
-                // Kiểm tra xem có cần refresh không
-                if (shouldRefreshCache(doctorId, date, slots)) {
-                    refreshDoctorCache(doctorId, date, slots);
-                    refreshedCount++;
-                } else {
-                    skippedCount++;
+            Map<DoctorDay, List<DoctorAvailableSlot>> groupedSlots = recentlyUpdatedSlots.stream()
+                    .collect(Collectors.groupingBy(slot -> new DoctorDay(slot.getDoctorId(), slot.getSlotDate())));
+
+            int checkedDays = 0;
+            int driftedDays = 0;
+            int driftedSlots = 0;
+
+            for (Map.Entry<DoctorDay, List<DoctorAvailableSlot>> entry : groupedSlots.entrySet()) {
+                DoctorDay day = entry.getKey();
+
+                DoctorAvailabilityCacheData cachedData = doctorSlotRedisCache
+                        .getDoctorAvailability(day.doctorId(), day.date());
+                // Ngày chưa được cache sẽ được nạp khi có request đọc, không tính là lệch
+                if (cachedData == null) {
+                    continue;
+                }
+
+                checkedDays++;
+                int drift = countDriftedSlots(cachedData, entry.getValue());
+                if (drift > 0) {
+                    driftedDays++;
+                    driftedSlots += drift;
+                    log.warn("Cache lệch với DB: bác sĩ {} ngày {} có {} slot sai trạng thái",
+                            day.doctorId(), day.date(), drift);
+                    refreshDoctorCache(day.doctorId(), day.date());
                 }
             }
 
-            log.info("Hoàn thành refresh cache: {} ngày được cập nhật, {} ngày bỏ qua",
-                    refreshedCount, skippedCount);
+            if (driftedDays > 0) {
+                log.warn("Đối soát cache: {} ngày được kiểm tra, {} ngày lệch ({} slot) đã được nạp lại",
+                        checkedDays, driftedDays, driftedSlots);
+            } else {
+                log.info("Đối soát cache: {} ngày được kiểm tra, không phát hiện lệch", checkedDays);
+            }
 
         } catch (Exception e) {
-            log.error("Lỗi khi quét và refresh cache: {}", e.getMessage(), e);
+            log.error("Lỗi khi đối soát cache: {}", e.getMessage(), e);
         }
     }
 
     /**
-     * Kiểm tra xem cache có cần refresh không
+     * Đếm số slot mà trạng thái trong cache khác DB (hoặc thiếu trong cache)
      */
-    private boolean shouldRefreshCache(UUID doctorId, LocalDate date, List<DoctorAvailableSlot> slots) {
-        try {
-            // Nếu cache chưa tồn tại cần refresh
-            if (!doctorSlotRedisCache.isCacheExists(doctorId, date)) {
-                log.debug("Cache chưa tồn tại cho doctor {} ngày {}", doctorId, date);
-                return true;
+    private int countDriftedSlots(DoctorAvailabilityCacheData cachedData, List<DoctorAvailableSlot> dbSlots) {
+        Map<UUID, TimeSlot> cachedById = cachedData.getSlots().stream()
+                .collect(Collectors.toMap(TimeSlot::getSlotId, Function.identity(), (a, b) -> a));
+
+        int drift = 0;
+        for (DoctorAvailableSlot dbSlot : dbSlots) {
+            TimeSlot cached = cachedById.get(dbSlot.getId());
+            if (cached == null || cached.isAvailable() != dbSlot.isAvailable()) {
+                drift++;
             }
-
-            // Lấy cache hiện tại
-            DoctorAvailabilityCacheData cachedData = doctorSlotRedisCache.getDoctorAvailability(doctorId, date);
-            if (cachedData == null) {
-                return true;
-            }
-
-            // So sánh thời gian update
-            LocalDateTime latestDbUpdate = slots.stream()
-                    .map(DoctorAvailableSlot::getUpdatedAt)
-                    .max(LocalDateTime::compareTo)
-                    .orElse(null);
-
-            LocalDateTime cacheLastUpdate = cachedData.getLastUpdate();
-
-            // Nếu DB mới hơn cache cần refresh
-            if (latestDbUpdate != null && (cacheLastUpdate == null || latestDbUpdate.isAfter(cacheLastUpdate))) {
-                log.debug("Phát hiện thay đổi cho doctor {} ngày {}: DB={}, Cache={}",
-                        doctorId, date, latestDbUpdate, cacheLastUpdate);
-                return true;
-            }
-
-            return false;
-        } catch (Exception e) {
-            log.error("Lỗi khi kiểm tra cache cho doctor {} ngày {}: {}",
-                    doctorId, date, e.getMessage());
-            return true;
         }
+        return drift;
     }
 
     /**
-     * Refresh cache cho doctor tại một ngày cụ thể
+     * Nạp lại toàn bộ slots của bác sĩ trong ngày từ DB
      */
-    private void refreshDoctorCache(UUID doctorId, LocalDate date, List<DoctorAvailableSlot> slots) {
+    private void refreshDoctorCache(UUID doctorId, LocalDate date) {
         try {
-            if (slots.isEmpty()) {
-                log.debug("Không có slot nào cho doctor {} ngày {}", doctorId, date);
-                return;
-            }
-
-            // Convert sang TimeSlot DTO
-            List<TimeSlot> timeSlots = slots.stream()
+            List<TimeSlot> timeSlots = slotRepository.findByDoctorUserIdAndSlotDate(doctorId, date).stream()
                     .map(this::convertToTimeSlot)
                     .collect(Collectors.toList());
 
-            // Cache trực tiếp
+            doctorSlotRedisCache.evictDoctorAvailabilityCache(doctorId, date);
             doctorSlotRedisCache.cacheDoctorAvailability(doctorId, date, timeSlots);
 
-            log.debug("Đã refresh cache cho doctor {} ngày {} - {} slots",
+            log.debug("Đã nạp lại cache cho doctor {} ngày {} - {} slots",
                     doctorId, date, timeSlots.size());
 
         } catch (Exception e) {
-            log.error("Lỗi khi refresh cache cho doctor {} ngày {}: {}",
+            log.error("Lỗi khi nạp lại cache cho doctor {} ngày {}: {}",
                     doctorId, date, e.getMessage(), e);
         }
     }
@@ -161,7 +143,11 @@ public class CacheRefreshScheduler {
                 .endTime(slot.getEndTime())
                 .isAvailable(slot.isAvailable())
                 .lastUpdate(slot.getUpdatedAt())
+                .version(slot.getVersion())
                 .build();
     }
 
+    private record DoctorDay(UUID doctorId, LocalDate date) {
+    }
+
 }
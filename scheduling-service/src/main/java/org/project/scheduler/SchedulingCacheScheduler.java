@@ -1,11 +1,10 @@
 package org.project.scheduler;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Set;
 
+import org.project.service.DoctorSlotRedisCache;
 import org.project.service.RedisCacheService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Async;
@@ -15,6 +14,7 @@ import org.springframework.stereotype.Component;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -24,6 +24,11 @@ import lombok.extern.slf4j.Slf4j;
 public class SchedulingCacheScheduler {
 
     RedisCacheService redisCacheService;
+    DoctorSlotRedisCache doctorSlotRedisCache;
+
+    @NonFinal
+    @Value("${cache.availability.cleanup-batch-size:500}")
+    int cleanupBatchSize;
 
     @EventListener(ApplicationReadyEvent.class)
     public void init() {
@@ -34,44 +39,19 @@ public class SchedulingCacheScheduler {
         }
     }
 
+    /**
+     * Dọn cache của các ngày đã qua theo index ngày trong sorted set, từng lô cố định
+     * nên không phải duyệt toàn bộ keyspace như KEYS.
+     * Key cũ chưa có trong index vẫn có TTL 24h nên sẽ tự hết hạn.
+     */
     @Async("taskExecutor")
     @Scheduled(cron = "0 0 2 * * *")
     public void cleanupExpiredSlots() {
         try {
+            long deletedCount = doctorSlotRedisCache.removeDaysBefore(LocalDate.now(), cleanupBatchSize);
 
-            LocalDate today = LocalDate.now();
-            String basePattern = "doctor:availability:*";
-
-            Set<String> allKeys = redisCacheService.keys(basePattern);
-
-            if (allKeys == null || allKeys.isEmpty()) {
-                log.info("Không tìm thấy cache key nào để dọn dẹp");
-                return;
-            }
-
-            log.info("Tìm thấy {} cache key để kiểm tra", allKeys.size());
-
-            List<String> expiredKeys = new ArrayList<>();
-            for (String key : allKeys) {
-                try {
-                    String[] parts = key.split(":");
-                    if (parts.length >= 4) {
-                        String dateStr = parts[3];
-                        LocalDate slotDate = LocalDate.parse(dateStr);
-
-                        if (slotDate.isBefore(today)) {
-                            expiredKeys.add(key);
-                        }
-                    }
-                } catch (Exception e) {
-                    log.warn("Không thể phân tích cache key: {} - {}", key, e.getMessage());
-                }
-            }
-
-            if (!expiredKeys.isEmpty()) {
-                long deletedCount = redisCacheService.delete(expiredKeys);
-                log.info("Hoàn thành dọn dẹp: đã xóa {} cache hết hạn từ {} key",
-                        deletedCount, expiredKeys.size());
+            if (deletedCount > 0) {
+                log.info("Hoàn thành dọn dẹp: đã xóa {} cache hết hạn", deletedCount);
             } else {
                 log.info("Không tìm thấy slot hết hạn nào để dọn dẹp");
             }
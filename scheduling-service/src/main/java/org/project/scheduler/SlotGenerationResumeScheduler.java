@@ -0,0 +1,29 @@
+package org.project.scheduler;
+
+import org.project.service.SlotGenerationService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class SlotGenerationResumeScheduler {
+
+    SlotGenerationService slotGenerationService;
+
+    // Chỉ giành lease và đưa chunk vào worker pool nên không giữ thread của scheduler lâu
+    @Scheduled(fixedDelayString = "${app.slot-generation.resume-check-ms:60000}",
+               initialDelayString = "${app.slot-generation.resume-check-ms:60000}")
+    public void resumePendingJobs() {
+        int resumed = slotGenerationService.resumePendingJobs();
+        if (resumed > 0) {
+            log.info("Đã tiếp tục {} job sinh slot bị dừng giữa chừng", resumed);
+        }
+    }
+}
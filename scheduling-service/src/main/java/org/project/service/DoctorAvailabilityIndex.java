@@ -0,0 +1,62 @@
+package org.project.service;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+import org.project.dto.cache.AvailabilityIndexPage;
+import org.project.dto.request.DoctorAvailabilityFilter;
+import org.project.dto.response.DoctorResponse;
+
+/**
+ * Index availability trong bộ nhớ của từng node: bitset slot trống theo doctor/ngày
+ * và posting list bác sĩ theo chuyên khoa.
+ */
+public interface DoctorAvailabilityIndex {
+
+    /**
+     * Index đã được dựng xong và có thể phục vụ truy vấn
+     */
+    boolean isReady();
+
+    /**
+     * Khoảng ngày [startDate, endDate] có nằm trọn trong cửa sổ của index không
+     */
+    boolean covers(LocalDate startDate, LocalDate endDate);
+
+    /**
+     * Lọc, sắp xếp theo số slot trống giảm dần rồi theo tên bác sĩ và phân trang ngay trên index.
+     *
+     * @param candidateDoctorIds giới hạn tập bác sĩ, null nếu không giới hạn
+     * @param profileLookup      lấy profile của các bác sĩ phù hợp trong một lần gọi;
+     *                           bác sĩ không có profile bị loại khỏi kết quả và tổng số
+     */
+    AvailabilityIndexPage search(DoctorAvailabilityFilter filter, Set<UUID> candidateDoctorIds,
+                                 int offset, int limit,
+                                 Function<Collection<UUID>, Map<UUID, DoctorResponse>> profileLookup);
+
+    void applySlotChange(UUID doctorId, LocalDate slotDate, UUID slotId, boolean available);
+
+    /**
+     * Nạp lại slots của một bác sĩ trong khoảng ngày từ DB.
+     * Gọi trong lúc rebuild thì được nạp lại lần nữa vào snapshot mới.
+     */
+    void reloadDoctor(UUID doctorId, LocalDate startDate, LocalDate endDate);
+
+    /**
+     * Dựng lại toàn bộ index từ DB
+     */
+    void rebuild();
+
+    /**
+     * Posting list bác sĩ theo chuyên khoa, null nếu chưa có hoặc đã hết hạn
+     *
+     * @param allowExpired trả cả posting đã hết hạn, dùng khi userprofile-service lỗi
+     */
+    Set<UUID> getSpecialtyPosting(UUID specialtyId, boolean allowExpired);
+
+    void putSpecialtyPosting(UUID specialtyId, Collection<UUID> doctorIds);
+}
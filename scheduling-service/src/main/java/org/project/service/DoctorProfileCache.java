@@ -0,0 +1,27 @@
+package org.project.service;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+
+import org.project.dto.cache.DoctorProfileCacheStats;
+import org.project.dto.response.DoctorResponse;
+
+/**
+ * Cache profile bác sĩ hai tầng: LRU trong bộ nhớ phía trước Redis (doctor:profile:),
+ * miss ở cả hai tầng được gom thành một request bulk tới userprofile-service.
+ */
+public interface DoctorProfileCache {
+
+    /**
+     * @return null nếu bác sĩ không tồn tại hoặc userprofile-service không trả lời
+     */
+    DoctorResponse get(UUID doctorId);
+
+    /**
+     * Lấy profile cho cả một trang kết quả. Bác sĩ không tìm thấy không có trong map trả về.
+     */
+    Map<UUID, DoctorResponse> getAll(Collection<UUID> doctorIds);
+
+    DoctorProfileCacheStats getStats();
+}
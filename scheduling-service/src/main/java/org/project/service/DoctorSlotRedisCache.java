@@ -1,9 +1,12 @@
 package org.project.service;
 
+import org.project.dto.cache.AvailabilityCacheBatch;
 import org.project.dto.cache.DoctorAvailabilityCacheData;
+import org.project.dto.cache.SlotStatusChange;
 import org.project.dto.cache.TimeSlot;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -12,9 +15,36 @@ public interface DoctorSlotRedisCache {
 
     DoctorAvailabilityCacheData getDoctorAvailability(UUID doctorId, LocalDate date);
 
-    void updateSlotAvailability(UUID doctorId, LocalDate slotDate, UUID slotId, boolean isAvailable);
+    /**
+     * Đọc cache của nhiều bác sĩ trên nhiều ngày trong một lần pipeline, kèm danh sách ngày bị miss
+     */
+    AvailabilityCacheBatch getDoctorAvailabilityBatch(Collection<UUID> doctorIds, List<LocalDate> dates);
+
+    /**
+     * Áp dụng thay đổi trạng thái slot từ slot-change event. Bỏ qua nếu ngày chưa được cache
+     * hoặc slot trong cache đã có version mới hơn hay bằng.
+     *
+     * @return true nếu cache được cập nhật
+     */
+    boolean applySlotChange(UUID doctorId, LocalDate slotDate, UUID slotId, boolean isAvailable, Long version);
+
+    /**
+     * Áp dụng nhiều thay đổi trạng thái của cùng một bác sĩ/ngày: một lần đọc và một lần ghi
+     * trong WATCH/MULTI (đọc lại nếu key bị node khác ghi xen vào), cùng quy tắc bỏ qua theo version
+     * như applySlotChange.
+     *
+     * @return số slot đã được cập nhật trong cache
+     */
+    int applySlotChanges(UUID doctorId, LocalDate slotDate, List<SlotStatusChange> changes);
 
     void evictDoctorAvailabilityCache(UUID doctorId, LocalDate slotDate);
 
     boolean isCacheExists(UUID doctorId, LocalDate date);
+
+    /**
+     * Xóa cache của các ngày trước {@code date} dựa trên index theo ngày, mỗi lần tối đa batchSize key
+     *
+     * @return số key đã xóa
+     */
+    long removeDaysBefore(LocalDate date, int batchSize);
 }
@@ -79,15 +79,6 @@ public class RedisCacheService {
         }
     }
 
-    public Set<String> keys(String pattern) {
-        try {
-            return redisTemplate.keys(pattern);
-        } catch (Exception e) {
-            log.error("Error getting keys with pattern: {}", pattern, e);
-            return Set.of();
-        }
-    }
-
     public Boolean expire(String key, long timeout, TimeUnit timeUnit) {
         try {
             return redisTemplate.expire(key, timeout, timeUnit);
@@ -0,0 +1,40 @@
+package org.project.service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.project.dto.cache.SlotGenerationChunkResult;
+import org.project.dto.cache.SlotGenerationJob;
+
+/**
+ * Lưu trạng thái job sinh slot hàng loạt để báo tiến độ theo chunk
+ * và tiếp tục từ chunk chưa xong khi instance đang chạy job bị dừng giữa chừng.
+ */
+public interface SlotGenerationJobStore {
+
+    void createJob(SlotGenerationJob job);
+
+    Optional<SlotGenerationJob> findJob(String jobId);
+
+    /**
+     * Ghi nhận chunk đã commit, key là chỉ số chunk
+     */
+    void saveChunkResult(String jobId, SlotGenerationChunkResult result);
+
+    Map<Integer, SlotGenerationChunkResult> findChunkResults(String jobId);
+
+    void markCompleted(SlotGenerationJob job);
+
+    /**
+     * Các job chưa hoàn tất, gồm cả job đang chạy trên instance khác
+     */
+    Set<String> findRunningJobIds();
+
+    /**
+     * Giành hoặc gia hạn quyền chạy job cho owner, trả về false nếu instance khác đang giữ
+     */
+    boolean tryAcquireLease(String jobId, String owner);
+
+    void releaseLease(String jobId, String owner);
+}
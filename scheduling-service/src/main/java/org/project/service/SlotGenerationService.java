@@ -10,5 +10,20 @@ public interface SlotGenerationService {
 
     SlotGenerationResponse generateSlots(SlotGenerationRequest request);
 
+    /**
+     * Chia danh sách bác sĩ thành các chunk, mỗi chunk chạy trong transaction riêng trên worker pool giới hạn.
+     * Cache availability của mỗi chunk được nạp ngay khi chunk commit.
+     * Trả về ngay với trạng thái RUNNING, tiến độ được theo dõi qua getBulkGenerationProgress.
+     */
     BulkSlotGenerationResponse generateSlotsForMultipleDoctors(BulkSlotGenerationRequest request);
+
+    /**
+     * Tiến độ của job sinh slot hàng loạt, tổng hợp từ các chunk đã hoàn tất
+     */
+    BulkSlotGenerationResponse getBulkGenerationProgress(String jobId);
+
+    /**
+     * Tiếp tục các job bị dừng giữa chừng từ chunk chưa hoàn tất, trả về số job đã được đưa vào chạy lại
+     */
+    int resumePendingJobs();
 }
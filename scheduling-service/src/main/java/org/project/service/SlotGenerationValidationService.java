@@ -1,9 +1,18 @@
 package org.project.service;
 
 
+import java.time.LocalDate;
+import java.util.UUID;
+
 import org.project.dto.request.SlotGenerationRequest;
 
 public interface SlotGenerationValidationService {
 
     void validateRequest(SlotGenerationRequest request);
+
+    // Validate khoảng ngày lúc nhận request (không ở quá khứ, tối đa 90 ngày)
+    void validateDateRange(LocalDate startDate, LocalDate endDate);
+
+    // Validate bác sĩ tồn tại và có quyền DOCTOR (gọi auth-service)
+    void validateDoctor(UUID doctorId);
 }
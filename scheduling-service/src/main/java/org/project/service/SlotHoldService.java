@@ -0,0 +1,32 @@
+package org.project.service;
+
+import java.util.UUID;
+
+import org.project.enums.SlotHoldResult;
+
+/**
+ * Giữ chỗ slot ngắn hạn trong Redis trước khi khóa row trong DB.
+ * Chỉ dùng để loại sớm các request tranh chấp, DB vẫn là nguồn sự thật của trạng thái slot.
+ */
+public interface SlotHoldService {
+
+    /**
+     * Kiểm tra và giữ chỗ slot cho holder trong một script atomic
+     */
+    SlotHoldResult tryHold(UUID slotId, String holder);
+
+    /**
+     * Chuyển hold thành reservation sau khi DB đã commit
+     */
+    void confirm(UUID slotId, String holder);
+
+    /**
+     * Bỏ hold nếu vẫn thuộc về holder (đặt chỗ thất bại hoặc rollback)
+     */
+    void release(UUID slotId, String holder);
+
+    /**
+     * Xóa hold/reservation khi slot được mở lại
+     */
+    void clear(UUID slotId);
+}
@@ -10,6 +10,7 @@ import org.project.dto.request.SlotReservationRequest;
 import org.project.dto.response.SlotDetailsResponse;
 import org.project.dto.response.SlotReservationResponse;
 import org.project.dto.response.SlotStatusUpdateResponse;
+import org.project.model.DoctorAvailableSlot;
 
 public interface SlotStatusService {
 
@@ -23,7 +24,16 @@ public interface SlotStatusService {
     List<SlotStatusUpdateResponse> updateMultipleSlotStatus(List<BatchSlotStatusRequest> requests);
 
     /**
-     * Sử dụng optimistic lock để handle race condition
+     * Đổi trạng thái các slot đã đọc sẵn bằng một câu UPDATE cho cả danh sách. Dùng cho luồng nội bộ
+     * (lịch nghỉ của bác sĩ) nên không áp giới hạn MAX_BULK_SLOTS của API cập nhật hàng loạt.
+     * Slot đã ở trạng thái đích hoặc bị thay đổi đồng thời (khác version) được bỏ qua.
+     *
+     * @return các slot đã được cập nhật
+     */
+    List<SlotStatusUpdateResponse> updateSlotsStatus(List<DoctorAvailableSlot> slots, boolean isAvailable, String reason);
+
+    /**
+     * Giữ chỗ trong Redis để loại sớm request tranh chấp, sau đó khóa row trong DB để đặt chỗ
      */
     SlotReservationResponse reserveSlot(SlotReservationRequest request);
 
@@ -9,6 +9,9 @@ import java.util.List;
 import java.util.UUID;
 
 public interface SlotStatusValidationService {
+    // Số slot tối đa trong một request cập nhật trạng thái hàng loạt từ API
+    int MAX_BULK_SLOTS = 50;
+
     // Validate slot cho việc cập nhật trạng thái
     DoctorAvailableSlot findAndValidateSlotForUpdate(UUID slotId, boolean newStatus);
 
@@ -18,6 +21,9 @@ public interface SlotStatusValidationService {
     // Validate việc cập nhật trạng thái của nhiều slot cùng lúc
     void validateMultipleSlotStatusUpdate(List<BatchSlotStatusRequest> requests);
 
+    // Validate các slot đã đọc sẵn trước khi đổi trạng thái hàng loạt ở luồng nội bộ (tồn tại, không ở quá khứ)
+    void validateSlotsStatusUpdate(List<DoctorAvailableSlot> slots);
+
     // Validate việc đặt trước slot
     void validateSlotReservation(UUID slotId, DoctorAvailableSlot slot);
 
@@ -1,5 +1,7 @@
 package org.project.service;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 import org.project.dto.PageResponse;
@@ -12,6 +14,11 @@ public interface UserProfileClientService {
      * Lấy thông tin bác sĩ theo ID
      */
     DoctorResponse getDoctorById(UUID doctorId);
+
+    /**
+     * Lấy thông tin nhiều bác sĩ trong một request, bác sĩ không tồn tại bị bỏ qua
+     */
+    List<DoctorResponse> getDoctorsByIds(Collection<UUID> doctorIds);
     
     /**
      * Lấy danh sách bác sĩ với phân trang
@@ -10,11 +10,11 @@ import org.project.client.AppointmentServiceClient;
 import org.project.client.PaymentServiceClient;
 import org.project.common.security.util.SecurityUtils;
 import org.project.dto.PageResponse;
-import org.project.dto.request.BatchSlotStatusRequest;
 import org.project.dto.request.CreateAbsenceRequest;
 import org.project.dto.request.UpdateAbsenceRequest;
 import org.project.dto.response.AppointmentResponse;
 import org.project.dto.response.DoctorAbsenceResponse;
+import org.project.dto.response.SlotStatusUpdateResponse;
 import org.project.enums.Status;
 import org.project.exception.CustomException;
 import org.project.exception.ErrorCode;
@@ -33,6 +33,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.Arrays;
 import java.util.Collections;
@@ -175,6 +176,7 @@ public class DoctorAbsenceServiceImpl implements DoctorAbsenceService {
             }
 
             //Đánh dấu tất cả slots bị ảnh hưởng thành reserved
+            // Cache của ngày nghỉ được cập nhật qua slot-change event của lần cập nhật hàng loạt
             markAffectedSlotsAsReserved(absence);
 
         } catch (Exception e) {
@@ -201,21 +203,18 @@ public class DoctorAbsenceServiceImpl implements DoctorAbsenceService {
             return;
         }
 
-        // Batch reserve tất cả slots bị ảnh hưởng
-        List<BatchSlotStatusRequest> reservationRequests = affectedSlots.stream()
+        // Reserve các slot còn trống và chưa qua bằng một câu UPDATE cho cả lịch nghỉ
+        LocalDateTime now = LocalDateTime.now();
+        List<DoctorAvailableSlot> availableSlots = affectedSlots.stream()
                 .filter(DoctorAvailableSlot::isAvailable)
-                .map(slot -> BatchSlotStatusRequest.builder()
-                        .slotId(slot.getId())
-                        .isAvailable(false)
-                        .reason(String.format("Reserved due to doctor absence on %s",
-                                absence.getAbsenceDate()))
-                        .build())
+                .filter(slot -> !LocalDateTime.of(slot.getSlotDate(), slot.getStartTime()).isBefore(now))
                 .collect(Collectors.toList());
 
-        if (!reservationRequests.isEmpty()) {
+        if (!availableSlots.isEmpty()) {
+            String reason = String.format("Reserved due to doctor absence on %s", absence.getAbsenceDate());
             try {
-                slotStatusService.updateMultipleSlotStatus(reservationRequests);
-                log.info("Đã reserve {} slots do lịch nghỉ bác sĩ", reservationRequests.size());
+                List<SlotStatusUpdateResponse> reserved = slotStatusService.updateSlotsStatus(availableSlots, false, reason);
+                log.info("Đã reserve {}/{} slots do lịch nghỉ bác sĩ", reserved.size(), availableSlots.size());
             } catch (Exception e) {
                 log.error("Lỗi khi reserve slots cho lịch nghỉ: {}", e.getMessage(), e);
             }
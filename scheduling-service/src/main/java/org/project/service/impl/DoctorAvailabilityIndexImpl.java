@@ -0,0 +1,464 @@
+package org.project.service.impl;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.project.dto.cache.AvailabilityIndexPage;
+import org.project.dto.request.DoctorAvailabilityFilter;
+import org.project.dto.response.AvailableSlotInfo;
+import org.project.dto.response.DoctorResponse;
+import org.project.repository.DoctorAvailableSlotRepository;
+import org.project.repository.SlotIndexProjection;
+import org.project.service.DoctorAvailabilityIndex;
+import org.project.util.DoctorRankingOrder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DoctorAvailabilityIndexImpl implements DoctorAvailabilityIndex {
+
+    private final DoctorAvailableSlotRepository slotRepository;
+
+    @Value("${app.availability.index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.availability.days-to-cache:14}")
+    private int daysToIndex;
+
+    @Value("${app.availability.index.specialty-ttl-ms:600000}")
+    private long specialtyTtlMs;
+
+    private volatile ConcurrentMap<UUID, ConcurrentSkipListMap<LocalDate, DaySlots>> doctors =
+            new ConcurrentHashMap<>();
+    private volatile LocalDate windowStart;
+    private volatile LocalDate windowEnd;
+    private volatile boolean ready;
+
+    // Thay đổi nhận được trong lúc rebuild, được áp dụng lại theo đúng thứ tự sau khi đổi snapshot.
+    // changeLock giữ thứ tự giữa thay đổi mới và các thay đổi đang được áp dụng lại,
+    // không bao giờ được giữ trong lúc đọc DB.
+    private volatile boolean rebuilding;
+    private final ConcurrentLinkedQueue<PendingChange> pendingChanges = new ConcurrentLinkedQueue<>();
+    // Các lần nạp lại bác sĩ đang đọc DB, ghi lại thay đổi đến trong lúc đọc (truy cập dưới changeLock)
+    private final List<ReloadCapture> activeReloads = new ArrayList<>();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private final Object changeLock = new Object();
+
+    private final ConcurrentHashMap<UUID, SpecialtyPosting> specialtyPostings = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @Override
+    public boolean covers(LocalDate startDate, LocalDate endDate) {
+        LocalDate start = windowStart;
+        LocalDate end = windowEnd;
+        return start != null && end != null
+                && startDate != null && endDate != null
+                && !startDate.isBefore(start) && !endDate.isAfter(end);
+    }
+
+    @Override
+    public AvailabilityIndexPage search(DoctorAvailabilityFilter filter, Set<UUID> candidateDoctorIds,
+                                        int offset, int limit,
+                                        Function<Collection<UUID>, Map<UUID, DoctorResponse>> profileLookup) {
+        ConcurrentMap<UUID, ConcurrentSkipListMap<LocalDate, DaySlots>> current = doctors;
+        Collection<UUID> candidates = candidateDoctorIds != null ? candidateDoctorIds : current.keySet();
+
+        List<RankedDoctor> ranked = new ArrayList<>();
+        for (UUID doctorId : candidates) {
+            ConcurrentSkipListMap<LocalDate, DaySlots> days = current.get(doctorId);
+            if (days == null) {
+                continue;
+            }
+
+            int matched = 0;
+            int available = 0;
+            LocalDateTime earliestAvailableAt = null;
+            for (Map.Entry<LocalDate, DaySlots> entry
+                    : days.subMap(filter.getStartDate(), true, filter.getEndDate(), true).entrySet()) {
+                DaySlots day = entry.getValue();
+                BitSet matching = day.matching(filter);
+                matched += matching.cardinality();
+                matching.and(day.free);
+                available += matching.cardinality();
+                // Ngày tăng dần và slot sắp theo giờ bắt đầu nên slot trống đầu tiên là sớm nhất
+                int first = matching.nextSetBit(0);
+                if (earliestAvailableAt == null && first >= 0) {
+                    earliestAvailableAt = entry.getKey().atTime(day.startTimes[first]);
+                }
+            }
+
+            if (shouldInclude(matched, available, filter)) {
+                ranked.add(new RankedDoctor(new DoctorRankingOrder.Key(doctorId, available, earliestAvailableAt),
+                        null));
+            }
+        }
+
+        // Bác sĩ không còn profile bị loại trước khi đếm tổng, giống luồng cũ;
+        // thứ tự giống hệt xếp hạng trong DB để phân trang không phụ thuộc luồng nào trả lời
+        Map<UUID, DoctorResponse> profiles = ranked.isEmpty()
+                ? Map.of()
+                : profileLookup.apply(ranked.stream().map(RankedDoctor::doctorId).collect(Collectors.toList()));
+        ranked = ranked.stream()
+                .filter(doctor -> profiles.containsKey(doctor.doctorId()))
+                .map(doctor -> new RankedDoctor(doctor.rank(), profiles.get(doctor.doctorId())))
+                .sorted(Comparator.comparing(RankedDoctor::rank, DoctorRankingOrder.COMPARATOR))
+                .collect(Collectors.toList());
+
+        List<AvailabilityIndexPage.DoctorMatch> matches = new ArrayList<>();
+        for (int i = offset; i < Math.min(offset + limit, ranked.size()); i++) {
+            RankedDoctor doctor = ranked.get(i);
+            matches.add(AvailabilityIndexPage.DoctorMatch.builder()
+                    .doctorId(doctor.doctorId())
+                    .profile(doctor.profile())
+                    .availableSlotCount((int) doctor.rank().availableSlotCount())
+                    .slots(collectSlots(current.get(doctor.doctorId()), filter))
+                    .build());
+        }
+
+        return AvailabilityIndexPage.builder()
+                .matches(matches)
+                .totalElements(ranked.size())
+                .build();
+    }
+
+    @Override
+    public void applySlotChange(UUID doctorId, LocalDate slotDate, UUID slotId, boolean available) {
+        SlotChange change = new SlotChange(doctorId, slotDate, slotId, available);
+        synchronized (changeLock) {
+            if (rebuilding) {
+                pendingChanges.add(change);
+            }
+            for (ReloadCapture capture : activeReloads) {
+                if (capture.doctorId.equals(doctorId)) {
+                    capture.changes.add(change);
+                }
+            }
+            applyTo(doctors, doctorId, slotDate, slotId, available);
+        }
+    }
+
+    @Override
+    public void reloadDoctor(UUID doctorId, LocalDate startDate, LocalDate endDate) {
+        LocalDate start = windowStart;
+        LocalDate end = windowEnd;
+        if (start == null || end == null) {
+            return;
+        }
+
+        LocalDate from = startDate.isBefore(start) ? start : startDate;
+        LocalDate to = endDate.isAfter(end) ? end : endDate;
+        if (from.isAfter(to)) {
+            return;
+        }
+
+        // Đọc DB ngoài changeLock; thay đổi đến trong lúc đọc được ghi lại và áp dụng sau khi thay dữ liệu
+        ReloadCapture capture = new ReloadCapture(doctorId);
+        synchronized (changeLock) {
+            activeReloads.add(capture);
+        }
+        try {
+            List<SlotIndexProjection> entries = slotRepository.findSlotIndexEntriesByDoctor(doctorId, from, to);
+            synchronized (changeLock) {
+                activeReloads.remove(capture);
+                DoctorReload reload = new DoctorReload(doctorId, from, to, entries, List.copyOf(capture.changes));
+                if (rebuilding) {
+                    // Snapshot đang dựng có thể đã đọc slots cũ của bác sĩ, thay lại sau khi đổi snapshot
+                    pendingChanges.add(reload);
+                }
+                install(doctors, reload);
+            }
+            log.debug("Đã nạp lại index cho bác sĩ {} từ {} đến {} ({} slots)", doctorId, from, to, entries.size());
+        } finally {
+            synchronized (changeLock) {
+                activeReloads.remove(capture);
+            }
+        }
+    }
+
+    @Override
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        if (!rebuildLock.tryLock()) {
+            log.debug("Availability index đang được dựng lại, bỏ qua");
+            return;
+        }
+
+        try {
+            long startedAt = System.currentTimeMillis();
+            LocalDate start = LocalDate.now();
+            LocalDate end = start.plusDays(daysToIndex);
+
+            synchronized (changeLock) {
+                pendingChanges.clear();
+                rebuilding = true;
+            }
+
+            List<SlotIndexProjection> entries = slotRepository.findSlotIndexEntries(start, end);
+
+            ConcurrentMap<UUID, ConcurrentSkipListMap<LocalDate, DaySlots>> rebuilt = new ConcurrentHashMap<>();
+            Map<UUID, Map<LocalDate, List<SlotIndexProjection>>> grouped = entries.stream()
+                    .collect(Collectors.groupingBy(SlotIndexProjection::getDoctorId,
+                            Collectors.groupingBy(SlotIndexProjection::getSlotDate)));
+
+            grouped.forEach((doctorId, byDate) -> {
+                ConcurrentSkipListMap<LocalDate, DaySlots> days = new ConcurrentSkipListMap<>();
+                byDate.forEach((date, daily) -> days.put(date, DaySlots.of(daily)));
+                rebuilt.put(doctorId, days);
+            });
+
+            int replayed = 0;
+            synchronized (changeLock) {
+                doctors = rebuilt;
+                windowStart = start;
+                windowEnd = end;
+
+                PendingChange change;
+                while ((change = pendingChanges.poll()) != null) {
+                    try {
+                        replay(rebuilt, change);
+                        replayed++;
+                    } catch (Exception e) {
+                        log.warn("Lỗi áp dụng lại thay đổi {} vào availability index: {}", change, e.getMessage());
+                    }
+                }
+                rebuilding = false;
+            }
+
+            ready = true;
+            log.info("Đã dựng availability index: {} bác sĩ, {} slots, {} thay đổi áp dụng lại trong {}ms",
+                    rebuilt.size(), entries.size(), replayed, System.currentTimeMillis() - startedAt);
+
+        } catch (Exception e) {
+            synchronized (changeLock) {
+                rebuilding = false;
+                pendingChanges.clear();
+            }
+            log.error("Lỗi khi dựng availability index: {}", e.getMessage(), e);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    @Override
+    public Set<UUID> getSpecialtyPosting(UUID specialtyId, boolean allowExpired) {
+        SpecialtyPosting posting = specialtyPostings.get(specialtyId);
+        if (posting == null) {
+            return null;
+        }
+        if (!allowExpired && System.currentTimeMillis() - posting.loadedAt() > specialtyTtlMs) {
+            return null;
+        }
+        return posting.doctorIds();
+    }
+
+    @Override
+    public void putSpecialtyPosting(UUID specialtyId, Collection<UUID> doctorIds) {
+        specialtyPostings.put(specialtyId, new SpecialtyPosting(Set.copyOf(doctorIds), System.currentTimeMillis()));
+    }
+
+    private void replay(ConcurrentMap<UUID, ConcurrentSkipListMap<LocalDate, DaySlots>> target, PendingChange change) {
+        if (change instanceof SlotChange slot) {
+            applyTo(target, slot.doctorId(), slot.slotDate(), slot.slotId(), slot.available());
+        } else if (change instanceof DoctorReload reload) {
+            install(target, reload);
+        }
+    }
+
+    /**
+     * Thay slots của bác sĩ trong khoảng ngày bằng dữ liệu đã đọc, rồi áp dụng lại các thay đổi đến sau lần đọc
+     */
+    private void install(ConcurrentMap<UUID, ConcurrentSkipListMap<LocalDate, DaySlots>> target, DoctorReload reload) {
+        ConcurrentSkipListMap<LocalDate, DaySlots> days =
+                target.computeIfAbsent(reload.doctorId(), id -> new ConcurrentSkipListMap<>());
+
+        Map<LocalDate, List<SlotIndexProjection>> byDate = reload.entries().stream()
+                .collect(Collectors.groupingBy(SlotIndexProjection::getSlotDate));
+
+        for (LocalDate date = reload.startDate(); !date.isAfter(reload.endDate()); date = date.plusDays(1)) {
+            List<SlotIndexProjection> daily = byDate.get(date);
+            if (daily == null || daily.isEmpty()) {
+                days.remove(date);
+            } else {
+                days.put(date, DaySlots.of(daily));
+            }
+        }
+
+        for (SlotChange change : reload.changesSinceLoad()) {
+            applyTo(target, change.doctorId(), change.slotDate(), change.slotId(), change.available());
+        }
+    }
+
+    private void applyTo(ConcurrentMap<UUID, ConcurrentSkipListMap<LocalDate, DaySlots>> target,
+                         UUID doctorId, LocalDate slotDate, UUID slotId, boolean available) {
+        ConcurrentSkipListMap<LocalDate, DaySlots> days = target.get(doctorId);
+        if (days == null) {
+            return;
+        }
+        days.computeIfPresent(slotDate, (date, day) -> day.withAvailability(slotId, available));
+    }
+
+    private boolean shouldInclude(int matched, int available, DoctorAvailabilityFilter filter) {
+        // Giữ nguyên ngữ nghĩa của luồng cũ: có khoảng ngày thì bác sĩ phải có ít nhất một slot khớp
+        if (matched == 0) {
+            return false;
+        }
+        if (Boolean.FALSE.equals(filter.getHasAvailableSlots())) {
+            return false;
+        }
+        return !Boolean.TRUE.equals(filter.getIsAvailable()) || available > 0;
+    }
+
+    private List<AvailableSlotInfo> collectSlots(NavigableMap<LocalDate, DaySlots> days, DoctorAvailabilityFilter filter) {
+        List<AvailableSlotInfo> slots = new ArrayList<>();
+        if (days == null) {
+            return slots;
+        }
+
+        days.subMap(filter.getStartDate(), true, filter.getEndDate(), true).forEach((date, day) -> {
+            BitSet matching = day.matching(filter);
+            for (int i = matching.nextSetBit(0); i >= 0; i = matching.nextSetBit(i + 1)) {
+                slots.add(AvailableSlotInfo.builder()
+                        .slotId(String.valueOf(day.slotIds[i]))
+                        .slotDate(date)
+                        .startTime(day.startTimes[i])
+                        .endTime(day.endTimes[i])
+                        .isAvailable(day.free.get(i))
+                        .build());
+            }
+        });
+        return slots;
+    }
+
+    /**
+     * Slots của một bác sĩ trong một ngày, sắp theo giờ bắt đầu. Bất biến: mọi thay đổi tạo bản sao mới.
+     */
+    static final class DaySlots {
+        final UUID[] slotIds;
+        final LocalTime[] startTimes;
+        final LocalTime[] endTimes;
+        final BitSet free;
+
+        private DaySlots(UUID[] slotIds, LocalTime[] startTimes, LocalTime[] endTimes, BitSet free) {
+            this.slotIds = slotIds;
+            this.startTimes = startTimes;
+            this.endTimes = endTimes;
+            this.free = free;
+        }
+
+        static DaySlots of(List<SlotIndexProjection> daily) {
+            List<SlotIndexProjection> sorted = new ArrayList<>(daily);
+            sorted.sort(Comparator.comparing(SlotIndexProjection::getStartTime));
+
+            int size = sorted.size();
+            UUID[] ids = new UUID[size];
+            LocalTime[] starts = new LocalTime[size];
+            LocalTime[] ends = new LocalTime[size];
+            BitSet free = new BitSet(size);
+
+            for (int i = 0; i < size; i++) {
+                SlotIndexProjection slot = sorted.get(i);
+                ids[i] = slot.getId();
+                starts[i] = slot.getStartTime();
+                ends[i] = slot.getEndTime();
+                free.set(i, Boolean.TRUE.equals(slot.getIsAvailable()));
+            }
+            return new DaySlots(ids, starts, ends, free);
+        }
+
+        DaySlots withAvailability(UUID slotId, boolean available) {
+            for (int i = 0; i < slotIds.length; i++) {
+                if (slotIds[i].equals(slotId)) {
+                    if (free.get(i) == available) {
+                        return this;
+                    }
+                    BitSet copy = (BitSet) free.clone();
+                    copy.set(i, available);
+                    return new DaySlots(slotIds, startTimes, endTimes, copy);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Bitset các slot khớp khung giờ và điều kiện isAvailable của filter
+         */
+        BitSet matching(DoctorAvailabilityFilter filter) {
+            BitSet result = new BitSet(slotIds.length);
+            for (int i = 0; i < slotIds.length; i++) {
+                if (filter.getStartTime() != null && startTimes[i].isBefore(filter.getStartTime())) {
+                    continue;
+                }
+                if (filter.getEndTime() != null && endTimes[i].isAfter(filter.getEndTime())) {
+                    continue;
+                }
+                result.set(i);
+            }
+
+            if (Boolean.TRUE.equals(filter.getIsAvailable())) {
+                result.and(free);
+            } else if (Boolean.FALSE.equals(filter.getIsAvailable())) {
+                result.andNot(free);
+            }
+            return result;
+        }
+    }
+
+    private record RankedDoctor(DoctorRankingOrder.Key rank, DoctorResponse profile) {
+        UUID doctorId() {
+            return rank.doctorId();
+        }
+    }
+
+    private sealed interface PendingChange permits SlotChange, DoctorReload {
+    }
+
+    private record SlotChange(UUID doctorId, LocalDate slotDate, UUID slotId, boolean available)
+            implements PendingChange {
+    }
+
+    private record DoctorReload(UUID doctorId, LocalDate startDate, LocalDate endDate,
+                                List<SlotIndexProjection> entries, List<SlotChange> changesSinceLoad)
+            implements PendingChange {
+    }
+
+    // So sánh theo identity: hai lần nạp lại cùng bác sĩ là hai capture khác nhau
+    private static final class ReloadCapture {
+        final UUID doctorId;
+        final List<SlotChange> changes = new ArrayList<>();
+
+        ReloadCapture(UUID doctorId) {
+            this.doctorId = doctorId;
+        }
+    }
+
+    private record SpecialtyPosting(Set<UUID> doctorIds, long loadedAt) {
+    }
+}
@@ -1,6 +1,7 @@
 package org.project.service.impl;
 
 import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.stream.Collectors;
@@ -8,6 +9,8 @@ import java.util.stream.Collectors;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import org.project.dto.PageResponse;
+import org.project.dto.cache.AvailabilityCacheBatch;
+import org.project.dto.cache.AvailabilityIndexPage;
 import org.project.dto.cache.DoctorAvailabilityCacheData;
 import org.project.dto.cache.TimeSlot;
 import org.project.dto.request.DoctorAvailabilityFilter;
@@ -17,9 +20,11 @@ import org.project.dto.response.DoctorWithSlotsResponse;
 import org.project.mapper.DoctorAvailabilityMapper2;
 import org.project.model.DoctorAvailableSlot;
 import org.project.repository.DoctorAvailableSlotRepository;
+import org.project.repository.DoctorSlotRankingProjection;
+import org.project.service.DoctorAvailabilityIndex;
 import org.project.service.DoctorAvailabilityService;
+import org.project.service.DoctorProfileCache;
 import org.project.service.DoctorSlotRedisCache;
-import org.project.service.RedisCacheService;
 import org.project.service.UserProfileClientService;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
@@ -37,27 +42,29 @@ import lombok.extern.slf4j.Slf4j;
 @Transactional(readOnly = true)
 public class DoctorAvailabilityServiceImpl implements DoctorAvailabilityService {
 
-    private final RedisCacheService redisCacheService;
+    private final DoctorProfileCache doctorProfileCache;
     private final DoctorSlotRedisCache doctorSlotRedisCache;
     private final UserProfileClientService userProfileClientService;
     private final DoctorAvailableSlotRepository doctorAvailableSlotRepository;
+    private final DoctorAvailabilityIndex availabilityIndex;
 
     @Value("${app.availability.batch-size:25}")
     private int batchSize;
 
-    @Value("${app.availability.cache-ttl:3600}")
-    private long cacheTtlSeconds;
-
     @Value("${app.availability.parallel-threshold:10}")
     private int parallelThreshold;
 
     @Value("${app.availability.thread-pool-size:10}")
     private int threadPoolSize;
 
+    @Value("${app.availability.db-ranking.enabled:true}")
+    private boolean dbRankingEnabled;
+
     private ExecutorService executorService;
 
-    private static final String PROFILE_CACHE_PREFIX = "doctor:profile:";
     private static final String AVAILABILITY_CACHE_PREFIX = "doctor:availability:";
+    private static final int SPECIALTY_PAGE_SIZE = 200;
+    private static final int MAX_SPECIALTY_PAGES = 100;
 
 
     @PostConstruct
@@ -89,6 +96,16 @@ public class DoctorAvailabilityServiceImpl implements DoctorAvailabilityService
         try {
             Pageable pageable = createPageableFromFilter(filter);
 
+            // Trả lời trực tiếp từ index trong bộ nhớ nếu có thể
+            if (canServeFromIndex(filter)) {
+                return searchFromIndex(filter, pageable);
+            }
+
+            // Xếp hạng và phân trang ngay trong DB, chỉ hydrate bác sĩ của trang hiện tại
+            if (canRankInDatabase(filter)) {
+                return searchWithDatabaseRanking(filter, pageable);
+            }
+
             // Lấy danh sách doctorIds có slots
             List<UUID> doctorIds = getDoctorIdsWithAvailableSlots(filter);
             if (doctorIds.isEmpty()) {
@@ -124,7 +141,7 @@ public class DoctorAvailabilityServiceImpl implements DoctorAvailabilityService
     public DoctorWithSlotsResponse getDoctorAvailableSlots(UUID doctorId, LocalDate startDate, LocalDate endDate) {
         log.info("Lấy khung giờ cho bác sĩ {} từ {} đến {}", doctorId, startDate, endDate);
 
-        DoctorResponse doctorInfo = getDoctorInfoWithCache(doctorId);
+        DoctorResponse doctorInfo = doctorProfileCache.get(doctorId);
         if (doctorInfo == null) {
             log.warn("Không tìm thấy bác sĩ {}", doctorId);
             return null;
@@ -145,6 +162,175 @@ public class DoctorAvailabilityServiceImpl implements DoctorAvailabilityService
         return response;
     }
 
+    private boolean canServeFromIndex(DoctorAvailabilityFilter filter) {
+        // Lọc theo tên cần profile của từng bác sĩ nên vẫn đi luồng cũ
+        return availabilityIndex.isReady()
+                && availabilityIndex.covers(filter.getStartDate(), filter.getEndDate())
+                && (filter.getDoctorName() == null || filter.getDoctorName().trim().isEmpty());
+    }
+
+    private PageResponse<DoctorWithSlotsResponse> searchFromIndex(DoctorAvailabilityFilter filter, Pageable pageable) {
+        Set<UUID> candidates = resolveCandidateDoctorIds(filter);
+
+        // Profile của mọi bác sĩ phù hợp được đọc trong một lần gọi cache để tổng số và thứ tự khớp luồng cũ
+        AvailabilityIndexPage indexPage = availabilityIndex.search(
+                filter, candidates, (int) pageable.getOffset(), pageable.getPageSize(), doctorProfileCache::getAll);
+
+        List<DoctorWithSlotsResponse> content = indexPage.getMatches().stream()
+                .map(match -> {
+                    DoctorWithSlotsResponse response = convertDoctorResponseToWithSlots(match.getProfile());
+                    response.setAvailableSlots(match.getSlots());
+                    return response;
+                })
+                .collect(Collectors.toList());
+
+        log.debug("Index: {} bác sĩ phù hợp, trả về {} ở trang {}",
+                indexPage.getTotalElements(), content.size(), pageable.getPageNumber());
+
+        return buildPageResponse(content, (int) indexPage.getTotalElements(), pageable);
+    }
+
+    private boolean canRankInDatabase(DoctorAvailabilityFilter filter) {
+        return dbRankingEnabled
+                && filter.getStartDate() != null && filter.getEndDate() != null
+                && (filter.getDoctorName() == null || filter.getDoctorName().trim().isEmpty());
+    }
+
+    private PageResponse<DoctorWithSlotsResponse> searchWithDatabaseRanking(DoctorAvailabilityFilter filter,
+                                                                           Pageable pageable) {
+        // Bác sĩ đã qua lọc date range luôn có slot nên hasAvailableSlots=false không bao giờ khớp
+        if (Boolean.FALSE.equals(filter.getHasAvailableSlots())) {
+            return createEmptyPageResponse(pageable);
+        }
+
+        Set<UUID> candidates = resolveCandidateDoctorIds(filter);
+        if (candidates != null && candidates.isEmpty()) {
+            return createEmptyPageResponse(pageable);
+        }
+
+        LocalTime startTime = filter.getStartTime() != null ? filter.getStartTime() : LocalTime.MIN;
+        // Không lọc giờ kết thúc thì bỏ hẳn điều kiện, giá trị endTime khi đó không được dùng
+        boolean openEndTime = filter.getEndTime() == null;
+        LocalTime endTime = openEndTime ? LocalTime.MIDNIGHT : filter.getEndTime();
+        boolean anyAvailability = filter.getIsAvailable() == null;
+        boolean isAvailable = Boolean.TRUE.equals(filter.getIsAvailable());
+
+        long totalElements = candidates == null
+                ? doctorAvailableSlotRepository.countRankedDoctors(filter.getStartDate(), filter.getEndDate(),
+                        startTime, endTime, openEndTime, anyAvailability, isAvailable)
+                : doctorAvailableSlotRepository.countRankedDoctorsForDoctors(candidates,
+                        filter.getStartDate(), filter.getEndDate(),
+                        startTime, endTime, openEndTime, anyAvailability, isAvailable);
+        if (totalElements == 0 || pageable.getOffset() >= totalElements) {
+            return buildPageResponse(List.of(), (int) totalElements, pageable);
+        }
+
+        List<DoctorSlotRankingProjection> ranking = candidates == null
+                ? doctorAvailableSlotRepository.findDoctorRankingPage(filter.getStartDate(), filter.getEndDate(),
+                        startTime, endTime, openEndTime, anyAvailability, isAvailable,
+                        pageable.getPageSize(), pageable.getOffset())
+                : doctorAvailableSlotRepository.findDoctorRankingPageForDoctors(candidates,
+                        filter.getStartDate(), filter.getEndDate(),
+                        startTime, endTime, openEndTime, anyAvailability, isAvailable,
+                        pageable.getPageSize(), pageable.getOffset());
+        List<UUID> pageDoctorIds = ranking.stream()
+                .map(DoctorSlotRankingProjection::getDoctorId)
+                .collect(Collectors.toList());
+
+        // Thứ tự và số đếm đến từ DB nên slots của trang cũng đọc từ DB (một query cho cả trang),
+        // tránh trường hợp cache Redis chưa kịp cập nhật làm slots trả về lệch với thứ hạng
+        Map<UUID, List<AvailableSlotInfo>> slotsByDoctor = doctorAvailableSlotRepository
+                .findSlotsByDoctorsAndDateRange(pageDoctorIds, filter.getStartDate(), filter.getEndDate())
+                .stream()
+                .collect(Collectors.groupingBy(DoctorAvailableSlot::getDoctorId,
+                        Collectors.mapping(this::convertDbSlotToAvailableSlotInfo, Collectors.toList())));
+        Map<UUID, DoctorResponse> profiles = doctorProfileCache.getAll(pageDoctorIds);
+        List<DoctorWithSlotsResponse> content = pageDoctorIds.stream()
+                .map(doctorId -> {
+                    DoctorResponse doctorInfo = profiles.get(doctorId);
+                    if (doctorInfo == null) {
+                        return null;
+                    }
+                    DoctorWithSlotsResponse response = convertDoctorResponseToWithSlots(doctorInfo);
+                    List<AvailableSlotInfo> slots = slotsByDoctor.getOrDefault(doctorId, List.of()).stream()
+                            .filter(Objects::nonNull)
+                            .collect(Collectors.toList());
+                    response.setAvailableSlots(applySlotFilters(slots, filter));
+                    return shouldIncludeDoctor(response, filter) ? response : null;
+                })
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        log.debug("DB ranking: {} bác sĩ phù hợp, trả về {} ở trang {}",
+                totalElements, content.size(), pageable.getPageNumber());
+
+        return buildPageResponse(content, (int) totalElements, pageable);
+    }
+
+    private Set<UUID> resolveCandidateDoctorIds(DoctorAvailabilityFilter filter) {
+        Set<UUID> candidates = null;
+
+        if (filter.getSpecialtyIds() != null && !filter.getSpecialtyIds().isEmpty()) {
+            candidates = new HashSet<>();
+            for (UUID specialtyId : filter.getSpecialtyIds()) {
+                candidates.addAll(getSpecialtyPosting(specialtyId));
+            }
+        }
+
+        if (filter.getDoctorIds() != null && !filter.getDoctorIds().isEmpty()) {
+            if (candidates == null) {
+                candidates = new HashSet<>(filter.getDoctorIds());
+            } else {
+                candidates.retainAll(filter.getDoctorIds());
+            }
+        }
+
+        return candidates;
+    }
+
+    private Set<UUID> getSpecialtyPosting(UUID specialtyId) {
+        Set<UUID> posting = availabilityIndex.getSpecialtyPosting(specialtyId, false);
+        if (posting != null) {
+            return posting;
+        }
+
+        Set<UUID> doctorIds;
+        try {
+            doctorIds = fetchDoctorIdsBySpecialty(specialtyId);
+        } catch (Exception e) {
+            // userprofile-service lỗi: dùng posting đã hết hạn nếu còn, thiếu chuyên khoa thì không trả kết quả sai
+            Set<UUID> expired = availabilityIndex.getSpecialtyPosting(specialtyId, true);
+            if (expired == null) {
+                throw e;
+            }
+            log.warn("Lỗi lấy bác sĩ chuyên khoa {}: {}. Dùng posting đã hết hạn", specialtyId, e.getMessage());
+            return expired;
+        }
+
+        if (!doctorIds.isEmpty()) {
+            availabilityIndex.putSpecialtyPosting(specialtyId, doctorIds);
+        }
+        return doctorIds;
+    }
+
+    private Set<UUID> fetchDoctorIdsBySpecialty(UUID specialtyId) {
+        Set<UUID> doctorIds = new HashSet<>();
+        for (int page = 0; page < MAX_SPECIALTY_PAGES; page++) {
+            PageResponse<DoctorResponse> doctors = userProfileClientService
+                    .getDoctorsBySpecialty(specialtyId, PageRequest.of(page, SPECIALTY_PAGE_SIZE));
+            List<DoctorResponse> content = doctors.getContent() != null ? doctors.getContent() : List.of();
+            content.stream()
+                    .map(DoctorResponse::getUserId)
+                    .forEach(doctorIds::add);
+
+            if (doctors.isLast() || content.size() < SPECIALTY_PAGE_SIZE || page + 1 >= doctors.getTotalPages()) {
+                return doctorIds;
+            }
+        }
+        log.warn("Chuyên khoa {} có hơn {} trang bác sĩ, bỏ qua phần còn lại", specialtyId, MAX_SPECIALTY_PAGES);
+        return doctorIds;
+    }
+
     private List<UUID> getDoctorIdsWithAvailableSlots(DoctorAvailabilityFilter filter) {
         try {
             List<UUID> doctorIds;
@@ -187,12 +373,7 @@ public class DoctorAvailabilityServiceImpl implements DoctorAvailabilityService
             Set<UUID> doctorsInSpecialty = new HashSet<>();
 
             for (UUID specialtyId : specialtyIds) {
-                PageResponse<DoctorResponse> doctors = userProfileClientService
-                        .getDoctorsBySpecialty(specialtyId, PageRequest.of(0, 1000));
-
-                doctors.getContent().stream()
-                        .map(DoctorResponse::getUserId)
-                        .forEach(doctorsInSpecialty::add);
+                doctorsInSpecialty.addAll(getSpecialtyPosting(specialtyId));
             }
 
             // Lấy intersection
@@ -223,9 +404,9 @@ public class DoctorAvailabilityServiceImpl implements DoctorAvailabilityService
             List<UUID> doctorIds,
             DoctorAvailabilityFilter filter) {
 
-        return doctorIds.stream()
-                .map(doctorId -> processSingleDoctor(doctorId, filter))
-                .filter(Objects::nonNull)
+        return partitionList(doctorIds, batchSize).stream()
+                .map(batch -> processBatch(batch, filter))
+                .flatMap(List::stream)
                 .collect(Collectors.toList());
     }
 
@@ -262,16 +443,37 @@ public class DoctorAvailabilityServiceImpl implements DoctorAvailabilityService
     private List<DoctorWithSlotsResponse> processBatch(List<UUID> doctorIds, DoctorAvailabilityFilter filter) {
         log.debug("Xử lý batch {} doctors", doctorIds.size());
 
+        // Đọc trước cache slot và profile của cả batch, mỗi loại một lần
+        AvailabilityCacheBatch cachedSlots = prefetchCachedSlots(doctorIds, filter);
+        Map<UUID, DoctorResponse> profiles = doctorProfileCache.getAll(doctorIds);
+
         return doctorIds.stream()
-                .map(doctorId -> processSingleDoctor(doctorId, filter))
+                .map(doctorId -> processSingleDoctor(doctorId, filter, cachedSlots, profiles))
                 .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
 
-    private DoctorWithSlotsResponse processSingleDoctor(UUID doctorId, DoctorAvailabilityFilter filter) {
+    private AvailabilityCacheBatch prefetchCachedSlots(List<UUID> doctorIds, DoctorAvailabilityFilter filter) {
+        if (!Boolean.TRUE.equals(filter.getUseCache())
+                || filter.getStartDate() == null || filter.getEndDate() == null) {
+            return null;
+        }
+
+        try {
+            return doctorSlotRedisCache.getDoctorAvailabilityBatch(
+                    doctorIds, getDateRange(filter.getStartDate(), filter.getEndDate()));
+        } catch (Exception e) {
+            log.warn("Lỗi đọc cache theo lô: {}. Fallback sang đọc từng bác sĩ", e.getMessage());
+            return null;
+        }
+    }
+
+    private DoctorWithSlotsResponse processSingleDoctor(UUID doctorId, DoctorAvailabilityFilter filter,
+                                                        AvailabilityCacheBatch cachedSlots,
+                                                        Map<UUID, DoctorResponse> profiles) {
         try {
             // Lấy thông tin doctor
-            DoctorResponse doctorInfo = getDoctorInfoWithCache(doctorId);
+            DoctorResponse doctorInfo = profiles.get(doctorId);
             if (doctorInfo == null) {
                 log.debug("Không tìm thấy thông tin bác sĩ {}", doctorId);
                 return null;
@@ -286,7 +488,7 @@ public class DoctorAvailabilityServiceImpl implements DoctorAvailabilityService
             DoctorWithSlotsResponse response = convertDoctorResponseToWithSlots(doctorInfo);
 
             // Lấy và filter slots
-            List<AvailableSlotInfo> slots = getFilteredSlots(doctorId, filter);
+            List<AvailableSlotInfo> slots = getFilteredSlots(doctorId, filter, cachedSlots);
             response.setAvailableSlots(slots);
 
             // Kiểm tra có nên include không
@@ -302,43 +504,19 @@ public class DoctorAvailabilityServiceImpl implements DoctorAvailabilityService
         }
     }
 
-    private DoctorResponse getDoctorInfoWithCache(UUID doctorId) {
-        String cacheKey = PROFILE_CACHE_PREFIX + doctorId;
-
-        try {
-            if (redisCacheService.checkExistsKey(cacheKey)) {
-                Object cached = redisCacheService.get(cacheKey);
-                if (cached instanceof DoctorResponse doctorResponse) {
-                    log.debug("Cache HIT - Profile bác sĩ {}", doctorId);
-                    return doctorResponse;
-                }
-            }
-        } catch (Exception e) {
-            log.warn("Lỗi đọc cache profile: {}", e.getMessage());
-        }
-
-        try {
-            DoctorResponse doctorResponse = userProfileClientService.getDoctorById(doctorId);
-            if (doctorResponse != null) {
-                redisCacheService.set(cacheKey, doctorResponse, cacheTtlSeconds, TimeUnit.SECONDS);
-                return doctorResponse;
-            }
-        } catch (Exception e) {
-            log.error("Lỗi gọi userprofile-service: {}", e.getMessage(), e);
-        }
-
-        return null;
-    }
-
-
-    private List<AvailableSlotInfo> getFilteredSlots(UUID doctorId, DoctorAvailabilityFilter filter) {
+    private List<AvailableSlotInfo> getFilteredSlots(UUID doctorId, DoctorAvailabilityFilter filter,
+                                                     AvailabilityCacheBatch cachedSlots) {
         if (filter.getStartDate() == null || filter.getEndDate() == null) {
             return Collections.emptyList();
         }
 
-        return Boolean.TRUE.equals(filter.getUseCache())
-                ? getAllSlotsInRangeWithCache(doctorId, filter.getStartDate(), filter.getEndDate(), filter)
-                : getSlotsFromDatabaseWithFilter(doctorId, filter);
+        if (!Boolean.TRUE.equals(filter.getUseCache())) {
+            return getSlotsFromDatabaseWithFilter(doctorId, filter);
+        }
+
+        return cachedSlots != null && cachedSlots.contains(doctorId)
+                ? getAllSlotsInRange(doctorId, filter, cachedSlots)
+                : getAllSlotsInRangeWithCache(doctorId, filter.getStartDate(), filter.getEndDate(), filter);
     }
 
 
@@ -348,40 +526,35 @@ public class DoctorAvailabilityServiceImpl implements DoctorAvailabilityService
             LocalDate endDate,
             DoctorAvailabilityFilter filter) {
 
-        List<AvailableSlotInfo> allSlots = new ArrayList<>();
-        List<LocalDate> cacheMissDates = new ArrayList<>();
-
         List<LocalDate> dates = getDateRange(startDate, endDate);
+        AvailabilityCacheBatch cachedSlots = doctorSlotRedisCache.getDoctorAvailabilityBatch(List.of(doctorId), dates);
+        return getAllSlotsInRange(doctorId, filter, cachedSlots);
+    }
 
-        try {
-            for (LocalDate date : dates) {
-                DoctorAvailabilityCacheData cacheData = doctorSlotRedisCache.getDoctorAvailability(doctorId, date);
-
-                if (cacheData != null) {
-                    // Cache HIT
-                    List<AvailableSlotInfo> dailySlots = convertCacheDataToSlotInfoList(cacheData);
-                    dailySlots = applySlotFilters(dailySlots, filter);
-                    allSlots.addAll(dailySlots);
-                } else {
-                    // Cache MISS
-                    cacheMissDates.add(date);
-                }
-            }
+    private List<AvailableSlotInfo> getAllSlotsInRange(
+            UUID doctorId,
+            DoctorAvailabilityFilter filter,
+            AvailabilityCacheBatch cachedSlots) {
 
-            int cacheHits = dates.size() - cacheMissDates.size();
-            log.debug("Cache: HIT {}/{} ngày cho bác sĩ {}", cacheHits, dates.size(), doctorId);
+        List<AvailableSlotInfo> allSlots = new ArrayList<>();
 
-        } catch (Exception e) {
-            log.warn("Lỗi đọc cache: {}. Fallback sang DB", e.getMessage());
-            cacheMissDates.addAll(dates);
-        }
+        // Cache HIT
+        Map<LocalDate, DoctorAvailabilityCacheData> hits = cachedSlots.getHits(doctorId);
+        hits.keySet().stream().sorted().forEach(date -> {
+            List<AvailableSlotInfo> dailySlots = convertCacheDataToSlotInfoList(hits.get(date));
+            allSlots.addAll(applySlotFilters(dailySlots, filter));
+        });
+
+        // Cache MISS: chỉ những ngày bị miss mới đọc từ DB
+        List<LocalDate> cacheMissDates = cachedSlots.getMissingDates(doctorId);
+        log.debug("Cache: HIT {}/{} ngày cho bác sĩ {}",
+                hits.size(), hits.size() + cacheMissDates.size(), doctorId);
 
         if (!cacheMissDates.isEmpty()) {
             List<AvailableSlotInfo> dbSlots = getSlotsFromDatabase(doctorId, cacheMissDates);
-            dbSlots = applySlotFilters(dbSlots, filter);
-            allSlots.addAll(dbSlots);
-
             cacheSlots(doctorId, dbSlots);
+
+            allSlots.addAll(applySlotFilters(dbSlots, filter));
         }
 
         return allSlots;
@@ -417,7 +590,9 @@ public class DoctorAvailabilityServiceImpl implements DoctorAvailabilityService
             List<DoctorAvailableSlot> dbSlots = doctorAvailableSlotRepository
                     .findSlotsByDoctorAndDateRange(doctorId, startDate, endDate);
 
+            Set<LocalDate> requestedDates = new HashSet<>(dates);
             return dbSlots.stream()
+                    .filter(slot -> requestedDates.contains(slot.getSlotDate()))
                     .map(this::convertDbSlotToAvailableSlotInfo)
                     .filter(Objects::nonNull)
                     .collect(Collectors.toList());
@@ -0,0 +1,281 @@
+package org.project.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.project.dto.cache.DoctorProfileCacheStats;
+import org.project.dto.response.DoctorResponse;
+import org.project.service.DoctorProfileCache;
+import org.project.service.RedisCacheService;
+import org.project.service.UserProfileClientService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DoctorProfileCacheImpl implements DoctorProfileCache {
+
+    private static final String PROFILE_CACHE_PREFIX = "doctor:profile:";
+
+    private final RedisCacheService redisCacheService;
+    private final UserProfileClientService userProfileClientService;
+
+    @Value("${app.doctor-profile.local-max-size:5000}")
+    private int localMaxSize;
+
+    // Tầng local không được invalidate giữa các instance nên TTL ngắn hơn nhiều so với Redis
+    @Value("${app.doctor-profile.local-ttl-ms:60000}")
+    private long localTtlMs;
+
+    @Value("${app.availability.cache-ttl:3600}")
+    private long redisTtlSeconds;
+
+    @Value("${app.doctor-profile.origin-batch-size:100}")
+    private int originBatchSize;
+
+    @Value("${app.doctor-profile.wait-timeout-ms:5000}")
+    private long waitTimeoutMs;
+
+    private LocalProfileCache localCache;
+
+    // Request bulk đang chạy theo doctorId, miss đến sau chờ trên future này
+    private final Map<UUID, CompletableFuture<DoctorResponse>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder localHits = new LongAdder();
+    private final LongAdder redisHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder originCalls = new LongAdder();
+    private final LongAdder originDoctors = new LongAdder();
+    private final LongAdder coalescedWaits = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        this.localCache = new LocalProfileCache(localMaxSize, TimeUnit.MILLISECONDS.toNanos(localTtlMs));
+        log.info("Khởi tạo cache profile bác sĩ: local tối đa {} entry, TTL {} ms", localMaxSize, localTtlMs);
+    }
+
+    @Override
+    public DoctorResponse get(UUID doctorId) {
+        return getAll(List.of(doctorId)).get(doctorId);
+    }
+
+    @Override
+    public Map<UUID, DoctorResponse> getAll(Collection<UUID> doctorIds) {
+        Map<UUID, DoctorResponse> result = new HashMap<>();
+        List<UUID> localMisses = new ArrayList<>();
+
+        for (UUID doctorId : new LinkedHashSet<>(doctorIds)) {
+            DoctorResponse cached = localCache.get(doctorId);
+            if (cached != null) {
+                result.put(doctorId, cached);
+            } else {
+                localMisses.add(doctorId);
+            }
+        }
+        localHits.add(result.size());
+        if (localMisses.isEmpty()) {
+            return result;
+        }
+
+        List<UUID> redisMisses = readFromRedis(localMisses, result);
+        if (redisMisses.isEmpty()) {
+            return result;
+        }
+
+        misses.add(redisMisses.size());
+        result.putAll(loadFromOrigin(redisMisses));
+        return result;
+    }
+
+    @Override
+    public DoctorProfileCacheStats getStats() {
+        long local = localHits.sum();
+        long redis = redisHits.sum();
+        long missed = misses.sum();
+        long lookups = local + redis + missed;
+
+        return DoctorProfileCacheStats.builder()
+                .localHits(local)
+                .redisHits(redis)
+                .misses(missed)
+                .localHitRatio(lookups == 0 ? 0 : (double) local / lookups)
+                .hitRatio(lookups == 0 ? 0 : (double) (local + redis) / lookups)
+                .originCalls(originCalls.sum())
+                .originDoctors(originDoctors.sum())
+                .coalescedWaits(coalescedWaits.sum())
+                .localSize(localCache.size())
+                .build();
+    }
+
+    private List<UUID> readFromRedis(List<UUID> doctorIds, Map<UUID, DoctorResponse> result) {
+        List<String> keys = doctorIds.stream()
+                .map(doctorId -> PROFILE_CACHE_PREFIX + doctorId)
+                .collect(Collectors.toList());
+        List<Object> values = redisCacheService.mget(keys);
+
+        List<UUID> redisMisses = new ArrayList<>();
+        for (int i = 0; i < doctorIds.size(); i++) {
+            Object value = values != null && i < values.size() ? values.get(i) : null;
+            if (value instanceof DoctorResponse doctorResponse) {
+                result.put(doctorIds.get(i), doctorResponse);
+                localCache.put(doctorIds.get(i), doctorResponse);
+                redisHits.increment();
+            } else {
+                redisMisses.add(doctorIds.get(i));
+            }
+        }
+        return redisMisses;
+    }
+
+    /**
+     * Miss của nhiều request đồng thời chỉ sinh một lời gọi cho mỗi bác sĩ:
+     * request đầu tiên nhận gọi userprofile-service, các request sau chờ kết quả của nó.
+     */
+    private Map<UUID, DoctorResponse> loadFromOrigin(List<UUID> doctorIds) {
+        Map<UUID, CompletableFuture<DoctorResponse>> pending = new LinkedHashMap<>();
+        List<UUID> owned = new ArrayList<>();
+
+        for (UUID doctorId : doctorIds) {
+            CompletableFuture<DoctorResponse> future = new CompletableFuture<>();
+            CompletableFuture<DoctorResponse> existing = inFlight.putIfAbsent(doctorId, future);
+            if (existing == null) {
+                pending.put(doctorId, future);
+                // Request trước có thể vừa nạp xong giữa lúc đọc cache và lúc nhận gọi
+                DoctorResponse justLoaded = localCache.get(doctorId);
+                if (justLoaded != null) {
+                    publish(doctorId, future, justLoaded);
+                } else {
+                    owned.add(doctorId);
+                }
+            } else {
+                coalescedWaits.increment();
+                pending.put(doctorId, existing);
+            }
+        }
+
+        if (!owned.isEmpty()) {
+            fetchAndPublish(owned, pending);
+        }
+
+        Map<UUID, DoctorResponse> loaded = new HashMap<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitTimeoutMs);
+        for (Map.Entry<UUID, CompletableFuture<DoctorResponse>> entry : pending.entrySet()) {
+            DoctorResponse doctorResponse = await(entry.getKey(), entry.getValue(), deadline);
+            if (doctorResponse != null) {
+                loaded.put(entry.getKey(), doctorResponse);
+            }
+        }
+        return loaded;
+    }
+
+    private void fetchAndPublish(List<UUID> owned, Map<UUID, CompletableFuture<DoctorResponse>> pending) {
+        try {
+            for (int from = 0; from < owned.size(); from += originBatchSize) {
+                List<UUID> batch = owned.subList(from, Math.min(from + originBatchSize, owned.size()));
+                originCalls.increment();
+                originDoctors.add(batch.size());
+
+                Map<UUID, DoctorResponse> fetched = userProfileClientService.getDoctorsByIds(batch).stream()
+                        .collect(Collectors.toMap(DoctorResponse::getUserId, Function.identity(), (a, b) -> a));
+                log.debug("Lấy {} / {} profile bác sĩ từ userprofile-service", fetched.size(), batch.size());
+
+                for (UUID doctorId : batch) {
+                    DoctorResponse doctorResponse = fetched.get(doctorId);
+                    if (doctorResponse != null) {
+                        // Ghi cache trước khi gỡ khỏi inFlight để request tới sau đọc được từ cache
+                        localCache.put(doctorId, doctorResponse);
+                        redisCacheService.set(PROFILE_CACHE_PREFIX + doctorId, doctorResponse,
+                                redisTtlSeconds, TimeUnit.SECONDS);
+                    }
+                    publish(doctorId, pending.get(doctorId), doctorResponse);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Lỗi lấy profile bác sĩ từ userprofile-service: {}", e.getMessage(), e);
+        } finally {
+            // Request chờ không bao giờ bị treo kể cả khi lời gọi lỗi giữa chừng
+            for (UUID doctorId : owned) {
+                publish(doctorId, pending.get(doctorId), null);
+            }
+        }
+    }
+
+    private void publish(UUID doctorId, CompletableFuture<DoctorResponse> future, DoctorResponse doctorResponse) {
+        inFlight.remove(doctorId, future);
+        future.complete(doctorResponse);
+    }
+
+    private DoctorResponse await(UUID doctorId, CompletableFuture<DoctorResponse> future, long deadline) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Hết thời gian chờ profile bác sĩ {}", doctorId);
+        } catch (ExecutionException e) {
+            log.warn("Lỗi chờ profile bác sĩ {}: {}", doctorId, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    /**
+     * LRU có TTL, giới hạn số entry để không giữ toàn bộ danh bạ bác sĩ trong heap
+     */
+    private static final class LocalProfileCache {
+
+        private record Entry(DoctorResponse value, long expiresAtNanos) {
+        }
+
+        private final long ttlNanos;
+        private final LinkedHashMap<UUID, Entry> entries;
+
+        LocalProfileCache(int maxSize, long ttlNanos) {
+            this.ttlNanos = ttlNanos;
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<UUID, Entry> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+
+        synchronized DoctorResponse get(UUID doctorId) {
+            Entry entry = entries.get(doctorId);
+            if (entry == null) {
+                return null;
+            }
+            if (System.nanoTime() - entry.expiresAtNanos() >= 0) {
+                entries.remove(doctorId);
+                return null;
+            }
+            return entry.value();
+        }
+
+        synchronized void put(UUID doctorId, DoctorResponse value) {
+            entries.put(doctorId, new Entry(value, System.nanoTime() + ttlNanos));
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+    }
+}
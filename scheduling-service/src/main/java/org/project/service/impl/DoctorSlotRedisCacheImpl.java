@@ -2,19 +2,34 @@ package org.project.service.impl;
 
 import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import org.project.config.CacheCodecProperties;
+import org.project.dto.cache.AvailabilityCacheBatch;
 import org.project.dto.cache.DoctorAvailabilityCacheData;
+import org.project.dto.cache.SlotStatusChange;
 import org.project.dto.cache.TimeSlot;
+import org.project.enums.CacheFormat;
 import org.project.service.DoctorSlotRedisCache;
 import org.project.service.RedisCacheService;
+import org.project.util.AvailabilityBinaryCodec;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Service;
 
 import lombok.RequiredArgsConstructor;
@@ -26,11 +41,17 @@ import lombok.extern.slf4j.Slf4j;
 public class DoctorSlotRedisCacheImpl implements DoctorSlotRedisCache {
     private final RedisTemplate<String, Object> redisTemplate;
     private final RedisCacheService redisCacheService;
+    private final CacheCodecProperties codecProperties;
 
     private static final String CACHE_KEY_PREFIX = "doctor:availability:";
     private static final String SLOT_FIELD_PREFIX = "slot:";
     private static final String METADATA_FIELD = "metadata";
+    // Sorted set: member = cache key, score = epochDay của ngày, dùng để dọn cache quá hạn không cần KEYS
+    private static final String DATE_INDEX_KEY = "doctor:availability-index:by-date";
+    // Bản compact (AvailabilityBinaryCodec) nằm ở key riêng, đọc trước bản JSON hash
+    private static final String COMPACT_KEY_SUFFIX = ":bin";
     private static final Duration CACHE_TTL = Duration.ofHours(24);
+    private static final int MAX_UPDATE_ATTEMPTS = 5;
 
     @Override
     public void cacheDoctorAvailability(UUID doctorId, LocalDate date, List<TimeSlot> slots) {
@@ -45,8 +66,6 @@ public class DoctorSlotRedisCacheImpl implements DoctorSlotRedisCache {
 
             String cacheKey = buildCacheKey(doctorId, date);
 
-            Map<String, Object> hashData = new HashMap<>();
-
             // Tìm thời gian cập nhật mới nhất từ tất cả slots
             java.time.LocalDateTime latestUpdate = slots.stream()
                     .map(TimeSlot::getLastUpdate)
@@ -54,6 +73,25 @@ public class DoctorSlotRedisCacheImpl implements DoctorSlotRedisCache {
                     .max(java.time.LocalDateTime::compareTo)
                     .orElse(null);
 
+            if (codecProperties.formatFor(cacheKey) == CacheFormat.COMPACT) {
+                byte[] payload = AvailabilityBinaryCodec.encode(slots, System.currentTimeMillis(), latestUpdate);
+                if (payload != null) {
+                    writeCompact(cacheKey, payload, Expiration.from(CACHE_TTL));
+                    // Bỏ bản JSON cũ để không còn hai phiên bản của cùng một ngày
+                    redisTemplate.delete(cacheKey);
+                    redisTemplate.opsForZSet().add(DATE_INDEX_KEY, cacheKey, date.toEpochDay());
+                    log.info("Đã cache {} slots cho doctor {} vào ngày {} (compact, {} bytes)",
+                            slots.size(), doctorId, date, payload.length);
+                    return;
+                }
+                log.debug("Slots của doctor {} ngày {} không mã hóa compact được, dùng JSON", doctorId, date);
+            }
+
+            // Bản compact (nếu có) được đọc trước nên phải xóa khi ghi JSON
+            redisTemplate.delete(compactKey(cacheKey));
+
+            Map<String, Object> hashData = new HashMap<>();
+
             // Lưu metadata
             Map<String, Object> metadata = new HashMap<>();
             metadata.put("doctorId", doctorId.toString());
@@ -79,6 +117,7 @@ public class DoctorSlotRedisCacheImpl implements DoctorSlotRedisCache {
             redisTemplate.opsForHash().putAll(cacheKey, hashData);
             
             Boolean expireResult = redisTemplate.expire(cacheKey, CACHE_TTL);
+            redisTemplate.opsForZSet().add(DATE_INDEX_KEY, cacheKey, date.toEpochDay());
 
             // Verify cache
             Long hashSize = redisTemplate.opsForHash().size(cacheKey);
@@ -97,6 +136,11 @@ public class DoctorSlotRedisCacheImpl implements DoctorSlotRedisCache {
         try {
             String cacheKey = buildCacheKey(doctorId, date);
 
+            byte[] compact = readCompact(cacheKey);
+            if (compact != null) {
+                return AvailabilityBinaryCodec.decode(doctorId, date, compact);
+            }
+
             Map<Object, Object> hashData = redisTemplate.opsForHash().entries(cacheKey);
 
             if (hashData.isEmpty()) {
@@ -104,92 +148,275 @@ public class DoctorSlotRedisCacheImpl implements DoctorSlotRedisCache {
                 return null;
             }
 
-            // Lấy metadata
-            @SuppressWarnings("unchecked")
-            Map<String, Object> metadata = (Map<String, Object>) hashData.get(METADATA_FIELD);
+            return toCacheData(doctorId, date, hashData);
 
-            if (metadata == null) {
-                log.warn("Metadata not found in cache for doctor {} on {}", doctorId, date);
-                return null;
+        } catch (Exception e) {
+            log.error("Failed to get doctor availability from cache for doctor {} on {}: {}",
+                    doctorId, date, e.getMessage(), e);
+            return null;
+        }
+    }
+
+    @Override
+    public AvailabilityCacheBatch getDoctorAvailabilityBatch(Collection<UUID> doctorIds, List<LocalDate> dates) {
+        AvailabilityCacheBatch batch = AvailabilityCacheBatch.builder().build();
+        if (doctorIds == null || doctorIds.isEmpty() || dates == null || dates.isEmpty()) {
+            return batch;
+        }
+
+        List<UUID> orderedDoctorIds = new ArrayList<>(doctorIds);
+        List<String> cacheKeys = new ArrayList<>(orderedDoctorIds.size() * dates.size());
+        for (UUID doctorId : orderedDoctorIds) {
+            for (LocalDate date : dates) {
+                cacheKeys.add(buildCacheKey(doctorId, date));
             }
+        }
 
-            // Lấy các slots
-            List<TimeSlot> slots = hashData.entrySet().stream()
-                    .filter(entry -> ((String) entry.getKey()).startsWith(SLOT_FIELD_PREFIX))
-                    .map(entry -> (TimeSlot) entry.getValue())
-                    .sorted(Comparator.comparing(TimeSlot::getStartTime))
+        Map<String, DoctorAvailabilityCacheData> found = new HashMap<>();
+        try {
+            // Một MGET bản compact cho toàn bộ doctor/ngày; chỉ các key không có bản compact
+            // (bản JSON) mới được đọc tiếp bằng một pipeline HGETALL
+            readCompactBatch(cacheKeys, found);
+            List<String> jsonKeys = cacheKeys.stream()
+                    .filter(cacheKey -> !found.containsKey(cacheKey))
                     .collect(Collectors.toList());
+            if (!jsonKeys.isEmpty()) {
+                readJsonBatch(jsonKeys, found);
+            }
+        } catch (Exception e) {
+            log.error("Failed to read availability batch from cache ({} keys): {}", cacheKeys.size(), e.getMessage(), e);
+            orderedDoctorIds.forEach(doctorId -> batch.getMisses().put(doctorId, new ArrayList<>(dates)));
+            return batch;
+        }
+
+        int index = 0;
+        for (UUID doctorId : orderedDoctorIds) {
+            for (LocalDate date : dates) {
+                DoctorAvailabilityCacheData cacheData = found.get(cacheKeys.get(index++));
+                if (cacheData != null) {
+                    batch.getHits().computeIfAbsent(doctorId, id -> new HashMap<>()).put(date, cacheData);
+                } else {
+                    batch.getMisses().computeIfAbsent(doctorId, id -> new ArrayList<>()).add(date);
+                }
+            }
+        }
+
+        log.debug("Batch availability read: {} keys, {} hits, {} misses",
+                cacheKeys.size(), found.size(), cacheKeys.size() - found.size());
+        return batch;
+    }
 
-            log.debug("Cache hit for doctor {} on {} with {} slots", doctorId, date, slots.size());
+    private void readCompactBatch(List<String> cacheKeys, Map<String, DoctorAvailabilityCacheData> found) {
+        byte[][] keys = cacheKeys.stream()
+                .map(cacheKey -> rawKey(compactKey(cacheKey)))
+                .toArray(byte[][]::new);
+        List<byte[]> payloads = redisTemplate.execute(
+                (RedisCallback<List<byte[]>>) connection -> connection.stringCommands().mGet(keys));
+        if (payloads == null) {
+            return;
+        }
+
+        for (int i = 0; i < cacheKeys.size() && i < payloads.size(); i++) {
+            byte[] payload = payloads.get(i);
+            if (payload == null) {
+                continue;
+            }
+            String cacheKey = cacheKeys.get(i);
+            try {
+                found.put(cacheKey, AvailabilityBinaryCodec.decode(doctorIdOf(cacheKey), dateOf(cacheKey), payload));
+            } catch (Exception e) {
+                log.warn("Failed to decode compact availability for key {}: {}", cacheKey, e.getMessage());
+            }
+        }
+    }
 
-            // Parse lastUpdate nếu có
-            java.time.LocalDateTime lastUpdate = null;
-            if (metadata.containsKey("lastUpdate")) {
-                try {
-                    lastUpdate = java.time.LocalDateTime.parse((String) metadata.get("lastUpdate"));
-                } catch (Exception e) {
-                    log.warn("Failed to parse lastUpdate from cache: {}", e.getMessage());
+    private void readJsonBatch(List<String> cacheKeys, Map<String, DoctorAvailabilityCacheData> found) {
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String cacheKey : cacheKeys) {
+                connection.hashCommands().hGetAll(rawKey(cacheKey));
+            }
+            return null;
+        });
+
+        for (int i = 0; i < cacheKeys.size() && i < results.size(); i++) {
+            if (!(results.get(i) instanceof Map<?, ?> hashData) || hashData.isEmpty()) {
+                continue;
+            }
+            String cacheKey = cacheKeys.get(i);
+            try {
+                @SuppressWarnings("unchecked")
+                Map<Object, Object> entries = (Map<Object, Object>) hashData;
+                DoctorAvailabilityCacheData cacheData = toCacheData(doctorIdOf(cacheKey), dateOf(cacheKey), entries);
+                if (cacheData != null) {
+                    found.put(cacheKey, cacheData);
                 }
+            } catch (Exception e) {
+                log.warn("Failed to parse cached availability for key {}: {}", cacheKey, e.getMessage());
             }
+        }
+    }
 
-            return DoctorAvailabilityCacheData.builder()
-                    .doctorId(doctorId)
-                    .date(date)
-                    .slots(slots)
-                    .totalSlots(slots.size())
-                    .cachedAt(((Number) metadata.get("cachedAt")).longValue())
-                    .lastUpdate(lastUpdate)
-                    .build();
+    private DoctorAvailabilityCacheData toCacheData(UUID doctorId, LocalDate date, Map<Object, Object> hashData) {
+        // Lấy metadata
+        @SuppressWarnings("unchecked")
+        Map<String, Object> metadata = (Map<String, Object>) hashData.get(METADATA_FIELD);
 
-        } catch (Exception e) {
-            log.error("Failed to get doctor availability from cache for doctor {} on {}: {}",
-                    doctorId, date, e.getMessage(), e);
+        if (metadata == null) {
+            log.warn("Metadata not found in cache for doctor {} on {}", doctorId, date);
             return null;
         }
+
+        // Lấy các slots
+        List<TimeSlot> slots = hashData.entrySet().stream()
+                .filter(entry -> ((String) entry.getKey()).startsWith(SLOT_FIELD_PREFIX))
+                .map(entry -> (TimeSlot) entry.getValue())
+                .sorted(Comparator.comparing(TimeSlot::getStartTime))
+                .collect(Collectors.toList());
+
+        log.debug("Cache hit for doctor {} on {} with {} slots", doctorId, date, slots.size());
+
+        // Parse lastUpdate nếu có
+        java.time.LocalDateTime lastUpdate = null;
+        if (metadata.containsKey("lastUpdate")) {
+            try {
+                lastUpdate = java.time.LocalDateTime.parse((String) metadata.get("lastUpdate"));
+            } catch (Exception e) {
+                log.warn("Failed to parse lastUpdate from cache: {}", e.getMessage());
+            }
+        }
+
+        return DoctorAvailabilityCacheData.builder()
+                .doctorId(doctorId)
+                .date(date)
+                .slots(slots)
+                .totalSlots(slots.size())
+                .cachedAt(((Number) metadata.get("cachedAt")).longValue())
+                .lastUpdate(lastUpdate)
+                .build();
     }
 
     @Override
-    public void updateSlotAvailability(UUID doctorId, LocalDate slotDate, UUID slotId, boolean isAvailable) {
-        try {
-            String cacheKey = buildCacheKey(doctorId, slotDate);
-            String hashField = SLOT_FIELD_PREFIX + slotId;
+    public boolean applySlotChange(UUID doctorId, LocalDate slotDate, UUID slotId, boolean isAvailable, Long version) {
+        SlotStatusChange change = SlotStatusChange.builder()
+                .slotId(slotId)
+                .available(isAvailable)
+                .version(version)
+                .build();
+        return applySlotChanges(doctorId, slotDate, List.of(change)) > 0;
+    }
 
-            // Kiểm tra cache key có tồn tại không
-            if (Boolean.FALSE.equals(redisTemplate.hasKey(cacheKey))) {
-                log.debug("Cache key {} not found, skipping update", cacheKey);
-                return;
+    @Override
+    public int applySlotChanges(UUID doctorId, LocalDate slotDate, List<SlotStatusChange> changes) {
+        if (changes == null || changes.isEmpty()) {
+            return 0;
+        }
+
+        String cacheKey = buildCacheKey(doctorId, slotDate);
+
+        // Đọc - sửa - ghi trong WATCH/MULTI: nếu key bị ghi bởi node khác giữa lúc đọc và EXEC thì
+        // transaction bị hủy và đọc lại, tránh ghi đè thay đổi có version mới hơn
+        for (int attempt = 1; attempt <= MAX_UPDATE_ATTEMPTS; attempt++) {
+            Integer applied = redisTemplate.execute(new SessionCallback<Integer>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Integer execute(RedisOperations<K, V> operations) {
+                    return applyChangesOnce((RedisOperations<String, Object>) operations,
+                            cacheKey, doctorId, slotDate, changes);
+                }
+            });
+            if (applied != null) {
+                return applied;
             }
+            log.debug("Cache key {} thay đổi trong lúc cập nhật, thử lại lần {}", cacheKey, attempt + 1);
+        }
 
-            // Lấy slot hiện tại
-            Object slotData = redisTemplate.opsForHash().get(cacheKey, hashField);
+        log.warn("Không cập nhật được {} sau {} lần do tranh chấp, evict để nạp lại từ DB",
+                cacheKey, MAX_UPDATE_ATTEMPTS);
+        evictDoctorAvailabilityCache(doctorId, slotDate);
+        return 0;
+    }
 
-            if (slotData != null) {
-                TimeSlot slot = (TimeSlot) slotData;
-                slot.setAvailable(isAvailable);
+    /**
+     * Một lượt WATCH - đọc - MULTI - ghi - EXEC trên connection của session.
+     *
+     * @return số slot đã cập nhật, null nếu EXEC bị hủy vì key đã thay đổi
+     */
+    private Integer applyChangesOnce(RedisOperations<String, Object> operations, String cacheKey,
+                                     UUID doctorId, LocalDate slotDate, List<SlotStatusChange> changes) {
+        String compactKey = compactKey(cacheKey);
+        operations.watch(List.of(cacheKey, compactKey));
+
+        byte[] payload = operations.execute((RedisCallback<byte[]>) connection ->
+                connection.stringCommands().get(rawKey(compactKey)));
+        if (payload != null) {
+            DoctorAvailabilityCacheData data = AvailabilityBinaryCodec.decode(doctorId, slotDate, payload);
+            Map<UUID, TimeSlot> slotsById = data.getSlots().stream()
+                    .collect(Collectors.toMap(TimeSlot::getSlotId, slot -> slot, (a, b) -> a));
+
+            int applied = 0;
+            for (SlotStatusChange change : changes) {
+                TimeSlot slot = slotsById.get(change.getSlotId());
+                if (slot != null && applyIfNewer(slot, change.isAvailable(), change.getVersion())) {
+                    applied++;
+                }
+            }
+            if (applied == 0) {
+                operations.unwatch();
+                return 0;
+            }
+
+            byte[] updated = AvailabilityBinaryCodec.encode(data);
+            if (updated == null) {
+                operations.unwatch();
+                evictDoctorAvailabilityCache(doctorId, slotDate);
+                return 0;
+            }
 
-                // Update chỉ field này trong hash - O(1) operation
-                redisTemplate.opsForHash().put(cacheKey, hashField, slot);
+            operations.multi();
+            operations.execute((RedisCallback<Boolean>) connection -> connection.stringCommands()
+                    .set(rawKey(compactKey), updated, Expiration.keepTtl(), RedisStringCommands.SetOption.upsert()));
+            return committed(operations.exec()) ? applied : null;
+        }
 
-                log.debug("Updated slot {} availability to {} in cache for doctor {} on {}",
-                        slotId, isAvailable, doctorId, slotDate);
-            } else {
-                log.debug("Slot {} not found in cache key {}", slotId, cacheKey);
+        // Bản JSON: một HMGET cho các slot bị ảnh hưởng, một HMSET cho các slot thay đổi.
+        // Ngày chưa được cache thì lần đọc sau sẽ nạp từ DB, không cần làm gì
+        List<Object> fields = changes.stream()
+                .map(change -> (Object) (SLOT_FIELD_PREFIX + change.getSlotId()))
+                .collect(Collectors.toList());
+        List<Object> cachedSlots = operations.opsForHash().multiGet(cacheKey, fields);
+
+        Map<String, Object> updates = new HashMap<>();
+        for (int i = 0; i < changes.size() && i < cachedSlots.size(); i++) {
+            SlotStatusChange change = changes.get(i);
+            if (cachedSlots.get(i) instanceof TimeSlot slot
+                    && applyIfNewer(slot, change.isAvailable(), change.getVersion())) {
+                updates.put((String) fields.get(i), slot);
             }
+        }
 
-        } catch (Exception e) {
-            log.error("Failed to update slot {} availability in cache: {}", slotId, e.getMessage(), e);
-            // Fallback: evict cache nếu update thất bại
-            evictDoctorAvailabilityCache(doctorId, slotDate);
+        if (updates.isEmpty()) {
+            operations.unwatch();
+            return 0;
         }
+
+        operations.multi();
+        operations.opsForHash().putAll(cacheKey, updates);
+        return committed(operations.exec()) ? updates.size() : null;
+    }
+
+    private boolean committed(List<Object> execResults) {
+        // Chỉ null mới là EXEC bị hủy (key đang WATCH đã thay đổi). EXEC thành công có thể trả về
+        // danh sách rỗng vì reply trạng thái của HMSET bị bỏ khi chuyển kết quả
+        return execResults != null;
     }
 
     @Override
     public void evictDoctorAvailabilityCache(UUID doctorId, LocalDate slotDate) {
         try {
             String cacheKey = buildCacheKey(doctorId, slotDate);
-            Boolean deleted = redisTemplate.delete(cacheKey);
+            Long deleted = redisTemplate.delete(List.of(cacheKey, compactKey(cacheKey)));
 
-            if (Boolean.TRUE.equals(deleted)) {
+            if (deleted != null && deleted > 0) {
                 log.debug("Evicted cache for doctor {} on {}", doctorId, slotDate);
             }
         } catch (Exception e) {
@@ -202,14 +429,92 @@ public class DoctorSlotRedisCacheImpl implements DoctorSlotRedisCache {
     public boolean isCacheExists(UUID doctorId, LocalDate date) {
         try {
             String cacheKey = buildCacheKey(doctorId, date);
-            return Boolean.TRUE.equals(redisTemplate.hasKey(cacheKey));
+            Long existing = redisTemplate.countExistingKeys(List.of(cacheKey, compactKey(cacheKey)));
+            return existing != null && existing > 0;
         } catch (Exception e) {
             log.error("Failed to check cache existence: {}", e.getMessage(), e);
             return false;
         }
     }
 
+    @Override
+    public long removeDaysBefore(LocalDate date, int batchSize) {
+        double maxScore = date.toEpochDay() - 1;
+        long removed = 0;
+
+        // Mỗi ngày có hai key (JSON và compact) nên mỗi vòng lấy tối đa batchSize / 2 ngày
+        // để ZRANGEBYSCORE ... LIMIT, UNLINK và ZREM đều chạm tối đa batchSize key
+        int daysPerBatch = Math.max(1, batchSize / 2);
+        while (true) {
+            Set<Object> members = redisTemplate.opsForZSet()
+                    .rangeByScore(DATE_INDEX_KEY, Double.NEGATIVE_INFINITY, maxScore, 0, daysPerBatch);
+            if (members == null || members.isEmpty()) {
+                break;
+            }
+
+            List<String> keys = members.stream()
+                    .map(String::valueOf)
+                    .flatMap(key -> Stream.of(key, compactKey(key)))
+                    .collect(Collectors.toList());
+            redisTemplate.unlink(keys);
+            redisTemplate.opsForZSet().remove(DATE_INDEX_KEY, members.toArray());
+            removed += members.size();
+
+            if (members.size() < daysPerBatch) {
+                break;
+            }
+        }
+
+        log.debug("Removed {} availability keys dated before {}", removed, date);
+        return removed;
+    }
+
+    /**
+     * Cập nhật slot nếu thay đổi mới hơn bản trong cache (version lớn hơn, hoặc không có version)
+     */
+    private boolean applyIfNewer(TimeSlot slot, boolean isAvailable, Long version) {
+        if (version != null && slot.getVersion() != null && slot.getVersion() >= version) {
+            log.debug("Skip stale change for slot {}: cached version {} >= {}",
+                    slot.getSlotId(), slot.getVersion(), version);
+            return false;
+        }
+
+        slot.setAvailable(isAvailable);
+        if (version != null) {
+            slot.setVersion(version);
+        }
+        return true;
+    }
+
+    private byte[] readCompact(String cacheKey) {
+        byte[] key = rawKey(compactKey(cacheKey));
+        return redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.stringCommands().get(key));
+    }
+
+    private void writeCompact(String cacheKey, byte[] payload, Expiration expiration) {
+        byte[] key = rawKey(compactKey(cacheKey));
+        redisTemplate.execute((RedisCallback<Boolean>) connection -> connection.stringCommands()
+                .set(key, payload, expiration, RedisStringCommands.SetOption.upsert()));
+    }
+
+    private String compactKey(String cacheKey) {
+        return cacheKey + COMPACT_KEY_SUFFIX;
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] rawKey(String key) {
+        return ((RedisSerializer<String>) redisTemplate.getKeySerializer()).serialize(key);
+    }
+
     private String buildCacheKey(UUID doctorId, LocalDate date) {
         return CACHE_KEY_PREFIX + doctorId + ":" + date;
     }
+
+    private UUID doctorIdOf(String cacheKey) {
+        return UUID.fromString(cacheKey.substring(CACHE_KEY_PREFIX.length(), cacheKey.lastIndexOf(':')));
+    }
+
+    private LocalDate dateOf(String cacheKey) {
+        return LocalDate.parse(cacheKey.substring(cacheKey.lastIndexOf(':') + 1));
+    }
 }
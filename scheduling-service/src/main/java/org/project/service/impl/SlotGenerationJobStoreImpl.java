@@ -0,0 +1,181 @@
+package org.project.service.impl;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.project.dto.cache.SlotGenerationChunkResult;
+import org.project.dto.cache.SlotGenerationJob;
+import org.project.enums.SlotGenerationJobStatus;
+import org.project.service.SlotGenerationJobStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.stereotype.Service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Key "slot-generation:job:{jobId}" giữ định nghĩa job, hash "slot-generation:job:{jobId}:chunks" giữ kết quả
+ * từng chunk đã commit, set "slot-generation:jobs:running" liệt kê job chưa xong.
+ * Lease "slot-generation:job:{jobId}:lease" đảm bảo mỗi job chỉ chạy trên một instance tại một thời điểm.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SlotGenerationJobStoreImpl implements SlotGenerationJobStore {
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    @Value("${app.slot-generation.lease-ttl-ms:120000}")
+    private long leaseTtlMs;
+
+    @Value("${app.slot-generation.job-ttl-hours:72}")
+    private long jobTtlHours;
+
+    private static final String JOB_KEY_PREFIX = "slot-generation:job:";
+    private static final String CHUNKS_KEY_SUFFIX = ":chunks";
+    private static final String LEASE_KEY_SUFFIX = ":lease";
+    private static final String RUNNING_JOBS_KEY = "slot-generation:jobs:running";
+    private static final StringRedisSerializer ARGS_SERIALIZER = new StringRedisSerializer();
+    private static final GenericToStringSerializer<Long> RESULT_SERIALIZER = new GenericToStringSerializer<>(Long.class);
+
+    private static final RedisScript<Long> ACQUIRE_LEASE_SCRIPT = RedisScript.of("""
+            -- slot-generation:acquire-lease
+            local current = redis.call('GET', KEYS[1])
+            if not current or current == ARGV[1] then
+                redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2])
+                return 1
+            end
+            return 0
+            """, Long.class);
+
+    private static final RedisScript<Long> RELEASE_LEASE_SCRIPT = RedisScript.of("""
+            -- slot-generation:release-lease
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    @Override
+    public void createJob(SlotGenerationJob job) {
+        try {
+            redisTemplate.opsForValue().set(jobKey(job.getJobId()), job, jobTtl());
+            redisTemplate.opsForSet().add(RUNNING_JOBS_KEY, job.getJobId());
+        } catch (Exception e) {
+            // Job vẫn chạy được, chỉ mất khả năng theo dõi tiến độ và tiếp tục sau sự cố
+            log.warn("Không lưu được job sinh slot {}: {}", job.getJobId(), e.getMessage());
+        }
+    }
+
+    @Override
+    public Optional<SlotGenerationJob> findJob(String jobId) {
+        Object job = redisTemplate.opsForValue().get(jobKey(jobId));
+        return job instanceof SlotGenerationJob generationJob ? Optional.of(generationJob) : Optional.empty();
+    }
+
+    @Override
+    public void saveChunkResult(String jobId, SlotGenerationChunkResult result) {
+        try {
+            String chunksKey = jobKey(jobId) + CHUNKS_KEY_SUFFIX;
+            redisTemplate.opsForHash().put(chunksKey, String.valueOf(result.getChunkIndex()), result);
+            redisTemplate.expire(chunksKey, jobTtl());
+        } catch (Exception e) {
+            // Nếu job bị tiếp tục sau này, chunk sẽ được sinh lại
+            log.warn("Không lưu được tiến độ chunk {} của job {}: {}", result.getChunkIndex(), jobId, e.getMessage());
+        }
+    }
+
+    @Override
+    public Map<Integer, SlotGenerationChunkResult> findChunkResults(String jobId) {
+        try {
+            Map<Object, Object> entries = redisTemplate.opsForHash().entries(jobKey(jobId) + CHUNKS_KEY_SUFFIX);
+            Map<Integer, SlotGenerationChunkResult> results = new HashMap<>();
+            entries.forEach((field, value) -> {
+                if (value instanceof SlotGenerationChunkResult result) {
+                    results.put(Integer.valueOf(field.toString()), result);
+                }
+            });
+            return results;
+        } catch (Exception e) {
+            log.warn("Không đọc được tiến độ của job {}: {}", jobId, e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+
+    @Override
+    public void markCompleted(SlotGenerationJob job) {
+        job.setStatus(SlotGenerationJobStatus.COMPLETED);
+        job.setCompletedAt(LocalDateTime.now());
+        try {
+            redisTemplate.opsForValue().set(jobKey(job.getJobId()), job, jobTtl());
+            redisTemplate.opsForSet().remove(RUNNING_JOBS_KEY, job.getJobId());
+        } catch (Exception e) {
+            log.warn("Không cập nhật được trạng thái hoàn tất của job {}: {}", job.getJobId(), e.getMessage());
+        }
+    }
+
+    @Override
+    public Set<String> findRunningJobIds() {
+        Set<Object> jobIds = redisTemplate.opsForSet().members(RUNNING_JOBS_KEY);
+        if (jobIds == null) {
+            return Collections.emptySet();
+        }
+
+        Set<String> running = jobIds.stream().map(Object::toString).collect(Collectors.toSet());
+        // Job đã hết hạn trong Redis thì không còn gì để tiếp tục
+        running.removeIf(jobId -> {
+            if (Boolean.TRUE.equals(redisTemplate.hasKey(jobKey(jobId)))) {
+                return false;
+            }
+            redisTemplate.opsForSet().remove(RUNNING_JOBS_KEY, jobId);
+            return true;
+        });
+        return running;
+    }
+
+    @Override
+    public boolean tryAcquireLease(String jobId, String owner) {
+        try {
+            Long result = redisTemplate.execute(ACQUIRE_LEASE_SCRIPT, ARGS_SERIALIZER, RESULT_SERIALIZER,
+                    List.of(leaseKey(jobId)), owner, String.valueOf(leaseTtlMs));
+            return result != null && result == 1L;
+        } catch (Exception e) {
+            log.warn("Không giành được lease của job {}: {}", jobId, e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public void releaseLease(String jobId, String owner) {
+        try {
+            redisTemplate.execute(RELEASE_LEASE_SCRIPT, ARGS_SERIALIZER, RESULT_SERIALIZER,
+                    List.of(leaseKey(jobId)), owner);
+        } catch (Exception e) {
+            // Lease sẽ tự hết hạn sau leaseTtlMs
+            log.warn("Không trả lease của job {}: {}", jobId, e.getMessage());
+        }
+    }
+
+    private String jobKey(String jobId) {
+        return JOB_KEY_PREFIX + jobId;
+    }
+
+    private String leaseKey(String jobId) {
+        return jobKey(jobId) + LEASE_KEY_SUFFIX;
+    }
+
+    private Duration jobTtl() {
+        return Duration.ofHours(jobTtlHours);
+    }
+}
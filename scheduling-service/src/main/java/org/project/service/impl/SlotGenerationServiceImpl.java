@@ -1,22 +1,52 @@
 package org.project.service.impl;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
+import org.project.dto.cache.SlotGenerationChunkResult;
+import org.project.dto.cache.SlotGenerationJob;
+import org.project.dto.cache.TimeSlot;
 import org.project.dto.request.BulkSlotGenerationRequest;
 import org.project.dto.request.SlotGenerationRequest;
 import org.project.dto.response.BulkSlotGenerationResponse;
 import org.project.dto.response.SlotGenerationResponse;
+import org.project.enums.SlotGenerationJobStatus;
+import org.project.event.DoctorSlotsRegeneratedEvent;
+import org.project.exception.CustomException;
+import org.project.exception.ErrorCode;
+import org.project.model.DoctorAvailableSlot;
+import org.project.repository.DoctorAvailableSlotRepository;
 import org.project.repository.SlotGenerationRepository;
+import org.project.service.DoctorSlotRedisCache;
+import org.project.service.SlotGenerationJobStore;
 import org.project.service.SlotGenerationService;
 import org.project.service.SlotGenerationValidationService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
@@ -27,6 +57,50 @@ public class SlotGenerationServiceImpl implements SlotGenerationService {
 
     SlotGenerationValidationService validationService;
     SlotGenerationRepository slotGenerationRepository;
+    ApplicationEventPublisher eventPublisher;
+    SlotGenerationJobStore jobStore;
+    DoctorAvailableSlotRepository slotRepository;
+    DoctorSlotRedisCache doctorSlotRedisCache;
+    TransactionTemplate transactionTemplate;
+
+    // Định danh instance khi giữ lease của job
+    String instanceId = UUID.randomUUID().toString();
+    // Job đang chạy trên instance này, lease của chúng cũng thuộc về instanceId nên cần loại khỏi lần resume
+    Set<String> localJobIds = ConcurrentHashMap.newKeySet();
+
+    @NonFinal
+    @Value("${app.slot-generation.chunk-size:20}")
+    int chunkSize;
+
+    @NonFinal
+    @Value("${app.slot-generation.worker-threads:4}")
+    int workerThreads;
+
+    @NonFinal
+    @Value("${cache.availability.days-to-cache:14}")
+    int daysToCache;
+
+    @NonFinal
+    ExecutorService chunkExecutor;
+
+    @PostConstruct
+    public void init() {
+        this.chunkExecutor = Executors.newFixedThreadPool(workerThreads);
+        log.info("Khởi tạo worker pool sinh slot với {} threads, {} bác sĩ mỗi chunk", workerThreads, chunkSize);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        chunkExecutor.shutdown();
+        try {
+            if (!chunkExecutor.awaitTermination(60, TimeUnit.SECONDS)) {
+                chunkExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            chunkExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
 
     @Override
     @Transactional
@@ -35,6 +109,7 @@ public class SlotGenerationServiceImpl implements SlotGenerationService {
 
         slotGenerationRepository.generateSlotsForRange(request.getDoctorId(),
                 request.getStartDate(), request.getEndDate());
+        publishSlotsRegenerated(request.getDoctorId(), request.getStartDate(), request.getEndDate(), false);
         long totalSlots = slotGenerationRepository.countAvailableSlots(
                 request.getDoctorId(), request.getStartDate(), request.getEndDate()
         );
@@ -49,63 +124,299 @@ public class SlotGenerationServiceImpl implements SlotGenerationService {
     }
 
     @Override
-    @Transactional
     public BulkSlotGenerationResponse generateSlotsForMultipleDoctors(BulkSlotGenerationRequest request) {
-        log.info("Starting bulk slot generation for {} doctors from {} to {}",
-                request.getDoctorIds().size(), request.getStartDate(), request.getEndDate());
+        // Khoảng ngày chỉ validate một lần khi nhận job: job tiếp tục vào hôm sau hoặc chạy qua nửa đêm
+        // vẫn phải hoàn tất dù startDate đã ở quá khứ
+        validationService.validateDateRange(request.getStartDate(), request.getEndDate());
+
+        List<UUID> doctorIds = request.getDoctorIds().stream().distinct().collect(Collectors.toList());
+        int totalChunks = (doctorIds.size() + chunkSize - 1) / chunkSize;
+
+        SlotGenerationJob job = SlotGenerationJob.builder()
+                .jobId(UUID.randomUUID().toString())
+                .doctorIds(doctorIds)
+                .startDate(request.getStartDate())
+                .endDate(request.getEndDate())
+                .chunkSize(chunkSize)
+                .totalChunks(totalChunks)
+                .status(SlotGenerationJobStatus.RUNNING)
+                .createdAt(LocalDateTime.now())
+                .build();
+
+        log.info("Starting bulk slot generation job {} for {} doctors ({} chunks) from {} to {}",
+                job.getJobId(), doctorIds.size(), totalChunks, request.getStartDate(), request.getEndDate());
+
+        jobStore.createJob(job);
+        // Job mới nên lease chỉ không giành được khi Redis lỗi; chạy mà không giữ lease thì
+        // resume scheduler của instance khác có thể chạy trùng các chunk
+        if (!jobStore.tryAcquireLease(job.getJobId(), instanceId)) {
+            throw new CustomException(ErrorCode.SERVICE_UNAVAILABLE,
+                    "Cannot acquire lease for slot generation job " + job.getJobId());
+        }
+
+        // Không chờ job chạy xong, tiến độ được theo dõi qua getBulkGenerationProgress
+        runJob(job);
+        return buildBulkResponse(job, Map.of());
+    }
 
-        List<BulkSlotGenerationResponse.DoctorSlotResult> results = new ArrayList<>();
-        int successCount = 0;
-        int failureCount = 0;
-        int totalSlotsGenerated = 0;
+    @Override
+    public BulkSlotGenerationResponse getBulkGenerationProgress(String jobId) {
+        SlotGenerationJob job = jobStore.findJob(jobId)
+                .orElseThrow(() -> new CustomException(ErrorCode.RESOURCE_NOT_FOUND,
+                        "Slot generation job not found: " + jobId));
+        return buildBulkResponse(job, jobStore.findChunkResults(jobId));
+    }
+
+    @Override
+    public int resumePendingJobs() {
+        int resumed = 0;
+        for (String jobId : jobStore.findRunningJobIds()) {
+            if (localJobIds.contains(jobId)) {
+                continue;
+            }
+            // Lease còn hạn nghĩa là job đang chạy trên một instance khác
+            if (!jobStore.tryAcquireLease(jobId, instanceId)) {
+                continue;
+            }
 
-        for (UUID doctorId : request.getDoctorIds()) {
+            SlotGenerationJob job = jobStore.findJob(jobId).orElse(null);
+            if (job == null) {
+                jobStore.releaseLease(jobId, instanceId);
+                continue;
+            }
+
+            log.info("Tiếp tục job sinh slot {} từ chunk chưa hoàn tất", jobId);
             try {
-                SlotGenerationRequest singleRequest = SlotGenerationRequest.builder()
-                        .doctorId(doctorId)
-                        .startDate(request.getStartDate())
-                        .endDate(request.getEndDate())
-                        .build();
-
-                validationService.validateRequest(singleRequest);
-
-                slotGenerationRepository.generateSlotsForRange(doctorId,
-                        request.getStartDate(), request.getEndDate());
-                long doctorSlots = slotGenerationRepository.countAvailableSlots(
-                        doctorId, request.getStartDate(), request.getEndDate()
-                );
-
-                results.add(BulkSlotGenerationResponse.DoctorSlotResult.builder()
-                        .doctorId(doctorId)
-                        .success(true)
-                        .slotsGenerated((int) doctorSlots)
-                        .build());
-
-                successCount++;
-                totalSlotsGenerated += (int) doctorSlots;
-                log.info("Successfully generated {} slots for doctor {}", doctorSlots, doctorId);
+                runJob(job);
+                resumed++;
+            } catch (Exception e) {
+                jobStore.releaseLease(jobId, instanceId);
+                log.error("Tiếp tục job sinh slot {} thất bại: {}", jobId, e.getMessage(), e);
+            }
+        }
+        return resumed;
+    }
+
+    /**
+     * Đưa các chunk chưa hoàn tất vào worker pool rồi trả về ngay; lease được trả khi mọi chunk kết thúc.
+     * Chunk lỗi hoặc mất lease làm job dừng, các chunk đã commit được giữ lại để tiếp tục sau.
+     */
+    private CompletableFuture<Void> runJob(SlotGenerationJob job) {
+        if (!localJobIds.add(job.getJobId())) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Map<Integer, SlotGenerationChunkResult> completed = new ConcurrentHashMap<>(
+                jobStore.findChunkResults(job.getJobId()));
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        try {
+            for (int chunkIndex = 0; chunkIndex < job.getTotalChunks(); chunkIndex++) {
+                if (completed.containsKey(chunkIndex)) {
+                    continue;
+                }
+
+                int index = chunkIndex;
+                futures.add(CompletableFuture
+                        .supplyAsync(() -> processChunk(job, index), chunkExecutor)
+                        .thenAccept(result -> completed.put(index, result)));
+            }
+        } catch (RuntimeException e) {
+            futures.forEach(future -> future.cancel(false));
+            localJobIds.remove(job.getJobId());
+            throw e;
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .whenComplete((ignored, error) -> {
+                    try {
+                        if (error == null) {
+                            jobStore.markCompleted(job);
+                            log.info(buildBulkResponse(job, completed).getMessage());
+                        } else {
+                            // Các chunk đã commit được giữ lại, job sẽ được tiếp tục từ chunk còn thiếu
+                            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                    ? error.getCause() : error;
+                            log.error("Job sinh slot {} dừng ở {}/{} chunks: {}", job.getJobId(), completed.size(),
+                                    job.getTotalChunks(), cause.getMessage(), cause);
+                        }
+                    } finally {
+                        jobStore.releaseLease(job.getJobId(), instanceId);
+                        localJobIds.remove(job.getJobId());
+                    }
+                });
+    }
+
+    private SlotGenerationChunkResult processChunk(SlotGenerationJob job, int chunkIndex) {
+        // Gia hạn lease trước mỗi chunk; instance khác đã giành job thì không chạy trùng chunk này
+        ensureLease(job);
+
+        int from = chunkIndex * job.getChunkSize();
+        List<UUID> doctorIds = job.getDoctorIds().subList(from,
+                Math.min(from + job.getChunkSize(), job.getDoctorIds().size()));
 
+        Map<UUID, String> errors = new HashMap<>();
+        List<UUID> validDoctorIds = new ArrayList<>();
+
+        // Validate bác sĩ trước khi mở transaction vì phải gọi auth-service; khoảng ngày đã được validate khi tạo job
+        for (UUID doctorId : doctorIds) {
+            try {
+                validationService.validateDoctor(doctorId);
+                validDoctorIds.add(doctorId);
             } catch (Exception e) {
-                log.error("Failed to generate slots for doctor {}: {}", doctorId, e.getMessage(), e);
-                results.add(BulkSlotGenerationResponse.DoctorSlotResult.builder()
-                        .doctorId(doctorId)
-                        .success(false)
-                        .slotsGenerated(0)
-                        .errorMessage(e.getMessage())
-                        .build());
-                failureCount++;
+                log.error("Failed to generate slots for doctor {}: {}", doctorId, e.getMessage());
+                errors.put(doctorId, e.getMessage());
+            }
+        }
+
+        Map<UUID, Long> slotCounts = new HashMap<>();
+        if (!validDoctorIds.isEmpty()) {
+            try {
+                slotCounts.putAll(generateInTransaction(job, validDoctorIds));
+            } catch (LeaseLostException e) {
+                throw e;
+            } catch (Exception e) {
+                // Một bác sĩ lỗi làm rollback cả chunk, sinh lại từng bác sĩ để cô lập lỗi
+                log.warn("Chunk {} của job {} lỗi, sinh lại từng bác sĩ: {}", chunkIndex, job.getJobId(), e.getMessage());
+                for (UUID doctorId : validDoctorIds) {
+                    try {
+                        slotCounts.putAll(generateInTransaction(job, List.of(doctorId)));
+                    } catch (LeaseLostException ex) {
+                        throw ex;
+                    } catch (Exception ex) {
+                        log.error("Failed to generate slots for doctor {}: {}", doctorId, ex.getMessage(), ex);
+                        errors.put(doctorId, ex.getMessage());
+                    }
+                }
+            }
+        }
+
+        List<UUID> generatedDoctorIds = validDoctorIds.stream()
+                .filter(doctorId -> !errors.containsKey(doctorId))
+                .collect(Collectors.toList());
+        warmAvailabilityCache(generatedDoctorIds, job.getStartDate(), job.getEndDate());
+
+        List<BulkSlotGenerationResponse.DoctorSlotResult> results = doctorIds.stream()
+                .map(doctorId -> errors.containsKey(doctorId)
+                        ? BulkSlotGenerationResponse.DoctorSlotResult.builder()
+                                .doctorId(doctorId)
+                                .success(false)
+                                .slotsGenerated(0)
+                                .errorMessage(errors.get(doctorId))
+                                .build()
+                        : BulkSlotGenerationResponse.DoctorSlotResult.builder()
+                                .doctorId(doctorId)
+                                .success(true)
+                                .slotsGenerated(slotCounts.getOrDefault(doctorId, 0L).intValue())
+                                .build())
+                .collect(Collectors.toList());
+
+        SlotGenerationChunkResult chunkResult = SlotGenerationChunkResult.builder()
+                .chunkIndex(chunkIndex)
+                .results(results)
+                .completedAt(LocalDateTime.now())
+                .build();
+        jobStore.saveChunkResult(job.getJobId(), chunkResult);
+
+        log.info("Job {}: hoàn tất chunk {}/{} ({} bác sĩ, {} lỗi)", job.getJobId(), chunkIndex + 1,
+                job.getTotalChunks(), doctorIds.size(), errors.size());
+        return chunkResult;
+    }
+
+    /**
+     * Sinh slot cho cả chunk trong một transaction, đếm slot của mọi bác sĩ bằng một truy vấn.
+     * Lease được kiểm tra lại ngay trước commit vì chunk chậm có thể chạy quá thời hạn lease.
+     */
+    private Map<UUID, Long> generateInTransaction(SlotGenerationJob job, List<UUID> doctorIds) {
+        return transactionTemplate.execute(status -> {
+            for (UUID doctorId : doctorIds) {
+                slotGenerationRepository.generateSlotsForRange(doctorId, job.getStartDate(), job.getEndDate());
             }
+            Map<UUID, Long> counts = slotGenerationRepository.countAvailableSlots(
+                    doctorIds, job.getStartDate(), job.getEndDate());
+            ensureLease(job);
+            return counts;
+        });
+    }
+
+    private void ensureLease(SlotGenerationJob job) {
+        if (!jobStore.tryAcquireLease(job.getJobId(), instanceId)) {
+            throw new LeaseLostException(job.getJobId());
         }
+    }
 
-        String message = String.format("Bulk generation completed: %d successful, %d failed out of %d doctors",
-                successCount, failureCount, request.getDoctorIds().size());
+    /**
+     * Nạp cache availability của chunk vừa commit bằng một truy vấn cho cả chunk,
+     * trong cửa sổ ngày được cache. Nếu Redis lỗi thì để luồng slot-change nạp lại.
+     */
+    private void warmAvailabilityCache(List<UUID> doctorIds, LocalDate startDate, LocalDate endDate) {
+        if (doctorIds.isEmpty()) {
+            return;
+        }
 
-        log.info(message);
+        LocalDate today = LocalDate.now();
+        LocalDate windowStart = startDate.isBefore(today) ? today : startDate;
+        LocalDate windowEnd = endDate.isAfter(today.plusDays(daysToCache)) ? today.plusDays(daysToCache) : endDate;
+
+        boolean cacheWarmed = false;
+        if (!windowStart.isAfter(windowEnd)) {
+            try {
+                Map<UUID, Map<LocalDate, List<TimeSlot>>> slotsByDoctor = slotRepository
+                        .findSlotsByDoctorsAndDateRange(doctorIds, windowStart, windowEnd)
+                        .stream()
+                        .collect(Collectors.groupingBy(DoctorAvailableSlot::getDoctorId,
+                                Collectors.groupingBy(DoctorAvailableSlot::getSlotDate,
+                                        Collectors.mapping(this::convertToTimeSlot, Collectors.toList()))));
+
+                for (UUID doctorId : doctorIds) {
+                    Map<LocalDate, List<TimeSlot>> slotsByDate = slotsByDoctor.getOrDefault(doctorId, Map.of());
+                    for (LocalDate date = windowStart; !date.isAfter(windowEnd); date = date.plusDays(1)) {
+                        // Evict trước vì putAll không xóa các slot đã bị xóa khỏi DB
+                        doctorSlotRedisCache.evictDoctorAvailabilityCache(doctorId, date);
+                        List<TimeSlot> slots = slotsByDate.get(date);
+                        if (slots != null) {
+                            doctorSlotRedisCache.cacheDoctorAvailability(doctorId, date, slots);
+                        }
+                    }
+                }
+                cacheWarmed = true;
+            } catch (Exception e) {
+                log.warn("Không nạp được cache cho chunk {} bác sĩ, chuyển sang slot-change: {}",
+                        doctorIds.size(), e.getMessage());
+            }
+        }
+
+        for (UUID doctorId : doctorIds) {
+            publishSlotsRegenerated(doctorId, startDate, endDate, cacheWarmed);
+        }
+    }
+
+    private BulkSlotGenerationResponse buildBulkResponse(SlotGenerationJob job,
+                                                         Map<Integer, SlotGenerationChunkResult> chunkResults) {
+        List<BulkSlotGenerationResponse.DoctorSlotResult> results = chunkResults.values().stream()
+                .sorted(Comparator.comparingInt(SlotGenerationChunkResult::getChunkIndex))
+                .flatMap(chunk -> chunk.getResults().stream())
+                .collect(Collectors.toList());
+
+        int successCount = (int) results.stream().filter(BulkSlotGenerationResponse.DoctorSlotResult::isSuccess).count();
+        int failureCount = results.size() - successCount;
+        int totalSlotsGenerated = results.stream()
+                .mapToInt(BulkSlotGenerationResponse.DoctorSlotResult::getSlotsGenerated)
+                .sum();
+
+        String message = job.getStatus() == SlotGenerationJobStatus.COMPLETED
+                ? String.format("Bulk generation completed: %d successful, %d failed out of %d doctors",
+                        successCount, failureCount, job.getDoctorIds().size())
+                : String.format("Bulk generation in progress: %d/%d chunks completed",
+                        chunkResults.size(), job.getTotalChunks());
 
         return BulkSlotGenerationResponse.builder()
-                .startDate(request.getStartDate())
-                .endDate(request.getEndDate())
-                .totalDoctors(request.getDoctorIds().size())
+                .jobId(job.getJobId())
+                .status(job.getStatus())
+                .totalChunks(job.getTotalChunks())
+                .completedChunks(chunkResults.size())
+                .startDate(job.getStartDate())
+                .endDate(job.getEndDate())
+                .totalDoctors(job.getDoctorIds().size())
                 .successfulGenerations(successCount)
                 .failedGenerations(failureCount)
                 .totalSlotsGenerated(totalSlotsGenerated)
@@ -113,4 +424,33 @@ public class SlotGenerationServiceImpl implements SlotGenerationService {
                 .message(message)
                 .build();
     }
+
+    private TimeSlot convertToTimeSlot(DoctorAvailableSlot slot) {
+        return TimeSlot.builder()
+                .slotId(slot.getId())
+                .startTime(slot.getStartTime())
+                .endTime(slot.getEndTime())
+                .isAvailable(slot.isAvailable())
+                .lastUpdate(slot.getUpdatedAt())
+                .version(slot.getVersion())
+                .build();
+    }
+
+    private void publishSlotsRegenerated(UUID doctorId, LocalDate startDate, LocalDate endDate, boolean cacheWarmed) {
+        eventPublisher.publishEvent(DoctorSlotsRegeneratedEvent.builder()
+                .doctorId(doctorId)
+                .startDate(startDate)
+                .endDate(endDate)
+                .cacheWarmed(cacheWarmed)
+                .build());
+    }
+
+    /**
+     * Lease của job đã hết hạn và bị instance khác giành, hoặc không gia hạn được do Redis lỗi
+     */
+    private static class LeaseLostException extends RuntimeException {
+        LeaseLostException(String jobId) {
+            super("Lost lease of slot generation job " + jobId);
+        }
+    }
 }
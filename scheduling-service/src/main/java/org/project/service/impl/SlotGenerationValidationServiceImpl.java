@@ -15,6 +15,7 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
@@ -26,36 +27,38 @@ public class SlotGenerationValidationServiceImpl implements SlotGenerationValida
 
     @Override
     public void validateRequest(SlotGenerationRequest request) {
-        validateDates(request);
-        validateDoctor(request);
+        validateDateRange(request.getStartDate(), request.getEndDate());
+        validateDoctor(request.getDoctorId());
     }
 
-    private void validateDates(SlotGenerationRequest request) {
-        if (request.getStartDate().isAfter(request.getEndDate())) {
+    @Override
+    public void validateDateRange(LocalDate startDate, LocalDate endDate) {
+        if (startDate.isAfter(endDate)) {
             throw new CustomException(ErrorCode.INVALID_REQUEST,
                     "Start date must be before or equal to end date");
         }
 
-        if (request.getStartDate().isBefore(LocalDate.now())) {
+        if (startDate.isBefore(LocalDate.now())) {
             throw new CustomException(ErrorCode.INVALID_REQUEST,
                     "Cannot generate slots for past dates");
         }
 
 
-        if (request.getStartDate().plusDays(90).isBefore(request.getEndDate())) {
+        if (startDate.plusDays(90).isBefore(endDate)) {
             throw new CustomException(ErrorCode.INVALID_REQUEST,
                     "Date range cannot exceed 90 days");
         }
     }
 
-    private void validateDoctor(SlotGenerationRequest request) {
-        if (!authServiceClient.checkExistsById(request.getDoctorId())) {
+    @Override
+    public void validateDoctor(UUID doctorId) {
+        if (!authServiceClient.checkExistsById(doctorId)) {
             throw new CustomException(ErrorCode.USER_NOT_FOUND,
-                    "Doctor not found with ID: " + request.getDoctorId());
+                    "Doctor not found with ID: " + doctorId);
         }
 
         // Xác thực xem user có quyền DOCTOR
-        boolean isDoctor = authServiceClient.hasAnyRole(request.getDoctorId(), List.of("DOCTOR"));
+        boolean isDoctor = authServiceClient.hasAnyRole(doctorId, List.of("DOCTOR"));
 
         if (!isDoctor) {
             throw new CustomException(ErrorCode.ACCESS_DENIED,
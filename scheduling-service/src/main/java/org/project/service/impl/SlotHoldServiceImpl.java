@@ -0,0 +1,131 @@
+package org.project.service.impl;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.project.enums.SlotHoldResult;
+import org.project.service.SlotHoldService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.stereotype.Service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Key "slot:hold:{slotId}" có giá trị "H:{holder}" khi đang giữ chỗ (TTL ngắn)
+ * và "R:{holder}" khi DB đã commit đặt chỗ (TTL dài hơn, hết hạn thì request lại đi vào DB).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SlotHoldServiceImpl implements SlotHoldService {
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    @Value("${app.slot-hold.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.slot-hold.hold-ttl-ms:5000}")
+    private long holdTtlMs;
+
+    @Value("${app.slot-hold.reserved-ttl-ms:600000}")
+    private long reservedTtlMs;
+
+    private static final String HOLD_KEY_PREFIX = "slot:hold:";
+    // Tham số script là chuỗi thô, không qua JSON serializer của template
+    private static final StringRedisSerializer ARGS_SERIALIZER = new StringRedisSerializer();
+    private static final GenericToStringSerializer<Long> RESULT_SERIALIZER = new GenericToStringSerializer<>(Long.class);
+
+    private static final RedisScript<Long> ACQUIRE_SCRIPT = RedisScript.of("""
+            local current = redis.call('GET', KEYS[1])
+            if not current then
+                redis.call('SET', KEYS[1], 'H:' .. ARGV[1], 'PX', ARGV[2])
+                return 1
+            end
+            if current == 'H:' .. ARGV[1] then
+                redis.call('PEXPIRE', KEYS[1], ARGV[2])
+                return 1
+            end
+            if string.sub(current, 1, 2) == 'R:' then
+                return -1
+            end
+            return 0
+            """, Long.class);
+
+    private static final RedisScript<Long> CONFIRM_SCRIPT = RedisScript.of("""
+            redis.call('SET', KEYS[1], 'R:' .. ARGV[1], 'PX', ARGV[2])
+            return 1
+            """, Long.class);
+
+    private static final RedisScript<Long> RELEASE_SCRIPT = RedisScript.of("""
+            if redis.call('GET', KEYS[1]) == 'H:' .. ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    @Override
+    public SlotHoldResult tryHold(UUID slotId, String holder) {
+        if (!enabled) {
+            return SlotHoldResult.BYPASSED;
+        }
+
+        try {
+            Long result = redisTemplate.execute(ACQUIRE_SCRIPT, ARGS_SERIALIZER, RESULT_SERIALIZER,
+                    List.of(holdKey(slotId)), holder, String.valueOf(holdTtlMs));
+            if (result == null) {
+                return SlotHoldResult.BYPASSED;
+            }
+            if (result == 1L) {
+                return SlotHoldResult.ACQUIRED;
+            }
+            return result == -1L ? SlotHoldResult.ALREADY_RESERVED : SlotHoldResult.HELD_BY_OTHER;
+
+        } catch (Exception e) {
+            log.warn("Không giữ chỗ được slot {} trong Redis, chuyển sang khóa DB: {}", slotId, e.getMessage());
+            return SlotHoldResult.BYPASSED;
+        }
+    }
+
+    @Override
+    public void confirm(UUID slotId, String holder) {
+        try {
+            redisTemplate.execute(CONFIRM_SCRIPT, ARGS_SERIALIZER, RESULT_SERIALIZER,
+                    List.of(holdKey(slotId)), holder, String.valueOf(reservedTtlMs));
+        } catch (Exception e) {
+            log.warn("Không chuyển hold thành reservation cho slot {}: {}", slotId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void release(UUID slotId, String holder) {
+        try {
+            redisTemplate.execute(RELEASE_SCRIPT, ARGS_SERIALIZER, RESULT_SERIALIZER,
+                    List.of(holdKey(slotId)), holder);
+        } catch (Exception e) {
+            // Hold sẽ tự hết hạn sau holdTtlMs
+            log.warn("Không bỏ hold cho slot {}: {}", slotId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void clear(UUID slotId) {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            redisTemplate.delete(holdKey(slotId));
+        } catch (Exception e) {
+            log.warn("Không xóa hold cho slot {}: {}", slotId, e.getMessage());
+        }
+    }
+
+    private String holdKey(UUID slotId) {
+        return HOLD_KEY_PREFIX + slotId;
+    }
+}
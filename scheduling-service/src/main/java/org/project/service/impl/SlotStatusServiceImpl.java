@@ -1,28 +1,42 @@
 package org.project.service.impl;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import org.project.dto.cache.SlotStatusChange;
 import org.project.dto.request.BatchSlotStatusRequest;
 import org.project.dto.request.SlotReservationRequest;
 import org.project.dto.response.SlotDetailsResponse;
 import org.project.dto.response.SlotReservationResponse;
 import org.project.dto.response.SlotStatusUpdateResponse;
+import org.project.enums.SlotHoldResult;
 import org.project.enums.ValidationType;
+import org.project.event.SlotAvailabilityChangedEvent;
+import org.project.event.SlotsStatusChangedEvent;
 import org.project.exception.CustomException;
 import org.project.exception.ErrorCode;
 import org.project.model.DoctorAvailableSlot;
 import org.project.repository.DoctorAvailableSlotRepository;
+import org.project.repository.SlotStatusProjection;
 import org.project.repository.SlotStatusRepository;
-import org.project.service.DoctorSlotRedisCache;
+import org.project.service.SlotHoldService;
 import org.project.service.SlotStatusService;
 import org.project.service.SlotStatusValidationService;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import jakarta.persistence.EntityManager;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
@@ -37,7 +51,9 @@ public class SlotStatusServiceImpl implements SlotStatusService {
     SlotStatusRepository slotStatusRepository;
     DoctorAvailableSlotRepository slotRepository;
     SlotStatusValidationService slotStatusValidationService;
-    DoctorSlotRedisCache doctorSlotRedisCache;
+    ApplicationEventPublisher eventPublisher;
+    SlotHoldService slotHoldService;
+    EntityManager entityManager;
 
     @Override
     public SlotStatusUpdateResponse markSlotAvailable(UUID slotId) {
@@ -50,31 +66,100 @@ public class SlotStatusServiceImpl implements SlotStatusService {
     }
 
 
+    /**
+     * Đọc các slot trong một truy vấn, validate trong bộ nhớ rồi đổi trạng thái bằng một câu UPDATE.
+     * Nếu có slot bị thao tác khác thay đổi giữa lúc đọc và lúc ghi thì rollback cả batch.
+     */
     @Override
     @Transactional
     public List<SlotStatusUpdateResponse> updateMultipleSlotStatus(List<BatchSlotStatusRequest> requests) {
         slotStatusValidationService.validateMultipleSlotStatusUpdate(requests);
 
+        Map<UUID, DoctorAvailableSlot> slotsById = slotRepository.findAllById(requests.stream()
+                        .map(BatchSlotStatusRequest::getSlotId)
+                        .collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(DoctorAvailableSlot::getId, Function.identity()));
+
+        List<DoctorAvailableSlot> slots = new ArrayList<>(requests.size());
+        List<Boolean> statuses = new ArrayList<>(requests.size());
+        for (BatchSlotStatusRequest request : requests) {
+            DoctorAvailableSlot slot = slotsById.get(request.getSlotId());
+            if (slot == null) {
+                throw new CustomException(ErrorCode.SLOT_NOT_FOUND);
+            }
+            slotStatusValidationService.validateSlotAvailabilityUpdate(request.getSlotId(), slot, request.getIsAvailable());
+            slots.add(slot);
+            statuses.add(request.getIsAvailable());
+        }
+
+        List<SlotStatusProjection> rows = bulkUpdateStatus(slots, statuses);
+        if (rows.size() != requests.size()) {
+            log.warn("Bulk update {} slots chỉ cập nhật được {} do thay đổi đồng thời, rollback", requests.size(), rows.size());
+            throw new CustomException(ErrorCode.SLOT_UPDATE_FAILED,
+                    "Một số slot vừa được thay đổi bởi thao tác khác, vui lòng thử lại");
+        }
+        publishBatchChanges(rows);
+
+        Map<UUID, SlotStatusProjection> rowsById = rows.stream()
+                .collect(Collectors.toMap(SlotStatusProjection::getId, Function.identity()));
         return requests.stream()
-                .map(request -> updateSlotStatus(
-                        request.getSlotId(),
-                        request.getIsAvailable(),
+                .map(request -> buildSlotStatusUpdateResponse(rowsById.get(request.getSlotId()),
                         request.getReason() != null ? request.getReason() :
-                                (request.getIsAvailable() ? "Batch update: available" : "Batch update: unavailable")
-                ))
+                                (request.getIsAvailable() ? "Batch update: available" : "Batch update: unavailable")))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    @Transactional
+    public List<SlotStatusUpdateResponse> updateSlotsStatus(List<DoctorAvailableSlot> slots, boolean isAvailable,
+                                                           String reason) {
+        if (slots == null || slots.isEmpty()) {
+            return Collections.emptyList();
+        }
+        slotStatusValidationService.validateSlotsStatusUpdate(slots);
+
+        List<SlotStatusProjection> rows = bulkUpdateStatus(slots, Collections.nCopies(slots.size(), isAvailable));
+        if (rows.size() < slots.size()) {
+            log.info("{}/{} slot không được cập nhật (đã ở trạng thái đích hoặc vừa bị thay đổi đồng thời)",
+                    slots.size() - rows.size(), slots.size());
+        }
+        publishBatchChanges(rows);
+
+        return rows.stream()
+                .map(row -> buildSlotStatusUpdateResponse(row, reason))
                 .collect(Collectors.toList());
     }
 
     /**
-     * Chỉ dùng optimistic lock để handle race condition
+     * Giữ chỗ trong Redis trước, chỉ request giữ được chỗ mới vào DB lấy row lock.
+     * Hold được chuyển thành reservation khi commit hoặc bỏ đi khi đặt chỗ thất bại.
      */
     @Override
     @Transactional
     public SlotReservationResponse reserveSlot(SlotReservationRequest request) {
         log.info("Reserving slot {} for patient {}", request.getSlotId(), request.getPatientId());
 
+        String holder = request.getPatientId() != null
+                ? request.getPatientId().toString()
+                : UUID.randomUUID().toString();
+
+        SlotHoldResult hold = slotHoldService.tryHold(request.getSlotId(), holder);
+        if (hold == SlotHoldResult.HELD_BY_OTHER || hold == SlotHoldResult.ALREADY_RESERVED) {
+            log.info("Slot {} đang được giữ hoặc đã được đặt ({}), từ chối patient {} không qua DB",
+                    request.getSlotId(), hold, request.getPatientId());
+            return SlotReservationResponse.builder()
+                    .success(false)
+                    .slotId(request.getSlotId())
+                    .message(hold == SlotHoldResult.HELD_BY_OTHER
+                            ? "Slot đang được người khác đặt, vui lòng chọn slot khác"
+                            : "Slot đã được đặt bởi người khác, vui lòng chọn slot khác")
+                    .build();
+        }
+
+        boolean reserved = false;
         try {
-            // Get slot với optimistic lock
+            // Get slot với pessimistic lock
             DoctorAvailableSlot slot = slotRepository.findByIdWithLock(request.getSlotId())
                     .orElseThrow(() -> new CustomException(ErrorCode.SLOT_NOT_FOUND));
 
@@ -95,7 +180,8 @@ public class SlotStatusServiceImpl implements SlotStatusService {
 
             log.info("Slot {} reserved successfully for patient {}", slot.getId(), request.getPatientId());
 
-            updateCacheAfterStatusChange(slot, false);
+            publishSlotChange(slot, false);
+            reserved = true;
 
             return SlotReservationResponse.builder()
                     .success(true)
@@ -112,6 +198,10 @@ public class SlotStatusServiceImpl implements SlotStatusService {
                     .slotId(request.getSlotId())
                     .message("Slot vừa được đặt bởi người khác, vui lòng chọn slot khác")
                     .build();
+        } finally {
+            if (hold == SlotHoldResult.ACQUIRED) {
+                settleHold(request.getSlotId(), holder, reserved);
+            }
         }
     }
 
@@ -125,7 +215,7 @@ public class SlotStatusServiceImpl implements SlotStatusService {
                     slot.setAvailable(true);
                     slotRepository.save(slot);
 
-                    updateCacheAfterStatusChange(slot, true);
+                    publishSlotChange(slot, true);
                     log.info("Slot {} released successfully", slotId);
                 },
                 () -> log.warn("Slot {} not found for release", slotId)
@@ -195,6 +285,18 @@ public class SlotStatusServiceImpl implements SlotStatusService {
                 .build();
     }
 
+    private SlotStatusUpdateResponse buildSlotStatusUpdateResponse(SlotStatusProjection row, String message) {
+        return SlotStatusUpdateResponse.builder()
+                .slotId(row.getId())
+                .slotDate(row.getSlotDate())
+                .startTime(row.getStartTime())
+                .endTime(row.getEndTime())
+                .isAvailable(row.getIsAvailable())
+                .message(message)
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+
     private SlotStatusUpdateResponse saveAndBuildResponse(DoctorAvailableSlot slot, boolean isAvailable, String reason) {
         boolean oldStatus = slot.isAvailable();
         slot.setAvailable(isAvailable);
@@ -202,7 +304,7 @@ public class SlotStatusServiceImpl implements SlotStatusService {
         log.debug("Slot {} thay đổi trạng thái từ {} sang {}", slot.getId(), oldStatus, isAvailable);
 
         DoctorAvailableSlot updatedSlot = slotStatusRepository.save(slot);
-        updateCacheAfterStatusChange(updatedSlot, isAvailable);
+        publishSlotChange(updatedSlot, isAvailable);
         return buildSlotStatusUpdateResponse(updatedSlot, reason);
     }
 
@@ -219,24 +321,88 @@ public class SlotStatusServiceImpl implements SlotStatusService {
         }
     }
 
-    private void updateCacheAfterStatusChange(DoctorAvailableSlot slot, boolean isAvailable) {
-        try {
-            doctorSlotRedisCache.updateSlotAvailability(
-                    slot.getDoctorId(),
-                    slot.getSlotDate(),
-                    slot.getId(),
-                    isAvailable
-            );
-            log.debug("Cache updated successfully for slot {} with status {}", slot.getId(), isAvailable);
-        } catch (Exception e) {
-            log.error("Failed to update cache for slot {}: {}", slot.getId(), e.getMessage());
-            try {
-                doctorSlotRedisCache.evictDoctorAvailabilityCache(slot.getDoctorId(), slot.getSlotDate());
-                log.info("Cache evicted for doctor {} on {} due to update failure",
-                        slot.getDoctorId(), slot.getSlotDate());
-            } catch (Exception ex) {
-                log.error("Failed to evict cache as fallback: {}", ex.getMessage());
-            }
+    /**
+     * Một câu UPDATE ... RETURNING cho cả batch, mỗi slot kèm version đã đọc để kiểm tra thay đổi đồng thời.
+     * Spring Data chỉ cho @Modifying trả về int/void nên không dùng được clearAutomatically với RETURNING;
+     * persistence context được clear ở đây để không còn entity cũ (trạng thái, version) sau câu UPDATE.
+     */
+    private List<SlotStatusProjection> bulkUpdateStatus(List<DoctorAvailableSlot> slots, List<Boolean> statuses) {
+        UUID[] slotIds = new UUID[slots.size()];
+        Long[] versions = new Long[slots.size()];
+        for (int i = 0; i < slots.size(); i++) {
+            slotIds[i] = slots.get(i).getId();
+            versions[i] = slots.get(i).getVersion();
+        }
+
+        List<SlotStatusProjection> rows = slotRepository.bulkUpdateSlotStatus(
+                slotIds, versions, statuses.toArray(new Boolean[0]), LocalDateTime.now());
+        entityManager.clear();
+        log.debug("Bulk update {} slots, {} slot đã được cập nhật", slots.size(), rows.size());
+        return rows;
+    }
+
+    /**
+     * Gom thay đổi theo bác sĩ/ngày để cache của mỗi ngày chỉ cần một lần ghi
+     */
+    private void publishBatchChanges(List<SlotStatusProjection> rows) {
+        Map<UUID, Map<LocalDate, List<SlotStatusChange>>> changesByDoctorAndDate = rows.stream()
+                .collect(Collectors.groupingBy(SlotStatusProjection::getDoctorId,
+                        Collectors.groupingBy(SlotStatusProjection::getSlotDate,
+                                Collectors.mapping(row -> SlotStatusChange.builder()
+                                        .slotId(row.getId())
+                                        .available(row.getIsAvailable())
+                                        .version(row.getVersion())
+                                        .build(), Collectors.toList()))));
+
+        changesByDoctorAndDate.forEach((doctorId, changesByDate) -> changesByDate.forEach((date, changes) ->
+                eventPublisher.publishEvent(SlotsStatusChangedEvent.builder()
+                        .doctorId(doctorId)
+                        .slotDate(date)
+                        .changes(changes)
+                        .build())));
+    }
+
+    /**
+     * Chốt hold theo kết quả transaction: commit thì thành reservation, rollback hoặc thất bại thì bỏ hold
+     */
+    private void settleHold(UUID slotId, String holder, boolean reserved) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            finishHold(slotId, holder, reserved);
+            return;
         }
+
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        finishHold(slotId, holder, reserved && status == STATUS_COMMITTED);
+                    }
+                }
+        );
+    }
+
+    private void finishHold(UUID slotId, String holder, boolean committed) {
+        if (committed) {
+            slotHoldService.confirm(slotId, holder);
+        } else {
+            slotHoldService.release(slotId, holder);
+        }
+    }
+
+    /**
+     * Cache Redis được cập nhật bởi SlotCacheChangeListener sau khi transaction commit.
+     * Flush trước để version của entity là version sẽ được commit.
+     */
+    private void publishSlotChange(DoctorAvailableSlot slot, boolean isAvailable) {
+        slotRepository.flush();
+
+        eventPublisher.publishEvent(SlotAvailabilityChangedEvent.builder()
+                .slotId(slot.getId())
+                .doctorId(slot.getDoctorId())
+                .slotDate(slot.getSlotDate())
+                .available(isAvailable)
+                .version(slot.getVersion())
+                .build());
+        log.debug("Published slot change for slot {} with status {}", slot.getId(), isAvailable);
     }
 }
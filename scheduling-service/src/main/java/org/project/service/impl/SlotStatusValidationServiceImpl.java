@@ -56,10 +56,7 @@ public class SlotStatusValidationServiceImpl implements SlotStatusValidationServ
             throw new CustomException(ErrorCode.INVALID_SLOT_OPERATION, "Request list cannot be empty");
         }
 
-        if (requests.size() > 50) {
-            throw new CustomException(ErrorCode.BULK_OPERATION_LIMIT_EXCEEDED,
-                    "Cannot update more than 50 slots at once");
-        }
+        validateBulkLimit(requests.size());
 
         long distinctSlotIds = requests.stream()
                 .map(BatchSlotStatusRequest::getSlotId)
@@ -71,6 +68,11 @@ public class SlotStatusValidationServiceImpl implements SlotStatusValidationServ
         }
     }
 
+    @Override
+    public void validateSlotsStatusUpdate(List<DoctorAvailableSlot> slots) {
+        slots.forEach(this::validateBasicSlotConditions);
+    }
+
     @Override
     public void validateSlotReservation(UUID slotId, DoctorAvailableSlot slot) {
         validateBasicSlotConditions(slot);
@@ -98,6 +100,13 @@ public class SlotStatusValidationServiceImpl implements SlotStatusValidationServ
         validateSlotNotInPast(slot);
     }
 
+    private void validateBulkLimit(int size) {
+        if (size > MAX_BULK_SLOTS) {
+            throw new CustomException(ErrorCode.BULK_OPERATION_LIMIT_EXCEEDED,
+                    "Cannot update more than " + MAX_BULK_SLOTS + " slots at once");
+        }
+    }
+
     private DoctorAvailableSlot findSlotWithDoctor(UUID slotId) {
         return slotStatusRepository.findByIdWithDoctor(slotId)
                 .orElseThrow(() -> new CustomException(ErrorCode.SLOT_NOT_FOUND));
@@ -1,5 +1,8 @@
 package org.project.service.impl;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 import org.project.client.UserProfileFeignClient;
@@ -41,6 +44,23 @@ public class UserProfileClientServiceImpl implements UserProfileClientService {
         }
     }
 
+    @Override
+    public List<DoctorResponse> getDoctorsByIds(Collection<UUID> doctorIds) {
+        if (doctorIds == null || doctorIds.isEmpty()) {
+            return List.of();
+        }
+        try {
+            List<UUID> ids = new ArrayList<>(doctorIds);
+            List<DoctorResponse> response = useFeignClient
+                    ? userProfileFeignClient.getDoctorsByIds(ids)
+                    : userProfileServiceClient.getDoctorsByIds(ids);
+            return response != null ? response : List.of();
+        } catch (Exception e) {
+            log.error("Lỗi khi lấy thông tin {} bác sĩ: {}", doctorIds.size(), e.getMessage(), e);
+            return List.of();
+        }
+    }
+
     @Override
     public PageResponse<DoctorResponse> getDoctors(Pageable pageable) {
         try {
@@ -0,0 +1,144 @@
+package org.project.util;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import org.project.dto.cache.DoctorAvailabilityCacheData;
+import org.project.dto.cache.TimeSlot;
+
+/**
+ * Mã hóa nhị phân gọn cho cache availability của một bác sĩ trong một ngày.
+ *
+ * <pre>
+ * byte    formatVersion (= 1)
+ * long    cachedAt (epoch millis)
+ * long    lastUpdate (epoch second UTC, Long.MIN_VALUE nếu không có)
+ * short   slotCount
+ * byte[]  bitmap trạng thái trống, bit i ứng với slot thứ i ((slotCount + 7) / 8 byte)
+ * slotCount bản ghi 24 byte, sắp theo startMinute:
+ *   short startMinute, short endMinute (phút trong ngày)
+ *   long  slotId most significant bits, long slotId least significant bits
+ *   int   version (-1 nếu không có)
+ * </pre>
+ *
+ * lastUpdate của từng slot không được lưu, chỉ giữ lastUpdate của cả ngày.
+ */
+public final class AvailabilityBinaryCodec {
+
+    public static final byte FORMAT_VERSION = 1;
+
+    private static final int HEADER_BYTES = 1 + Long.BYTES + Long.BYTES + Short.BYTES;
+    private static final int RECORD_BYTES = Short.BYTES * 2 + Long.BYTES * 2 + Integer.BYTES;
+    private static final long NO_LAST_UPDATE = Long.MIN_VALUE;
+    private static final int NO_VERSION = -1;
+
+    private AvailabilityBinaryCodec() {
+
+    }
+
+    /**
+     * @return payload, hoặc null nếu dữ liệu không biểu diễn được (giờ lẻ giây, version quá lớn...)
+     */
+    public static byte[] encode(List<TimeSlot> slots, long cachedAt, LocalDateTime lastUpdate) {
+        if (slots == null || slots.size() > Short.MAX_VALUE) {
+            return null;
+        }
+
+        List<TimeSlot> ordered = new ArrayList<>(slots);
+        ordered.sort(Comparator.comparing(TimeSlot::getStartTime));
+
+        int count = ordered.size();
+        byte[] bitmap = new byte[(count + 7) / 8];
+        ByteBuffer records = ByteBuffer.allocate(count * RECORD_BYTES);
+
+        for (int i = 0; i < count; i++) {
+            TimeSlot slot = ordered.get(i);
+            if (!isMinuteAligned(slot.getStartTime()) || !isMinuteAligned(slot.getEndTime())
+                    || slot.getSlotId() == null
+                    || (slot.getVersion() != null && (slot.getVersion() < 0 || slot.getVersion() > Integer.MAX_VALUE))) {
+                return null;
+            }
+
+            if (slot.isAvailable()) {
+                bitmap[i >>> 3] |= (byte) (1 << (i & 7));
+            }
+            records.putShort((short) (slot.getStartTime().toSecondOfDay() / 60));
+            records.putShort((short) (slot.getEndTime().toSecondOfDay() / 60));
+            records.putLong(slot.getSlotId().getMostSignificantBits());
+            records.putLong(slot.getSlotId().getLeastSignificantBits());
+            records.putInt(slot.getVersion() != null ? slot.getVersion().intValue() : NO_VERSION);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + bitmap.length + records.capacity());
+        buffer.put(FORMAT_VERSION);
+        buffer.putLong(cachedAt);
+        buffer.putLong(lastUpdate != null ? lastUpdate.toEpochSecond(ZoneOffset.UTC) : NO_LAST_UPDATE);
+        buffer.putShort((short) count);
+        buffer.put(bitmap);
+        buffer.put(records.array());
+        return buffer.array();
+    }
+
+    public static byte[] encode(DoctorAvailabilityCacheData data) {
+        return encode(data.getSlots(), data.getCachedAt(), data.getLastUpdate());
+    }
+
+    /**
+     * @throws IllegalArgumentException nếu payload không đúng định dạng hoặc khác version
+     */
+    public static DoctorAvailabilityCacheData decode(UUID doctorId, LocalDate date, byte[] payload) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(payload);
+            byte formatVersion = buffer.get();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported availability format version " + formatVersion);
+            }
+
+            long cachedAt = buffer.getLong();
+            long lastUpdateSeconds = buffer.getLong();
+            int count = buffer.getShort();
+            byte[] bitmap = new byte[(count + 7) / 8];
+            buffer.get(bitmap);
+
+            List<TimeSlot> slots = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int startMinute = buffer.getShort();
+                int endMinute = buffer.getShort();
+                UUID slotId = new UUID(buffer.getLong(), buffer.getLong());
+                int version = buffer.getInt();
+
+                slots.add(TimeSlot.builder()
+                        .slotId(slotId)
+                        .startTime(LocalTime.ofSecondOfDay(startMinute * 60L))
+                        .endTime(LocalTime.ofSecondOfDay(endMinute * 60L))
+                        .isAvailable((bitmap[i >>> 3] & (1 << (i & 7))) != 0)
+                        .version(version == NO_VERSION ? null : (long) version)
+                        .build());
+            }
+
+            return DoctorAvailabilityCacheData.builder()
+                    .doctorId(doctorId)
+                    .date(date)
+                    .slots(slots)
+                    .totalSlots(count)
+                    .cachedAt(cachedAt)
+                    .lastUpdate(lastUpdateSeconds == NO_LAST_UPDATE ? null
+                            : LocalDateTime.ofEpochSecond(lastUpdateSeconds, 0, ZoneOffset.UTC))
+                    .build();
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated availability payload", e);
+        }
+    }
+
+    private static boolean isMinuteAligned(LocalTime time) {
+        return time != null && time.getSecond() == 0 && time.getNano() == 0;
+    }
+}
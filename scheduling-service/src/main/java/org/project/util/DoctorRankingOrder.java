@@ -0,0 +1,34 @@
+package org.project.util;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.UUID;
+
+/**
+ * Thứ tự xếp hạng bác sĩ có slot, dùng chung cho availability index và câu ORDER BY của
+ * DoctorAvailableSlotRepository.findDoctorRankingPage để cùng một request trả về cùng một trang
+ * dù replica phục vụ đã có index hay chưa.
+ * Thứ tự: số slot trống giảm dần, slot trống sớm nhất tăng dần (không có thì xếp cuối), doctorId.
+ */
+public final class DoctorRankingOrder {
+
+    public static final Comparator<Key> COMPARATOR = Comparator.comparingLong(Key::availableSlotCount).reversed()
+            .thenComparing(Key::earliestAvailableAt, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(Key::doctorId, DoctorRankingOrder::compareUuid);
+
+    private DoctorRankingOrder() {
+
+    }
+
+    /**
+     * So sánh như kiểu uuid của Postgres (từng byte, không dấu). UUID.compareTo so sánh có dấu
+     * nên sẽ lệch với DB khi bit cao nhất của một nửa được bật.
+     */
+    public static int compareUuid(UUID a, UUID b) {
+        int high = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return high != 0 ? high : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    }
+
+    public record Key(UUID doctorId, long availableSlotCount, LocalDateTime earliestAvailableAt) {
+    }
+}
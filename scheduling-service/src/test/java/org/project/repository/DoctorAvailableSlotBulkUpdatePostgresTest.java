@@ -0,0 +1,158 @@
+package org.project.repository;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.project.service.SlotStatusValidationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * Chạy câu UPDATE hàng loạt của {@link DoctorAvailableSlotRepository#bulkUpdateSlotStatus} trên Postgres thật
+ * (Testcontainers) và ghi log thời gian reserve 1.000 slot: chia batch MAX_BULK_SLOTS như trước đây
+ * so với một câu UPDATE cho cả danh sách. Bỏ qua khi máy không có Docker.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class DoctorAvailableSlotBulkUpdatePostgresTest {
+
+    private static final Logger log = LoggerFactory.getLogger(DoctorAvailableSlotBulkUpdatePostgresTest.class);
+
+    private static final int SLOTS = 1_000;
+    private static final int ROUNDS = 5;
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES =
+            new PostgreSQLContainer<>(DockerImageName.parse("postgres:16-alpine"));
+
+    private static SingleConnectionDataSource dataSource;
+    private static NamedParameterJdbcTemplate jdbcTemplate;
+    private static String bulkUpdateSql;
+    private static UUID[] slotIds;
+
+    @BeforeAll
+    static void createSlots() throws Exception {
+        dataSource = new SingleConnectionDataSource(
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword(), true);
+        jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        bulkUpdateSql = DoctorAvailableSlotRepository.class
+                .getMethod("bulkUpdateSlotStatus", UUID[].class, Long[].class, Boolean[].class, LocalDateTime.class)
+                .getAnnotation(Query.class)
+                .value();
+
+        // Các cột mà câu UPDATE ... RETURNING dùng tới
+        jdbcTemplate.getJdbcTemplate().execute("CREATE TABLE doctor_available_slots (" +
+                "id uuid PRIMARY KEY, doctor_user_id uuid NOT NULL, slot_date date NOT NULL, " +
+                "start_time time NOT NULL, end_time time NOT NULL, is_available boolean NOT NULL, " +
+                "version bigint, updated_at timestamp)");
+
+        UUID doctorId = UUID.randomUUID();
+        slotIds = new UUID[SLOTS];
+        List<Object[]> rows = new ArrayList<>(SLOTS);
+        for (int i = 0; i < SLOTS; i++) {
+            slotIds[i] = UUID.randomUUID();
+            LocalTime start = LocalTime.of(8, 0).plusMinutes(30L * (i % 20));
+            rows.add(new Object[]{slotIds[i], doctorId, LocalDate.now().plusDays(1 + i / 20), start,
+                    start.plusMinutes(30)});
+        }
+        jdbcTemplate.getJdbcTemplate().batchUpdate("INSERT INTO doctor_available_slots " +
+                "(id, doctor_user_id, slot_date, start_time, end_time, is_available, version) " +
+                "VALUES (?, ?, ?, ?, ?, true, 0)", rows);
+    }
+
+    @AfterAll
+    static void closeDataSource() {
+        dataSource.destroy();
+    }
+
+    @Test
+    void testBulkUpdate_1000Slots_ShouldReserveAllInOneStatement() throws Exception {
+        // Khởi động JIT, driver và plan cache trước khi đo
+        reserveInBatches(SLOTS);
+        reserveInBatches(SlotStatusValidationService.MAX_BULK_SLOTS);
+
+        long[] batchedNanos = new long[ROUNDS];
+        long[] singleNanos = new long[ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            // Trước đây: mỗi batch MAX_BULK_SLOTS slot một câu UPDATE trong transaction riêng
+            long started = System.nanoTime();
+            int batchedRows = reserveInBatches(SlotStatusValidationService.MAX_BULK_SLOTS);
+            batchedNanos[round] = System.nanoTime() - started;
+
+            // Bây giờ: một câu UPDATE cho cả 1.000 slot
+            started = System.nanoTime();
+            int singleRows = reserveInBatches(SLOTS);
+            singleNanos[round] = System.nanoTime() - started;
+
+            assertThat(batchedRows).isEqualTo(SLOTS);
+            assertThat(singleRows).isEqualTo(SLOTS);
+        }
+
+        long batchedMs = TimeUnit.NANOSECONDS.toMillis(median(batchedNanos));
+        long singleMs = TimeUnit.NANOSECONDS.toMillis(median(singleNanos));
+        log.info("Reserve {} slots: {} câu UPDATE x {} slot = {} ms ({} slot/s), 1 câu UPDATE = {} ms ({} slot/s)",
+                SLOTS, SLOTS / SlotStatusValidationService.MAX_BULK_SLOTS, SlotStatusValidationService.MAX_BULK_SLOTS,
+                batchedMs, throughput(batchedMs), singleMs, throughput(singleMs));
+    }
+
+    /**
+     * Mở lại toàn bộ slot rồi reserve theo từng batch, mỗi câu UPDATE tự commit
+     *
+     * @return số slot đã được reserve
+     */
+    private int reserveInBatches(int batchSize) throws SQLException {
+        jdbcTemplate.getJdbcTemplate().update("UPDATE doctor_available_slots SET is_available = true, version = 0");
+
+        int reserved = 0;
+        Connection connection = dataSource.getConnection();
+        for (int from = 0; from < SLOTS; from += batchSize) {
+            int to = Math.min(from + batchSize, SLOTS);
+            Long[] versions = new Long[to - from];
+            Boolean[] statuses = new Boolean[to - from];
+            Arrays.fill(versions, 0L);
+            Arrays.fill(statuses, false);
+
+            MapSqlParameterSource parameters = new MapSqlParameterSource()
+                    .addValue("slotIds", array(connection, "uuid", Arrays.copyOfRange(slotIds, from, to)))
+                    .addValue("versions", array(connection, "bigint", versions))
+                    .addValue("statuses", array(connection, "boolean", statuses))
+                    .addValue("updatedAt", LocalDateTime.now());
+            reserved += jdbcTemplate.queryForList(bulkUpdateSql, parameters).size();
+        }
+        return reserved;
+    }
+
+    private static Array array(Connection connection, String type, Object[] values) throws SQLException {
+        return connection.createArrayOf(type, values);
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static long throughput(long millis) {
+        return millis == 0 ? SLOTS * 1000L : SLOTS * 1000L / millis;
+    }
+}
@@ -0,0 +1,358 @@
+package org.project.service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.project.dto.cache.AvailabilityIndexPage;
+import org.project.dto.request.DoctorAvailabilityFilter;
+import org.project.dto.response.DoctorResponse;
+import org.project.repository.DoctorAvailableSlotRepository;
+import org.project.repository.SlotIndexProjection;
+import org.project.service.impl.DoctorAvailabilityIndexImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+class DoctorAvailabilityIndexImplTest {
+
+    @Mock
+    private DoctorAvailableSlotRepository slotRepository;
+
+    @InjectMocks
+    private DoctorAvailabilityIndexImpl availabilityIndex;
+
+    private UUID doctorId1;
+    private UUID doctorId2;
+    private LocalDate today;
+    private List<SlotIndexProjection> entries;
+    private Map<UUID, DoctorResponse> profiles;
+
+    @BeforeEach
+    void setUp() {
+        doctorId1 = UUID.randomUUID();
+        doctorId2 = UUID.randomUUID();
+        today = LocalDate.now();
+        entries = new ArrayList<>();
+        profiles = new HashMap<>();
+        profiles.put(doctorId1, profile(doctorId1, "Dr. A"));
+        profiles.put(doctorId2, profile(doctorId2, "Dr. B"));
+
+        ReflectionTestUtils.setField(availabilityIndex, "enabled", true);
+        ReflectionTestUtils.setField(availabilityIndex, "daysToIndex", 14);
+        ReflectionTestUtils.setField(availabilityIndex, "specialtyTtlMs", 600000L);
+    }
+
+    @Test
+    void testSearch_ShouldSortByAvailableSlotsAndPaginate() {
+        // Given: doctor1 có 3 slot trống, doctor2 có 1 slot trống
+        addSlots(doctorId1, today.plusDays(1), 3, true);
+        addSlots(doctorId2, today.plusDays(2), 1, true);
+        addSlots(doctorId2, today.plusDays(2), 2, false);
+        rebuild();
+
+        DoctorAvailabilityFilter filter = filter(true);
+
+        // When
+        AvailabilityIndexPage firstPage = availabilityIndex.search(filter, null, 0, 1, this::lookupProfiles);
+        AvailabilityIndexPage secondPage = availabilityIndex.search(filter, null, 1, 1, this::lookupProfiles);
+
+        // Then
+        assertThat(firstPage.getTotalElements()).isEqualTo(2);
+        assertThat(firstPage.getMatches()).hasSize(1);
+        assertThat(firstPage.getMatches().get(0).getDoctorId()).isEqualTo(doctorId1);
+        assertThat(firstPage.getMatches().get(0).getSlots()).hasSize(3);
+
+        assertThat(secondPage.getMatches().get(0).getDoctorId()).isEqualTo(doctorId2);
+        assertThat(secondPage.getMatches().get(0).getSlots()).hasSize(1);
+    }
+
+    @Test
+    void testApplySlotChange_ShouldUpdateSearchResultsImmediately() {
+        // Given
+        List<UUID> slotIds = addSlots(doctorId1, today.plusDays(1), 1, true);
+        rebuild();
+
+        // When
+        availabilityIndex.applySlotChange(doctorId1, today.plusDays(1), slotIds.get(0), false);
+
+        // Then
+        AvailabilityIndexPage page = availabilityIndex.search(filter(true), null, 0, 10, this::lookupProfiles);
+        assertThat(page.getTotalElements()).isZero();
+        assertThat(page.getMatches()).isEmpty();
+    }
+
+    @Test
+    void testSearch_WithCandidatesAndTimeRange_ShouldRestrictResults() {
+        // Given
+        addSlots(doctorId1, today.plusDays(1), 4, true); // 08:00 - 12:00
+        addSlots(doctorId2, today.plusDays(1), 4, true);
+        rebuild();
+
+        DoctorAvailabilityFilter filter = filter(true);
+        filter.setStartTime(LocalTime.of(9, 0));
+        filter.setEndTime(LocalTime.of(11, 0));
+
+        // When
+        AvailabilityIndexPage page = availabilityIndex.search(filter, Set.of(doctorId2), 0, 10, this::lookupProfiles);
+
+        // Then
+        assertThat(page.getTotalElements()).isEqualTo(1);
+        assertThat(page.getMatches().get(0).getDoctorId()).isEqualTo(doctorId2);
+        assertThat(page.getMatches().get(0).getSlots()).hasSize(2);
+        page.getMatches().get(0).getSlots().forEach(slot -> {
+            assertThat(slot.getStartTime()).isAfterOrEqualTo(LocalTime.of(9, 0));
+            assertThat(slot.getEndTime()).isBeforeOrEqualTo(LocalTime.of(11, 0));
+        });
+    }
+
+    @Test
+    void testReloadDoctor_ShouldReplaceSlotsInRange() {
+        // Given
+        rebuild();
+        List<SlotIndexProjection> regenerated = new ArrayList<>();
+        LocalDate date = today.plusDays(3);
+        regenerated.add(projection(UUID.randomUUID(), doctorId1, date, LocalTime.of(8, 0), true));
+        when(slotRepository.findSlotIndexEntriesByDoctor(eq(doctorId1), any(LocalDate.class), any(LocalDate.class)))
+                .thenReturn(regenerated);
+
+        // When
+        availabilityIndex.reloadDoctor(doctorId1, date, date);
+
+        // Then
+        AvailabilityIndexPage page = availabilityIndex.search(filter(true), null, 0, 10, this::lookupProfiles);
+        assertThat(page.getTotalElements()).isEqualTo(1);
+        assertThat(page.getMatches().get(0).getDoctorId()).isEqualTo(doctorId1);
+    }
+
+    @Test
+    void testSearch_WithEqualAvailability_ShouldBreakTiesByEarliestAvailableSlot() {
+        // Given: cùng số slot trống, doctor2 có slot trống sớm hơn dù tên đứng sau
+        profiles.put(doctorId1, profile(doctorId1, "Dr. Anna"));
+        profiles.put(doctorId2, profile(doctorId2, "Dr. Zed"));
+        addSlots(doctorId1, today.plusDays(2), 2, true);
+        addSlots(doctorId2, today.plusDays(1), 2, true);
+        rebuild();
+
+        // When
+        AvailabilityIndexPage page = availabilityIndex.search(filter(true), null, 0, 10, this::lookupProfiles);
+
+        // Then: cùng thứ tự với ORDER BY của xếp hạng trong DB
+        assertThat(page.getMatches()).extracting(AvailabilityIndexPage.DoctorMatch::getDoctorId)
+                .containsExactly(doctorId2, doctorId1);
+    }
+
+    @Test
+    void testSearch_WithFullTie_ShouldOrderDoctorIdsLikePostgresUuid() {
+        // Given: cùng số slot và cùng giờ; UUID.compareTo so sánh có dấu nên sẽ xếp 8000... trước 7fff...
+        UUID low = UUID.fromString("7fffffff-ffff-ffff-ffff-ffffffffffff");
+        UUID high = UUID.fromString("80000000-0000-0000-0000-000000000000");
+        profiles.put(low, profile(low, "Dr. Low"));
+        profiles.put(high, profile(high, "Dr. High"));
+        addSlots(high, today.plusDays(1), 1, true);
+        addSlots(low, today.plusDays(1), 1, true);
+        rebuild();
+
+        // When
+        AvailabilityIndexPage page = availabilityIndex.search(filter(true), null, 0, 10, this::lookupProfiles);
+
+        // Then: thứ tự byte không dấu như uuid của Postgres
+        assertThat(page.getMatches()).extracting(AvailabilityIndexPage.DoctorMatch::getDoctorId)
+                .containsExactly(low, high);
+    }
+
+    @Test
+    void testSearch_WithMissingProfile_ShouldExcludeDoctorFromTotal() {
+        // Given: doctor2 không còn profile
+        profiles.remove(doctorId2);
+        addSlots(doctorId1, today.plusDays(1), 1, true);
+        addSlots(doctorId2, today.plusDays(1), 3, true);
+        rebuild();
+
+        // When
+        AvailabilityIndexPage page = availabilityIndex.search(filter(true), null, 0, 10, this::lookupProfiles);
+
+        // Then
+        assertThat(page.getTotalElements()).isEqualTo(1);
+        assertThat(page.getMatches()).extracting(AvailabilityIndexPage.DoctorMatch::getDoctorId)
+                .containsExactly(doctorId1);
+    }
+
+    @Test
+    void testReloadDoctor_DuringRebuild_ShouldBeReplayedIntoNewSnapshot() {
+        // Given: bác sĩ được sinh lại slots trong khi snapshot mới đang được đọc từ DB
+        LocalDate date = today.plusDays(3);
+        List<SlotIndexProjection> regenerated = List.of(
+                projection(UUID.randomUUID(), doctorId1, date, LocalTime.of(8, 0), true));
+        when(slotRepository.findSlotIndexEntriesByDoctor(eq(doctorId1), any(LocalDate.class), any(LocalDate.class)))
+                .thenReturn(regenerated);
+        rebuild();
+
+        when(slotRepository.findSlotIndexEntries(any(LocalDate.class), any(LocalDate.class)))
+                .thenAnswer(invocation -> {
+                    availabilityIndex.reloadDoctor(doctorId1, date, date);
+                    return List.of();
+                });
+
+        // When
+        availabilityIndex.rebuild();
+
+        // Then: snapshot mới không có slot nào nhưng thay đổi nhận được trong lúc rebuild vẫn được áp dụng,
+        // lúc đổi snapshot dùng lại dữ liệu đã đọc thay vì đọc DB lần nữa
+        AvailabilityIndexPage page = availabilityIndex.search(filter(true), null, 0, 10, this::lookupProfiles);
+        assertThat(page.getTotalElements()).isEqualTo(1);
+        assertThat(page.getMatches().get(0).getDoctorId()).isEqualTo(doctorId1);
+        verify(slotRepository, times(1)).findSlotIndexEntriesByDoctor(eq(doctorId1), any(LocalDate.class),
+                any(LocalDate.class));
+    }
+
+    @Test
+    void testReloadDoctor_ShouldNotBlockSlotChangesWhileReadingDatabase() throws Exception {
+        // Given: slot được đặt trong lúc nạp lại bác sĩ đang đọc DB, dữ liệu đọc được vẫn thấy slot trống
+        LocalDate date = today.plusDays(2);
+        UUID slotId = UUID.randomUUID();
+        rebuild();
+        List<SlotIndexProjection> regenerated = List.of(projection(slotId, doctorId1, date, LocalTime.of(8, 0), true));
+        when(slotRepository.findSlotIndexEntriesByDoctor(eq(doctorId1), any(LocalDate.class), any(LocalDate.class)))
+                .thenAnswer(invocation -> {
+                    Thread writer = new Thread(() -> availabilityIndex.applySlotChange(doctorId1, date, slotId, false));
+                    writer.start();
+                    writer.join(5_000);
+                    // changeLock không bị giữ trong lúc đọc DB nên thay đổi được áp dụng ngay
+                    assertThat(writer.isAlive()).isFalse();
+                    return regenerated;
+                });
+
+        // When
+        availabilityIndex.reloadDoctor(doctorId1, date, date);
+
+        // Then: thay đổi đến trong lúc đọc được áp dụng lại lên dữ liệu vừa nạp
+        AvailabilityIndexPage available = availabilityIndex.search(filter(true), null, 0, 10, this::lookupProfiles);
+        AvailabilityIndexPage booked = availabilityIndex.search(filter(false), null, 0, 10, this::lookupProfiles);
+        assertThat(available.getTotalElements()).isZero();
+        assertThat(booked.getTotalElements()).isEqualTo(1);
+    }
+
+    @Test
+    void testApplySlotChange_DuringRebuild_ShouldBeReplayedIntoNewSnapshot() {
+        // Given
+        List<UUID> slotIds = addSlots(doctorId1, today.plusDays(1), 1, true);
+        rebuild();
+
+        when(slotRepository.findSlotIndexEntries(any(LocalDate.class), any(LocalDate.class)))
+                .thenAnswer(invocation -> {
+                    // Snapshot đọc từ DB vẫn thấy slot trống, slot được đặt ngay sau đó
+                    availabilityIndex.applySlotChange(doctorId1, today.plusDays(1), slotIds.get(0), false);
+                    return entries;
+                });
+
+        // When
+        availabilityIndex.rebuild();
+
+        // Then
+        AvailabilityIndexPage page = availabilityIndex.search(filter(true), null, 0, 10, this::lookupProfiles);
+        assertThat(page.getTotalElements()).isZero();
+    }
+
+    @Test
+    void testCovers_ShouldOnlyAcceptRangesInsideWindow() {
+        rebuild();
+
+        assertThat(availabilityIndex.isReady()).isTrue();
+        assertThat(availabilityIndex.covers(today, today.plusDays(14))).isTrue();
+        assertThat(availabilityIndex.covers(today.minusDays(1), today)).isFalse();
+        assertThat(availabilityIndex.covers(today, today.plusDays(15))).isFalse();
+    }
+
+    private void rebuild() {
+        when(slotRepository.findSlotIndexEntries(any(LocalDate.class), any(LocalDate.class)))
+                .thenReturn(entries);
+        availabilityIndex.rebuild();
+    }
+
+    private Map<UUID, DoctorResponse> lookupProfiles(Collection<UUID> doctorIds) {
+        Map<UUID, DoctorResponse> found = new HashMap<>();
+        doctorIds.stream().filter(profiles::containsKey).forEach(id -> found.put(id, profiles.get(id)));
+        return found;
+    }
+
+    private DoctorResponse profile(UUID doctorId, String fullName) {
+        return DoctorResponse.builder()
+                .userId(doctorId)
+                .fullName(fullName)
+                .build();
+    }
+
+    private DoctorAvailabilityFilter filter(Boolean isAvailable) {
+        return DoctorAvailabilityFilter.builder()
+                .startDate(today)
+                .endDate(today.plusDays(7))
+                .isAvailable(isAvailable)
+                .build();
+    }
+
+    private List<UUID> addSlots(UUID doctorId, LocalDate date, int count, boolean available) {
+        List<UUID> ids = new ArrayList<>();
+        int offset = (int) entries.stream()
+                .filter(e -> e.getDoctorId().equals(doctorId) && e.getSlotDate().equals(date))
+                .count();
+        for (int i = 0; i < count; i++) {
+            UUID slotId = UUID.randomUUID();
+            ids.add(slotId);
+            entries.add(projection(slotId, doctorId, date, LocalTime.of(8 + offset + i, 0), available));
+        }
+        return ids;
+    }
+
+    private SlotIndexProjection projection(UUID slotId, UUID doctorId, LocalDate date,
+                                           LocalTime startTime, boolean available) {
+        return new SlotIndexProjection() {
+            @Override
+            public UUID getId() {
+                return slotId;
+            }
+
+            @Override
+            public UUID getDoctorId() {
+                return doctorId;
+            }
+
+            @Override
+            public LocalDate getSlotDate() {
+                return date;
+            }
+
+            @Override
+            public LocalTime getStartTime() {
+                return startTime;
+            }
+
+            @Override
+            public LocalTime getEndTime() {
+                return startTime.plusHours(1);
+            }
+
+            @Override
+            public Boolean getIsAvailable() {
+                return available;
+            }
+        };
+    }
+}
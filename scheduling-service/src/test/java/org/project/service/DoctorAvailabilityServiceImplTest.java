@@ -2,11 +2,16 @@ package org.project.service;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -14,9 +19,14 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -28,6 +38,7 @@ import org.project.dto.response.DoctorResponse;
 import org.project.dto.response.DoctorWithSlotsResponse;
 import org.project.model.DoctorAvailableSlot;
 import org.project.repository.DoctorAvailableSlotRepository;
+import org.project.repository.DoctorSlotRankingProjection;
 import org.project.service.impl.DoctorAvailabilityServiceImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.test.util.ReflectionTestUtils;
@@ -36,7 +47,7 @@ import org.springframework.test.util.ReflectionTestUtils;
 class DoctorAvailabilityServiceImplTest {
 
     @Mock
-    private RedisCacheService redisCacheService;
+    private DoctorProfileCache doctorProfileCache;
 
     @Mock
     private UserProfileClientService userProfileClientService;
@@ -44,6 +55,9 @@ class DoctorAvailabilityServiceImplTest {
     @Mock
     private DoctorAvailableSlotRepository doctorAvailableSlotRepository;
 
+    @Mock
+    private DoctorAvailabilityIndex availabilityIndex;
+
     @InjectMocks
     private DoctorAvailabilityServiceImpl doctorAvailabilityService;
 
@@ -52,6 +66,8 @@ class DoctorAvailabilityServiceImplTest {
     private UUID doctorId3;
     private LocalDate startDate;
     private LocalDate endDate;
+    // Profile mà doctorProfileCache trả về
+    private Map<UUID, DoctorResponse> profiles;
 
     @BeforeEach
     void setUp() {
@@ -62,9 +78,18 @@ class DoctorAvailabilityServiceImplTest {
         endDate = startDate.plusDays(7);
 
         ReflectionTestUtils.setField(doctorAvailabilityService, "batchSize", 25);
-        ReflectionTestUtils.setField(doctorAvailabilityService, "cacheTtlSeconds", 3600L);
         ReflectionTestUtils.setField(doctorAvailabilityService, "parallelThreshold", 10);
         ReflectionTestUtils.setField(doctorAvailabilityService, "threadPoolSize", 10);
+
+        profiles = new HashMap<>();
+        lenient().when(doctorProfileCache.getAll(anyCollection())).thenAnswer(invocation -> {
+            Collection<UUID> ids = invocation.getArgument(0);
+            Map<UUID, DoctorResponse> found = new HashMap<>();
+            ids.stream().filter(profiles::containsKey).forEach(id -> found.put(id, profiles.get(id)));
+            return found;
+        });
+        lenient().when(doctorProfileCache.get(any(UUID.class)))
+                .thenAnswer(invocation -> profiles.get(invocation.<UUID>getArgument(0)));
     }
 
     @Test
@@ -90,8 +115,8 @@ class DoctorAvailabilityServiceImplTest {
         DoctorResponse doctor1 = createDoctorResponse(doctorId1, "Dr. John Doe", "Cardiology");
         DoctorResponse doctor2 = createDoctorResponse(doctorId2, "Dr. Jane Smith", "Neurology");
         
-        when(userProfileClientService.getDoctorById(doctorId1)).thenReturn(doctor1);
-        when(userProfileClientService.getDoctorById(doctorId2)).thenReturn(doctor2);
+        profiles.put(doctorId1, doctor1);
+        profiles.put(doctorId2, doctor2);
 
         // Mock slots
         List<DoctorAvailableSlot> slots1 = createAvailableSlots(doctorId1, 3);
@@ -117,7 +142,8 @@ class DoctorAvailabilityServiceImplTest {
         assertThat(result.isEmpty()).isFalse();
 
         verify(doctorAvailableSlotRepository).findDistinctDoctorIdsByDateRange(startDate, endDate, true);
-        verify(userProfileClientService, times(2)).getDoctorById(any(UUID.class));
+        // Profile của cả batch được lấy trong một lần
+        verify(doctorProfileCache, times(1)).getAll(List.of(doctorId1, doctorId2));
     }
 
     @Test
@@ -146,7 +172,7 @@ class DoctorAvailabilityServiceImplTest {
         assertThat(result.isEmpty()).isTrue();
 
         verify(doctorAvailableSlotRepository).findDistinctDoctorIdsByDateRange(startDate, endDate, true);
-        verify(userProfileClientService, never()).getDoctorById(any(UUID.class));
+        verify(doctorProfileCache, never()).getAll(anyCollection());
     }
 
     @Test
@@ -183,8 +209,8 @@ class DoctorAvailabilityServiceImplTest {
         DoctorResponse doctor1 = createDoctorResponse(doctorId1, "Dr. John Doe", "Cardiology");
         DoctorResponse doctor2 = createDoctorResponse(doctorId2, "Dr. Jane Smith", "Cardiology");
         
-        when(userProfileClientService.getDoctorById(doctorId1)).thenReturn(doctor1);
-        when(userProfileClientService.getDoctorById(doctorId2)).thenReturn(doctor2);
+        profiles.put(doctorId1, doctor1);
+        profiles.put(doctorId2, doctor2);
 
         List<DoctorAvailableSlot> slots = createAvailableSlots(doctorId1, 2);
         when(doctorAvailableSlotRepository.findSlotsByDoctorAndDateRange(
@@ -225,8 +251,8 @@ class DoctorAvailabilityServiceImplTest {
         DoctorResponse doctor1 = createDoctorResponse(doctorId1, "Dr. John Doe", "Cardiology");
         DoctorResponse doctor2 = createDoctorResponse(doctorId2, "Dr. Jane Smith", "Neurology");
         
-        when(userProfileClientService.getDoctorById(doctorId1)).thenReturn(doctor1);
-        when(userProfileClientService.getDoctorById(doctorId2)).thenReturn(doctor2);
+        profiles.put(doctorId1, doctor1);
+        profiles.put(doctorId2, doctor2);
 
         List<DoctorAvailableSlot> slots = createAvailableSlots(doctorId1, 2);
         when(doctorAvailableSlotRepository.findSlotsByDoctorAndDateRange(
@@ -263,11 +289,7 @@ class DoctorAvailabilityServiceImplTest {
                 .thenReturn(doctorIds);
 
         // Mock doctor responses
-        when(userProfileClientService.getDoctorById(any(UUID.class)))
-                .thenAnswer(invocation -> {
-                    UUID id = invocation.getArgument(0);
-                    return createDoctorResponse(id, "Dr. Test " + id, "Specialty");
-                });
+        doctorIds.forEach(id -> profiles.put(id, createDoctorResponse(id, "Dr. Test " + id, "Specialty")));
 
         List<DoctorAvailableSlot> slots = createAvailableSlots(doctorId1, 2);
         when(doctorAvailableSlotRepository.findSlotsByDoctorAndDateRange(
@@ -312,7 +334,7 @@ class DoctorAvailabilityServiceImplTest {
                 .thenReturn(doctorIds);
 
         DoctorResponse doctor1 = createDoctorResponse(doctorId1, "Dr. John Doe", "Cardiology");
-        when(userProfileClientService.getDoctorById(doctorId1)).thenReturn(doctor1);
+        profiles.put(doctorId1, doctor1);
 
         // Create slots with different times
         List<DoctorAvailableSlot> slots = createAvailableSlotsWithTimes(
@@ -391,7 +413,7 @@ class DoctorAvailabilityServiceImplTest {
                 .thenReturn(allDoctorIds);
 
         DoctorResponse doctor1 = createDoctorResponse(doctorId1, "Dr. John Doe", "Cardiology");
-        when(userProfileClientService.getDoctorById(doctorId1)).thenReturn(doctor1);
+        profiles.put(doctorId1, doctor1);
 
         List<DoctorAvailableSlot> slots = createAvailableSlots(doctorId1, 2);
         when(doctorAvailableSlotRepository.findSlotsByDoctorAndDateRange(
@@ -406,7 +428,7 @@ class DoctorAvailabilityServiceImplTest {
         assertThat(result).isNotNull();
         assertThat(result.getContent()).hasSize(1);
         assertThat(result.getContent().get(0).getUserId()).isEqualTo(doctorId1.toString());
-        verify(userProfileClientService, times(1)).getDoctorById(doctorId1);
+        verify(doctorProfileCache, times(1)).getAll(List.of(doctorId1));
     }
 
     @Test
@@ -431,8 +453,8 @@ class DoctorAvailabilityServiceImplTest {
         DoctorResponse doctor1 = createDoctorResponse(doctorId1, "Dr. John Doe", "Cardiology");
         DoctorResponse doctor2 = createDoctorResponse(doctorId2, "Dr. Jane Smith", "Neurology");
         
-        when(userProfileClientService.getDoctorById(doctorId1)).thenReturn(doctor1);
-        when(userProfileClientService.getDoctorById(doctorId2)).thenReturn(doctor2);
+        profiles.put(doctorId1, doctor1);
+        profiles.put(doctorId2, doctor2);
 
         // doctor1 has 5 slots, doctor2 has 2 slots
         List<DoctorAvailableSlot> slots1 = createAvailableSlots(doctorId1, 5);
@@ -481,8 +503,8 @@ class DoctorAvailabilityServiceImplTest {
         DoctorResponse doctor1 = createDoctorResponse(doctorId1, "Dr. John Doe", "Cardiology");
         DoctorResponse doctor2 = createDoctorResponse(doctorId2, "Dr. Jane Smith", "Neurology");
         
-        when(userProfileClientService.getDoctorById(doctorId1)).thenReturn(doctor1);
-        when(userProfileClientService.getDoctorById(doctorId2)).thenReturn(doctor2);
+        profiles.put(doctorId1, doctor1);
+        profiles.put(doctorId2, doctor2);
 
         // doctor1 has slots, doctor2 has no slots
         List<DoctorAvailableSlot> slots1 = createAvailableSlots(doctorId1, 3);
@@ -507,6 +529,102 @@ class DoctorAvailabilityServiceImplTest {
     }
 
     // Helper methods
+    @Test
+    void testGetDoctorsWithAvailableSlots_WithDbRanking_ShouldHydrateOnlyRequestedPage() {
+        // Given: DB xếp hạng 3 bác sĩ, trang 2 (size 2) chỉ còn doctor3
+        ReflectionTestUtils.setField(doctorAvailabilityService, "dbRankingEnabled", true);
+
+        DoctorAvailabilityFilter filter = DoctorAvailabilityFilter.builder()
+                .startDate(startDate)
+                .endDate(endDate)
+                .isAvailable(true)
+                .page(1)
+                .size(2)
+                .useCache(false)
+                .build();
+
+        // Không lọc giờ kết thúc: điều kiện end_time được bỏ qua thay vì bind LocalTime.MAX
+        when(doctorAvailableSlotRepository.countRankedDoctors(
+                eq(startDate), eq(endDate), eq(LocalTime.MIN), any(LocalTime.class),
+                eq(true), eq(false), eq(true)))
+                .thenReturn(3L);
+        when(doctorAvailableSlotRepository.findDoctorRankingPage(
+                eq(startDate), eq(endDate), eq(LocalTime.MIN), any(LocalTime.class),
+                eq(true), eq(false), eq(true), eq(2), eq(2L)))
+                .thenReturn(List.of(ranking(doctorId3, 1)));
+
+        profiles.put(doctorId3, createDoctorResponse(doctorId3, "Dr. Three", "Cardiology"));
+        when(doctorAvailableSlotRepository.findSlotsByDoctorsAndDateRange(
+                eq(List.of(doctorId3)), eq(startDate), eq(endDate)))
+                .thenReturn(createAvailableSlots(doctorId3, 1));
+
+        // When
+        PageResponse<DoctorWithSlotsResponse> result =
+                doctorAvailabilityService.getDoctorsWithAvailableSlots(filter);
+
+        // Then
+        assertThat(result.getTotalElements()).isEqualTo(3);
+        assertThat(result.getTotalPages()).isEqualTo(2);
+        assertThat(result.getContent()).hasSize(1);
+        assertThat(result.getContent().get(0).getUserId()).isEqualTo(doctorId3.toString());
+
+        assertThat(result.getContent().get(0).getAvailableSlots()).hasSize(1);
+
+        verify(doctorProfileCache, times(1)).getAll(List.of(doctorId3));
+        verify(doctorAvailableSlotRepository, never()).findDistinctDoctorIdsByDateRange(any(), any(), any());
+        verify(doctorAvailableSlotRepository, never()).findSlotsByDoctorAndDateRange(any(), any(), any());
+    }
+
+    @Test
+    void testGetDoctorsWithAvailableSlots_WithDbRankingAndDoctorIds_ShouldRestrictQuery() {
+        // Given
+        ReflectionTestUtils.setField(doctorAvailabilityService, "dbRankingEnabled", true);
+
+        DoctorAvailabilityFilter filter = DoctorAvailabilityFilter.builder()
+                .startDate(startDate)
+                .endDate(endDate)
+                .doctorIds(List.of(doctorId2))
+                .page(0)
+                .size(10)
+                .build();
+
+        when(doctorAvailableSlotRepository.countRankedDoctorsForDoctors(
+                eq(Set.of(doctorId2)), eq(startDate), eq(endDate), any(LocalTime.class), any(LocalTime.class),
+                eq(true), eq(true), eq(false)))
+                .thenReturn(0L);
+
+        // When
+        PageResponse<DoctorWithSlotsResponse> result =
+                doctorAvailabilityService.getDoctorsWithAvailableSlots(filter);
+
+        // Then
+        assertThat(result.getContent()).isEmpty();
+        assertThat(result.getTotalElements()).isZero();
+        verify(doctorAvailableSlotRepository, never()).findDoctorRankingPageForDoctors(
+                any(), any(), any(), any(), any(), anyBoolean(), anyBoolean(), anyBoolean(), anyInt(), anyLong());
+        verify(doctorAvailableSlotRepository, never()).countRankedDoctors(
+                any(), any(), any(), any(), anyBoolean(), anyBoolean(), anyBoolean());
+    }
+
+    private DoctorSlotRankingProjection ranking(UUID doctorId, long availableSlotCount) {
+        return new DoctorSlotRankingProjection() {
+            @Override
+            public UUID getDoctorId() {
+                return doctorId;
+            }
+
+            @Override
+            public Long getAvailableSlotCount() {
+                return availableSlotCount;
+            }
+
+            @Override
+            public LocalDateTime getEarliestAvailableAt() {
+                return startDate.atTime(8, 0);
+            }
+        };
+    }
+
     private DoctorResponse createDoctorResponse(UUID doctorId, String fullName, String specialty) {
         return DoctorResponse.builder()
                 .userId(doctorId)
@@ -0,0 +1,231 @@
+package org.project.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import org.mockito.Mock;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.project.dto.cache.DoctorProfileCacheStats;
+import org.project.dto.response.DoctorResponse;
+import org.project.service.impl.DoctorProfileCacheImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+class DoctorProfileCacheImplTest {
+
+    private static final Logger log = LoggerFactory.getLogger(DoctorProfileCacheImplTest.class);
+
+    @Mock
+    private RedisCacheService redisCacheService;
+
+    @Mock
+    private UserProfileClientService userProfileClientService;
+
+    private DoctorProfileCacheImpl doctorProfileCache;
+
+    @BeforeEach
+    void setUp() {
+        doctorProfileCache = createCache(5000, 60_000L);
+
+        // Redis trống: mget trả về null cho mọi key
+        lenient().when(redisCacheService.mget(anyList())).thenAnswer(invocation -> {
+            List<String> keys = invocation.getArgument(0);
+            List<Object> values = new ArrayList<>();
+            keys.forEach(key -> values.add(null));
+            return values;
+        });
+        // userprofile-service trả về mọi bác sĩ được hỏi
+        lenient().when(userProfileClientService.getDoctorsByIds(anyCollection()))
+                .thenAnswer(invocation -> profilesFor(invocation.getArgument(0)));
+    }
+
+    @Test
+    void getAll_WithColdCache_ShouldFetchWholePageInOneBulkRequest() {
+        // Given
+        List<UUID> doctorIds = randomIds(20);
+
+        // When
+        Map<UUID, DoctorResponse> result = doctorProfileCache.getAll(doctorIds);
+
+        // Then
+        assertThat(result).hasSize(20).containsKeys(doctorIds.toArray(new UUID[0]));
+        verify(redisCacheService, times(1)).mget(anyList());
+        verify(userProfileClientService, times(1)).getDoctorsByIds(anyCollection());
+
+        DoctorProfileCacheStats stats = doctorProfileCache.getStats();
+        assertThat(stats.getMisses()).isEqualTo(20);
+        assertThat(stats.getOriginCalls()).isEqualTo(1);
+        assertThat(stats.getOriginDoctors()).isEqualTo(20);
+    }
+
+    @Test
+    void getAll_AfterLoad_ShouldServeFromLocalCache() {
+        // Given
+        List<UUID> doctorIds = randomIds(5);
+        doctorProfileCache.getAll(doctorIds);
+
+        // When
+        Map<UUID, DoctorResponse> result = doctorProfileCache.getAll(doctorIds);
+
+        // Then
+        assertThat(result).hasSize(5);
+        verify(redisCacheService, times(1)).mget(anyList());
+        verify(userProfileClientService, times(1)).getDoctorsByIds(anyCollection());
+        assertThat(doctorProfileCache.getStats().getLocalHits()).isEqualTo(5);
+        assertThat(doctorProfileCache.getStats().getHitRatio()).isEqualTo(0.5);
+    }
+
+    @Test
+    void getAll_WithRedisHit_ShouldNotCallUserProfileService() {
+        // Given
+        UUID doctorId = UUID.randomUUID();
+        DoctorResponse cached = doctor(doctorId);
+        when(redisCacheService.mget(List.of("doctor:profile:" + doctorId))).thenReturn(List.of(cached));
+
+        // When
+        DoctorResponse first = doctorProfileCache.get(doctorId);
+        DoctorResponse second = doctorProfileCache.get(doctorId);
+
+        // Then
+        assertThat(first).isSameAs(cached);
+        assertThat(second).isSameAs(cached);
+        verify(userProfileClientService, never()).getDoctorsByIds(anyCollection());
+        DoctorProfileCacheStats stats = doctorProfileCache.getStats();
+        assertThat(stats.getRedisHits()).isEqualTo(1);
+        assertThat(stats.getLocalHits()).isEqualTo(1);
+    }
+
+    @Test
+    void getAll_WithConcurrentMisses_ShouldFetchEachDoctorOnce() throws Exception {
+        // Given: userprofile-service chậm 100ms, 32 request cùng tìm một trang bác sĩ chưa có trong cache
+        List<UUID> doctorIds = randomIds(10);
+        when(userProfileClientService.getDoctorsByIds(anyCollection())).thenAnswer(invocation -> {
+            Thread.sleep(100);
+            return profilesFor(invocation.getArgument(0));
+        });
+        int callers = 32;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // When
+        List<Future<Map<UUID, DoctorResponse>>> futures = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                return doctorProfileCache.getAll(doctorIds);
+            }));
+        }
+        start.countDown();
+        for (Future<Map<UUID, DoctorResponse>> future : futures) {
+            assertThat(future.get(5, TimeUnit.SECONDS)).hasSize(10);
+        }
+        pool.shutdown();
+
+        // Then: mỗi bác sĩ chỉ được lấy từ userprofile-service đúng một lần, dù các request chia nhau nhận gọi
+        DoctorProfileCacheStats stats = doctorProfileCache.getStats();
+        log.info("Coalescing: {} request, {} lời gọi userprofile ({} bác sĩ), {} lần chờ chung, hit ratio {}",
+                callers, stats.getOriginCalls(), stats.getOriginDoctors(), stats.getCoalescedWaits(),
+                String.format("%.2f", stats.getHitRatio()));
+        assertThat(stats.getOriginDoctors()).isEqualTo(10);
+        assertThat(stats.getOriginCalls()).isLessThan(callers);
+    }
+
+    @Test
+    void getAll_WhenUserProfileServiceFails_ShouldReturnEmptyAndRetryLater() {
+        // Given
+        UUID doctorId = UUID.randomUUID();
+        when(userProfileClientService.getDoctorsByIds(anyCollection()))
+                .thenThrow(new RuntimeException("userprofile-service down"))
+                .thenAnswer(invocation -> profilesFor(invocation.getArgument(0)));
+
+        // When
+        DoctorResponse failed = doctorProfileCache.get(doctorId);
+        DoctorResponse recovered = doctorProfileCache.get(doctorId);
+
+        // Then
+        assertThat(failed).isNull();
+        assertThat(recovered).isNotNull();
+        verify(userProfileClientService, times(2)).getDoctorsByIds(anyCollection());
+    }
+
+    @Test
+    void localCache_ShouldEvictLeastRecentlyUsedBeyondMaxSize() {
+        // Given
+        doctorProfileCache = createCache(2, 60_000L);
+        List<UUID> doctorIds = randomIds(3);
+
+        // When
+        doctorIds.forEach(doctorProfileCache::get);
+        doctorProfileCache.get(doctorIds.get(0));
+
+        // Then: doctor đầu tiên bị đẩy ra và phải đọc lại từ Redis/userprofile
+        assertThat(doctorProfileCache.getStats().getLocalSize()).isEqualTo(2);
+        verify(userProfileClientService, times(4)).getDoctorsByIds(anyCollection());
+    }
+
+    @Test
+    void localCache_ShouldExpireEntriesAfterTtl() throws InterruptedException {
+        // Given
+        doctorProfileCache = createCache(100, 50L);
+        UUID doctorId = UUID.randomUUID();
+        doctorProfileCache.get(doctorId);
+
+        // When
+        Thread.sleep(80);
+        doctorProfileCache.get(doctorId);
+
+        // Then
+        verify(redisCacheService, times(2)).mget(anyList());
+        assertThat(doctorProfileCache.getStats().getLocalHits()).isZero();
+    }
+
+    private DoctorProfileCacheImpl createCache(int localMaxSize, long localTtlMs) {
+        DoctorProfileCacheImpl cache = new DoctorProfileCacheImpl(redisCacheService, userProfileClientService);
+        ReflectionTestUtils.setField(cache, "localMaxSize", localMaxSize);
+        ReflectionTestUtils.setField(cache, "localTtlMs", localTtlMs);
+        ReflectionTestUtils.setField(cache, "redisTtlSeconds", 3600L);
+        ReflectionTestUtils.setField(cache, "originBatchSize", 100);
+        ReflectionTestUtils.setField(cache, "waitTimeoutMs", 5000L);
+        cache.init();
+        return cache;
+    }
+
+    private static List<DoctorResponse> profilesFor(Collection<UUID> doctorIds) {
+        return doctorIds.stream().map(DoctorProfileCacheImplTest::doctor).collect(Collectors.toList());
+    }
+
+    private static DoctorResponse doctor(UUID doctorId) {
+        return DoctorResponse.builder()
+                .userId(doctorId)
+                .fullName("BS. " + doctorId.toString().substring(0, 8))
+                .specialtyName("Tim mạch")
+                .build();
+    }
+
+    private static List<UUID> randomIds(int count) {
+        return IntStream.range(0, count).mapToObj(i -> UUID.randomUUID()).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,359 @@
+package org.project.service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.project.config.CacheCodecProperties;
+import org.project.dto.cache.AvailabilityCacheBatch;
+import org.project.dto.cache.SlotStatusChange;
+import org.project.dto.cache.TimeSlot;
+import org.project.service.impl.DoctorSlotRedisCacheImpl;
+import org.project.util.AvailabilityBinaryCodec;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+@ExtendWith(MockitoExtension.class)
+class DoctorSlotRedisCacheImplTest {
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private RedisCacheService redisCacheService;
+
+    @Spy
+    private CacheCodecProperties codecProperties = new CacheCodecProperties();
+
+    @InjectMocks
+    private DoctorSlotRedisCacheImpl doctorSlotRedisCache;
+
+    private UUID doctorId1;
+    private UUID doctorId2;
+    private List<LocalDate> dates;
+
+    @BeforeEach
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void setUp() {
+        doctorId1 = UUID.randomUUID();
+        doctorId2 = UUID.randomUUID();
+        LocalDate today = LocalDate.now();
+        dates = List.of(today, today.plusDays(1), today.plusDays(2));
+
+        lenient().when(redisTemplate.getKeySerializer()).thenReturn((RedisSerializer) RedisSerializer.string());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGetDoctorAvailabilityBatch_ShouldMgetCompactThenPipelineOnlyJsonMisses() {
+        // Given: 2 bác sĩ x 3 ngày; doctor1 ngày 1 lưu dạng compact, các ngày còn lại là JSON hoặc miss
+        List<byte[]> compactPayloads = new ArrayList<>();
+        compactPayloads.add(AvailabilityBinaryCodec.encode(compactSlots(2), System.currentTimeMillis(), null));
+        for (int i = 1; i < 6; i++) {
+            compactPayloads.add(null);
+        }
+        when(redisTemplate.execute(any(RedisCallback.class))).thenReturn(compactPayloads);
+
+        // Pipeline HGETALL chỉ chứa 5 key không có bản compact; doctor2 miss ngày thứ 2 và thứ 3
+        List<Object> jsonResults = new ArrayList<>();
+        jsonResults.add(cachedDay(3));
+        jsonResults.add(cachedDay(1));
+        jsonResults.add(cachedDay(4));
+        jsonResults.add(Collections.emptyMap());
+        jsonResults.add(Collections.emptyMap());
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenReturn(jsonResults);
+
+        // When
+        AvailabilityCacheBatch batch = doctorSlotRedisCache
+                .getDoctorAvailabilityBatch(List.of(doctorId1, doctorId2), dates);
+
+        // Then
+        verify(redisTemplate, times(1)).execute(any(RedisCallback.class));
+        verify(redisTemplate, times(1)).executePipelined(any(RedisCallback.class));
+        verify(redisTemplate, never()).opsForHash();
+
+        assertThat(batch.getHits(doctorId1)).hasSize(3);
+        assertThat(batch.getHits(doctorId1).get(dates.get(0)).getSlots()).hasSize(2);
+        assertThat(batch.getHits(doctorId1).get(dates.get(1)).getSlots()).hasSize(3);
+        assertThat(batch.getMissingDates(doctorId1)).isEmpty();
+
+        assertThat(batch.getHits(doctorId2)).containsOnlyKeys(dates.get(0));
+        assertThat(batch.getMissingDates(doctorId2)).containsExactly(dates.get(1), dates.get(2));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGetDoctorAvailabilityBatch_WhenAllCompact_ShouldUseSingleMget() {
+        // Given
+        List<byte[]> compactPayloads = new ArrayList<>();
+        for (int i = 0; i < dates.size(); i++) {
+            compactPayloads.add(AvailabilityBinaryCodec.encode(compactSlots(1), System.currentTimeMillis(), null));
+        }
+        when(redisTemplate.execute(any(RedisCallback.class))).thenReturn(compactPayloads);
+
+        // When
+        AvailabilityCacheBatch batch = doctorSlotRedisCache.getDoctorAvailabilityBatch(List.of(doctorId1), dates);
+
+        // Then
+        assertThat(batch.getHits(doctorId1)).hasSize(3);
+        assertThat(batch.getMissingDates(doctorId1)).isEmpty();
+        verify(redisTemplate, never()).executePipelined(any(RedisCallback.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGetDoctorAvailabilityBatch_WhenRedisFails_ShouldReportAllDatesAsMissing() {
+        when(redisTemplate.execute(any(RedisCallback.class)))
+                .thenThrow(new RuntimeException("Redis down"));
+
+        AvailabilityCacheBatch batch = doctorSlotRedisCache
+                .getDoctorAvailabilityBatch(List.of(doctorId1), dates);
+
+        assertThat(batch.getHits(doctorId1)).isEmpty();
+        assertThat(batch.getMissingDates(doctorId1)).containsExactlyElementsOf(dates);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testApplySlotChange_ShouldIgnoreStaleVersionAndApplyNewerOne() {
+        // Given: slot trong cache đang ở version 5
+        UUID slotId = UUID.randomUUID();
+        LocalDate date = dates.get(0);
+        String key = "doctor:availability:" + doctorId1 + ":" + date;
+        TimeSlot cached = TimeSlot.builder()
+                .slotId(slotId)
+                .startTime(LocalTime.of(8, 0))
+                .endTime(LocalTime.of(9, 0))
+                .isAvailable(true)
+                .version(5L)
+                .build();
+
+        HashOperations<String, Object, Object> hashOps = runSessionsOn();
+        when(hashOps.multiGet(eq(key), any(Collection.class))).thenReturn(List.of(cached));
+
+        // When: event cũ (redelivery) rồi event mới
+        boolean staleApplied = doctorSlotRedisCache.applySlotChange(doctorId1, date, slotId, false, 4L);
+        boolean newerApplied = doctorSlotRedisCache.applySlotChange(doctorId1, date, slotId, false, 6L);
+
+        // Then
+        assertThat(staleApplied).isFalse();
+        assertThat(newerApplied).isTrue();
+        assertThat(cached.isAvailable()).isFalse();
+        assertThat(cached.getVersion()).isEqualTo(6L);
+        verify(hashOps, times(1)).putAll(key, Map.of("slot:" + slotId, cached));
+        verify(redisTemplate, times(1)).multi();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testApplySlotChanges_ShouldUseOneReadAndOneWriteForWholeDay() {
+        // Given: ngày có 2 slot trong cache (version 5), batch gồm 1 event mới, 1 event cũ và 1 slot không có trong cache
+        LocalDate date = dates.get(0);
+        String key = "doctor:availability:" + doctorId1 + ":" + date;
+        TimeSlot fresh = cachedSlot(5L);
+        TimeSlot stale = cachedSlot(5L);
+        UUID missingSlotId = UUID.randomUUID();
+
+        List<SlotStatusChange> changes = List.of(
+                SlotStatusChange.builder().slotId(fresh.getSlotId()).available(false).version(6L).build(),
+                SlotStatusChange.builder().slotId(stale.getSlotId()).available(false).version(4L).build(),
+                SlotStatusChange.builder().slotId(missingSlotId).available(false).version(1L).build());
+
+        HashOperations<String, Object, Object> hashOps = runSessionsOn();
+        when(hashOps.multiGet(any(), any(Collection.class))).thenReturn(Arrays.asList(fresh, stale, null));
+
+        // When
+        int applied = doctorSlotRedisCache.applySlotChanges(doctorId1, date, changes);
+
+        // Then
+        assertThat(applied).isEqualTo(1);
+        assertThat(fresh.isAvailable()).isFalse();
+        assertThat(stale.isAvailable()).isTrue();
+        verify(hashOps, times(1)).multiGet(any(), any(Collection.class));
+        verify(hashOps, times(1)).putAll(key, Map.of("slot:" + fresh.getSlotId(), fresh));
+        verify(hashOps, never()).put(any(), any(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testApplySlotChanges_WhenKeyChangesBeforeExec_ShouldRereadAndRetry() {
+        // Given: lần EXEC đầu bị hủy vì node khác ghi vào key đang WATCH
+        LocalDate date = dates.get(0);
+        String key = "doctor:availability:" + doctorId1 + ":" + date;
+        TimeSlot firstRead = cachedSlot(5L);
+        TimeSlot secondRead = cachedSlot(5L);
+        secondRead.setSlotId(firstRead.getSlotId());
+
+        HashOperations<String, Object, Object> hashOps = runSessionsOn();
+        when(hashOps.multiGet(eq(key), any(Collection.class)))
+                .thenReturn(List.of(firstRead))
+                .thenReturn(List.of(secondRead));
+        when(redisTemplate.exec())
+                .thenReturn(null)
+                .thenReturn(List.of());
+
+        List<SlotStatusChange> changes = List.of(
+                SlotStatusChange.builder().slotId(firstRead.getSlotId()).available(false).version(6L).build());
+
+        // When
+        int applied = doctorSlotRedisCache.applySlotChanges(doctorId1, date, changes);
+
+        // Then: ghi lại dựa trên lần đọc mới nhất
+        assertThat(applied).isEqualTo(1);
+        verify(redisTemplate, times(2)).watch(List.of(key, key + ":bin"));
+        verify(hashOps, times(2)).multiGet(eq(key), any(Collection.class));
+        verify(hashOps).putAll(key, Map.of("slot:" + secondRead.getSlotId(), secondRead));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testApplySlotChanges_WhenExecReturnsNoResults_ShouldCountChangeWithoutRetry() {
+        // Given: EXEC thành công nhưng không có kết quả (HMSET chỉ trả reply trạng thái)
+        LocalDate date = dates.get(0);
+        String key = "doctor:availability:" + doctorId1 + ":" + date;
+        TimeSlot cached = cachedSlot(5L);
+
+        HashOperations<String, Object, Object> hashOps = runSessionsOn();
+        when(hashOps.multiGet(eq(key), any(Collection.class))).thenReturn(List.of(cached));
+
+        List<SlotStatusChange> changes = List.of(
+                SlotStatusChange.builder().slotId(cached.getSlotId()).available(false).version(6L).build());
+
+        // When
+        int applied = doctorSlotRedisCache.applySlotChanges(doctorId1, date, changes);
+
+        // Then: không coi là bị hủy nên không WATCH lại
+        assertThat(applied).isEqualTo(1);
+        verify(redisTemplate, times(1)).watch(List.of(key, key + ":bin"));
+        verify(redisTemplate, times(1)).exec();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRemoveDaysBefore_ShouldUnlinkAtMostBatchSizeKeysPerCommand() {
+        // Given: 7 ngày đã qua trong index, batchSize = 4 key
+        int batchSize = 4;
+        LocalDate today = LocalDate.now();
+        List<Object> index = new ArrayList<>();
+        for (int i = 1; i <= 7; i++) {
+            index.add("doctor:availability:" + doctorId1 + ":" + today.minusDays(i));
+        }
+
+        ZSetOperations<String, Object> zSetOps = mock(ZSetOperations.class);
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOps);
+        when(zSetOps.rangeByScore(anyString(), anyDouble(), anyDouble(), anyLong(), anyLong()))
+                .thenAnswer(invocation -> {
+                    long count = invocation.getArgument(4);
+                    return new LinkedHashSet<>(index.subList(0, (int) Math.min(count, index.size())));
+                });
+        when(zSetOps.remove(anyString(), any(Object[].class))).thenAnswer(invocation -> {
+            Object[] arguments = invocation.getArguments();
+            List<Object> members = Arrays.asList(Arrays.copyOfRange(arguments, 1, arguments.length));
+            index.removeAll(members);
+            return (long) members.size();
+        });
+        List<Integer> unlinkedPerCommand = new ArrayList<>();
+        when(redisTemplate.unlink(any(Collection.class))).thenAnswer(invocation -> {
+            Collection<String> keys = invocation.getArgument(0);
+            unlinkedPerCommand.add(keys.size());
+            return (long) keys.size();
+        });
+
+        // When
+        long removed = doctorSlotRedisCache.removeDaysBefore(today, batchSize);
+
+        // Then: mỗi ngày có key JSON và key compact, mỗi lệnh UNLINK không quá batchSize key
+        assertThat(removed).isEqualTo(7);
+        assertThat(index).isEmpty();
+        assertThat(unlinkedPerCommand).containsExactly(4, 4, 4, 2);
+        verify(redisTemplate, never()).keys(anyString());
+    }
+
+    /**
+     * Chạy SessionCallback trên chính redisTemplate mock, EXEC mặc định thành công
+     * (danh sách rỗng như khi chạy thật: reply trạng thái của HMSET bị bỏ)
+     */
+    @SuppressWarnings("unchecked")
+    private HashOperations<String, Object, Object> runSessionsOn() {
+        HashOperations<String, Object, Object> hashOps = mock(HashOperations.class);
+        when(redisTemplate.opsForHash()).thenReturn(hashOps);
+        when(redisTemplate.execute(any(SessionCallback.class)))
+                .thenAnswer(invocation -> invocation.<SessionCallback<?>>getArgument(0).execute(redisTemplate));
+        lenient().when(redisTemplate.exec()).thenReturn(List.of());
+        return hashOps;
+    }
+
+    private List<TimeSlot> compactSlots(int slotCount) {
+        List<TimeSlot> slots = new ArrayList<>();
+        for (int i = 0; i < slotCount; i++) {
+            slots.add(TimeSlot.builder()
+                    .slotId(UUID.randomUUID())
+                    .startTime(LocalTime.of(8 + i, 0))
+                    .endTime(LocalTime.of(9 + i, 0))
+                    .isAvailable(true)
+                    .version(1L)
+                    .build());
+        }
+        return slots;
+    }
+
+    private TimeSlot cachedSlot(long version) {
+        return TimeSlot.builder()
+                .slotId(UUID.randomUUID())
+                .startTime(LocalTime.of(8, 0))
+                .endTime(LocalTime.of(9, 0))
+                .isAvailable(true)
+                .version(version)
+                .build();
+    }
+
+    private Map<Object, Object> cachedDay(int slotCount) {
+        Map<Object, Object> hash = new HashMap<>();
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("totalSlots", slotCount);
+        metadata.put("cachedAt", System.currentTimeMillis());
+        hash.put("metadata", metadata);
+
+        for (int i = 0; i < slotCount; i++) {
+            UUID slotId = UUID.randomUUID();
+            hash.put("slot:" + slotId, TimeSlot.builder()
+                    .slotId(slotId)
+                    .startTime(LocalTime.of(8 + i, 0))
+                    .endTime(LocalTime.of(9 + i, 0))
+                    .isAvailable(true)
+                    .build());
+        }
+        return hash;
+    }
+}
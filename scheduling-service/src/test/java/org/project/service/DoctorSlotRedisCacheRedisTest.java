@@ -0,0 +1,192 @@
+package org.project.service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.project.config.CacheCodecProperties;
+import org.project.dto.cache.DoctorAvailabilityCacheData;
+import org.project.dto.cache.SlotStatusChange;
+import org.project.dto.cache.TimeSlot;
+import org.project.enums.CacheFormat;
+import org.project.service.impl.DoctorSlotRedisCacheImpl;
+import static org.project.support.RedisTestSupport.bytes;
+import org.project.support.RedisTestSupport;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Chạy DoctorSlotRedisCacheImpl trên Redis thật (Testcontainers), bỏ qua khi máy không có Docker
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class DoctorSlotRedisCacheRedisTest {
+
+    @Container
+    private static final GenericContainer<?> REDIS = RedisTestSupport.redisContainer();
+
+    private static final String DATE_INDEX_KEY = "doctor:availability-index:by-date";
+    // Ngân sách độ trễ cho một lệnh Redis (micro giây), đo bằng SLOWLOG phía server
+    private static final long COMMAND_LATENCY_BUDGET_MICROS = 10_000;
+
+    private static RedisTemplate<String, Object> redisTemplate;
+
+    private CacheCodecProperties codecProperties;
+    private DoctorSlotRedisCacheImpl doctorSlotRedisCache;
+    private UUID doctorId;
+    private LocalDate date;
+
+    @BeforeAll
+    static void connect() {
+        redisTemplate = RedisTestSupport.connect(REDIS);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        RedisTestSupport.disconnect(redisTemplate);
+    }
+
+    @BeforeEach
+    void setUp() {
+        RedisTestSupport.flushAll(redisTemplate);
+        codecProperties = new CacheCodecProperties();
+        doctorSlotRedisCache = new DoctorSlotRedisCacheImpl(
+                redisTemplate, new RedisCacheService(redisTemplate), codecProperties);
+        doctorId = UUID.randomUUID();
+        date = LocalDate.now().plusDays(1);
+    }
+
+    @Test
+    void testApplySlotChanges_OnJsonHash_ShouldCountCommittedExec() {
+        // Given: ngày được cache dạng JSON hash, slot đang ở version 5
+        TimeSlot slot = slot(5L);
+        doctorSlotRedisCache.cacheDoctorAvailability(doctorId, date, List.of(slot));
+
+        // When: MULTI/EXEC với HMSET (EXEC trả về danh sách rỗng)
+        int applied = doctorSlotRedisCache.applySlotChanges(doctorId, date, List.of(change(slot, 6L)));
+
+        // Then
+        assertThat(applied).isEqualTo(1);
+        assertCachedSlot(slot.getSlotId(), false, 6L);
+    }
+
+    @Test
+    void testApplySlotChanges_OnCompactPayload_ShouldCountCommittedExec() {
+        // Given: ngày được cache dạng compact
+        codecProperties.setFormats(Map.of("doctor:availability:", CacheFormat.COMPACT));
+        TimeSlot slot = slot(5L);
+        doctorSlotRedisCache.cacheDoctorAvailability(doctorId, date, List.of(slot));
+
+        // When
+        int applied = doctorSlotRedisCache.applySlotChanges(doctorId, date, List.of(change(slot, 6L)));
+
+        // Then
+        assertThat(applied).isEqualTo(1);
+        assertCachedSlot(slot.getSlotId(), false, 6L);
+    }
+
+    @Test
+    void testApplySlotChanges_WithStaleVersion_ShouldLeaveCacheUnchanged() {
+        // Given
+        TimeSlot slot = slot(5L);
+        doctorSlotRedisCache.cacheDoctorAvailability(doctorId, date, List.of(slot));
+
+        // When: event cũ hơn bản trong cache
+        int applied = doctorSlotRedisCache.applySlotChanges(doctorId, date, List.of(change(slot, 4L)));
+
+        // Then
+        assertThat(applied).isZero();
+        assertCachedSlot(slot.getSlotId(), true, 5L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRemoveDaysBefore_With100kKeys_ShouldKeepEveryCommandWithinLatencyBudget() {
+        // Given: 1.000 bác sĩ x 50 ngày, mỗi ngày có key JSON và key compact = 100.000 key,
+        // 35 ngày đã qua (70.000 key cần xóa) và 15 ngày tới
+        LocalDate today = LocalDate.now();
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        byte[] payload = new byte[64];
+        List<String> cacheKeys = new ArrayList<>();
+        for (int doctor = 0; doctor < 1_000; doctor++) {
+            UUID id = UUID.randomUUID();
+            for (int day = -35; day < 15; day++) {
+                cacheKeys.add("doctor:availability:" + id + ":" + today.plusDays(day));
+            }
+        }
+        for (int from = 0; from < cacheKeys.size(); from += 5_000) {
+            List<String> chunk = cacheKeys.subList(from, Math.min(from + 5_000, cacheKeys.size()));
+            redisTemplate.executePipelined((RedisCallback<Void>) connection -> {
+                for (String cacheKey : chunk) {
+                    connection.stringCommands().set(bytes(cacheKey), payload);
+                    connection.stringCommands().set(bytes(cacheKey + ":bin"), payload);
+                    connection.zSetCommands().zAdd(bytes(DATE_INDEX_KEY),
+                            LocalDate.parse(cacheKey.substring(cacheKey.lastIndexOf(':') + 1)).toEpochDay(),
+                            valueSerializer.serialize(cacheKey));
+                }
+                return null;
+            });
+        }
+        assertThat(dbSize()).isEqualTo(100_001);
+
+        redisTemplate.execute((RedisCallback<Void>) connection -> {
+            connection.serverCommands().setConfig("slowlog-log-slower-than",
+                    String.valueOf(COMMAND_LATENCY_BUDGET_MICROS));
+            connection.execute("SLOWLOG", bytes("RESET"));
+            return null;
+        });
+
+        // When
+        long removed = doctorSlotRedisCache.removeDaysBefore(today, 500);
+
+        // Then: chỉ các ngày đã qua bị xóa, không lệnh nào vượt ngân sách độ trễ
+        Long slowCommands = redisTemplate.execute((RedisCallback<Long>) connection ->
+                (Long) connection.execute("SLOWLOG", bytes("LEN")));
+        assertThat(removed).isEqualTo(35_000);
+        assertThat(dbSize()).isEqualTo(30_001);
+        assertThat(slowCommands)
+                .as("số lệnh Redis chạy lâu hơn %d µs", COMMAND_LATENCY_BUDGET_MICROS)
+                .isZero();
+    }
+
+    private void assertCachedSlot(UUID slotId, boolean available, long version) {
+        DoctorAvailabilityCacheData cached = doctorSlotRedisCache.getDoctorAvailability(doctorId, date);
+        assertThat(cached).isNotNull();
+        assertThat(cached.getSlots())
+                .singleElement()
+                .satisfies(slot -> {
+                    assertThat(slot.getSlotId()).isEqualTo(slotId);
+                    assertThat(slot.isAvailable()).isEqualTo(available);
+                    assertThat(slot.getVersion()).isEqualTo(version);
+                });
+    }
+
+    private static long dbSize() {
+        return redisTemplate.execute((RedisCallback<Long>) connection -> connection.serverCommands().dbSize());
+    }
+
+    private static TimeSlot slot(long version) {
+        return TimeSlot.builder()
+                .slotId(UUID.randomUUID())
+                .startTime(LocalTime.of(8, 0))
+                .endTime(LocalTime.of(9, 0))
+                .isAvailable(true)
+                .version(version)
+                .build();
+    }
+
+    private static SlotStatusChange change(TimeSlot slot, long version) {
+        return SlotStatusChange.builder().slotId(slot.getSlotId()).available(false).version(version).build();
+    }
+}
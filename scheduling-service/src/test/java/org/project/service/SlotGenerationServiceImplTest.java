@@ -0,0 +1,320 @@
+package org.project.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.Mock;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.project.dto.cache.SlotGenerationChunkResult;
+import org.project.dto.cache.SlotGenerationJob;
+import org.project.dto.request.BulkSlotGenerationRequest;
+import org.project.dto.response.BulkSlotGenerationResponse;
+import org.project.enums.SlotGenerationJobStatus;
+import org.project.event.DoctorSlotsRegeneratedEvent;
+import org.project.exception.CustomException;
+import org.project.exception.ErrorCode;
+import org.project.repository.DoctorAvailableSlotRepository;
+import org.project.repository.SlotGenerationRepository;
+import org.project.service.impl.SlotGenerationServiceImpl;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@ExtendWith(MockitoExtension.class)
+class SlotGenerationServiceImplTest {
+
+    @Mock
+    private SlotGenerationValidationService validationService;
+
+    @Mock
+    private SlotGenerationRepository slotGenerationRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private SlotGenerationJobStore jobStore;
+
+    @Mock
+    private DoctorAvailableSlotRepository slotRepository;
+
+    @Mock
+    private DoctorSlotRedisCache doctorSlotRedisCache;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private SlotGenerationServiceImpl slotGenerationService;
+    private LocalDate startDate;
+    private LocalDate endDate;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        slotGenerationService = new SlotGenerationServiceImpl(validationService, slotGenerationRepository,
+                eventPublisher, jobStore, slotRepository, doctorSlotRedisCache, transactionTemplate);
+        ReflectionTestUtils.setField(slotGenerationService, "chunkSize", 2);
+        ReflectionTestUtils.setField(slotGenerationService, "workerThreads", 3);
+        ReflectionTestUtils.setField(slotGenerationService, "daysToCache", 14);
+        slotGenerationService.init();
+
+        startDate = LocalDate.now().plusDays(1);
+        endDate = LocalDate.now().plusDays(7);
+
+        // Transaction giả: chạy callback ngay trên thread gọi
+        lenient().when(transactionTemplate.execute(any(TransactionCallback.class)))
+                .thenAnswer(invocation -> ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+        lenient().when(jobStore.findChunkResults(anyString())).thenReturn(Map.of());
+        lenient().when(jobStore.tryAcquireLease(anyString(), anyString())).thenReturn(true);
+        lenient().when(slotGenerationRepository.countAvailableSlots(any(Collection.class), eq(startDate), eq(endDate)))
+                .thenAnswer(invocation -> {
+                    Collection<UUID> doctorIds = invocation.getArgument(0);
+                    return doctorIds.stream().collect(Collectors.toMap(id -> id, id -> 10L));
+                });
+    }
+
+    @AfterEach
+    void tearDown() {
+        slotGenerationService.destroy();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGenerateSlotsForMultipleDoctors_ShouldCommitEachChunkAndKeepDoctorOrder() {
+        // Given: 5 bác sĩ, chunk 2 bác sĩ => 3 chunk
+        List<UUID> doctorIds = doctors(5);
+
+        // When
+        BulkSlotGenerationResponse response = slotGenerationService.generateSlotsForMultipleDoctors(request(doctorIds));
+
+        // Then: request trả về ngay, job chạy tiếp trên worker pool
+        assertThat(response.getStatus()).isEqualTo(SlotGenerationJobStatus.RUNNING);
+        assertThat(response.getTotalChunks()).isEqualTo(3);
+
+        // mỗi chunk một transaction và một truy vấn đếm
+        verify(jobStore, timeout(5000)).markCompleted(any(SlotGenerationJob.class));
+        verify(transactionTemplate, times(3)).execute(any(TransactionCallback.class));
+        verify(slotGenerationRepository, times(3)).countAvailableSlots(any(Collection.class), eq(startDate), eq(endDate));
+        verify(slotGenerationRepository, never()).countAvailableSlots(any(UUID.class), any(), any());
+        verify(jobStore, timeout(5000)).releaseLease(eq(response.getJobId()), anyString());
+
+        List<BulkSlotGenerationResponse.DoctorSlotResult> results = savedResults(3);
+        assertThat(results).filteredOn(BulkSlotGenerationResponse.DoctorSlotResult::isSuccess).hasSize(5);
+        assertThat(results.stream().mapToInt(BulkSlotGenerationResponse.DoctorSlotResult::getSlotsGenerated).sum())
+                .isEqualTo(50);
+        assertThat(results)
+                .extracting(BulkSlotGenerationResponse.DoctorSlotResult::getDoctorId)
+                .containsExactlyElementsOf(doctorIds);
+    }
+
+    @Test
+    void testGenerateSlotsForMultipleDoctors_WhenOneDoctorFails_ShouldOnlyFailThatDoctor() {
+        // Given: bác sĩ thứ 2 làm lỗi procedure => chunk đầu rollback rồi sinh lại từng bác sĩ
+        List<UUID> doctorIds = doctors(3);
+        doThrow(new RuntimeException("Failed to generate slots"))
+                .when(slotGenerationRepository).generateSlotsForRange(doctorIds.get(1), startDate, endDate);
+
+        // When
+        slotGenerationService.generateSlotsForMultipleDoctors(request(doctorIds));
+
+        // Then
+        verify(jobStore, timeout(5000)).markCompleted(any(SlotGenerationJob.class));
+        List<BulkSlotGenerationResponse.DoctorSlotResult> results = savedResults(2);
+        assertThat(results).filteredOn(BulkSlotGenerationResponse.DoctorSlotResult::isSuccess).hasSize(2);
+        assertThat(results.get(1).isSuccess()).isFalse();
+        assertThat(results.get(1).getErrorMessage()).isEqualTo("Failed to generate slots");
+        assertThat(results.get(0).getSlotsGenerated()).isEqualTo(10);
+    }
+
+    @Test
+    void testGenerateSlotsForMultipleDoctors_WhenLeaseNotAcquired_ShouldNotRunJob() {
+        // Given: Redis không cấp được lease cho job mới
+        when(jobStore.tryAcquireLease(anyString(), anyString())).thenReturn(false);
+
+        // When & Then
+        assertThatThrownBy(() -> slotGenerationService.generateSlotsForMultipleDoctors(request(doctors(3))))
+                .isInstanceOf(CustomException.class);
+        verify(transactionTemplate, never()).execute(any());
+        verify(jobStore, never()).saveChunkResult(anyString(), any(SlotGenerationChunkResult.class));
+    }
+
+    @Test
+    void testGenerateSlotsForMultipleDoctors_WhenLeaseLostBeforeCommit_ShouldRollbackAndStopJob() {
+        // Given: lease còn khi tạo job và khi chunk bắt đầu, nhưng đã bị instance khác giành trước khi commit
+        List<UUID> doctorIds = doctors(2);
+        when(jobStore.tryAcquireLease(anyString(), anyString())).thenReturn(true, true, false);
+
+        // When
+        BulkSlotGenerationResponse response = slotGenerationService.generateSlotsForMultipleDoctors(request(doctorIds));
+
+        // Then: chunk không được ghi nhận, job không hoàn tất, lease được trả lại
+        verify(jobStore, timeout(5000)).releaseLease(eq(response.getJobId()), anyString());
+        verify(jobStore, never()).saveChunkResult(anyString(), any(SlotGenerationChunkResult.class));
+        verify(jobStore, never()).markCompleted(any(SlotGenerationJob.class));
+        verify(eventPublisher, never()).publishEvent(any(DoctorSlotsRegeneratedEvent.class));
+        verify(slotGenerationRepository, times(1)).generateSlotsForRange(doctorIds.get(0), startDate, endDate);
+    }
+
+    @Test
+    void testGenerateSlotsForMultipleDoctors_ShouldWarmCacheAndSkipSlotChangeReload() {
+        // Given
+        List<UUID> doctorIds = doctors(2);
+
+        // When
+        slotGenerationService.generateSlotsForMultipleDoctors(request(doctorIds));
+
+        // Then: một truy vấn slot cho cả chunk, event báo cache đã được nạp
+        verify(jobStore, timeout(5000)).markCompleted(any(SlotGenerationJob.class));
+        verify(slotRepository, times(1)).findSlotsByDoctorsAndDateRange(doctorIds, startDate, endDate);
+        ArgumentCaptor<DoctorSlotsRegeneratedEvent> eventCaptor = ArgumentCaptor.forClass(DoctorSlotsRegeneratedEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(eventCaptor.capture());
+        assertThat(eventCaptor.getAllValues()).allMatch(DoctorSlotsRegeneratedEvent::isCacheWarmed);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testResumePendingJobs_ShouldOnlyRunUnfinishedChunks() {
+        // Given: job 3 chunk, chunk 0 đã commit trước khi instance cũ dừng
+        List<UUID> doctorIds = doctors(5);
+        SlotGenerationJob job = SlotGenerationJob.builder()
+                .jobId("job-1")
+                .doctorIds(doctorIds)
+                .startDate(startDate)
+                .endDate(endDate)
+                .chunkSize(2)
+                .totalChunks(3)
+                .status(SlotGenerationJobStatus.RUNNING)
+                .build();
+        SlotGenerationChunkResult firstChunk = SlotGenerationChunkResult.builder()
+                .chunkIndex(0)
+                .results(List.of(
+                        BulkSlotGenerationResponse.DoctorSlotResult.builder().doctorId(doctorIds.get(0)).success(true).slotsGenerated(10).build(),
+                        BulkSlotGenerationResponse.DoctorSlotResult.builder().doctorId(doctorIds.get(1)).success(true).slotsGenerated(10).build()))
+                .build();
+
+        when(jobStore.findRunningJobIds()).thenReturn(Set.of("job-1"));
+        when(jobStore.tryAcquireLease(eq("job-1"), anyString())).thenReturn(true);
+        when(jobStore.findJob("job-1")).thenReturn(Optional.of(job));
+        when(jobStore.findChunkResults("job-1")).thenReturn(new HashMap<>(Map.of(0, firstChunk)));
+
+        // When
+        int resumed = slotGenerationService.resumePendingJobs();
+
+        // Then
+        assertThat(resumed).isEqualTo(1);
+        verify(jobStore, timeout(5000)).markCompleted(job);
+        verify(jobStore, timeout(5000)).releaseLease(eq("job-1"), anyString());
+        verify(slotGenerationRepository, never()).generateSlotsForRange(doctorIds.get(0), startDate, endDate);
+        verify(slotGenerationRepository, never()).generateSlotsForRange(doctorIds.get(1), startDate, endDate);
+        verify(slotGenerationRepository, times(1)).generateSlotsForRange(doctorIds.get(4), startDate, endDate);
+        verify(transactionTemplate, times(2)).execute(any(TransactionCallback.class));
+    }
+
+    @Test
+    void testResumePendingJobs_WhenStartDateHasPassed_ShouldStillGenerateValidDoctors() {
+        // Given: job được tạo hôm qua, tiếp tục hôm nay nên startDate đã ở quá khứ
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        List<UUID> doctorIds = doctors(2);
+        SlotGenerationJob job = SlotGenerationJob.builder()
+                .jobId("job-3")
+                .doctorIds(doctorIds)
+                .startDate(yesterday)
+                .endDate(endDate)
+                .chunkSize(2)
+                .totalChunks(1)
+                .status(SlotGenerationJobStatus.RUNNING)
+                .build();
+
+        when(jobStore.findRunningJobIds()).thenReturn(Set.of("job-3"));
+        when(jobStore.findJob("job-3")).thenReturn(Optional.of(job));
+
+        // When
+        slotGenerationService.resumePendingJobs();
+
+        // Then: chunk chỉ kiểm tra bác sĩ, không validate lại khoảng ngày
+        verify(jobStore, timeout(5000)).markCompleted(job);
+        verify(validationService, never()).validateDateRange(any(), any());
+        verify(validationService).validateDoctor(doctorIds.get(0));
+        verify(validationService).validateDoctor(doctorIds.get(1));
+        verify(slotGenerationRepository, times(1)).generateSlotsForRange(doctorIds.get(0), yesterday, endDate);
+        verify(slotGenerationRepository, times(1)).generateSlotsForRange(doctorIds.get(1), yesterday, endDate);
+    }
+
+    @Test
+    void testGenerateSlotsForMultipleDoctors_WhenDateRangeInvalid_ShouldNotCreateJob() {
+        // Given
+        doThrow(new CustomException(ErrorCode.INVALID_REQUEST, "Cannot generate slots for past dates"))
+                .when(validationService).validateDateRange(startDate, endDate);
+
+        // When & Then
+        assertThatThrownBy(() -> slotGenerationService.generateSlotsForMultipleDoctors(request(doctors(3))))
+                .isInstanceOf(CustomException.class);
+        verify(jobStore, never()).createJob(any(SlotGenerationJob.class));
+        verify(validationService, never()).validateDoctor(any());
+    }
+
+    @Test
+    void testResumePendingJobs_WhenLeaseHeldByOtherInstance_ShouldSkipJob() {
+        when(jobStore.findRunningJobIds()).thenReturn(Set.of("job-2"));
+        when(jobStore.tryAcquireLease(eq("job-2"), anyString())).thenReturn(false);
+
+        int resumed = slotGenerationService.resumePendingJobs();
+
+        assertThat(resumed).isZero();
+        verify(jobStore, never()).findJob("job-2");
+        verify(slotGenerationRepository, never()).generateSlotsForRange(any(), any(), any());
+    }
+
+    // Kết quả các chunk đã lưu, theo thứ tự chunk
+    private List<BulkSlotGenerationResponse.DoctorSlotResult> savedResults(int chunks) {
+        ArgumentCaptor<SlotGenerationChunkResult> chunkCaptor = ArgumentCaptor.forClass(SlotGenerationChunkResult.class);
+        verify(jobStore, times(chunks)).saveChunkResult(anyString(), chunkCaptor.capture());
+        return chunkCaptor.getAllValues().stream()
+                .sorted(Comparator.comparingInt(SlotGenerationChunkResult::getChunkIndex))
+                .flatMap(chunk -> chunk.getResults().stream())
+                .collect(Collectors.toList());
+    }
+
+    private BulkSlotGenerationRequest request(List<UUID> doctorIds) {
+        return BulkSlotGenerationRequest.builder()
+                .doctorIds(doctorIds)
+                .startDate(startDate)
+                .endDate(endDate)
+                .build();
+    }
+
+    private List<UUID> doctors(int count) {
+        List<UUID> doctorIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            doctorIds.add(UUID.randomUUID());
+        }
+        return doctorIds;
+    }
+}
@@ -0,0 +1,190 @@
+package org.project.service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import org.mockito.Mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.project.dto.request.SlotReservationRequest;
+import org.project.dto.response.SlotReservationResponse;
+import org.project.enums.SlotHoldResult;
+import org.project.model.DoctorAvailableSlot;
+import org.project.repository.DoctorAvailableSlotRepository;
+import org.project.repository.SlotStatusRepository;
+import org.project.service.impl.SlotHoldServiceImpl;
+import org.project.service.impl.SlotStatusServiceImpl;
+import org.project.support.RedisTestSupport;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Chạy các Lua script giữ chỗ của SlotHoldServiceImpl trên Redis thật (Testcontainers),
+ * bỏ qua khi máy không có Docker
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@ExtendWith(MockitoExtension.class)
+class SlotHoldServiceRedisTest {
+
+    @Container
+    private static final GenericContainer<?> REDIS = RedisTestSupport.redisContainer();
+
+    private static RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private SlotStatusRepository slotStatusRepository;
+
+    @Mock
+    private DoctorAvailableSlotRepository slotRepository;
+
+    @Mock
+    private SlotStatusValidationService slotStatusValidationService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private SlotHoldServiceImpl slotHoldService;
+    private UUID slotId;
+
+    @BeforeAll
+    static void connect() {
+        redisTemplate = RedisTestSupport.connect(REDIS);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        RedisTestSupport.disconnect(redisTemplate);
+    }
+
+    @BeforeEach
+    void setUp() {
+        RedisTestSupport.flushAll(redisTemplate);
+        slotHoldService = new SlotHoldServiceImpl(redisTemplate);
+        ReflectionTestUtils.setField(slotHoldService, "enabled", true);
+        ReflectionTestUtils.setField(slotHoldService, "holdTtlMs", 5000L);
+        ReflectionTestUtils.setField(slotHoldService, "reservedTtlMs", 600000L);
+        slotId = UUID.randomUUID();
+    }
+
+    @Test
+    void testTryHold_ShouldFollowHoldThenReservationLifecycle() {
+        // Given: A giữ chỗ trước
+        assertThat(slotHoldService.tryHold(slotId, "A")).isEqualTo(SlotHoldResult.ACQUIRED);
+
+        // When & Then: B bị chặn, A giữ lại được, B không bỏ được hold của A
+        assertThat(slotHoldService.tryHold(slotId, "B")).isEqualTo(SlotHoldResult.HELD_BY_OTHER);
+        assertThat(slotHoldService.tryHold(slotId, "A")).isEqualTo(SlotHoldResult.ACQUIRED);
+        slotHoldService.release(slotId, "B");
+        assertThat(holdValue()).isEqualTo("H:A");
+
+        // When & Then: sau khi DB commit, hold thành reservation và release không xóa được
+        slotHoldService.confirm(slotId, "A");
+        slotHoldService.release(slotId, "A");
+        assertThat(holdValue()).isEqualTo("R:A");
+        assertThat(slotHoldService.tryHold(slotId, "B")).isEqualTo(SlotHoldResult.ALREADY_RESERVED);
+
+        // When & Then: slot mở lại thì người khác giữ chỗ được
+        slotHoldService.clear(slotId);
+        assertThat(slotHoldService.tryHold(slotId, "B")).isEqualTo(SlotHoldResult.ACQUIRED);
+    }
+
+    @Test
+    void testTryHold_ShouldSetHoldAndReservationTtl() {
+        // When
+        slotHoldService.tryHold(slotId, "A");
+        Long holdTtl = redisTemplate.getExpire(holdKey(), TimeUnit.MILLISECONDS);
+        slotHoldService.confirm(slotId, "A");
+        Long reservedTtl = redisTemplate.getExpire(holdKey(), TimeUnit.MILLISECONDS);
+
+        // Then
+        assertThat(holdTtl).isBetween(1L, 5000L);
+        assertThat(reservedTtl).isGreaterThan(5000L).isLessThanOrEqualTo(600000L);
+    }
+
+    @Test
+    void testReserveSlot_With500ConcurrentReservers_ShouldHaveExactlyOneWinner() throws Exception {
+        // Given
+        int reservers = 500;
+        UUID doctorId = UUID.randomUUID();
+        DoctorAvailableSlot slot = DoctorAvailableSlot.builder()
+                .id(slotId)
+                .doctorId(doctorId)
+                .slotDate(LocalDate.now().plusDays(1))
+                .startTime(LocalTime.of(9, 0))
+                .endTime(LocalTime.of(10, 0))
+                .isAvailable(true)
+                .build();
+
+        SlotStatusServiceImpl service = new SlotStatusServiceImpl(
+                slotStatusRepository, slotRepository, slotStatusValidationService, eventPublisher, slotHoldService,
+                entityManager);
+
+        when(slotRepository.findByIdWithLock(slotId)).thenReturn(Optional.of(slot));
+        when(slotRepository.save(any(DoctorAvailableSlot.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+        CountDownLatch startGate = new CountDownLatch(1);
+        List<Future<SlotReservationResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < reservers; i++) {
+            SlotReservationRequest request = SlotReservationRequest.builder()
+                    .slotId(slotId)
+                    .doctorId(doctorId)
+                    .patientId(UUID.randomUUID())
+                    .build();
+            futures.add(executor.submit(() -> {
+                startGate.await();
+                return service.reserveSlot(request);
+            }));
+        }
+
+        // When
+        startGate.countDown();
+        List<SlotReservationResponse> responses = new ArrayList<>();
+        for (Future<SlotReservationResponse> future : futures) {
+            responses.add(future.get(10, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        // Then: chỉ một request vào DB và thắng, hold đã thành reservation
+        assertThat(responses).filteredOn(SlotReservationResponse::isSuccess).hasSize(1);
+        assertThat(responses).filteredOn(response -> !response.isSuccess()).hasSize(reservers - 1);
+        verify(slotRepository, times(1)).findByIdWithLock(slotId);
+        verify(slotRepository, times(1)).save(any(DoctorAvailableSlot.class));
+        assertThat(holdValue()).startsWith("R:");
+    }
+
+    private String holdValue() {
+        return RedisTestSupport.getRaw(redisTemplate, holdKey());
+    }
+
+    private String holdKey() {
+        return "slot:hold:" + slotId;
+    }
+}
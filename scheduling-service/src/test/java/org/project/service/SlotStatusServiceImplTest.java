@@ -1,23 +1,31 @@
 package org.project.service;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
+import jakarta.persistence.EntityManager;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
 import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -27,11 +35,15 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.project.dto.request.BatchSlotStatusRequest;
 import org.project.dto.response.SlotDetailsResponse;
 import org.project.dto.response.SlotStatusUpdateResponse;
+import org.project.event.SlotsStatusChangedEvent;
 import org.project.exception.CustomException;
+import org.project.exception.ErrorCode;
 import org.project.model.DoctorAvailableSlot;
 import org.project.repository.DoctorAvailableSlotRepository;
+import org.project.repository.SlotStatusProjection;
 import org.project.repository.SlotStatusRepository;
 import org.project.service.impl.SlotStatusServiceImpl;
+import org.springframework.context.ApplicationEventPublisher;
 
 @ExtendWith(MockitoExtension.class)
 public class SlotStatusServiceImplTest {
@@ -45,6 +57,15 @@ public class SlotStatusServiceImplTest {
     @Mock
     private SlotStatusValidationService slotStatusValidationService;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private SlotHoldService slotHoldService;
+
+    @Mock
+    private EntityManager entityManager;
+
     @InjectMocks
     private SlotStatusServiceImpl slotStatusService;
 
@@ -274,16 +295,7 @@ public class SlotStatusServiceImplTest {
         DoctorAvailableSlot slot1 = createSlot(slotId1, false);
         DoctorAvailableSlot slot2 = createSlot(slotId2, true);
         DoctorAvailableSlot slot3 = createSlot(slotId3, false);
-        
-        when(slotStatusValidationService.findAndValidateSlotForUpdate(slotId1, true))
-            .thenReturn(slot1);
-        when(slotStatusValidationService.findAndValidateSlotForUpdate(slotId2, false))
-            .thenReturn(slot2);
-        when(slotStatusValidationService.findAndValidateSlotForUpdate(slotId3, true))
-            .thenReturn(slot3);
-        
-        when(slotStatusRepository.save(any(DoctorAvailableSlot.class)))
-            .thenAnswer(invocation -> invocation.getArgument(0));
+        stubBulkUpdate(slot1, slot2, slot3);
 
         // When
         List<SlotStatusUpdateResponse> responses = slotStatusService.updateMultipleSlotStatus(requests);
@@ -304,7 +316,9 @@ public class SlotStatusServiceImplTest {
         assertThat(responses.get(2).getMessage()).isEqualTo("Batch update: available");
         
         verify(slotStatusValidationService, times(1)).validateMultipleSlotStatusUpdate(requests);
-        verify(slotStatusRepository, times(3)).save(any(DoctorAvailableSlot.class));
+        verify(slotRepository, times(1)).bulkUpdateSlotStatus(
+                any(UUID[].class), any(Long[].class), any(Boolean[].class), any(LocalDateTime.class));
+        verify(slotStatusRepository, never()).save(any(DoctorAvailableSlot.class));
     }
 
     @Test
@@ -326,15 +340,7 @@ public class SlotStatusServiceImplTest {
                 .build()
         );
         
-        DoctorAvailableSlot slot1 = createSlot(slotId1, false);
-        DoctorAvailableSlot slot2 = createSlot(slotId2, true);
-        
-        when(slotStatusValidationService.findAndValidateSlotForUpdate(slotId1, true))
-            .thenReturn(slot1);
-        when(slotStatusValidationService.findAndValidateSlotForUpdate(slotId2, false))
-            .thenReturn(slot2);
-        when(slotStatusRepository.save(any(DoctorAvailableSlot.class)))
-            .thenAnswer(invocation -> invocation.getArgument(0));
+        stubBulkUpdate(createSlot(slotId1, false), createSlot(slotId2, true));
 
         // When
         List<SlotStatusUpdateResponse> responses = slotStatusService.updateMultipleSlotStatus(requests);
@@ -355,19 +361,18 @@ public class SlotStatusServiceImplTest {
                 .build()
         );
         
-        DoctorAvailableSlot slot = createSlot(requests.get(0).getSlotId(), false);
-        when(slotStatusValidationService.findAndValidateSlotForUpdate(any(UUID.class), anyBoolean()))
-            .thenReturn(slot);
-        when(slotStatusRepository.save(any(DoctorAvailableSlot.class)))
-            .thenAnswer(invocation -> invocation.getArgument(0));
+        stubBulkUpdate(createSlot(requests.get(0).getSlotId(), false));
 
         // When
         slotStatusService.updateMultipleSlotStatus(requests);
 
         // Then
-        InOrder inOrder = inOrder(slotStatusValidationService, slotStatusValidationService);
+        InOrder inOrder = inOrder(slotStatusValidationService, slotRepository);
         inOrder.verify(slotStatusValidationService).validateMultipleSlotStatusUpdate(requests);
-        inOrder.verify(slotStatusValidationService).findAndValidateSlotForUpdate(any(UUID.class), anyBoolean());
+        inOrder.verify(slotStatusValidationService).validateSlotAvailabilityUpdate(
+                any(UUID.class), any(DoctorAvailableSlot.class), anyBoolean());
+        inOrder.verify(slotRepository).bulkUpdateSlotStatus(
+                any(UUID[].class), any(Long[].class), any(Boolean[].class), any(LocalDateTime.class));
     }
 
     @Test
@@ -405,21 +410,15 @@ public class SlotStatusServiceImplTest {
         
         DoctorAvailableSlot slot1 = createSlot(slotId1, false);
         DoctorAvailableSlot slot2 = createSlot(slotId2, true);
-        
-        when(slotStatusValidationService.findAndValidateSlotForUpdate(slotId1, true))
-            .thenReturn(slot1);
-        when(slotStatusValidationService.findAndValidateSlotForUpdate(slotId2, false))
-            .thenReturn(slot2);
-        when(slotStatusRepository.save(any(DoctorAvailableSlot.class)))
-            .thenAnswer(invocation -> invocation.getArgument(0));
+        stubBulkUpdate(slot1, slot2);
 
         // When: Update multiple slots
         List<SlotStatusUpdateResponse> responses = slotStatusService.updateMultipleSlotStatus(requests);
 
-        // Then: Mỗi slot được update độc lập
+        // Then: Mỗi slot được validate độc lập với trạng thái đích của nó
         assertThat(responses).hasSize(2);
-        verify(slotStatusValidationService, times(1)).findAndValidateSlotForUpdate(slotId1, true);
-        verify(slotStatusValidationService, times(1)).findAndValidateSlotForUpdate(slotId2, false);
+        verify(slotStatusValidationService, times(1)).validateSlotAvailabilityUpdate(slotId1, slot1, true);
+        verify(slotStatusValidationService, times(1)).validateSlotAvailabilityUpdate(slotId2, slot2, false);
     }
 
     @Test
@@ -435,13 +434,8 @@ public class SlotStatusServiceImplTest {
             BatchSlotStatusRequest.builder().slotId(slotId3).isAvailable(true).build()
         );
         
-        when(slotStatusValidationService.findAndValidateSlotForUpdate(any(UUID.class), anyBoolean()))
-            .thenAnswer(invocation -> {
-                UUID id = invocation.getArgument(0);
-                return createSlot(id, false);
-            });
-        when(slotStatusRepository.save(any(DoctorAvailableSlot.class)))
-            .thenAnswer(invocation -> invocation.getArgument(0));
+        // DB trả slots theo thứ tự khác với request
+        stubBulkUpdate(createSlot(slotId3, false), createSlot(slotId1, false), createSlot(slotId2, true));
 
         // When
         List<SlotStatusUpdateResponse> responses = slotStatusService.updateMultipleSlotStatus(requests);
@@ -453,6 +447,107 @@ public class SlotStatusServiceImplTest {
         assertThat(responses.get(2).getSlotId()).isEqualTo(slotId3);
     }
 
+    @Test
+    public void testUpdateMultipleSlotStatus_WhenSlotChangedConcurrently_ShouldThrowAndNotPublish() {
+        // Given: Slot thứ hai đã đổi version nên câu UPDATE chỉ trả về một dòng
+        UUID slotId1 = UUID.randomUUID();
+        UUID slotId2 = UUID.randomUUID();
+        DoctorAvailableSlot slot1 = createSlot(slotId1, false);
+        DoctorAvailableSlot slot2 = createSlot(slotId2, false);
+
+        List<BatchSlotStatusRequest> requests = Arrays.asList(
+            BatchSlotStatusRequest.builder().slotId(slotId1).isAvailable(true).build(),
+            BatchSlotStatusRequest.builder().slotId(slotId2).isAvailable(true).build()
+        );
+
+        when(slotRepository.findAllById(anyList())).thenReturn(Arrays.asList(slot1, slot2));
+        when(slotRepository.bulkUpdateSlotStatus(
+                any(UUID[].class), any(Long[].class), any(Boolean[].class), any(LocalDateTime.class)))
+            .thenReturn(List.of(slotRow(slot1, true)));
+
+        // When & Then
+        assertThatThrownBy(() -> slotStatusService.updateMultipleSlotStatus(requests))
+            .isInstanceOf(CustomException.class);
+        verify(eventPublisher, never()).publishEvent(any(SlotsStatusChangedEvent.class));
+    }
+
+    @Test
+    public void testUpdateSlotsStatus_ShouldPublishOneEventPerDoctorAndDate() {
+        // Given: 4 slots của cùng một bác sĩ trong 2 ngày
+        UUID doctorId = UUID.randomUUID();
+        LocalDate day1 = LocalDate.now().plusDays(1);
+        LocalDate day2 = LocalDate.now().plusDays(2);
+        List<DoctorAvailableSlot> slots = Arrays.asList(
+            createSlot(doctorId, day1, true),
+            createSlot(doctorId, day1, true),
+            createSlot(doctorId, day2, true),
+            createSlot(doctorId, day2, true)
+        );
+        stubBulkUpdateRows(slots);
+
+        // When
+        List<SlotStatusUpdateResponse> responses = slotStatusService.updateSlotsStatus(slots, false, "Doctor absence");
+
+        // Then
+        assertThat(responses).hasSize(4)
+            .allSatisfy(response -> {
+                assertThat(response.getIsAvailable()).isFalse();
+                assertThat(response.getMessage()).isEqualTo("Doctor absence");
+            });
+
+        ArgumentCaptor<SlotsStatusChangedEvent> eventCaptor = ArgumentCaptor.forClass(SlotsStatusChangedEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(eventCaptor.capture());
+        assertThat(eventCaptor.getAllValues())
+            .extracting(SlotsStatusChangedEvent::getSlotDate)
+            .containsExactlyInAnyOrder(day1, day2);
+        assertThat(eventCaptor.getAllValues())
+            .allSatisfy(event -> {
+                assertThat(event.getDoctorId()).isEqualTo(doctorId);
+                assertThat(event.getChanges()).hasSize(2);
+            });
+        verify(slotRepository, times(1)).bulkUpdateSlotStatus(
+                any(UUID[].class), any(Long[].class), any(Boolean[].class), any(LocalDateTime.class));
+        verify(slotStatusValidationService).validateSlotsStatusUpdate(slots);
+        verify(entityManager).clear();
+    }
+
+    @Test
+    public void testUpdateSlotsStatus_With1000Slots_ShouldUseOneUpdate() {
+        // Given: lịch nghỉ dài ảnh hưởng 1.000 slot, vượt xa giới hạn của API batch
+        UUID doctorId = UUID.randomUUID();
+        List<DoctorAvailableSlot> slots = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            slots.add(createSlot(doctorId, LocalDate.now().plusDays(1 + i / 20), true));
+        }
+        stubBulkUpdateRows(slots);
+
+        // When
+        List<SlotStatusUpdateResponse> responses = slotStatusService.updateSlotsStatus(slots, false, "Doctor absence");
+
+        // Then
+        assertThat(responses).hasSize(1_000);
+        verify(slotRepository, times(1)).bulkUpdateSlotStatus(
+                any(UUID[].class), any(Long[].class), any(Boolean[].class), any(LocalDateTime.class));
+    }
+
+    @Test
+    public void testUpdateSlotsStatus_WhenValidationFails_ShouldNotUpdate() {
+        // Given: batch có slot ở quá khứ
+        List<DoctorAvailableSlot> slots = Arrays.asList(
+            createSlot(UUID.randomUUID(), LocalDate.now().plusDays(1), true),
+            createSlot(UUID.randomUUID(), LocalDate.now().minusDays(1), true)
+        );
+        doThrow(new CustomException(ErrorCode.SLOT_IN_PAST))
+            .when(slotStatusValidationService).validateSlotsStatusUpdate(slots);
+
+        // When & Then
+        assertThatThrownBy(() -> slotStatusService.updateSlotsStatus(slots, false, "Doctor absence"))
+            .isInstanceOf(CustomException.class);
+        verify(slotRepository, never()).bulkUpdateSlotStatus(
+                any(UUID[].class), any(Long[].class), any(Boolean[].class), any(LocalDateTime.class));
+        verify(eventPublisher, never()).publishEvent(any(SlotsStatusChangedEvent.class));
+    }
+
     private DoctorAvailableSlot createSlot(UUID slotId, boolean isAvailable) {
         return DoctorAvailableSlot.builder()
                 .id(slotId)
@@ -463,5 +558,80 @@ public class SlotStatusServiceImplTest {
                 .isAvailable(isAvailable)
                 .build();
     }
+
+    private DoctorAvailableSlot createSlot(UUID doctorId, LocalDate slotDate, boolean isAvailable) {
+        return DoctorAvailableSlot.builder()
+                .id(UUID.randomUUID())
+                .doctorId(doctorId)
+                .slotDate(slotDate)
+                .startTime(LocalTime.of(9, 0))
+                .endTime(LocalTime.of(10, 0))
+                .isAvailable(isAvailable)
+                .version(0L)
+                .build();
+    }
+
+    // Giả lập câu UPDATE hàng loạt: slot nào được gửi lên đều cập nhật thành công
+    private void stubBulkUpdate(DoctorAvailableSlot... slots) {
+        when(slotRepository.findAllById(anyList())).thenReturn(Arrays.asList(slots));
+        stubBulkUpdateRows(Arrays.asList(slots));
+    }
+
+    private void stubBulkUpdateRows(List<DoctorAvailableSlot> slots) {
+        Map<UUID, DoctorAvailableSlot> slotsById = new HashMap<>();
+        slots.forEach(slot -> slotsById.put(slot.getId(), slot));
+
+        when(slotRepository.bulkUpdateSlotStatus(
+                any(UUID[].class), any(Long[].class), any(Boolean[].class), any(LocalDateTime.class)))
+            .thenAnswer(invocation -> {
+                UUID[] ids = invocation.getArgument(0);
+                Boolean[] statuses = invocation.getArgument(2);
+                List<SlotStatusProjection> rows = new ArrayList<>();
+                for (int i = 0; i < ids.length; i++) {
+                    rows.add(slotRow(slotsById.get(ids[i]), statuses[i]));
+                }
+                return rows;
+            });
+    }
+
+    private SlotStatusProjection slotRow(DoctorAvailableSlot slot, boolean isAvailable) {
+        long version = slot.getVersion() != null ? slot.getVersion() + 1 : 1L;
+        return new SlotStatusProjection() {
+            @Override
+            public UUID getId() {
+                return slot.getId();
+            }
+
+            @Override
+            public UUID getDoctorId() {
+                return slot.getDoctorId();
+            }
+
+            @Override
+            public LocalDate getSlotDate() {
+                return slot.getSlotDate();
+            }
+
+            @Override
+            public LocalTime getStartTime() {
+                return slot.getStartTime();
+            }
+
+            @Override
+            public LocalTime getEndTime() {
+                return slot.getEndTime();
+            }
+
+            @Override
+            public Boolean getIsAvailable() {
+                return isAvailable;
+            }
+
+            @Override
+            public Long getVersion() {
+                return version;
+            }
+        };
+    }
     
 }
@@ -0,0 +1,78 @@
+package org.project.service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.project.dto.request.BatchSlotStatusRequest;
+import org.project.exception.CustomException;
+import org.project.model.DoctorAvailableSlot;
+import org.project.repository.SlotStatusRepository;
+import org.project.service.impl.SlotStatusValidationServiceImpl;
+
+@ExtendWith(MockitoExtension.class)
+class SlotStatusValidationServiceImplTest {
+
+    @Mock
+    private SlotStatusRepository slotStatusRepository;
+
+    @InjectMocks
+    private SlotStatusValidationServiceImpl slotStatusValidationService;
+
+    @Test
+    void testValidateMultipleSlotStatusUpdate_WhenOverLimit_ShouldReject() {
+        // Given: request từ API vượt MAX_BULK_SLOTS
+        List<BatchSlotStatusRequest> requests = new ArrayList<>();
+        for (int i = 0; i <= SlotStatusValidationService.MAX_BULK_SLOTS; i++) {
+            requests.add(BatchSlotStatusRequest.builder().slotId(UUID.randomUUID()).isAvailable(false).build());
+        }
+
+        // When & Then
+        assertThatThrownBy(() -> slotStatusValidationService.validateMultipleSlotStatusUpdate(requests))
+                .isInstanceOf(CustomException.class);
+    }
+
+    @Test
+    void testValidateSlotsStatusUpdate_ShouldNotApplyApiLimitToInternalCallers() {
+        // Given: lịch nghỉ ảnh hưởng 1.000 slot
+        List<DoctorAvailableSlot> slots = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            slots.add(DoctorAvailableSlot.builder()
+                    .id(UUID.randomUUID())
+                    .doctorId(UUID.randomUUID())
+                    .slotDate(LocalDate.now().plusDays(1))
+                    .startTime(LocalTime.of(9, 0))
+                    .endTime(LocalTime.of(10, 0))
+                    .build());
+        }
+
+        // When & Then
+        assertThatCode(() -> slotStatusValidationService.validateSlotsStatusUpdate(slots))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    void testValidateSlotsStatusUpdate_WhenSlotInPast_ShouldReject() {
+        // Given
+        DoctorAvailableSlot pastSlot = DoctorAvailableSlot.builder()
+                .id(UUID.randomUUID())
+                .doctorId(UUID.randomUUID())
+                .slotDate(LocalDate.now().minusDays(1))
+                .startTime(LocalTime.of(9, 0))
+                .endTime(LocalTime.of(10, 0))
+                .build();
+
+        // When & Then
+        assertThatThrownBy(() -> slotStatusValidationService.validateSlotsStatusUpdate(List.of(pastSlot)))
+                .isInstanceOf(CustomException.class);
+    }
+}
@@ -0,0 +1,67 @@
+package org.project.support;
+
+import java.nio.charset.StandardCharsets;
+
+import org.project.config.RedisConfig;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * Redis thật cho test (Testcontainers), cấu hình template giống RedisConfig của service
+ */
+public final class RedisTestSupport {
+
+    public static final int REDIS_PORT = 6379;
+
+    private RedisTestSupport() {
+    }
+
+    /**
+     * Cùng image với docker-compose
+     */
+    public static GenericContainer<?> redisContainer() {
+        return new GenericContainer<>(DockerImageName.parse("redis:7-alpine")).withExposedPorts(REDIS_PORT);
+    }
+
+    public static RedisTemplate<String, Object> connect(GenericContainer<?> redis) {
+        RedisConfig redisConfig = new RedisConfig();
+        ReflectionTestUtils.setField(redisConfig, "host", redis.getHost());
+        ReflectionTestUtils.setField(redisConfig, "port", redis.getMappedPort(REDIS_PORT));
+        ReflectionTestUtils.setField(redisConfig, "password", "");
+
+        RedisTemplate<String, Object> redisTemplate = redisConfig.redisTemplate();
+        JedisConnectionFactory connectionFactory = (JedisConnectionFactory) redisTemplate.getConnectionFactory();
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate.afterPropertiesSet();
+        return redisTemplate;
+    }
+
+    public static void disconnect(RedisTemplate<String, Object> redisTemplate) {
+        ((JedisConnectionFactory) redisTemplate.getConnectionFactory()).destroy();
+    }
+
+    public static void flushAll(RedisTemplate<String, Object> redisTemplate) {
+        redisTemplate.execute((RedisCallback<Void>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+    }
+
+    /**
+     * Đọc giá trị chuỗi thô (ví dụ giá trị do Lua script ghi), không qua JSON serializer
+     */
+    public static String getRaw(RedisTemplate<String, Object> redisTemplate, String key) {
+        byte[] value = redisTemplate.execute((RedisCallback<byte[]>) connection ->
+                connection.stringCommands().get(bytes(key)));
+        return value == null ? null : new String(value, StandardCharsets.UTF_8);
+    }
+
+    public static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,125 @@
+package org.project.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.Test;
+import org.project.dto.cache.DoctorAvailabilityCacheData;
+import org.project.dto.cache.TimeSlot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+class AvailabilityBinaryCodecTest {
+
+    private static final Logger log = LoggerFactory.getLogger(AvailabilityBinaryCodecTest.class);
+
+    private final UUID doctorId = UUID.randomUUID();
+    private final LocalDate date = LocalDate.now();
+
+    @Test
+    void testEncodeDecode_ShouldRoundTripSlots() {
+        List<TimeSlot> slots = daySlots(20);
+        slots.get(3).setAvailable(false);
+        slots.get(17).setVersion(null);
+        LocalDateTime lastUpdate = LocalDateTime.of(2025, 1, 1, 10, 30);
+
+        byte[] payload = AvailabilityBinaryCodec.encode(slots, 1234L, lastUpdate);
+        DoctorAvailabilityCacheData decoded = AvailabilityBinaryCodec.decode(doctorId, date, payload);
+
+        assertThat(decoded.getDoctorId()).isEqualTo(doctorId);
+        assertThat(decoded.getDate()).isEqualTo(date);
+        assertThat(decoded.getCachedAt()).isEqualTo(1234L);
+        assertThat(decoded.getLastUpdate()).isEqualTo(lastUpdate);
+        assertThat(decoded.getTotalSlots()).isEqualTo(20);
+        assertThat(decoded.getSlots())
+                .usingRecursiveFieldByFieldElementComparatorIgnoringFields("lastUpdate")
+                .containsExactlyElementsOf(slots);
+    }
+
+    @Test
+    void testEncode_WhenTimeIsNotMinuteAligned_ShouldReturnNull() {
+        List<TimeSlot> slots = daySlots(2);
+        slots.get(1).setStartTime(LocalTime.of(9, 0, 30));
+
+        assertThat(AvailabilityBinaryCodec.encode(slots, 0L, null)).isNull();
+    }
+
+    @Test
+    void testDecode_WithUnknownVersion_ShouldFail() {
+        byte[] payload = AvailabilityBinaryCodec.encode(daySlots(1), 0L, null);
+        payload[0] = 9;
+
+        assertThatThrownBy(() -> AvailabilityBinaryCodec.decode(doctorId, date, payload))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testEncodedSize_ShouldBeMuchSmallerThanJsonHash() {
+        // Given: một ngày làm việc 20 slot, đo như khi lưu trong Redis
+        List<TimeSlot> slots = daySlots(20);
+        GenericJackson2JsonRedisSerializer serializer = redisSerializer();
+
+        long jsonBytes = 0;
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("doctorId", doctorId.toString());
+        metadata.put("date", date.toString());
+        metadata.put("totalSlots", slots.size());
+        metadata.put("cachedAt", System.currentTimeMillis());
+        jsonBytes += "metadata".length() + serializer.serialize(metadata).length;
+        for (TimeSlot slot : slots) {
+            jsonBytes += ("slot:" + slot.getSlotId()).getBytes(StandardCharsets.UTF_8).length
+                    + serializer.serialize(slot).length;
+        }
+
+        // When
+        int compactBytes = AvailabilityBinaryCodec.encode(slots, System.currentTimeMillis(), null).length;
+
+        // Then
+        log.info("Bytes mỗi bác sĩ/ngày (20 slot): json hash={}, compact={}", jsonBytes, compactBytes);
+        assertThat(compactBytes).isEqualTo(1 + 8 + 8 + 2 + 3 + 20 * 24);
+        assertThat(compactBytes * 5L).isLessThan(jsonBytes);
+    }
+
+    private List<TimeSlot> daySlots(int count) {
+        List<TimeSlot> slots = new ArrayList<>();
+        LocalTime start = LocalTime.of(7, 0);
+        for (int i = 0; i < count; i++) {
+            slots.add(TimeSlot.builder()
+                    .slotId(UUID.randomUUID())
+                    .startTime(start.plusMinutes(30L * i))
+                    .endTime(start.plusMinutes(30L * (i + 1)))
+                    .isAvailable(true)
+                    .version((long) i)
+                    .build());
+        }
+        return slots;
+    }
+
+    private GenericJackson2JsonRedisSerializer redisSerializer() {
+        // Cấu hình giống RedisConfig
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        objectMapper.activateDefaultTyping(
+                objectMapper.getPolymorphicTypeValidator(),
+                ObjectMapper.DefaultTyping.NON_FINAL,
+                JsonTypeInfo.As.PROPERTY
+        );
+        return new GenericJackson2JsonRedisSerializer(objectMapper);
+    }
+}
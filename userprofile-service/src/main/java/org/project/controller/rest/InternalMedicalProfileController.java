@@ -1,5 +1,6 @@
 package org.project.controller.rest;
 
+import java.util.List;
 import java.util.UUID;
 
 import org.project.dto.PageResponse;
@@ -12,6 +13,8 @@ import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -53,6 +56,16 @@ public class InternalMedicalProfileController {
     }
 
 
+    /**
+     * Lấy thông tin nhiều bác sĩ trong một request, dùng cho cache profile của scheduling-service
+     */
+    @PostMapping("/doctors/batch")
+    public ResponseEntity<List<DoctorResponse>> getDoctorsByIds(@RequestBody List<UUID> doctorIds) {
+        log.debug("Internal API: Lấy thông tin {} bác sĩ", doctorIds.size());
+
+        return ResponseEntity.ok(medicalProfileService.getDoctorsByIds(doctorIds));
+    }
+
     @GetMapping("/doctors")
     public ResponseEntity<PageResponse<DoctorResponse>> getDoctors(
             @RequestParam(value = "page", defaultValue = "0") int page,
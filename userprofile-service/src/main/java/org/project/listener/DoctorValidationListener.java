@@ -99,6 +99,8 @@
 //
 //    private void publishValidationFailed(AppointmentCreatedEvent event, String reason) {
 //        ValidationFailedEvent failedEvent = ValidationFailedEvent.builder()
+//                .eventId(UUID.nameUUIDFromBytes(("VALIDATION_FAILED:" + event.getEventId())
+//                        .getBytes(StandardCharsets.UTF_8)).toString())
 //                .sagaId(event.getSagaId().toString())
 //                .appointmentId(event.getAppointmentId())
 //                .reason(reason)
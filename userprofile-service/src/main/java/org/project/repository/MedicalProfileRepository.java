@@ -1,5 +1,6 @@
 package org.project.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -40,6 +41,31 @@ public interface MedicalProfileRepository extends JpaRepository<MedicalProfile,
     """)
     Optional<MedicalProfileResponse> findProfileByUserId(@Param("userId") UUID userId);
 
+    @Query("""
+        SELECT new org.project.dto.response.MedicalProfileResponse(
+            m.id,
+            m.userId,
+            up.firstName,
+            up.lastName,
+            m.licenseNumber,
+            up.gender,
+            up.phone,
+            up.avatarUrl,
+            s.id,
+            s.name,
+            m.qualification,
+            m.yearsOfExperience,
+            m.consultationFee,
+            m.bio,
+            m.isDoctorApproved
+        )
+        FROM MedicalProfile m
+        JOIN m.specialty s
+        JOIN UserProfile up ON up.userId = m.userId
+        WHERE m.userId IN :userIds
+    """)
+    List<MedicalProfileResponse> findProfilesByUserIds(@Param("userIds") Collection<UUID> userIds);
+
     boolean existsByLicenseNumber(String licenseNumber);
 
     @Query("""
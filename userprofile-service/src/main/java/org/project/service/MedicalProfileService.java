@@ -1,5 +1,7 @@
 package org.project.service;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 import org.project.dto.PageResponse;
@@ -14,6 +16,12 @@ public interface MedicalProfileService {
 
     @Transactional(readOnly = true)
     DoctorResponse validateDoctorForAppointment(UUID doctorId);
+
+    /**
+     * Lấy thông tin nhiều bác sĩ trong một truy vấn, bác sĩ không tồn tại bị bỏ qua
+     */
+    @Transactional(readOnly = true)
+    List<DoctorResponse> getDoctorsByIds(Collection<UUID> doctorIds);
     
     /**
      * Lấy danh sách bác sĩ với phân trang cho internal API
@@ -1,5 +1,7 @@
 package org.project.service.impl;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 import org.project.dto.PageResponse;
@@ -44,7 +46,22 @@ public class MedicalProfileServiceImpl implements MedicalProfileService {
         MedicalProfileResponse profile = medicalProfileRepository.findProfileByUserId(doctorId)
                 .orElseThrow(() -> new CustomException("Doctor not found: " + doctorId));
 
-        // Chuyển đổi MedicalProfileResponse thành DoctorResponse
+        return toDoctorResponse(profile);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<DoctorResponse> getDoctorsByIds(Collection<UUID> doctorIds) {
+        if (doctorIds == null || doctorIds.isEmpty()) {
+            return List.of();
+        }
+        return medicalProfileRepository.findProfilesByUserIds(doctorIds).stream()
+                .map(this::toDoctorResponse)
+                .toList();
+    }
+
+    // Chuyển đổi MedicalProfileResponse thành DoctorResponse
+    private DoctorResponse toDoctorResponse(MedicalProfileResponse profile) {
         return DoctorResponse.builder()
                 .userId(profile.getUserId())
                 .fullName(NameUtils.formatDoctorFullName(profile.getFirstName() + " " + profile.getLastName()))